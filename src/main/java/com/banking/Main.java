@@ -1,9 +1,18 @@
 package main.java.com.banking;
 
+import main.java.com.banking.engine.PostingEngine;
+import main.java.com.banking.engine.PostingEngineFactory;
 import main.java.com.banking.model.*;
 import main.java.com.banking.service.*;
 import main.java.com.banking.util.DatabaseConfig;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -14,6 +23,7 @@ public class Main {
 
     private static AccountManager accountManager;
     private static TransactionManager transactionManager;
+    private static PostingEngine postingEngine;
     private static ReportGenerator reportGenerator;
     private static EmailService emailService;
     private static BalanceAlertTracker alertTracker;
@@ -37,12 +47,18 @@ public class Main {
         // Initialize all services
         accountManager = AccountManager.getInstance();
         transactionManager = TransactionManager.getInstance();
+        postingEngine = PostingEngineFactory.createConfiguredEngine();
         reportGenerator = new ReportGenerator();
         emailService = EmailService.getInstance();
         alertTracker = BalanceAlertTracker.getInstance();
 
         // Start balance monitoring
         alertTracker.startMonitoring();
+        PostingHorizon.getInstance().start();
+        BalanceCheckpoints.getInstance().start();
+        DailySummaries.getInstance().start();
+        ChangeLog.getInstance().start();
+        TransactionAnalytics.getInstance().start();
 
         // Main menu loop
         boolean running = true;
@@ -103,7 +119,8 @@ public class Main {
             System.out.println("2. View Account Details");
             System.out.println("3. View All Accounts");
             System.out.println("4. Delete Account");
-            System.out.println("5. Back to Main Menu");
+            System.out.println("5. Bulk Import from CSV");
+            System.out.println("6. Back to Main Menu");
 
             int choice = getIntInput("Enter choice: ");
 
@@ -112,7 +129,8 @@ public class Main {
                 case 2: viewAccountMenu(); break;
                 case 3: accountManager.displayAllAccounts(); break;
                 case 4: deleteAccountMenu(); break;
-                case 5: return;
+                case 5: importAccountsMenu(); break;
+                case 6: return;
                 default: System.out.println("❌ Invalid choice");
             }
         }
@@ -128,7 +146,10 @@ public class Main {
             System.out.println("2. Withdraw Money");
             System.out.println("3. Transfer Money");
             System.out.println("4. View Transaction History");
-            System.out.println("5. Back to Main Menu");
+            System.out.println("5. Run End-of-Day Interest Accrual");
+            System.out.println("6. View Balance As Of Date");
+            System.out.println("7. View Transfers Between Two Accounts");
+            System.out.println("8. Back to Main Menu");
 
             int choice = getIntInput("Enter choice: ");
 
@@ -137,7 +158,10 @@ public class Main {
                 case 2: withdrawMenu(); break;
                 case 3: transferMenu(); break;
                 case 4: viewTransactionHistoryMenu(); break;
-                case 5: return;
+                case 5: interestAccrualMenu(); break;
+                case 6: balanceAsOfMenu(); break;
+                case 7: transfersBetweenMenu(); break;
+                case 8: return;
                 default: System.out.println("❌ Invalid choice");
             }
         }
@@ -154,7 +178,13 @@ public class Main {
             System.out.println("3. Generate All Transactions Report");
             System.out.println("4. Generate Low Balance Report");
             System.out.println("5. Export Accounts to CSV");
-            System.out.println("6. Back to Main Menu");
+            System.out.println("6. Export Transactions");
+            System.out.println("7. Generate Monthly Statements");
+            System.out.println("8. Reconcile Ledger with Balances");
+            System.out.println("9. Generate Daily Summary Report");
+            System.out.println("10. Generate Monthly Summary Report");
+            System.out.println("11. Transaction Analytics");
+            System.out.println("12. Back to Main Menu");
 
             int choice = getIntInput("Enter choice: ");
 
@@ -179,6 +209,25 @@ public class Main {
                         reportGenerator.exportAccountsToCSV();
                         break;
                     case 6:
+                        exportTransactionsMenu();
+                        break;
+                    case 7:
+                        monthlyStatementsMenu();
+                        break;
+                    case 8:
+                        reconciliationMenu();
+                        break;
+                    case 9:
+                        LocalDate day = getDateInput("Date (dd-MM-yyyy, blank for today): ");
+                        reportGenerator.generateDailySummaryReport(day != null ? day : LocalDate.now());
+                        break;
+                    case 10:
+                        monthlySummaryMenu();
+                        break;
+                    case 11:
+                        analyticsMenu();
+                        break;
+                    case 12:
                         return;
                     default:
                         System.out.println("❌ Invalid choice");
@@ -189,6 +238,141 @@ public class Main {
         }
     }
 
+    /**
+     * Export transactions menu
+     */
+    private static void exportTransactionsMenu() throws Exception {
+        System.out.println("\n--- Export Transactions ---");
+        LocalDate from = getDateInput("From date (dd-MM-yyyy, blank for all): ");
+        LocalDate to = getDateInput("To date (dd-MM-yyyy, blank for all): ");
+
+        System.out.print("Account ID (blank for all): ");
+        String accountId = scanner.nextLine().trim();
+
+        System.out.print("Format (csv/jsonl): ");
+        TransactionExporter.Format format = scanner.nextLine().trim().equalsIgnoreCase("jsonl")
+                ? TransactionExporter.Format.JSONL : TransactionExporter.Format.CSV;
+
+        System.out.print("Compress with GZIP? (yes/no): ");
+        boolean gzip = scanner.nextLine().trim().equalsIgnoreCase("yes");
+
+        int parts = Math.max(1, getIntInput("Number of files to write in parallel: "));
+
+        TransactionExporter.ExportResult result = new TransactionExporter()
+                .export(from, to, accountId, format, gzip, parts);
+
+        System.out.println("✓ " + result);
+        for (String file : result.getFiles()) {
+            System.out.println("  " + file);
+        }
+    }
+
+    /**
+     * Monthly statements menu
+     */
+    private static void monthlyStatementsMenu() throws Exception {
+        System.out.print("Statement month (MM-yyyy, blank for last month): ");
+        String input = scanner.nextLine().trim();
+
+        YearMonth month;
+        try {
+            month = input.isEmpty() ? YearMonth.now().minusMonths(1)
+                    : YearMonth.parse(input, DateTimeFormatter.ofPattern("MM-yyyy"));
+        } catch (DateTimeParseException e) {
+            System.out.println("❌ Invalid month. Please use MM-yyyy.");
+            return;
+        }
+
+        StatementGenerator.StatementRunResult result = new StatementGenerator().generateMonthlyStatements(month);
+        System.out.println("✓ " + result);
+    }
+
+    /**
+     * Monthly summary report menu
+     */
+    private static void monthlySummaryMenu() throws Exception {
+        System.out.print("Month (MM-yyyy, blank for this month): ");
+        String input = scanner.nextLine().trim();
+
+        YearMonth month;
+        try {
+            month = input.isEmpty() ? YearMonth.now()
+                    : YearMonth.parse(input, DateTimeFormatter.ofPattern("MM-yyyy"));
+        } catch (DateTimeParseException e) {
+            System.out.println("❌ Invalid month. Please use MM-yyyy.");
+            return;
+        }
+
+        System.out.print("Account ID (blank for all accounts): ");
+        reportGenerator.generateMonthlySummaryReport(month, scanner.nextLine().trim());
+    }
+
+    /**
+     * Transaction analytics menu (in-memory column store)
+     */
+    private static void analyticsMenu() {
+        TransactionAnalytics analytics = TransactionAnalytics.getInstance();
+        if (!analytics.isEnabled()) {
+            System.out.println("❌ Transaction analytics is disabled (analytics.enabled in config.properties)");
+            return;
+        }
+
+        int days = getIntInput("Last how many days: ");
+        System.out.print("Account ID (blank for all): ");
+        String accountId = scanner.nextLine().trim();
+
+        TransactionAnalytics.Filter filter = TransactionAnalytics.Filter.all()
+                .from(LocalDate.now().minusDays(Math.max(0, days - 1)).atStartOfDay());
+        if (!accountId.isEmpty()) {
+            filter.account(accountId);
+        }
+
+        long start = System.nanoTime();
+        long count = analytics.count(filter);
+        long[] counts = analytics.countByType(filter);
+        long[] sums = analytics.sumByType(filter);
+        long[] hours = analytics.hourOfDayCounts(filter);
+        List<TransactionAnalytics.Mover> movers = analytics.topMovers(filter, 10);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("\n========== TRANSACTION ANALYTICS ==========");
+        System.out.println("Postings: " + count + " (of " + analytics.getRowCount() + " in memory, " +
+                elapsedMillis + " ms for all queries)");
+        if (analytics.getResyncCount() > 0) {
+            System.out.println("Reloaded from the ledger " + analytics.getResyncCount() +
+                    " times after falling behind postings");
+        }
+        System.out.println("\nVolume by Type:");
+        for (TransactionType type : TransactionType.values()) {
+            System.out.println(String.format("  %-18s %8d  ₹%.2f", type.getDisplayName(),
+                    counts[type.ordinal()], sums[type.ordinal()] / 100.0));
+        }
+        System.out.println("\nPostings by Hour of Day:");
+        long busiest = Arrays.stream(hours).max().orElse(0);
+        for (int hour = 0; hour < 24; hour++) {
+            int bar = busiest == 0 ? 0 : (int) (hours[hour] * 40 / busiest);
+            System.out.println(String.format("  %02d:00 %8d %s", hour, hours[hour], "#".repeat(bar)));
+        }
+        if (accountId.isEmpty()) {
+            System.out.println("\nTop Movers (net change):");
+            for (TransactionAnalytics.Mover mover : movers) {
+                System.out.println("  " + mover);
+            }
+        }
+    }
+
+    /**
+     * Ledger reconciliation menu
+     */
+    private static void reconciliationMenu() throws Exception {
+        ReconciliationJob.ReconciliationResult result = new ReconciliationJob().run();
+        if (result.getDiscrepancyCount() > 0) {
+            System.err.println("❌ " + result);
+        } else {
+            System.out.println("✓ " + result);
+        }
+    }
+
     /**
      * Alerts Menu
      */
@@ -307,7 +491,8 @@ public class Main {
             String description = scanner.nextLine().trim();
             if (description.isEmpty()) description = null;
 
-            transactionManager.deposit(accountId, amount, description);
+            PostingEngine.await(postingEngine.deposit(accountId, amount, description));
+            System.out.println("✓ Deposit successful: ₹" + String.format("%.2f", amount));
 
             Account account = accountManager.getAccount(accountId);
             System.out.println("New Balance: ₹" + String.format("%.2f", account.getBalance()));
@@ -335,7 +520,8 @@ public class Main {
             String description = scanner.nextLine().trim();
             if (description.isEmpty()) description = null;
 
-            transactionManager.withdraw(accountId, amount, description);
+            PostingEngine.await(postingEngine.withdraw(accountId, amount, description));
+            System.out.println("✓ Withdrawal successful: ₹" + String.format("%.2f", amount));
 
             account = accountManager.getAccount(accountId);
             System.out.println("New Balance: ₹" + String.format("%.2f", account.getBalance()));
@@ -368,7 +554,9 @@ public class Main {
             String description = scanner.nextLine().trim();
             if (description.isEmpty()) description = null;
 
-            transactionManager.transfer(fromAccountId, toAccountId, amount, description);
+            PostingEngine.await(postingEngine.transfer(fromAccountId, toAccountId, amount, description));
+            System.out.println("✓ Transfer successful: ₹" + String.format("%.2f", amount) +
+                    " from " + fromAccountId + " to " + toAccountId);
 
             fromAccount = accountManager.getAccount(fromAccountId);
             Account toAccount = accountManager.getAccount(toAccountId);
@@ -400,6 +588,63 @@ public class Main {
         }
     }
 
+    /**
+     * View transfers between two accounts
+     */
+    private static void transfersBetweenMenu() {
+        try {
+            System.out.print("\nEnter first Account ID: ");
+            String accountId = scanner.nextLine().trim();
+            System.out.print("Enter second Account ID: ");
+            String otherAccountId = scanner.nextLine().trim();
+
+            transactionManager.displayTransfersBetween(accountId, otherAccountId);
+
+        } catch (Exception e) {
+            System.err.println("❌ " + e.getMessage());
+        }
+    }
+
+    /**
+     * End-of-day interest accrual menu
+     */
+    private static void interestAccrualMenu() {
+        try {
+            LocalDate businessDate = getDateInput("Business date (dd-MM-yyyy, blank for yesterday): ");
+            InterestAccrualJob.AccrualRunResult result = new InterestAccrualJob(postingEngine)
+                    .run(businessDate != null ? businessDate : LocalDate.now().minusDays(1));
+
+            if (result.getFailedChunks() > 0) {
+                System.err.println("❌ " + result);
+            } else {
+                System.out.println("✓ " + result);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Interest accrual failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Point-in-time balance menu
+     */
+    private static void balanceAsOfMenu() {
+        try {
+            System.out.print("\nEnter Account ID: ");
+            String accountId = scanner.nextLine().trim();
+            LocalDate date = getDateInput("Date (dd-MM-yyyy, blank for today): ");
+            if (date == null) {
+                date = LocalDate.now();
+            }
+
+            double balance = BalanceCheckpoints.getInstance().getBalanceAsOf(accountId, date.atTime(LocalTime.MAX));
+            System.out.println("Balance of " + accountId + " at the end of " +
+                    date.format(DateTimeFormatter.ofPattern("dd-MM-yyyy")) + ": ₹" + String.format("%.2f", balance));
+
+        } catch (Exception e) {
+            System.err.println("❌ " + e.getMessage());
+        }
+    }
+
     /**
      * View account menu
      */
@@ -453,29 +698,71 @@ public class Main {
         }
     }
 
+    /**
+     * Bulk import accounts from a CSV file
+     */
+    private static void importAccountsMenu() {
+        try {
+            System.out.println("\n--- Bulk Import from CSV ---");
+            System.out.println("Columns: account_id,holder_name,initial_balance,account_type,email,phone");
+            System.out.println("(first line is a header; an interrupted import of the same file resumes)\n");
+
+            System.out.print("Enter CSV file path: ");
+            String path = scanner.nextLine().trim();
+
+            AccountImporter.ImportResult result = new AccountImporter().importFile(path);
+
+            System.out.println("\n✓ " + result);
+            if (result.getRejected() > 0) {
+                System.out.println("Rejected rows written to: " + result.getErrorFile());
+            }
+
+        } catch (Exception e) {
+            System.err.println("❌ Error: " + e.getMessage());
+        }
+    }
+
     /**
      * Display statistics
      */
     private static void displayStatistics() {
         try {
+            SystemAggregates aggregates = SystemAggregates.getInstance();
+
             System.out.println("\n========== SYSTEM STATISTICS ==========");
-            System.out.println("Total Accounts: " + accountManager.getTotalAccounts());
+            System.out.println("Total Accounts: " + aggregates.getAccountCount());
+            System.out.println("Total Balance : ₹" + String.format("%.2f", aggregates.getTotalBalance()));
+            if (aggregates.getAccountCount() > 0) {
+                System.out.println("Average Balance: ₹" + String.format("%.2f", aggregates.getAverageBalance()));
+            }
 
-            double totalBalance = 0;
-            for (Account account : accountManager.getAllAccounts()) {
-                totalBalance += account.getBalance();
+            System.out.println("\nBy Account Type:");
+            for (AccountType type : AccountType.values()) {
+                System.out.println(String.format("  %-18s %6d accounts  ₹%.2f", type.getDisplayName(),
+                        aggregates.getAccountCount(type), aggregates.getTotalBalance(type)));
             }
-            System.out.println("Total Balance : ₹" + String.format("%.2f", totalBalance));
 
-            if (accountManager.getTotalAccounts() > 0) {
-                System.out.println("Average Balance: ₹" + String.format("%.2f",
-                        totalBalance / accountManager.getTotalAccounts()));
+            System.out.println("\nTransactions: " + aggregates.getTransactionCount());
+            for (TransactionType type : TransactionType.values()) {
+                System.out.println(String.format("  %-18s %6d  ₹%.2f", type.getDisplayName(),
+                        aggregates.getTransactionCount(type), aggregates.getTransactionAmount(type)));
             }
 
             System.out.println("\nAlert Statistics:");
-            System.out.println("Low Balance Accounts: " + alertTracker.getLowBalanceAccounts().size());
-            System.out.println("Critical Balance Accounts: " + alertTracker.getCriticalBalanceAccounts().size());
+            System.out.println("Low Balance Accounts: " + aggregates.getLowBalanceCount());
+            System.out.println("Critical Balance Accounts: " + aggregates.getCriticalBalanceCount());
             System.out.println("Monitoring Status: " + (alertTracker.isMonitoring() ? "ACTIVE" : "INACTIVE"));
+            System.out.println("Posting Engine: " + postingEngine.getMode().getDisplayName());
+            System.out.println("Idempotent Replays: " + IdempotencyStore.getInstance().getReplayCount());
+            BalanceWriteBehind writeBehind = BalanceWriteBehind.getInstance();
+            if (writeBehind.isEnabled()) {
+                System.out.println("Write-Behind: " + writeBehind.getFlushCount() + " flushes, " +
+                        writeBehind.getRowsWritten() + " rows written, " +
+                        writeBehind.getCoalescedCount() + " updates coalesced");
+            }
+            System.out.println("Version Conflicts: " + accountManager.getVersionConflictCount() +
+                    " (" + transactionManager.getPostingRetryCount() + " postings retried)");
+            TransactionEventBus.getInstance().displayStatistics();
 
             System.out.println("=======================================\n");
         } catch (Exception e) {
@@ -499,6 +786,14 @@ public class Main {
      */
     private static void cleanup() {
         alertTracker.stopMonitoring();
+        postingEngine.shutdown();
+        transactionManager.shutdownAsync();
+        TransactionEventBus.getInstance().close();
+        ChangeLog.getInstance().shutdown();
+        BalanceCheckpoints.getInstance().shutdown();
+        DailySummaries.getInstance().shutdown();
+        BalanceWriteBehind.getInstance().shutdown();
+        PostingHorizon.getInstance().shutdown();
         DatabaseConfig.closeConnection();
     }
 
@@ -535,4 +830,22 @@ public class Main {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Utility: Get optional date input (dd-MM-yyyy), null when left blank
+     */
+    private static LocalDate getDateInput(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            String input = scanner.nextLine().trim();
+            if (input.isEmpty()) {
+                return null;
+            }
+            try {
+                return LocalDate.parse(input, DateTimeFormatter.ofPattern("dd-MM-yyyy"));
+            } catch (DateTimeParseException e) {
+                System.out.println("❌ Invalid date. Please use dd-MM-yyyy.");
+            }
+        }
+    }
+}
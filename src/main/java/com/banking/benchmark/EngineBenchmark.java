@@ -0,0 +1,128 @@
+package main.java.com.banking.benchmark;
+
+import main.java.com.banking.engine.EngineMode;
+import main.java.com.banking.engine.PostingEngine;
+import main.java.com.banking.engine.PostingEngineFactory;
+import main.java.com.banking.model.Account;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.service.AccountManager;
+import main.java.com.banking.service.BalanceWriteBehind;
+import main.java.com.banking.util.DatabaseConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Posting Engine Benchmark
+ * Fires the same random mix of deposits, withdrawals and transfers at each engine
+ * from several producer threads and reports postings per second.
+ *
+ * Usage: EngineBenchmark [operations] [producerThreads] [ENGINE_MODE ...]
+ *
+ * NOTE: postings are real - they are written to the configured database.
+ * Amounts are tiny (₹1.00) and deposits outnumber withdrawals, so balances only creep up.
+ */
+public class EngineBenchmark {
+
+    private static final double AMOUNT = 1.00;
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int producers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        List<EngineMode> modes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            modes.add(EngineMode.fromConfig(args[i]));
+        }
+        if (modes.isEmpty()) {
+            modes.addAll(List.of(EngineMode.values()));
+        }
+
+        List<String> accountIds = new ArrayList<>();
+        for (Account account : AccountManager.getInstance().getAllAccounts()) {
+            accountIds.add(account.getAccountId());
+        }
+        if (accountIds.size() < 2) {
+            System.err.println("❌ The benchmark needs at least 2 accounts in the database");
+            return;
+        }
+
+        System.out.println("\n========== POSTING ENGINE BENCHMARK ==========");
+        System.out.println("Operations : " + operations);
+        System.out.println("Producers  : " + producers);
+        System.out.println("Accounts   : " + accountIds.size());
+        System.out.println("==============================================");
+
+        for (EngineMode mode : modes) {
+            run(mode, accountIds, operations, producers);
+        }
+
+        BalanceWriteBehind.getInstance().shutdown();
+        DatabaseConfig.closeConnection();
+    }
+
+    private static void run(EngineMode mode, List<String> accountIds, int operations, int producers)
+            throws InterruptedException {
+        PostingEngine engine = PostingEngineFactory.create(mode);
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        int perProducer = operations / producers;
+
+        long start = System.nanoTime();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(() -> {
+                List<CompletableFuture<Transaction>> pending = new ArrayList<>(perProducer);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                for (int i = 0; i < perProducer; i++) {
+                    String accountId = accountIds.get(random.nextInt(accountIds.size()));
+                    int pick = random.nextInt(10);
+
+                    if (pick < 4) {
+                        pending.add(engine.deposit(accountId, AMOUNT, "Benchmark deposit"));
+                    } else if (pick < 6) {
+                        pending.add(engine.withdraw(accountId, AMOUNT, "Benchmark withdrawal"));
+                    } else {
+                        String target = accountIds.get(random.nextInt(accountIds.size()));
+                        if (target.equals(accountId)) {
+                            pending.add(engine.deposit(accountId, AMOUNT, "Benchmark deposit"));
+                        } else {
+                            pending.add(engine.transfer(accountId, target, AMOUNT, "Benchmark transfer"));
+                        }
+                    }
+                }
+
+                for (CompletableFuture<Transaction> future : pending) {
+                    try {
+                        future.join();
+                        succeeded.incrementAndGet();
+                    } catch (Exception e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }, "bench-producer-" + p);
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        engine.shutdown();
+
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        long total = succeeded.get() + rejected.get();
+
+        System.out.println("\n--- " + mode.getDisplayName() + " ---");
+        System.out.println("Completed  : " + total + " (" + rejected.get() + " rejected)");
+        System.out.println("Elapsed    : " + String.format("%.2f", seconds) + " s");
+        System.out.println("Throughput : " + String.format("%.0f", total / seconds) + " postings/s");
+    }
+}
@@ -0,0 +1,257 @@
+package main.java.com.banking.benchmark;
+
+import main.java.com.banking.engine.EngineMode;
+import main.java.com.banking.engine.PostingEngine;
+import main.java.com.banking.engine.PostingEngineFactory;
+import main.java.com.banking.engine.StatelessPostingEngine;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.service.AccountManager;
+import main.java.com.banking.service.BalanceWriteBehind;
+import main.java.com.banking.service.TransactionManager;
+import main.java.com.banking.util.DatabaseConfig;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-Node Contention Benchmark
+ * Starts several simulator nodes as separate JVMs against the same database and has
+ * them all transfer ₹1.00 back and forth between a small set of accounts. Compares
+ * how each engine copes when nodes fight over the same rows:
+ *   - in-memory engines rely on the version check and retry on conflicts
+ *   - STATELESS serializes on database row locks
+ * Transfers never create or destroy money, so the total of the accounts must not change.
+ *
+ * Usage: MultiNodeBenchmark [nodes] [operationsPerNode] [threadsPerNode] [accounts] [ENGINE_MODE ...]
+ *
+ * NOTE: postings are real - they are written to the configured database.
+ */
+public class MultiNodeBenchmark {
+
+    private static final double AMOUNT = 1.00;
+    private static final long START_DELAY_MS = 5000;
+    private static final String ACCOUNTS_SQL =
+            "SELECT account_id FROM accounts WHERE status = 'ACTIVE' ORDER BY account_id LIMIT ?";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--node")) {
+            runNode(args);
+            return;
+        }
+
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int accounts = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        List<EngineMode> modes = new ArrayList<>();
+        for (int i = 4; i < args.length; i++) {
+            modes.add(EngineMode.fromConfig(args[i]));
+        }
+        if (modes.isEmpty()) {
+            modes.add(EngineMode.SYNCHRONIZED);
+            modes.add(EngineMode.STATELESS);
+        }
+
+        List<String> accountIds = loadAccountIds(accounts);
+        if (accountIds.size() < 2) {
+            System.err.println("❌ The benchmark needs at least 2 accounts in the database");
+            return;
+        }
+
+        System.out.println("\n========== MULTI-NODE BENCHMARK ==========");
+        System.out.println("Nodes          : " + nodes);
+        System.out.println("Ops per node   : " + operations);
+        System.out.println("Threads / node : " + threads);
+        System.out.println("Accounts       : " + accountIds.size() + " (all transfers)");
+        System.out.println("==========================================");
+
+        for (EngineMode mode : modes) {
+            run(mode, nodes, operations, threads, accountIds);
+        }
+
+        DatabaseConfig.closeConnection();
+    }
+
+    // ==================== COORDINATOR ====================
+
+    private static void run(EngineMode mode, int nodes, int operations, int threads, List<String> accountIds)
+            throws Exception {
+        double totalBefore = totalBalance(accountIds);
+        long startAt = System.currentTimeMillis() + START_DELAY_MS;
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<Process> processes = new ArrayList<>();
+        for (int n = 0; n < nodes; n++) {
+            ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    MultiNodeBenchmark.class.getName(), "--node", mode.name(), String.valueOf(operations),
+                    String.valueOf(threads), String.valueOf(accountIds.size()), String.valueOf(startAt));
+            builder.redirectErrorStream(true);
+            processes.add(builder.start());
+        }
+
+        long succeeded = 0;
+        long rejected = 0;
+        long retries = 0;
+        long slowestNanos = 0;
+
+        for (int n = 0; n < nodes; n++) {
+            Process process = processes.get(n);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("RESULT ")) {
+                        String[] parts = line.split(" ");
+                        succeeded += Long.parseLong(parts[1]);
+                        rejected += Long.parseLong(parts[2]);
+                        slowestNanos = Math.max(slowestNanos, Long.parseLong(parts[3]));
+                        retries += Long.parseLong(parts[4]);
+                    } else if (line.startsWith("❌") || line.contains("Exception")) {
+                        System.err.println("[node " + n + "] " + line);
+                    }
+                }
+            }
+            process.waitFor();
+        }
+
+        double seconds = slowestNanos / 1_000_000_000.0;
+        double totalAfter = totalBalance(accountIds);
+
+        System.out.println("\n--- " + mode.getDisplayName() + " ---");
+        System.out.println("Completed  : " + (succeeded + rejected) + " (" + rejected + " rejected)");
+        System.out.println("Retries    : " + retries);
+        System.out.println("Elapsed    : " + String.format("%.2f", seconds) + " s");
+        System.out.println("Throughput : " + String.format("%.0f", seconds > 0 ? succeeded / seconds : 0)
+                + " postings/s across all nodes");
+        System.out.println("Money kept : " + (Math.abs(totalAfter - totalBefore) < 0.005 ? "yes" :
+                "NO (" + String.format("%.2f", totalBefore) + " -> " + String.format("%.2f", totalAfter) + ")"));
+    }
+
+    // ==================== NODE ====================
+
+    /**
+     * One simulator node: --node MODE operations threads accounts startAtMillis
+     */
+    private static void runNode(String[] args) throws Exception {
+        EngineMode mode = EngineMode.fromConfig(args[1]);
+        int operations = Integer.parseInt(args[2]);
+        int threads = Integer.parseInt(args[3]);
+        List<String> accountIds = loadAccountIds(Integer.parseInt(args[4]));
+        long startAt = Long.parseLong(args[5]);
+
+        AccountManager.getInstance();
+        PostingEngine engine = PostingEngineFactory.create(mode);
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        int perThread = operations / threads;
+
+        // All nodes start together
+        long wait = startAt - System.currentTimeMillis();
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+        long start = System.nanoTime();
+
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                List<CompletableFuture<Transaction>> pending = new ArrayList<>(perThread);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                for (int i = 0; i < perThread; i++) {
+                    int from = random.nextInt(accountIds.size());
+                    int to = (from + 1 + random.nextInt(accountIds.size() - 1)) % accountIds.size();
+                    pending.add(engine.transfer(accountIds.get(from), accountIds.get(to), AMOUNT,
+                            "Multi-node benchmark"));
+                }
+
+                for (CompletableFuture<Transaction> future : pending) {
+                    try {
+                        future.join();
+                        succeeded.incrementAndGet();
+                    } catch (Exception e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }, "node-producer-" + t);
+            producers.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : producers) {
+            thread.join();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        engine.shutdown();
+
+        long retries = TransactionManager.getInstance().getPostingRetryCount();
+        if (engine instanceof StatelessPostingEngine) {
+            retries += ((StatelessPostingEngine) engine).getDeadlockRetryCount();
+        }
+
+        System.out.println("RESULT " + succeeded.get() + " " + rejected.get() + " " + elapsedNanos + " " + retries);
+        BalanceWriteBehind.getInstance().shutdown();
+        DatabaseConfig.closeConnection();
+        System.exit(0);
+    }
+
+    // ==================== HELPERS ====================
+
+    /**
+     * The first active account IDs in ID order, across all shards
+     */
+    private static List<String> loadAccountIds(int limit) throws Exception {
+        List<String> accountIds = new ArrayList<>();
+        for (List<String> shardIds : DatabaseConfig.onAllShards(shard -> {
+            List<String> ids = new ArrayList<>();
+            try (Connection conn = DatabaseConfig.getConnection(shard);
+                 PreparedStatement stmt = conn.prepareStatement(ACCOUNTS_SQL)) {
+                stmt.setInt(1, limit);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    ids.add(rs.getString(1));
+                }
+            }
+            return ids;
+        })) {
+            accountIds.addAll(shardIds);
+        }
+        Collections.sort(accountIds);
+        return new ArrayList<>(accountIds.subList(0, Math.min(limit, accountIds.size())));
+    }
+
+    private static double totalBalance(List<String> accountIds) throws Exception {
+        double total = 0;
+        for (double shardTotal : DatabaseConfig.onAllShards(shard -> {
+            double sum = 0;
+            try (Connection conn = DatabaseConfig.getConnection(shard);
+                 PreparedStatement stmt = conn.prepareStatement("SELECT balance FROM accounts WHERE account_id = ?")) {
+                for (String accountId : accountIds) {
+                    if (DatabaseConfig.shardOf(accountId) != shard) {
+                        continue;
+                    }
+                    stmt.setString(1, accountId);
+                    ResultSet rs = stmt.executeQuery();
+                    if (rs.next()) {
+                        sum += rs.getDouble(1);
+                    }
+                }
+            }
+            return sum;
+        })) {
+            total += shardTotal;
+        }
+        return total;
+    }
+}
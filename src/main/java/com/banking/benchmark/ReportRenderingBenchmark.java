@@ -0,0 +1,132 @@
+package main.java.com.banking.benchmark;
+
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.model.TransactionStatus;
+import main.java.com.banking.model.TransactionType;
+import main.java.com.banking.service.ReportGenerator;
+import main.java.com.banking.util.ReportWriter;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Report Rendering Benchmark
+ * Renders the same all-transactions table (synthetic rows, no database needed) with the
+ * old approach - String.format and a new DateTimeFormatter per row through a FileWriter -
+ * and with ReportWriter, and reports rows per second for each. Both outputs must be
+ * byte-for-byte identical.
+ *
+ * Usage: ReportRenderingBenchmark [rows] [rounds]
+ */
+public class ReportRenderingBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        List<Transaction> transactions = generate(rows);
+        Path legacyFile = Files.createTempFile("report-legacy", ".txt");
+        Path writerFile = Files.createTempFile("report-writer", ".txt");
+
+        System.out.println("\n========== REPORT RENDERING BENCHMARK ==========");
+        System.out.println("Rows   : " + rows);
+        System.out.println("Rounds : " + rounds + " (after " + WARMUP_ROUNDS + " warm-up rounds)");
+        System.out.println("================================================");
+
+        try {
+            double legacy = measure("String.format + FileWriter", rounds, rows,
+                    () -> renderLegacy(transactions, legacyFile));
+            double writer = measure("ReportWriter + FileChannel", rounds, rows,
+                    () -> renderWithWriter(transactions, writerFile));
+
+            System.out.println("\nSpeed-up      : " + String.format("%.1fx", writer / legacy));
+            System.out.println("Same output   : " + (Files.mismatch(legacyFile, writerFile) == -1 ? "yes" : "NO"));
+        } finally {
+            Files.deleteIfExists(legacyFile);
+            Files.deleteIfExists(writerFile);
+        }
+    }
+
+    /**
+     * Run a renderer and return its best rows per second
+     */
+    private static double measure(String name, int rounds, int rows, Renderer renderer) throws IOException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            renderer.render();
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            renderer.render();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        double rowsPerSecond = rows / (best / 1_000_000_000.0);
+        System.out.println(String.format("%-26s: %,12.0f rows/s  (%.1f ms)", name, rowsPerSecond, best / 1_000_000.0));
+        return rowsPerSecond;
+    }
+
+    /**
+     * The row loop ReportGenerator used before ReportWriter
+     */
+    private static void renderLegacy(List<Transaction> transactions, Path file) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file.toFile()))) {
+            for (Transaction t : transactions) {
+                writer.write(String.format("%-20d %-12s %-15s ₹%-11.2f ₹%-14.2f %-20s %s\n",
+                        t.getTransactionId(),
+                        t.getAccountId(),
+                        t.getTransactionType().getDisplayName(),
+                        t.getAmount(),
+                        t.getBalanceAfter(),
+                        t.getTransactionDate().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")),
+                        t.getDescription()
+                ));
+            }
+        }
+    }
+
+    private static void renderWithWriter(List<Transaction> transactions, Path file) throws IOException {
+        try (ReportWriter writer = new ReportWriter(file)) {
+            for (Transaction t : transactions) {
+                ReportGenerator.writeTransactionRow(writer, t, true);
+            }
+        }
+    }
+
+    private static List<Transaction> generate(int rows) {
+        Random random = new Random(42);
+        TransactionType[] types = TransactionType.values();
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        long id = 370_000_000_000_000_000L;
+
+        List<Transaction> transactions = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            id += 1 + random.nextInt(1 << 20);
+            transactions.add(new Transaction(id,
+                    String.format("ACC%03d", random.nextInt(1000)),
+                    types[random.nextInt(types.length)],
+                    random.nextInt(10_000_000) / 100.0,
+                    random.nextInt(1_000_000_000) / 100.0,
+                    "Benchmark posting " + i,
+                    base.plusSeconds(random.nextInt(60 * 60 * 24 * 365)),
+                    TransactionStatus.SUCCESS));
+        }
+        return transactions;
+    }
+
+    @FunctionalInterface
+    private interface Renderer {
+        void render() throws IOException;
+    }
+}
@@ -0,0 +1,197 @@
+package main.java.com.banking.benchmark;
+
+import main.java.com.banking.engine.EngineMode;
+import main.java.com.banking.engine.PostingEngine;
+import main.java.com.banking.engine.PostingEngineFactory;
+import main.java.com.banking.model.Account;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.service.AccountManager;
+import main.java.com.banking.service.BalanceWriteBehind;
+import main.java.com.banking.util.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shard Benchmark
+ * Fires random ₹1.00 transfers between all accounts at each engine and reports how many
+ * crossed shards, the throughput, and whether every shard is settled afterwards:
+ * the total of accounts.balance over all shards is unchanged and no transfer is left pending.
+ *
+ * Usage: ShardBenchmark [transfers] [producerThreads] [ENGINE_MODE ...]
+ *
+ * Set db.shards and db.shard.N.url in config.properties first (embedded H2 databases
+ * are enough locally) and run the SQL schema on every shard.
+ * NOTE: postings are real - they are written to the configured databases.
+ */
+public class ShardBenchmark {
+
+    private static final double AMOUNT = 1.00;
+
+    public static void main(String[] args) throws Exception {
+        int transfers = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int producers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        List<EngineMode> modes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            modes.add(EngineMode.fromConfig(args[i]));
+        }
+        if (modes.isEmpty()) {
+            modes.add(EngineMode.SYNCHRONIZED);
+            modes.add(EngineMode.STATELESS);
+        }
+
+        List<String> accountIds = new ArrayList<>();
+        for (Account account : AccountManager.getInstance().getAllAccounts()) {
+            if (!account.isHotAccount()) {
+                accountIds.add(account.getAccountId());
+            }
+        }
+        if (accountIds.size() < 2) {
+            System.err.println("❌ The benchmark needs at least 2 accounts in the database");
+            return;
+        }
+
+        System.out.println("\n========== SHARD BENCHMARK ==========");
+        System.out.println("Shards     : " + DatabaseConfig.getShardCount());
+        System.out.println("Transfers  : " + transfers);
+        System.out.println("Producers  : " + producers);
+        System.out.println("Accounts   : " + accountIds.size());
+        System.out.println("=====================================");
+
+        for (EngineMode mode : modes) {
+            run(mode, accountIds, transfers, producers);
+        }
+
+        BalanceWriteBehind.getInstance().shutdown();
+        DatabaseConfig.closeConnection();
+    }
+
+    private static void run(EngineMode mode, List<String> accountIds, int transfers, int producers)
+            throws Exception {
+        BalanceWriteBehind.getInstance().flush();
+        double totalBefore = totalBalance();
+
+        PostingEngine engine = PostingEngineFactory.create(mode);
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong crossShard = new AtomicLong();
+        int perProducer = transfers / producers;
+
+        long start = System.nanoTime();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(() -> {
+                List<CompletableFuture<Transaction>> pending = new ArrayList<>(perProducer);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                for (int i = 0; i < perProducer; i++) {
+                    String from = accountIds.get(random.nextInt(accountIds.size()));
+                    String to = accountIds.get(random.nextInt(accountIds.size()));
+                    if (from.equals(to)) {
+                        continue;
+                    }
+                    if (DatabaseConfig.shardOf(from) != DatabaseConfig.shardOf(to)) {
+                        crossShard.incrementAndGet();
+                    }
+                    pending.add(engine.transfer(from, to, AMOUNT, "Shard benchmark transfer"));
+                }
+
+                for (CompletableFuture<Transaction> future : pending) {
+                    try {
+                        future.join();
+                        succeeded.incrementAndGet();
+                    } catch (Exception e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }, "shard-bench-producer-" + p);
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        engine.shutdown();
+        BalanceWriteBehind.getInstance().flush();
+
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        long total = succeeded.get() + rejected.get();
+        double totalAfter = totalBalance();
+
+        System.out.println("\n--- " + mode.getDisplayName() + " ---");
+        System.out.println("Completed   : " + total + " (" + rejected.get() + " rejected)");
+        System.out.println("Cross-shard : " + crossShard.get() +
+                String.format(" (%.0f%%)", total > 0 ? crossShard.get() * 100.0 / total : 0));
+        System.out.println("Elapsed     : " + String.format("%.2f", seconds) + " s");
+        System.out.println("Throughput  : " + String.format("%.0f", total / seconds) + " transfers/s");
+        System.out.println("Total       : ₹" + String.format("%.2f", totalBefore) + " → ₹" +
+                String.format("%.2f", totalAfter) +
+                (Math.abs(totalAfter - totalBefore) < 0.005 ? " ✓ unchanged" : " ❌ CHANGED"));
+        System.out.println("Pending     : " + countPending() + " transfers");
+        List<Long> rows = ledgerRows();
+        for (int shard = 0; shard < rows.size(); shard++) {
+            System.out.println("  shard " + shard + "   : " + rows.get(shard) + " ledger rows");
+        }
+    }
+
+    // ==================== HELPERS ====================
+
+    /**
+     * Sum of accounts.balance (slot totals for hot accounts) over every shard
+     */
+    private static double totalBalance() throws Exception {
+        String sql = "SELECT COALESCE(SUM(COALESCE(s.total, a.balance)), 0) FROM accounts a " +
+                "LEFT JOIN (SELECT account_id, SUM(balance) AS total FROM account_balance_slots " +
+                "GROUP BY account_id) s ON s.account_id = a.account_id WHERE a.status = 'ACTIVE'";
+
+        double total = 0;
+        for (double shardTotal : DatabaseConfig.onAllShards(shard -> {
+            try (Connection conn = DatabaseConfig.getConnection(shard);
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                ResultSet rs = stmt.executeQuery();
+                rs.next();
+                return rs.getDouble(1);
+            }
+        })) {
+            total += shardTotal;
+        }
+        return total;
+    }
+
+    private static long countPending() throws Exception {
+        long pending = 0;
+        for (long shardPending : DatabaseConfig.onAllShards(shard -> {
+            try (Connection conn = DatabaseConfig.getConnection(shard);
+                 PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM pending_transfers")) {
+                ResultSet rs = stmt.executeQuery();
+                rs.next();
+                return rs.getLong(1);
+            }
+        })) {
+            pending += shardPending;
+        }
+        return pending;
+    }
+
+    private static List<Long> ledgerRows() throws Exception {
+        return DatabaseConfig.onAllShards(shard -> {
+            try (Connection conn = DatabaseConfig.getConnection(shard);
+                 PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM transaction_legs")) {
+                ResultSet rs = stmt.executeQuery();
+                rs.next();
+                return rs.getLong(1);
+            }
+        });
+    }
+}
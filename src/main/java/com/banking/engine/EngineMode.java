@@ -0,0 +1,33 @@
+package main.java.com.banking.engine;
+
+public enum EngineMode {
+    SYNCHRONIZED("Synchronized (lock-based)"),
+    SEQUENCER("Single-writer sequencer"),
+    PARTITIONED("Partitioned (actor per shard)"),
+    STATELESS("Stateless (database row locks)");
+
+    private final String displayName;
+
+    EngineMode(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Parse a config value, falling back to SYNCHRONIZED
+     */
+    public static EngineMode fromConfig(String value) {
+        if (value != null) {
+            for (EngineMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value.trim())) {
+                    return mode;
+                }
+            }
+            System.err.println("⚠️  Unknown engine mode '" + value + "', using SYNCHRONIZED");
+        }
+        return SYNCHRONIZED;
+    }
+}
@@ -0,0 +1,82 @@
+package main.java.com.banking.engine;
+
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.service.IdempotencyStore;
+import main.java.com.banking.service.PostingHorizon;
+import main.java.com.banking.service.TransactionManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Helpers shared by the background posting engines
+ */
+final class EngineSupport {
+
+    private EngineSupport() {}
+
+    /**
+     * Run a posting through the idempotency store when it carries a key
+     */
+    static CompletableFuture<Transaction> postOnce(String idempotencyKey, String accountId,
+                                                   Supplier<CompletableFuture<Transaction>> posting) {
+        if (idempotencyKey == null) {
+            return posting.get();
+        }
+        return IdempotencyStore.getInstance().executeAsync(idempotencyKey, accountId, posting);
+    }
+
+    /**
+     * Persist the legs of a posting on the given executor
+     * Legs the executor turns away will never be written, so they no longer hold the posting horizon.
+     */
+    static CompletableFuture<Void> persistAsync(TransactionManager transactionManager,
+                                                Transaction[] legs, ExecutorService executor) {
+        try {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    transactionManager.persistPosting(legs);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            PostingHorizon.getInstance().close(legs);
+            throw e;
+        }
+    }
+
+    /**
+     * Strip the CompletionException wrapper added by async stages
+     */
+    static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    static void shutdownAndWait(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
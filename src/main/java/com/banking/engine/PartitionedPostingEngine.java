@@ -0,0 +1,250 @@
+package main.java.com.banking.engine;
+
+import main.java.com.banking.exception.AccountNotFoundException;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.model.TransactionStatus;
+import main.java.com.banking.service.AccountManager;
+import main.java.com.banking.service.BalanceSnapshots;
+import main.java.com.banking.service.TransactionManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Partitioned Posting Engine
+ * Accounts are hash-partitioned across single-threaded executors, so every
+ * operation on an account runs on its owner partition without locks.
+ *
+ * Transfers inside one partition are applied in one step. Transfers across
+ * partitions are a message exchange:
+ *   1. source partition debits and marks the debit leg PENDING
+ *   2. destination partition credits
+ *   3. source partition marks the debit SUCCESS (or reverses it as CANCELLED
+ *      if the credit failed)
+ */
+public class PartitionedPostingEngine implements PostingEngine {
+
+    private final TransactionManager transactionManager;
+    private final AccountManager accountManager;
+    private final BalanceSnapshots snapshots = BalanceSnapshots.getInstance();
+
+    private final ExecutorService[] partitions;
+    private final ExecutorService persistenceExecutor;
+
+    private final AtomicInteger pendingTransfers = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean running = true;
+
+    public PartitionedPostingEngine(int partitionCount, int persistenceThreads) {
+        this.transactionManager = TransactionManager.getInstance();
+        this.accountManager = AccountManager.getInstance();
+
+        this.partitions = new ExecutorService[Math.max(1, partitionCount)];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = Executors.newSingleThreadExecutor(EngineSupport.daemonThreads("partition-" + i));
+        }
+        this.persistenceExecutor = Executors.newFixedThreadPool(
+                persistenceThreads, EngineSupport.daemonThreads("part-persist"));
+
+        System.out.println("✓ Partitioned engine started (" + partitions.length + " partitions)");
+    }
+
+    @Override
+    public CompletableFuture<Transaction> deposit(String accountId, double amount, String description,
+                                                  String idempotencyKey) {
+        return EngineSupport.postOnce(idempotencyKey, accountId, () -> {
+            CompletableFuture<Transaction> result = begin();
+            submit(partitionOf(accountId), result, () -> {
+                Transaction transaction = transactionManager.applyDeposit(accountId, amount, description);
+                transaction.setIdempotencyKey(idempotencyKey);
+                complete(new Transaction[]{transaction}, result);
+            });
+            return result.copy();
+        });
+    }
+
+    @Override
+    public CompletableFuture<Transaction> withdraw(String accountId, double amount, String description,
+                                                   String idempotencyKey) {
+        return EngineSupport.postOnce(idempotencyKey, accountId, () -> {
+            CompletableFuture<Transaction> result = begin();
+            submit(partitionOf(accountId), result, () -> {
+                Transaction transaction = transactionManager.applyWithdrawal(accountId, amount, description);
+                transaction.setIdempotencyKey(idempotencyKey);
+                complete(new Transaction[]{transaction}, result);
+            });
+            return result.copy();
+        });
+    }
+
+    @Override
+    public CompletableFuture<Transaction> transfer(String fromAccountId, String toAccountId, double amount,
+                                                   String description, String idempotencyKey) {
+        return EngineSupport.postOnce(idempotencyKey, fromAccountId,
+                () -> startTransfer(fromAccountId, toAccountId, amount, description, idempotencyKey));
+    }
+
+    @Override
+    public EngineMode getMode() {
+        return EngineMode.PARTITIONED;
+    }
+
+    /**
+     * Number of cross-partition transfers between debit and confirmation
+     */
+    public int getPendingTransferCount() {
+        return pendingTransfers.get();
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    @Override
+    public void shutdown() {
+        // Transfers hop between partitions, so wait until nothing is in flight
+        running = false;
+        while (inFlight.get() > 0) {
+            LockSupport.parkNanos(100_000);
+        }
+        for (ExecutorService partition : partitions) {
+            EngineSupport.shutdownAndWait(partition);
+        }
+        EngineSupport.shutdownAndWait(persistenceExecutor);
+        System.out.println("✓ Partitioned engine stopped");
+    }
+
+    // ==================== INTERNALS ====================
+
+    /**
+     * Start tracking a posting so shutdown can wait for it
+     * The future stays inside the engine and drives the posting's steps; callers get a copy,
+     * so cancelling or completing theirs cannot skip a credit, reversal or confirmation.
+     */
+    private CompletableFuture<Transaction> begin() {
+        CompletableFuture<Transaction> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new IllegalStateException("Partitioned engine is stopped"));
+            return result;
+        }
+        inFlight.incrementAndGet();
+        result.whenComplete((transaction, error) -> inFlight.decrementAndGet());
+        return result;
+    }
+
+    /**
+     * Run a transfer, in one step or as a cross-partition message exchange
+     */
+    private CompletableFuture<Transaction> startTransfer(String fromAccountId, String toAccountId, double amount,
+                                                         String description, String idempotencyKey) {
+        CompletableFuture<Transaction> result = begin();
+        int source = partitionOf(fromAccountId);
+        int target = partitionOf(toAccountId);
+
+        if (source == target) {
+            submit(source, result, () -> {
+                Transaction[] legs = transactionManager.applyTransfer(fromAccountId, toAccountId, amount, description);
+                legs[0].setIdempotencyKey(idempotencyKey);
+                complete(legs, result);
+            });
+            return result.copy();
+        }
+
+        // Step 1: debit on the source partition and park the transfer as PENDING
+        // The posting sequence number travels with the transfer until the credit (or
+        // the reversal) is applied, so snapshots never see only one side of it
+        submit(source, result, () -> {
+            if (!accountManager.accountExists(toAccountId)) {
+                throw new AccountNotFoundException("Account not found: " + toAccountId);
+            }
+            long posting = snapshots.beginPosting();
+            Transaction debit;
+            try {
+                debit = transactionManager.applyTransferDebit(fromAccountId, toAccountId, amount, description);
+            } catch (Exception e) {
+                snapshots.endPosting(posting);
+                throw e;
+            }
+            snapshots.suspendPosting();
+            debit.setStatus(TransactionStatus.PENDING);
+            debit.setIdempotencyKey(idempotencyKey);
+            pendingTransfers.incrementAndGet();
+
+            // Step 2: credit on the destination partition
+            submit(target, result, () -> {
+                Transaction credit;
+                snapshots.resumePosting(posting);
+                try {
+                    credit = transactionManager.applyTransferCredit(toAccountId, fromAccountId, amount, description);
+                } catch (Exception e) {
+                    snapshots.suspendPosting();
+                    // Step 3 (failure): reverse the debit on its owner partition
+                    submit(source, result, () -> {
+                        pendingTransfers.decrementAndGet();
+                        snapshots.resumePosting(posting);
+                        try {
+                            transactionManager.reverseTransferDebit(debit);
+                        } finally {
+                            snapshots.endPosting(posting);
+                        }
+                        result.completeExceptionally(e);
+                    });
+                    return;
+                }
+                snapshots.endPosting(posting);
+
+                // Step 3: confirm the debit on its owner partition
+                submit(source, result, () -> {
+                    pendingTransfers.decrementAndGet();
+                    debit.setStatus(TransactionStatus.SUCCESS);
+                    complete(new Transaction[]{debit, credit}, result);
+                });
+            });
+        });
+        return result.copy();
+    }
+
+    /**
+     * Owner partition of an account (stable across runs)
+     */
+    private int partitionOf(String accountId) {
+        return accountId == null ? 0 : Math.floorMod(accountId.hashCode(), partitions.length);
+    }
+
+    /**
+     * Hand the applied legs to persistence; the future completes once persisted
+     */
+    private void complete(Transaction[] legs, CompletableFuture<Transaction> result) {
+        EngineSupport.persistAsync(transactionManager, legs, persistenceExecutor)
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(EngineSupport.unwrap(error));
+                    } else {
+                        result.complete(legs[0]);
+                    }
+                });
+    }
+
+    private void submit(int partition, CompletableFuture<Transaction> result, PartitionTask task) {
+        try {
+            partitions[partition].execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IllegalStateException("Partitioned engine is stopped"));
+        }
+    }
+
+    @FunctionalInterface
+    private interface PartitionTask {
+        void run() throws Exception;
+    }
+}
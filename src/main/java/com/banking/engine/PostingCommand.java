@@ -0,0 +1,41 @@
+package main.java.com.banking.engine;
+
+import main.java.com.banking.model.Transaction;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Posting Command
+ * A reusable ring buffer slot describing one deposit, withdrawal or transfer
+ */
+class PostingCommand {
+
+    enum Kind {
+        DEPOSIT,
+        WITHDRAWAL,
+        TRANSFER
+    }
+
+    Kind kind;
+    String accountId;
+    String targetAccountId;
+    double amount;
+    String description;
+    String idempotencyKey;
+    CompletableFuture<Transaction> result;
+
+    void set(Kind kind, String accountId, String targetAccountId, double amount,
+             String description, String idempotencyKey, CompletableFuture<Transaction> result) {
+        this.kind = kind;
+        this.accountId = accountId;
+        this.targetAccountId = targetAccountId;
+        this.amount = amount;
+        this.description = description;
+        this.idempotencyKey = idempotencyKey;
+        this.result = result;
+    }
+
+    void clear() {
+        set(null, null, null, 0, null, null, null);
+    }
+}
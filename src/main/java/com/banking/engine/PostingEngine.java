@@ -0,0 +1,87 @@
+package main.java.com.banking.engine;
+
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.service.TransactionManager;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Posting Engine
+ * Common interface for the different ways deposits, withdrawals and transfers can be executed
+ */
+public interface PostingEngine {
+
+    /**
+     * A non-null idempotency key makes retries safe: a repeated key returns the
+     * original transaction without posting again
+     */
+    CompletableFuture<Transaction> deposit(String accountId, double amount, String description,
+                                           String idempotencyKey);
+
+    CompletableFuture<Transaction> withdraw(String accountId, double amount, String description,
+                                            String idempotencyKey);
+
+    /**
+     * The future carries the debit (TRANSFER_OUT) leg, which also holds the idempotency key
+     */
+    CompletableFuture<Transaction> transfer(String fromAccountId, String toAccountId, double amount,
+                                            String description, String idempotencyKey);
+
+    default CompletableFuture<Transaction> deposit(String accountId, double amount, String description) {
+        return deposit(accountId, amount, description, null);
+    }
+
+    default CompletableFuture<Transaction> withdraw(String accountId, double amount, String description) {
+        return withdraw(accountId, amount, description, null);
+    }
+
+    default CompletableFuture<Transaction> transfer(String fromAccountId, String toAccountId,
+                                                    double amount, String description) {
+        return transfer(fromAccountId, toAccountId, amount, description, null);
+    }
+
+    /**
+     * Post a batch of credits (end-of-day jobs) in one database transaction
+     * Each leg brings its account (one leg per account), type, amount, description and
+     * idempotency key. By default the credits go through TransactionManager's in-memory
+     * path: a credit never invalidates another posting's funds check, so it is safe next
+     * to any engine that keeps balances in memory.
+     */
+    default CompletableFuture<Void> postCredits(List<Transaction> credits) {
+        try {
+            TransactionManager.getInstance().postCreditBatch(credits);
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    EngineMode getMode();
+
+    /**
+     * Stop accepting postings and let in-flight postings finish
+     */
+    void shutdown();
+
+    /**
+     * Wait for a posting and rethrow its original exception
+     * (e.g. InsufficientFundsException instead of an ExecutionException wrapper)
+     */
+    static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package main.java.com.banking.engine;
+
+import main.java.com.banking.util.ConfigManager;
+
+/**
+ * Posting Engine Factory
+ * Builds the engine selected by engine.mode in config.properties
+ */
+public class PostingEngineFactory {
+
+    /**
+     * Create the engine configured in config.properties
+     */
+    public static PostingEngine createConfiguredEngine() {
+        return create(EngineMode.fromConfig(ConfigManager.getEngineMode()));
+    }
+
+    /**
+     * Create a specific engine using the configured settings
+     */
+    public static PostingEngine create(EngineMode mode) {
+        switch (mode) {
+            case SEQUENCER:
+                return new SequencerPostingEngine(
+                        ConfigManager.getEngineRingSize(),
+                        ConfigManager.getEnginePersistenceThreads(),
+                        ConfigManager.isEngineJournalEnabled() ? ConfigManager.getEngineJournalFolder() : null);
+            case PARTITIONED:
+                return new PartitionedPostingEngine(
+                        ConfigManager.getEnginePartitions(),
+                        ConfigManager.getEnginePersistenceThreads());
+            case STATELESS:
+                return new StatelessPostingEngine(ConfigManager.getEngineStatelessThreads());
+            case SYNCHRONIZED:
+            default:
+                return new SynchronizedPostingEngine();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package main.java.com.banking.engine;
+
+import main.java.com.banking.model.Transaction;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Posting Journal
+ * Append-only text log of every applied posting, one line per ledger leg
+ * Only ever written from a single thread
+ */
+class PostingJournal {
+
+    private final String folder;
+    private BufferedWriter writer;
+
+    PostingJournal(String folder) {
+        this.folder = folder.endsWith("/") ? folder : folder + "/";
+    }
+
+    void append(long sequence, Transaction... legs) throws IOException {
+        if (writer == null) {
+            open();
+        }
+        for (Transaction leg : legs) {
+            writer.write(sequence + "|" +
+                    leg.getTransactionDate() + "|" +
+                    leg.getTransactionType().name() + "|" +
+                    leg.getAccountId() + "|" +
+                    String.format("%.2f", leg.getAmount()) + "|" +
+                    String.format("%.2f", leg.getBalanceAfter()) + "|" +
+                    (leg.getReferenceAccountId() != null ? leg.getReferenceAccountId() : "") + "\n");
+        }
+        writer.flush();
+    }
+
+    void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Error closing posting journal: " + e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    private void open() throws IOException {
+        File dir = new File(folder);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        String filename = folder + "postings_" +
+                LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + ".log";
+        writer = new BufferedWriter(new FileWriter(filename, true));
+    }
+}
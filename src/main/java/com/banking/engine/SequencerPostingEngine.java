@@ -0,0 +1,247 @@
+package main.java.com.banking.engine;
+
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.service.TransactionManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-Writer Sequencer Engine
+ * Postings from any thread are published into a preallocated ring buffer.
+ * One business-logic thread applies them to the in-memory accounts without locks,
+ * then hands the results to journaling and persistence consumers that run in parallel
+ * (alerts follow on the TransactionEventBus once a posting is committed).
+ * A posting's future completes once it is both journaled and persisted.
+ */
+public class SequencerPostingEngine implements PostingEngine {
+
+    private static final int SPINS_BEFORE_PARK = 1000;
+    private static final long PARK_NANOS = 50_000;
+
+    private final TransactionManager transactionManager;
+
+    // Ring buffer
+    private final PostingCommand[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+
+    // Business-logic thread and downstream consumers
+    private final Thread businessThread;
+    private final ExecutorService journalExecutor;
+    private final ExecutorService persistenceExecutor;
+    private final PostingJournal journal;
+
+    private volatile boolean running = true;
+
+    public SequencerPostingEngine(int ringSize, int persistenceThreads, String journalFolder) {
+        this.transactionManager = TransactionManager.getInstance();
+
+        int size = Integer.highestOneBit(Math.max(2, ringSize - 1)) << 1;
+        this.slots = new PostingCommand[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new PostingCommand();
+        }
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+
+        this.journal = journalFolder != null ? new PostingJournal(journalFolder) : null;
+        this.journalExecutor = Executors.newSingleThreadExecutor(EngineSupport.daemonThreads("seq-journal"));
+        this.persistenceExecutor = Executors.newFixedThreadPool(
+                persistenceThreads, EngineSupport.daemonThreads("seq-persist"));
+
+        this.businessThread = new Thread(this::runBusinessLogic, "seq-business-logic");
+        this.businessThread.setDaemon(true);
+        this.businessThread.start();
+
+        System.out.println("✓ Sequencer engine started (ring size " + size + ")");
+    }
+
+    @Override
+    public CompletableFuture<Transaction> deposit(String accountId, double amount, String description,
+                                                  String idempotencyKey) {
+        return EngineSupport.postOnce(idempotencyKey, accountId, () -> publish(
+                PostingCommand.Kind.DEPOSIT, accountId, null, amount, description, idempotencyKey));
+    }
+
+    @Override
+    public CompletableFuture<Transaction> withdraw(String accountId, double amount, String description,
+                                                   String idempotencyKey) {
+        return EngineSupport.postOnce(idempotencyKey, accountId, () -> publish(
+                PostingCommand.Kind.WITHDRAWAL, accountId, null, amount, description, idempotencyKey));
+    }
+
+    @Override
+    public CompletableFuture<Transaction> transfer(String fromAccountId, String toAccountId, double amount,
+                                                   String description, String idempotencyKey) {
+        return EngineSupport.postOnce(idempotencyKey, fromAccountId, () -> publish(
+                PostingCommand.Kind.TRANSFER, fromAccountId, toAccountId, amount, description, idempotencyKey));
+    }
+
+    @Override
+    public EngineMode getMode() {
+        return EngineMode.SEQUENCER;
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(businessThread);
+        try {
+            businessThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        EngineSupport.shutdownAndWait(persistenceExecutor);
+        if (journal != null) {
+            journalExecutor.execute(journal::close);
+        }
+        EngineSupport.shutdownAndWait(journalExecutor);
+        System.out.println("✓ Sequencer engine stopped");
+    }
+
+    // ==================== PRODUCER SIDE ====================
+
+    /**
+     * Claim the next slot, fill it in and make it visible to the business-logic thread
+     */
+    private CompletableFuture<Transaction> publish(PostingCommand.Kind kind, String accountId,
+                                                   String targetAccountId, double amount,
+                                                   String description, String idempotencyKey) {
+        // Claim before looking at running: once shutdown has cleared it, the business thread
+        // drains every slot claimed before it noticed, so a claim made in between is either
+        // drained or failed right here, never left waiting
+        long sequence = claimed.incrementAndGet();
+
+        CompletableFuture<Transaction> result = new CompletableFuture<>();
+        if (!running) {
+            // The slot is still published (failed), so a business thread that is draining
+            // up to it does not wait for it forever
+            result.completeExceptionally(new IllegalStateException("Sequencer engine is stopped"));
+        }
+
+        // Wait for the consumer if the ring is full (not after it has stopped)
+        while (sequence - slots.length > consumed.get()) {
+            if (!businessThread.isAlive()) {
+                return result.copy();
+            }
+            LockSupport.parkNanos(1_000);
+        }
+
+        int index = (int) (sequence & mask);
+        slots[index].set(kind, accountId, targetAccountId, amount, description, idempotencyKey, result);
+        published.set(index, sequence);
+
+        // The slot keeps the engine's own future; a caller cancelling its copy changes nothing here
+        return result.copy();
+    }
+
+    // ==================== BUSINESS LOGIC THREAD ====================
+
+    private void runBusinessLogic() {
+        long next = 0;
+        int idleSpins = 0;
+
+        while (true) {
+            int index = (int) (next & mask);
+
+            if (published.get(index) != next) {
+                // Drain fully before stopping
+                if (!running && claimed.get() < next) {
+                    return;
+                }
+                if (++idleSpins < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                continue;
+            }
+            idleSpins = 0;
+
+            PostingCommand command = slots[index];
+            CompletableFuture<Transaction> result = command.result;
+            Transaction[] legs = apply(command, result);
+            if (legs != null) {
+                legs[0].setIdempotencyKey(command.idempotencyKey);
+            }
+            command.clear();
+
+            // Free the slot for producers
+            consumed.set(next);
+
+            if (legs != null) {
+                dispatch(next, legs, result);
+            }
+            next++;
+        }
+    }
+
+    /**
+     * Apply one command to the in-memory accounts
+     * Validation failures complete the future right here
+     */
+    private Transaction[] apply(PostingCommand command, CompletableFuture<Transaction> result) {
+        // Claimed during shutdown and already failed by its producer
+        if (result.isDone()) {
+            return null;
+        }
+        try {
+            switch (command.kind) {
+                case DEPOSIT:
+                    return new Transaction[]{
+                            transactionManager.applyDeposit(command.accountId, command.amount, command.description)};
+                case WITHDRAWAL:
+                    return new Transaction[]{
+                            transactionManager.applyWithdrawal(command.accountId, command.amount, command.description)};
+                case TRANSFER:
+                    return transactionManager.applyTransfer(
+                            command.accountId, command.targetAccountId, command.amount, command.description);
+                default:
+                    throw new IllegalStateException("Unknown posting kind: " + command.kind);
+            }
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+            return null;
+        }
+    }
+
+    // ==================== DOWNSTREAM CONSUMERS ====================
+
+    /**
+     * Fan a posting out to the journal and persistence consumers
+     */
+    private void dispatch(long sequence, Transaction[] legs, CompletableFuture<Transaction> result) {
+        CompletableFuture<Void> journaled = journal == null
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.runAsync(() -> {
+                    try {
+                        journal.append(sequence, legs);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, journalExecutor);
+
+        CompletableFuture<Void> persisted =
+                EngineSupport.persistAsync(transactionManager, legs, persistenceExecutor);
+
+        CompletableFuture.allOf(journaled, persisted).whenComplete((ignored, error) -> {
+            if (error != null) {
+                result.completeExceptionally(EngineSupport.unwrap(error));
+            } else {
+                result.complete(legs[0]);
+            }
+        });
+    }
+}
@@ -0,0 +1,496 @@
+package main.java.com.banking.engine;
+
+import main.java.com.banking.exception.AccountNotFoundException;
+import main.java.com.banking.exception.InsufficientFundsException;
+import main.java.com.banking.exception.InvalidAmountException;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.model.TransactionStatus;
+import main.java.com.banking.model.TransactionType;
+import main.java.com.banking.service.AccountManager;
+import main.java.com.banking.service.BalanceSnapshots;
+import main.java.com.banking.service.IdempotencyStore;
+import main.java.com.banking.service.PostingHorizon;
+import main.java.com.banking.service.SystemAggregates;
+import main.java.com.banking.service.TransactionEventBus;
+import main.java.com.banking.service.TransactionManager;
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stateless Posting Engine
+ * The accounts table is the only source of truth: every posting locks its rows
+ * with SELECT ... FOR UPDATE, validates against the locked balances and writes the
+ * balances and ledger rows in the same database transaction. Nothing depends on the
+ * in-memory accounts, so any number of nodes can post against the same database.
+ *
+ * Transfers lock both rows in account id order, so two nodes never wait on each
+ * other the other way round. Deadlocks reported by the database are retried.
+ * The local account cache is brought up to date after each commit.
+ *
+ * Each posting runs on the shard of its account. A transfer between two shards is a
+ * saga of three database transactions (see transferAcrossShards).
+ */
+public class StatelessPostingEngine implements PostingEngine {
+
+    private static final String LOCK_SQL =
+            "SELECT balance, version FROM accounts WHERE account_id = ? AND status = 'ACTIVE' FOR UPDATE";
+    private static final String UPDATE_SQL =
+            "UPDATE accounts SET balance = ?, version = version + 1 WHERE account_id = ?";
+
+    private final TransactionManager transactionManager;
+    private final AccountManager accountManager;
+    private final BalanceSnapshots snapshots = BalanceSnapshots.getInstance();
+    private final PostingHorizon horizon = PostingHorizon.getInstance();
+
+    private final ExecutorService workers;
+    private final int maxRetries;
+
+    private final LongAdder deadlockRetries = new LongAdder();
+
+    public StatelessPostingEngine(int workerThreads) {
+        this.transactionManager = TransactionManager.getInstance();
+        this.accountManager = AccountManager.getInstance();
+        this.maxRetries = ConfigManager.getOptimisticMaxRetries();
+
+        this.workers = Executors.newFixedThreadPool(workerThreads, EngineSupport.daemonThreads("stateless"));
+
+        System.out.println("✓ Stateless engine started (" + workerThreads + " workers)");
+    }
+
+    @Override
+    public CompletableFuture<Transaction> deposit(String accountId, double amount, String description,
+                                                  String idempotencyKey) {
+        return EngineSupport.postOnce(idempotencyKey, accountId, () -> submit(() -> post(accountId, idempotencyKey, posting -> {
+            if (amount <= 0) {
+                throw new InvalidAmountException("Deposit amount must be greater than zero");
+            }
+            LockedAccount account = posting.lock(accountId);
+            double newBalance = account.write(account.balance + amount);
+
+            return new Transaction[]{new Transaction(accountId, TransactionType.DEPOSIT, amount, newBalance,
+                    description != null ? description : "Deposit")};
+        })));
+    }
+
+    @Override
+    public CompletableFuture<Transaction> withdraw(String accountId, double amount, String description,
+                                                   String idempotencyKey) {
+        return EngineSupport.postOnce(idempotencyKey, accountId, () -> submit(() -> post(accountId, idempotencyKey, posting -> {
+            if (amount <= 0) {
+                throw new InvalidAmountException("Withdrawal amount must be greater than zero");
+            }
+            LockedAccount account = posting.lock(accountId);
+            checkFunds(account, amount, "Withdrawal");
+            double newBalance = account.write(account.balance - amount);
+
+            return new Transaction[]{new Transaction(accountId, TransactionType.WITHDRAWAL, amount, newBalance,
+                    description != null ? description : "Withdrawal")};
+        })));
+    }
+
+    @Override
+    public CompletableFuture<Transaction> transfer(String fromAccountId, String toAccountId, double amount,
+                                                   String description, String idempotencyKey) {
+        if (DatabaseConfig.shardOf(fromAccountId) != DatabaseConfig.shardOf(toAccountId)) {
+            return EngineSupport.postOnce(idempotencyKey, fromAccountId, () -> submit(() ->
+                    transferAcrossShards(fromAccountId, toAccountId, amount, description, idempotencyKey)));
+        }
+
+        return EngineSupport.postOnce(idempotencyKey, fromAccountId, () -> submit(() -> post(fromAccountId, idempotencyKey, posting -> {
+            validateTransfer(fromAccountId, toAccountId, amount);
+
+            // Ordered locking
+            LockedAccount from;
+            LockedAccount to;
+            if (fromAccountId.compareTo(toAccountId) < 0) {
+                from = posting.lock(fromAccountId);
+                to = posting.lock(toAccountId);
+            } else {
+                to = posting.lock(toAccountId);
+                from = posting.lock(fromAccountId);
+            }
+
+            checkFunds(from, amount, "Transfer");
+            double newFromBalance = from.write(from.balance - amount);
+            double newToBalance = to.write(to.balance + amount);
+
+            String desc = description != null ? description : "Transfer";
+            return new Transaction[]{
+                    new Transaction(fromAccountId, TransactionType.TRANSFER_OUT, amount, newFromBalance,
+                            desc + " to " + toAccountId, toAccountId),
+                    new Transaction(toAccountId, TransactionType.TRANSFER_IN, amount, newToBalance,
+                            desc + " from " + fromAccountId, fromAccountId)
+            };
+        })));
+    }
+
+    /**
+     * Credits go straight to the database like every other stateless posting:
+     * all rows locked in account ID order, one transaction for each shard's share of the batch
+     */
+    @Override
+    public CompletableFuture<Void> postCredits(List<Transaction> credits) {
+        Map<Integer, List<Transaction>> byShard = new TreeMap<>();
+        for (Transaction credit : credits) {
+            byShard.computeIfAbsent(DatabaseConfig.shardOf(credit.getAccountId()), shard -> new ArrayList<>())
+                    .add(credit);
+        }
+
+        List<CompletableFuture<Transaction>> shardBatches = new ArrayList<>(byShard.size());
+        for (List<Transaction> ordered : byShard.values()) {
+            ordered.sort(Comparator.comparing(Transaction::getAccountId));
+            shardBatches.add(submit(() -> post(ordered.get(0).getAccountId(), null, posting -> {
+                for (Transaction credit : ordered) {
+                    if (!credit.getTransactionType().isCredit()) {
+                        throw new IllegalArgumentException("Not a credit: " + credit.getTransactionType());
+                    }
+                    LockedAccount account = posting.lock(credit.getAccountId());
+                    credit.setBalanceAfter(account.write(account.balance + credit.getAmount()));
+                }
+                return ordered.toArray(new Transaction[0]);
+            })));
+        }
+        return CompletableFuture.allOf(shardBatches.toArray(new CompletableFuture<?>[0]));
+    }
+
+    @Override
+    public EngineMode getMode() {
+        return EngineMode.STATELESS;
+    }
+
+    /**
+     * Number of postings re-run after the database rolled them back (deadlock or lock timeout)
+     */
+    public long getDeadlockRetryCount() {
+        return deadlockRetries.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        EngineSupport.shutdownAndWait(workers);
+        System.out.println("✓ Stateless engine stopped");
+    }
+
+    // ==================== CROSS-SHARD TRANSFERS ====================
+
+    /**
+     * A transfer between accounts on two shards, as three database transactions
+     *   1. debit shard: lock and debit the sender, insert the debit leg as PENDING
+     *      and a pending_transfers row
+     *   2. credit shard: lock and credit the receiver, insert the credit leg
+     *   3. debit shard: the debit leg becomes SUCCESS and the pending row goes
+     * If step 2 fails, step 3 gives the amount back to the sender and the debit leg
+     * becomes CANCELLED. A node that stops between the steps finishes them on its next start.
+     */
+    private Transaction transferAcrossShards(String fromAccountId, String toAccountId, double amount,
+                                             String description, String idempotencyKey) throws Exception {
+        validateTransfer(fromAccountId, toAccountId, amount);
+        requireAccount(toAccountId);
+
+        String desc = description != null ? description : "Transfer";
+        Transaction credit = new Transaction(toAccountId, TransactionType.TRANSFER_IN, amount, 0,
+                desc + " from " + fromAccountId, fromAccountId);
+
+        // Step 1
+        Transaction debit;
+        try {
+            debit = inTransaction(fromAccountId, posting -> {
+                LockedAccount from = posting.lock(fromAccountId);
+                checkFunds(from, amount, "Transfer");
+                Transaction leg = new Transaction(fromAccountId, TransactionType.TRANSFER_OUT, amount,
+                        from.write(from.balance - amount), desc + " to " + toAccountId, toAccountId);
+                leg.setIdempotencyKey(idempotencyKey);
+                transactionManager.saveCrossShardDebit(posting.conn, leg, credit);
+                return leg;
+            });
+        } catch (SQLException e) {
+            return findOriginal(idempotencyKey, fromAccountId, e);
+        }
+
+        // Step 2
+        try {
+            inTransaction(toAccountId, posting -> {
+                LockedAccount to = posting.lock(toAccountId);
+                credit.setBalanceAfter(to.write(to.balance + amount));
+                transactionManager.saveTransactions(posting.conn, credit);
+                return credit;
+            });
+        } catch (Exception e) {
+            debit.setStatus(TransactionStatus.CANCELLED);
+            try {
+                inTransaction(fromAccountId, posting -> {
+                    LockedAccount from = posting.lock(fromAccountId);
+                    from.write(from.balance + amount);
+                    transactionManager.resolveCrossShardDebit(posting.conn, debit);
+                    return debit;
+                });
+            } catch (Exception cancelFailure) {
+                System.err.println("❌ Transfer " + debit.getTransactionId() + " left pending: " +
+                        cancelFailure.getMessage());
+            }
+            throw new SQLException("Transfer cancelled, credit to " + toAccountId +
+                    " failed: " + e.getMessage(), e);
+        }
+
+        // Step 3
+        debit.setStatus(TransactionStatus.SUCCESS);
+        try {
+            inTransaction(fromAccountId, posting -> {
+                transactionManager.resolveCrossShardDebit(posting.conn, debit);
+                return debit;
+            });
+        } catch (Exception e) {
+            // The debit leg stays PENDING in the ledger and is recorded when it is resolved
+            System.err.println("❌ Transfer " + debit.getTransactionId() + " left pending: " + e.getMessage());
+            recordAndPublish(new Transaction[]{credit});
+            return debit;
+        }
+
+        recordAndPublish(new Transaction[]{debit, credit});
+        return debit;
+    }
+
+    /**
+     * The receiving account must exist before the sender is debited
+     */
+    private void requireAccount(String accountId) throws SQLException, AccountNotFoundException {
+        checkNotHot(accountId);
+        try (Connection conn = DatabaseConfig.getShardConnection(accountId);
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT 1 FROM accounts WHERE account_id = ? AND status = 'ACTIVE'")) {
+            stmt.setString(1, accountId);
+            if (!stmt.executeQuery().next()) {
+                throw new AccountNotFoundException("Account not found: " + accountId);
+            }
+        }
+    }
+
+    // ==================== INTERNALS ====================
+
+    /**
+     * Run a posting on a worker thread
+     */
+    private CompletableFuture<Transaction> submit(Callable<Transaction> task) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.call();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, workers);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Stateless engine is stopped"));
+        }
+    }
+
+    /**
+     * Apply a posting and save its legs in one database transaction on the account's shard
+     */
+    private Transaction post(String accountId, String idempotencyKey, PostingWork<Transaction[]> work)
+            throws Exception {
+        Transaction[] legs;
+        try {
+            legs = inTransaction(accountId, posting -> {
+                Transaction[] applied = work.run(posting);
+                if (idempotencyKey != null) {
+                    applied[0].setIdempotencyKey(idempotencyKey);
+                }
+                transactionManager.saveTransactions(posting.conn, applied);
+                return applied;
+            });
+        } catch (SQLException e) {
+            return findOriginal(idempotencyKey, accountId, e);
+        }
+
+        recordAndPublish(legs);
+        return legs[0];
+    }
+
+    /**
+     * Run work in one database transaction on an account's shard, commit and sync the
+     * cached balances; deadlocks are retried
+     * The IDs the work takes are held open on the posting horizon until the commit.
+     */
+    private <T> T inTransaction(String accountId, PostingWork<T> work) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            long reserved = horizon.reserve();
+            try (Connection conn = DatabaseConfig.getShardConnection(accountId)) {
+                conn.setAutoCommit(false);
+
+                Posting posting = new Posting(conn);
+                T result = work.run(posting);
+                commitAndSync(posting);
+                return result;
+            } catch (SQLException e) {
+                if (!isRetryable(e) || attempt >= maxRetries) {
+                    throw e;
+                }
+                deadlockRetries.increment();
+            } finally {
+                horizon.release(reserved);
+            }
+        }
+    }
+
+    /**
+     * Another node already made this posting, if the failure was its key's duplicate entry
+     * The saved legs go out in a JDBC batch, so the duplicate usually arrives wrapped in a
+     * BatchUpdateException; isDuplicateKey looks through it. Any other failure is rethrown.
+     */
+    private Transaction findOriginal(String idempotencyKey, String accountId, SQLException e)
+            throws SQLException {
+        Transaction original = idempotencyKey != null && IdempotencyStore.isDuplicateKey(e)
+                ? transactionManager.findByIdempotencyKey(idempotencyKey, accountId) : null;
+        if (original == null) {
+            throw e;
+        }
+        return original;
+    }
+
+    private void recordAndPublish(Transaction[] legs) {
+        SystemAggregates.getInstance().recordTransactions(legs);
+        TransactionEventBus.getInstance().publishPosting(legs);
+    }
+
+    /**
+     * Commit, then bring the cached balances up to the committed rows as one posting
+     * The row locks are released by the commit before any cached account is touched, so a
+     * posting never waits on an account lock while holding a row lock (the other engines
+     * take the account first and the row second). Each account only ever moves forward to
+     * a newer row version, so postings that share an account still leave the cache at the
+     * state of the last commit, whichever of them syncs first.
+     */
+    private void commitAndSync(Posting posting) throws SQLException {
+        posting.conn.commit();
+
+        long sequence = snapshots.beginPosting();
+        try {
+            for (LockedAccount account : posting.locked) {
+                accountManager.syncFromDatabase(account.accountId, account.newBalance, account.version + 1);
+            }
+        } finally {
+            snapshots.endPosting(sequence);
+        }
+    }
+
+    private static void validateTransfer(String fromAccountId, String toAccountId, double amount)
+            throws InvalidAmountException {
+        if (amount <= 0) {
+            throw new InvalidAmountException("Transfer amount must be greater than zero");
+        }
+        if (fromAccountId.equals(toAccountId)) {
+            throw new InvalidAmountException("Cannot transfer to the same account");
+        }
+    }
+
+    private void checkNotHot(String accountId) throws AccountNotFoundException {
+        if (accountManager.accountExists(accountId) && accountManager.getAccount(accountId).isHotAccount()) {
+            throw new IllegalStateException("Hot account " + accountId + " cannot be posted in stateless mode");
+        }
+    }
+
+    private static void checkFunds(LockedAccount account, double amount, String operation)
+            throws InsufficientFundsException {
+        if (account.balance < amount) {
+            throw new InsufficientFundsException(
+                    "Insufficient funds! Available: ₹" + String.format("%.2f", account.balance));
+        }
+        if (account.balance - amount < TransactionManager.getMinimumBalance()) {
+            throw new InsufficientFundsException(operation +
+                    " would violate minimum balance requirement of ₹" + TransactionManager.getMinimumBalance());
+        }
+    }
+
+    /**
+     * Deadlocks and lock wait timeouts roll the transaction back; running it again is safe
+     */
+    private static boolean isRetryable(SQLException e) {
+        return e instanceof SQLTransactionRollbackException
+                || "40001".equals(e.getSQLState())
+                || e.getErrorCode() == 1205;
+    }
+
+    /**
+     * One database transaction and the account rows it has locked
+     */
+    private final class Posting {
+        final Connection conn;
+        final List<LockedAccount> locked = new ArrayList<>(2);
+
+        Posting(Connection conn) {
+            this.conn = conn;
+        }
+
+        /**
+         * Lock an account row for the rest of the transaction
+         */
+        LockedAccount lock(String accountId) throws SQLException, AccountNotFoundException {
+            checkNotHot(accountId);
+
+            try (PreparedStatement stmt = conn.prepareStatement(LOCK_SQL)) {
+                stmt.setString(1, accountId);
+                ResultSet rs = stmt.executeQuery();
+                if (!rs.next()) {
+                    throw new AccountNotFoundException("Account not found: " + accountId);
+                }
+                LockedAccount account = new LockedAccount(this, accountId,
+                        rs.getDouble("balance"), rs.getLong("version"));
+                locked.add(account);
+                return account;
+            }
+        }
+    }
+
+    /**
+     * An account row locked by the current transaction
+     */
+    private static final class LockedAccount {
+        final Posting posting;
+        final String accountId;
+        final double balance;
+        final long version;
+        double newBalance;
+
+        LockedAccount(Posting posting, String accountId, double balance, long version) {
+            this.posting = posting;
+            this.accountId = accountId;
+            this.balance = balance;
+            this.version = version;
+            this.newBalance = balance;
+        }
+
+        double write(double balance) throws SQLException {
+            try (PreparedStatement stmt = posting.conn.prepareStatement(UPDATE_SQL)) {
+                stmt.setDouble(1, balance);
+                stmt.setString(2, accountId);
+                stmt.executeUpdate();
+            }
+            newBalance = balance;
+            return balance;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PostingWork<T> {
+        T run(Posting posting) throws Exception;
+    }
+}
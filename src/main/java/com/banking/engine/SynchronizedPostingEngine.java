@@ -0,0 +1,78 @@
+package main.java.com.banking.engine;
+
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.service.TransactionManager;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Synchronized Posting Engine
+ * The original lock-based engine: every posting runs to completion,
+ * database writes included, while holding the TransactionManager lock
+ */
+public class SynchronizedPostingEngine implements PostingEngine {
+
+    private final TransactionManager transactionManager;
+
+    public SynchronizedPostingEngine() {
+        this.transactionManager = TransactionManager.getInstance();
+    }
+
+    @Override
+    public CompletableFuture<Transaction> deposit(String accountId, double amount, String description,
+                                                  String idempotencyKey) {
+        return EngineSupport.postOnce(idempotencyKey, accountId, () -> {
+            try {
+                synchronized (transactionManager) {
+                    Transaction[] legs = transactionManager.postWithRetry(idempotencyKey,
+                            () -> new Transaction[]{transactionManager.applyDeposit(accountId, amount, description)});
+                    return CompletableFuture.completedFuture(legs[0]);
+                }
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Transaction> withdraw(String accountId, double amount, String description,
+                                                   String idempotencyKey) {
+        return EngineSupport.postOnce(idempotencyKey, accountId, () -> {
+            try {
+                synchronized (transactionManager) {
+                    Transaction[] legs = transactionManager.postWithRetry(idempotencyKey,
+                            () -> new Transaction[]{transactionManager.applyWithdrawal(accountId, amount, description)});
+                    return CompletableFuture.completedFuture(legs[0]);
+                }
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Transaction> transfer(String fromAccountId, String toAccountId, double amount,
+                                                   String description, String idempotencyKey) {
+        return EngineSupport.postOnce(idempotencyKey, fromAccountId, () -> {
+            try {
+                synchronized (transactionManager) {
+                    Transaction[] legs = transactionManager.postWithRetry(idempotencyKey,
+                            () -> transactionManager.applyTransfer(fromAccountId, toAccountId, amount, description));
+                    return CompletableFuture.completedFuture(legs[0]);
+                }
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    @Override
+    public EngineMode getMode() {
+        return EngineMode.SYNCHRONIZED;
+    }
+
+    @Override
+    public void shutdown() {
+        // Nothing runs in the background
+    }
+}
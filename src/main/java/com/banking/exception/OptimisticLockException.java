@@ -0,0 +1,20 @@
+package main.java.com.banking.exception;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when an account row was changed by another instance since it was last read
+ * (its version no longer matches)
+ */
+public class OptimisticLockException extends SQLException {
+    private final String accountId;
+
+    public OptimisticLockException(String accountId, long expectedVersion) {
+        super("Account " + accountId + " was modified concurrently (expected version " + expectedVersion + ")");
+        this.accountId = accountId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+}
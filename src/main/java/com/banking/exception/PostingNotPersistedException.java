@@ -0,0 +1,12 @@
+package main.java.com.banking.exception;
+
+/**
+ * Thrown when a posting was applied to the in-memory accounts but could not be written
+ * to the database. It stays applied (later postings may already build on it), so it
+ * must not be posted again under the same idempotency key.
+ */
+public class PostingNotPersistedException extends DatabaseException {
+    public PostingNotPersistedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
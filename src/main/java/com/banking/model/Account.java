@@ -1,6 +1,7 @@
 package main.java.com.banking.model;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 
 /**
  * Account Model Class
@@ -9,12 +10,23 @@ import java.time.LocalDateTime;
 public class Account {
     private String accountId;
     private String holderName;
-    private double balance;
+    private volatile double balance; // read by alert and persistence threads
     private AccountType accountType;
     private String email;
     private String phone;
     private LocalDateTime createdDate;
     private AccountStatus status;
+    private SubBalanceSlots subBalances; // Only set for configured hot accounts
+
+    // Optimistic concurrency: the row version and balance last read from or written to the database
+    private long version;
+    private double persistedBalance;
+    private int writesInFlight; // guarded by this
+    private final Object balanceLock = new Object();
+
+    // Told about every balance and status change (see SystemAggregates, BalanceSnapshots)
+    private static final BalanceListener[] NO_LISTENERS = new BalanceListener[0];
+    private volatile BalanceListener[] listeners = NO_LISTENERS;
 
     // Constructor
     public Account(String accountId, String holderName, double initialBalance,
@@ -22,6 +34,7 @@ public class Account {
         this.accountId = accountId;
         this.holderName = holderName;
         this.balance = initialBalance;
+        this.persistedBalance = initialBalance;
         this.accountType = accountType;
         this.email = email;
         this.phone = phone;
@@ -47,11 +60,97 @@ public class Account {
     }
 
     public double getBalance() {
-        return balance;
+        SubBalanceSlots slots = subBalances;
+        return slots != null ? slots.getTotal() : balance;
     }
 
     public void setBalance(double balance) {
-        this.balance = balance;
+        SubBalanceSlots slots = subBalances;
+        if (slots != null) {
+            double old = slots.getTotal();
+            slots.setTotal(balance);
+            notifySlots(balance - old);
+        } else {
+            synchronized (balanceLock) {
+                double old = this.balance;
+                this.balance = balance;
+                notifyBalance(old);
+            }
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public double getPersistedBalance() {
+        return persistedBalance;
+    }
+
+    /**
+     * Record a successful write of the account row
+     * Writes can finish out of order, so an older version never replaces a newer one
+     */
+    public void markPersisted(double persistedBalance, long version) {
+        synchronized (balanceLock) {
+            if (version > this.version) {
+                this.persistedBalance = persistedBalance;
+                this.version = version;
+            }
+        }
+    }
+
+    /**
+     * Note that a write of the account row is about to run outside the account lock
+     * Call under the account lock, together with reading the balance and version to write.
+     */
+    public synchronized void beginWrite() {
+        writesInFlight++;
+    }
+
+    /**
+     * Note that a write started with beginWrite has committed (and been marked persisted) or failed
+     */
+    public synchronized void endWrite() {
+        writesInFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Wait until no write of the account row is in flight
+     * A rebase must not run between a write's commit and its markPersisted, or it would count
+     * that write's balance change twice. Call under the account lock.
+     */
+    public synchronized void awaitWrites() {
+        boolean interrupted = false;
+        while (writesInFlight > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Move onto a newer database state, keeping the local changes that are not persisted yet
+     * Returns how far the balance moved
+     */
+    public double rebase(double databaseBalance, long databaseVersion) {
+        synchronized (balanceLock) {
+            double shift = databaseBalance - persistedBalance;
+            if (subBalances == null) {
+                double old = this.balance;
+                this.balance += shift;
+                notifyBalance(old);
+            }
+            this.persistedBalance = databaseBalance;
+            this.version = databaseVersion;
+            return shift;
+        }
     }
 
     public AccountType getAccountType() {
@@ -91,22 +190,132 @@ public class Account {
     }
 
     public void setStatus(AccountStatus status) {
-        this.status = status;
+        synchronized (balanceLock) {
+            AccountStatus old = this.status;
+            this.status = status;
+            if (old != status) {
+                for (BalanceListener listener : listeners) {
+                    listener.statusChanged(this, old, status, this.balance);
+                }
+            }
+        }
+    }
+
+    public SubBalanceSlots getSubBalances() {
+        return subBalances;
+    }
+
+    /**
+     * Split this account's balance into sub-balance slots (hot accounts only)
+     */
+    public void setSubBalances(SubBalanceSlots subBalances) {
+        this.subBalances = subBalances;
+    }
+
+    public boolean isHotAccount() {
+        return subBalances != null;
+    }
+
+    /**
+     * Bring one sub-balance slot up to the row another instance wrote (hot accounts only)
+     */
+    public void rebaseSlot(int slot, double storedBalance, long storedVersion) {
+        double shift = subBalances.rebase(slot, storedBalance, storedVersion);
+        if (shift != 0) {
+            notifySlots(shift);
+        }
     }
 
     // Utility Methods
     public void deposit(double amount) {
-        this.balance += amount;
+        SubBalanceSlots slots = subBalances;
+        if (slots != null) {
+            slots.credit(amount);
+            notifySlots(amount);
+        } else {
+            synchronized (balanceLock) {
+                double old = this.balance;
+                this.balance += amount;
+                notifyBalance(old);
+            }
+        }
     }
 
     public void withdraw(double amount) {
-        this.balance -= amount;
+        SubBalanceSlots slots = subBalances;
+        if (slots != null) {
+            slots.debit(amount);
+            notifySlots(-amount);
+        } else {
+            synchronized (balanceLock) {
+                double old = this.balance;
+                this.balance -= amount;
+                notifyBalance(old);
+            }
+        }
+    }
+
+    /**
+     * Attach a listener for balance and status changes
+     * Returns the plain balance at the moment it was attached, so the listener
+     * can start counting from exactly that value.
+     */
+    public double addBalanceListener(BalanceListener listener) {
+        synchronized (balanceLock) {
+            BalanceListener[] current = listeners;
+            BalanceListener[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = listener;
+            listeners = updated;
+            return balance;
+        }
+    }
+
+    /**
+     * Detach a listener; returns the plain balance at the moment it was detached
+     */
+    public double removeBalanceListener(BalanceListener listener) {
+        synchronized (balanceLock) {
+            listeners = Arrays.stream(listeners)
+                    .filter(l -> l != listener)
+                    .toArray(BalanceListener[]::new);
+            return balance;
+        }
+    }
+
+    // Called with balanceLock held, after the plain balance changed
+    private void notifyBalance(double oldBalance) {
+        if (oldBalance != balance) {
+            for (BalanceListener listener : listeners) {
+                listener.balanceChanged(this, oldBalance, balance);
+            }
+        }
+    }
+
+    // Called after a slot credit or debit (hot accounts, no single lock)
+    private void notifySlots(double delta) {
+        for (BalanceListener listener : listeners) {
+            listener.slotBalanceChanged(this, delta);
+        }
+    }
+
+    /**
+     * Receives balance changes of plain (non-hot) accounts and status changes,
+     * one account at a time, in the order they happened. Hot accounts report
+     * slot changes as deltas instead, concurrently and without ordering.
+     */
+    public interface BalanceListener {
+        void balanceChanged(Account account, double oldBalance, double newBalance);
+
+        void statusChanged(Account account, AccountStatus oldStatus, AccountStatus newStatus, double balance);
+
+        default void slotBalanceChanged(Account account, double delta) {
+        }
     }
 
     @Override
     public String toString() {
         return String.format("Account[ID=%s, Holder=%s, Balance=%.2f, Type=%s, Status=%s]",
-                accountId, holderName, balance, accountType, status);
+                accountId, holderName, getBalance(), accountType, status);
     }
 }
 
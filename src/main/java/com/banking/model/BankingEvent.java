@@ -0,0 +1,58 @@
+package main.java.com.banking.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Banking Event
+ * Something that happened to the books, published on the TransactionEventBus:
+ * a committed posting (its legs) or an account being opened or closed
+ */
+public class BankingEvent {
+
+    public enum Type {
+        POSTING_COMMITTED,
+        ACCOUNT_OPENED,
+        ACCOUNT_CLOSED
+    }
+
+    private final long sequence; // Increases by one per published event
+    private final Type type;
+    private final List<Transaction> legs; // POSTING_COMMITTED only
+    private final Account account; // ACCOUNT_OPENED / ACCOUNT_CLOSED only
+    private final LocalDateTime occurredAt;
+
+    public BankingEvent(long sequence, Type type, List<Transaction> legs, Account account) {
+        this.sequence = sequence;
+        this.type = type;
+        this.legs = legs;
+        this.account = account;
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public List<Transaction> getLegs() {
+        return legs;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + (type == Type.POSTING_COMMITTED
+                ? " " + legs.size() + " leg(s)" : " " + account.getAccountId());
+    }
+}
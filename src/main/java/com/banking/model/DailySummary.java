@@ -0,0 +1,131 @@
+package main.java.com.banking.model;
+
+import java.time.LocalDate;
+
+/**
+ * Daily Summary
+ * One account's SUCCESS postings on one day: count and amount per transaction type,
+ * and the balance before the first and after the last of them
+ */
+public class DailySummary {
+
+    private final String accountId;
+    private final LocalDate date;
+    private final long[] counts = new long[TransactionType.values().length];
+    private final double[] amounts = new double[TransactionType.values().length];
+    private double openingBalance;
+    private double closingBalance;
+    private long firstTransactionId = Long.MAX_VALUE;
+    private long lastTransactionId = Long.MIN_VALUE;
+
+    public DailySummary(String accountId, LocalDate date) {
+        this.accountId = accountId;
+        this.date = date;
+    }
+
+    /**
+     * Add one ledger row (rows may arrive in any order)
+     */
+    public void add(long transactionId, TransactionType type, double amount, double balanceAfter) {
+        counts[type.ordinal()]++;
+        amounts[type.ordinal()] += amount;
+        if (transactionId < firstTransactionId) {
+            firstTransactionId = transactionId;
+            openingBalance = balanceAfter - (type.isCredit() ? amount : -amount);
+        }
+        if (transactionId > lastTransactionId) {
+            lastTransactionId = transactionId;
+            closingBalance = balanceAfter;
+        }
+    }
+
+    /**
+     * Add another summary of the same account and day
+     */
+    public void merge(DailySummary other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+            amounts[i] += other.amounts[i];
+        }
+        if (other.firstTransactionId < firstTransactionId) {
+            firstTransactionId = other.firstTransactionId;
+            openingBalance = other.openingBalance;
+        }
+        if (other.lastTransactionId > lastTransactionId) {
+            lastTransactionId = other.lastTransactionId;
+            closingBalance = other.closingBalance;
+        }
+    }
+
+    /**
+     * Set the stored totals of one type (used when loading a summary row)
+     */
+    public void setTotals(TransactionType type, long count, double amount) {
+        counts[type.ordinal()] = count;
+        amounts[type.ordinal()] = amount;
+    }
+
+    public void setBalances(long firstTransactionId, double openingBalance, long lastTransactionId, double closingBalance) {
+        this.firstTransactionId = firstTransactionId;
+        this.openingBalance = openingBalance;
+        this.lastTransactionId = lastTransactionId;
+        this.closingBalance = closingBalance;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public long getCount(TransactionType type) {
+        return counts[type.ordinal()];
+    }
+
+    public double getAmount(TransactionType type) {
+        return amounts[type.ordinal()];
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Credits minus debits
+     */
+    public double getNetChange() {
+        double net = 0;
+        for (TransactionType type : TransactionType.values()) {
+            net += type.isCredit() ? amounts[type.ordinal()] : -amounts[type.ordinal()];
+        }
+        return net;
+    }
+
+    public double getOpeningBalance() {
+        return openingBalance;
+    }
+
+    public double getClosingBalance() {
+        return closingBalance;
+    }
+
+    public long getFirstTransactionId() {
+        return firstTransactionId;
+    }
+
+    public long getLastTransactionId() {
+        return lastTransactionId;
+    }
+
+    @Override
+    public String toString() {
+        return accountId + " " + date + ": " + getTotalCount() + " posting(s), " +
+                String.format("%.2f -> %.2f", openingBalance, closingBalance);
+    }
+}
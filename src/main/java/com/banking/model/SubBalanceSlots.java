@@ -0,0 +1,197 @@
+package main.java.com.banking.model;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sub-Balance Slots
+ * Splits the balance of a high-traffic account into K slots (amounts kept in paise).
+ * Credits rotate across slots, debits take from one slot and borrow from the
+ * others when that slot is short. The account balance is the sum of all slots.
+ * Each slot is persisted as its own row, so postings stop fighting over one row.
+ * Slot rows carry a version like account rows: a write only succeeds against the version
+ * last seen, and a row another instance wrote is rebased onto (see rebase).
+ */
+public class SubBalanceSlots {
+
+    private final AtomicLongArray slots;
+    private final AtomicIntegerArray dirty;
+    private final Object[] slotLocks;
+    private final AtomicLongArray persisted; // Paise each slot row holds, as last written or read
+    private final long[] versions; // Version of each slot row; guarded by the slot's lock
+    private final AtomicInteger nextCreditSlot = new AtomicInteger();
+
+    public SubBalanceSlots(int slotCount, double initialBalance) {
+        int count = Math.max(1, slotCount);
+        this.slots = new AtomicLongArray(count);
+        this.dirty = new AtomicIntegerArray(count);
+        this.slotLocks = new Object[count];
+        this.persisted = new AtomicLongArray(count);
+        this.versions = new long[count];
+        for (int i = 0; i < count; i++) {
+            slotLocks[i] = new Object();
+        }
+        setTotal(initialBalance);
+    }
+
+    /**
+     * Restore slots exactly as they were persisted
+     */
+    public SubBalanceSlots(double[] slotBalances) {
+        this(slotBalances, new long[slotBalances.length]);
+    }
+
+    public SubBalanceSlots(double[] slotBalances, long[] slotVersions) {
+        this(slotBalances.length, 0);
+        for (int i = 0; i < slotBalances.length; i++) {
+            slots.set(i, toPaise(slotBalances[i]));
+            persisted.set(i, toPaise(slotBalances[i]));
+            versions[i] = slotVersions[i];
+            dirty.set(i, 0);
+        }
+    }
+
+    public int getSlotCount() {
+        return slots.length();
+    }
+
+    public double getTotal() {
+        long total = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            total += slots.get(i);
+        }
+        return total / 100.0;
+    }
+
+    public double getSlotBalance(int slot) {
+        return slots.get(slot) / 100.0;
+    }
+
+    /**
+     * Add to the next slot in rotation
+     */
+    public void credit(double amount) {
+        int slot = Math.floorMod(nextCreditSlot.getAndIncrement(), slots.length());
+        slots.addAndGet(slot, toPaise(amount));
+        dirty.set(slot, 1);
+    }
+
+    /**
+     * Take from one slot, borrowing from the other slots if it cannot cover the amount
+     * The caller has already checked the total balance
+     */
+    public void debit(double amount) {
+        long remaining = toPaise(amount);
+        int count = slots.length();
+        int start = ThreadLocalRandom.current().nextInt(count);
+
+        // Prefer a single slot that covers the whole amount
+        for (int i = 0; i < count; i++) {
+            int slot = (start + i) % count;
+            long current = slots.get(slot);
+            if (current >= remaining && slots.compareAndSet(slot, current, current - remaining)) {
+                dirty.set(slot, 1);
+                return;
+            }
+        }
+
+        // Otherwise borrow slot by slot
+        for (int i = 0; i < count && remaining > 0; i++) {
+            int slot = (start + i) % count;
+            while (true) {
+                long current = slots.get(slot);
+                long take = Math.min(Math.max(current, 0), remaining);
+                if (take == 0) {
+                    break;
+                }
+                if (slots.compareAndSet(slot, current, current - take)) {
+                    dirty.set(slot, 1);
+                    remaining -= take;
+                    break;
+                }
+            }
+        }
+
+        // Only reachable if another thread drained the slots in between
+        if (remaining > 0) {
+            slots.addAndGet(start, -remaining);
+            dirty.set(start, 1);
+        }
+    }
+
+    /**
+     * Replace the whole balance, spreading it evenly across the slots
+     */
+    public void setTotal(double total) {
+        long paise = toPaise(total);
+        int count = slots.length();
+        long share = paise / count;
+        for (int i = 0; i < count; i++) {
+            slots.set(i, i == 0 ? share + paise % count : share);
+            dirty.set(i, 1);
+        }
+    }
+
+    /**
+     * Mark every slot as changed, e.g. after a failed write
+     */
+    public void markAllDirty() {
+        for (int i = 0; i < dirty.length(); i++) {
+            dirty.set(i, 1);
+        }
+    }
+
+    /**
+     * Write every slot changed since it was last written
+     * Each slot is handled under its own lock, so a slower writer can never
+     * overwrite a newer value with an older one. The writer gets the version the row
+     * should still have and returns the version it wrote.
+     */
+    public <E extends Exception> void flushDirty(SlotWriter<E> writer) throws E {
+        for (int i = 0; i < slots.length(); i++) {
+            if (dirty.get(i) == 0) {
+                continue;
+            }
+            synchronized (slotLocks[i]) {
+                if (dirty.compareAndSet(i, 1, 0)) {
+                    long balance = slots.get(i);
+                    try {
+                        versions[i] = writer.write(i, balance / 100.0, versions[i]);
+                        persisted.set(i, balance);
+                    } catch (Exception e) {
+                        dirty.set(i, 1);
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Take in a slot row another instance wrote; changes not written yet stay on top of it
+     * A row no newer than the one already seen is ignored. Returns how far the slot moved.
+     */
+    public double rebase(int slot, double storedBalance, long storedVersion) {
+        synchronized (slotLocks[slot]) {
+            if (storedVersion <= versions[slot]) {
+                return 0;
+            }
+            long stored = toPaise(storedBalance);
+            long shift = stored - persisted.getAndSet(slot, stored);
+            slots.addAndGet(slot, shift);
+            versions[slot] = storedVersion;
+            return shift / 100.0;
+        }
+    }
+
+    private static long toPaise(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    @FunctionalInterface
+    public interface SlotWriter<E extends Exception> {
+        long write(int slot, double balance, long version) throws E;
+    }
+}
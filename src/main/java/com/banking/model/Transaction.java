@@ -7,7 +7,7 @@ import java.time.LocalDateTime;
  * Represents a banking transaction
  */
 public class Transaction {
-    private int transactionId;
+    private long transactionId; // Assigned by TransactionIdGenerator before persistence
     private String accountId;
     private TransactionType transactionType;
     private double amount;
@@ -16,6 +16,8 @@ public class Transaction {
     private LocalDateTime transactionDate;
     private TransactionStatus status;
     private String referenceAccountId; // For transfers
+    private long transferId; // For transfers: ID of the debit leg, the same on both legs
+    private String idempotencyKey; // Optional, set by the client to make retries safe
 
     // Constructor for Deposit/Withdrawal
     public Transaction(String accountId, TransactionType transactionType,
@@ -38,7 +40,7 @@ public class Transaction {
     }
 
     // Constructor for loading from database
-    public Transaction(int transactionId, String accountId, TransactionType transactionType,
+    public Transaction(long transactionId, String accountId, TransactionType transactionType,
                        double amount, double balanceAfter, String description,
                        LocalDateTime transactionDate, TransactionStatus status) {
         this.transactionId = transactionId;
@@ -52,11 +54,11 @@ public class Transaction {
     }
 
     // Getters and Setters
-    public int getTransactionId() {
+    public long getTransactionId() {
         return transactionId;
     }
 
-    public void setTransactionId(int transactionId) {
+    public void setTransactionId(long transactionId) {
         this.transactionId = transactionId;
     }
 
@@ -124,6 +126,22 @@ public class Transaction {
         this.referenceAccountId = referenceAccountId;
     }
 
+    public long getTransferId() {
+        return transferId;
+    }
+
+    public void setTransferId(long transferId) {
+        this.transferId = transferId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
     @Override
     public String toString() {
         return String.format("Transaction[ID=%d, Type=%s, Amount=%.2f, Balance=%.2f, Date=%s, Status=%s]",
@@ -1,18 +1,28 @@
 package main.java.com.banking.model;
 
 public enum TransactionType {
-    DEPOSIT("Deposit"),
-    WITHDRAWAL("Withdrawal"),
-    TRANSFER_OUT("Transfer Out"),
-    TRANSFER_IN("Transfer In");
+    DEPOSIT("Deposit", true),
+    WITHDRAWAL("Withdrawal", false),
+    TRANSFER_OUT("Transfer Out", false),
+    TRANSFER_IN("Transfer In", true),
+    INTEREST("Interest Credit", true);
 
     private final String displayName;
+    private final boolean credit;
 
-    TransactionType(String displayName) {
+    TransactionType(String displayName, boolean credit) {
         this.displayName = displayName;
+        this.credit = credit;
     }
 
     public String getDisplayName() {
         return displayName;
     }
-}
\ No newline at end of file
+
+    /**
+     * True if this type adds to the account balance
+     */
+    public boolean isCredit() {
+        return credit;
+    }
+}
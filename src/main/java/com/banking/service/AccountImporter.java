@@ -0,0 +1,529 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.model.Account;
+import main.java.com.banking.model.AccountType;
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.DatabaseConfig;
+import main.java.com.banking.util.ValidationUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Bulk Account Import
+ * Streams a CSV file of new accounts:
+ *
+ *   account_id,holder_name,initial_balance,account_type,email,phone
+ *
+ * Rows are read in fixed-size chunks. Chunks are sanitized and validated in parallel
+ * (same rules as createAccount), then inserted in file order, one JDBC batch and one
+ * database transaction per chunk. Rejected rows go to <file>.errors.csv with their
+ * line number and reason. Imported accounts are added to the registry in bulk.
+ *
+ * Progress is stored in account_import_progress in the same transaction as each chunk,
+ * so an interrupted import of the same file resumes after the last committed chunk.
+ * (Error lines of the chunk that was in flight may appear twice.)
+ *
+ * With several shards each account is inserted on its own shard. The other shards'
+ * rows of a chunk commit first and shard 0's rows commit last, with the progress row;
+ * when a chunk is resumed, accounts that already reached another shard are reported
+ * as existing.
+ */
+public class AccountImporter {
+
+    private static final String INSERT_SQL = "INSERT INTO accounts " +
+            "(account_id, holder_name, balance, account_type, email, phone) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final AccountManager accountManager;
+    private final int chunkSize;
+    private final int threads;
+
+    public AccountImporter() {
+        this(ConfigManager.getImportChunkSize(), ConfigManager.getImportThreads());
+    }
+
+    public AccountImporter(int chunkSize, int threads) {
+        this.accountManager = AccountManager.getInstance();
+        this.chunkSize = Math.max(1, chunkSize);
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Import (or resume importing) a CSV file
+     */
+    public ImportResult importFile(String path) throws IOException, SQLException {
+        File file = new File(path);
+        if (!file.isFile()) {
+            throw new IOException("File not found: " + path);
+        }
+        String source = file.getAbsolutePath();
+        File errorFile = new File(source + ".errors.csv");
+
+        // Resume where the last run stopped, with the chunk size it used
+        ImportResult result = new ImportResult(errorFile.getPath());
+        Progress progress = loadProgress(source);
+        int size = progress != null ? progress.chunkSize : chunkSize;
+        long resumeChunk = progress != null ? progress.lastChunk + 1 : 0;
+        if (progress != null) {
+            result.resumedFromChunk = resumeChunk;
+            result.imported = progress.imported;
+            result.rejected = progress.rejected;
+            System.out.println("↻ Resuming import after chunk " + progress.lastChunk +
+                    " (" + progress.imported + " accounts already imported)");
+        }
+
+        ExecutorService validators = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "import-validate");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        ArrayDeque<CompletableFuture<Chunk>> inFlight = new ArrayDeque<>();
+        Set<String> seenIds = new HashSet<>();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file), 1 << 16);
+             BufferedWriter errors = new BufferedWriter(new FileWriter(errorFile, progress != null))) {
+
+            if (progress == null) {
+                errors.write("line,error,row\n");
+            }
+
+            String line = reader.readLine(); // header
+            long lineNo = 1;
+            long chunkIndex = 0;
+            List<String> lines = new ArrayList<>(size);
+            long firstLine = 2;
+
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (lines.isEmpty()) {
+                    firstLine = lineNo;
+                }
+                lines.add(line);
+
+                if (lines.size() == size) {
+                    submit(validators, inFlight, chunkIndex++, firstLine, lines, resumeChunk);
+                    lines = new ArrayList<>(size);
+                }
+
+                // Keep memory bounded: write out the oldest chunk when enough are queued
+                while (inFlight.size() > threads * 2) {
+                    commit(source, size, inFlight.poll().join(), seenIds, errors, result);
+                }
+            }
+            if (!lines.isEmpty()) {
+                submit(validators, inFlight, chunkIndex, firstLine, lines, resumeChunk);
+            }
+            while (!inFlight.isEmpty()) {
+                commit(source, size, inFlight.poll().join(), seenIds, errors, result);
+            }
+        } finally {
+            validators.shutdownNow();
+        }
+
+        // Finished: a later import of the same file starts from the top again
+        deleteProgress(source);
+
+        result.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    // ==================== PIPELINE STAGES ====================
+
+    private void submit(ExecutorService validators, ArrayDeque<CompletableFuture<Chunk>> inFlight,
+                        long chunkIndex, long firstLine, List<String> lines, long resumeChunk) {
+        if (chunkIndex < resumeChunk) {
+            return; // committed by an earlier run
+        }
+        inFlight.add(CompletableFuture.supplyAsync(() -> validate(chunkIndex, firstLine, lines), validators));
+    }
+
+    /**
+     * Parse, sanitize and validate one chunk (runs in parallel)
+     */
+    private Chunk validate(long chunkIndex, long firstLine, List<String> lines) {
+        Chunk chunk = new Chunk(chunkIndex);
+        long lineNo = firstLine;
+
+        for (String line : lines) {
+            try {
+                chunk.valid.add(parseRow(line));
+                chunk.validLines.add(lineNo);
+            } catch (IllegalArgumentException e) {
+                chunk.rejects.add(new Reject(lineNo, e.getMessage(), line));
+            }
+            lineNo++;
+        }
+        return chunk;
+    }
+
+    /**
+     * Insert the valid rows of a chunk in one transaction, in file order
+     */
+    private void commit(String source, int size, Chunk chunk, Set<String> seenIds,
+                        BufferedWriter errors, ImportResult result) throws SQLException, IOException {
+
+        // Duplicates within the file and against existing accounts
+        List<Account> candidates = new ArrayList<>(chunk.valid.size());
+        List<Long> candidateLines = new ArrayList<>(chunk.valid.size());
+        for (int i = 0; i < chunk.valid.size(); i++) {
+            Account account = chunk.valid.get(i);
+            if (!seenIds.add(account.getAccountId()) || accountManager.accountExists(account.getAccountId())) {
+                chunk.rejects.add(new Reject(chunk.validLines.get(i),
+                        "Account with ID " + account.getAccountId() + " already exists", account.getAccountId()));
+            } else {
+                candidates.add(account);
+                candidateLines.add(chunk.validLines.get(i));
+            }
+        }
+
+        List<ShardBatch> batches = new ArrayList<>();
+        for (int shard = 0; shard < DatabaseConfig.getShardCount(); shard++) {
+            batches.add(new ShardBatch());
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            ShardBatch batch = batches.get(DatabaseConfig.shardOf(candidates.get(i).getAccountId()));
+            batch.candidates.add(candidates.get(i));
+            batch.lines.add(candidateLines.get(i));
+        }
+
+        // Other shards first, in parallel
+        DatabaseConfig.onAllShards(shard -> {
+            if (shard > 0 && !batches.get(shard).candidates.isEmpty()) {
+                try (Connection conn = DatabaseConfig.getConnection(shard)) {
+                    conn.setAutoCommit(false);
+                    insertAccounts(conn, batches.get(shard));
+                    conn.commit();
+                }
+            }
+            return null;
+        });
+
+        List<Account> inserted = new ArrayList<>(candidates.size());
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            insertAccounts(conn, batches.get(0));
+
+            for (ShardBatch batch : batches) {
+                inserted.addAll(batch.inserted);
+                chunk.rejects.addAll(batch.rejects);
+            }
+            chunk.rejects.sort(Comparator.comparingLong(reject -> reject.lineNo));
+            for (Reject reject : chunk.rejects) {
+                errors.write(reject.lineNo + "," + quote(reject.error) + "," + quote(reject.row) + "\n");
+            }
+            errors.flush();
+
+            saveProgress(conn, source, size, chunk.index,
+                    result.imported + inserted.size(), result.rejected + chunk.rejects.size());
+            conn.commit();
+        }
+
+        accountManager.registerAccounts(inserted);
+
+        result.imported += inserted.size();
+        result.rejected += chunk.rejects.size();
+        result.chunks++;
+        if (result.chunks % 10 == 0) {
+            System.out.println("  … " + result.imported + " imported, " + result.rejected + " rejected");
+        }
+    }
+
+    /**
+     * Batch insert one shard's accounts of a chunk on the caller's connection
+     */
+    private void insertAccounts(Connection conn, ShardBatch batch) throws SQLException {
+        // Inactive accounts are not in the registry but still own their ID
+        Set<String> taken = findExistingIds(conn, batch.candidates);
+
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            for (int i = 0; i < batch.candidates.size(); i++) {
+                Account account = batch.candidates.get(i);
+                if (taken.contains(account.getAccountId())) {
+                    batch.rejects.add(new Reject(batch.lines.get(i), "Account with ID " +
+                            account.getAccountId() + " already exists", account.getAccountId()));
+                    continue;
+                }
+                stmt.setString(1, account.getAccountId());
+                stmt.setString(2, account.getHolderName());
+                stmt.setDouble(3, account.getBalance());
+                stmt.setString(4, account.getAccountType().name());
+                stmt.setString(5, account.getEmail());
+                stmt.setString(6, account.getPhone());
+                stmt.addBatch();
+                batch.inserted.add(account);
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private Set<String> findExistingIds(Connection conn, List<Account> accounts) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        if (accounts.isEmpty()) {
+            return existing;
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT account_id FROM accounts WHERE account_id IN (");
+        for (int i = 0; i < accounts.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(")");
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < accounts.size(); i++) {
+                stmt.setString(i + 1, accounts.get(i).getAccountId());
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                existing.add(rs.getString(1));
+            }
+        }
+        return existing;
+    }
+
+    // ==================== ROW PARSING ====================
+
+    /**
+     * Turn one CSV row into an Account, applying the createAccount rules
+     */
+    private static Account parseRow(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 6) {
+            throw new IllegalArgumentException("Expected 6 columns, found " + fields.size());
+        }
+
+        String accountId = ValidationUtil.sanitizeAccountId(fields.get(0));
+        String holderName = ValidationUtil.sanitizeName(fields.get(1));
+        String email = ValidationUtil.sanitizeEmail(fields.get(4));
+        String phone = ValidationUtil.sanitizePhone(fields.get(5));
+
+        if (!ValidationUtil.isValidAccountId(accountId)) {
+            throw new IllegalArgumentException(ValidationUtil.getAccountIdError());
+        }
+        if (!ValidationUtil.isValidName(holderName)) {
+            throw new IllegalArgumentException(ValidationUtil.getNameError());
+        }
+
+        double initialBalance;
+        try {
+            initialBalance = Double.parseDouble(fields.get(2).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(ValidationUtil.getInitialBalanceError());
+        }
+        if (!ValidationUtil.isValidInitialBalance(initialBalance)) {
+            throw new IllegalArgumentException(ValidationUtil.getInitialBalanceError());
+        }
+
+        AccountType accountType;
+        try {
+            accountType = AccountType.valueOf(fields.get(3).trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid Account Type: " + fields.get(3).trim());
+        }
+
+        if (!ValidationUtil.isValidEmail(email)) {
+            throw new IllegalArgumentException(ValidationUtil.getEmailError());
+        }
+        if (!ValidationUtil.isValidPhone(phone)) {
+            throw new IllegalArgumentException(ValidationUtil.getPhoneError());
+        }
+
+        return new Account(accountId, holderName, initialBalance, accountType, email, phone);
+    }
+
+    /**
+     * Split a CSV line, honouring double-quoted fields
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(6);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    // ==================== PROGRESS ====================
+
+    private Progress loadProgress(String source) throws SQLException {
+        String sql = "SELECT chunk_size, last_chunk, imported, rejected FROM account_import_progress WHERE source = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, source);
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            return new Progress(rs.getInt("chunk_size"), rs.getLong("last_chunk"),
+                    rs.getLong("imported"), rs.getLong("rejected"));
+        }
+    }
+
+    private void saveProgress(Connection conn, String source, int size, long lastChunk,
+                              long imported, long rejected) throws SQLException {
+        String sql = "INSERT INTO account_import_progress (source, chunk_size, last_chunk, imported, rejected) " +
+                "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE last_chunk = VALUES(last_chunk), " +
+                "imported = VALUES(imported), rejected = VALUES(rejected)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, source);
+            stmt.setInt(2, size);
+            stmt.setLong(3, lastChunk);
+            stmt.setLong(4, imported);
+            stmt.setLong(5, rejected);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void deleteProgress(String source) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "DELETE FROM account_import_progress WHERE source = ?")) {
+            stmt.setString(1, source);
+            stmt.executeUpdate();
+        }
+    }
+
+    // ==================== DATA HOLDERS ====================
+
+    /**
+     * Outcome of an import run
+     */
+    public static class ImportResult {
+        private final String errorFile;
+        private long imported;
+        private long rejected;
+        private long chunks;
+        private long resumedFromChunk = -1;
+        private long elapsedMillis;
+
+        ImportResult(String errorFile) {
+            this.errorFile = errorFile;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getChunks() {
+            return chunks;
+        }
+
+        public boolean isResumed() {
+            return resumedFromChunk >= 0;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public String getErrorFile() {
+            return errorFile;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Imported %d accounts, rejected %d rows in %.2f s%s",
+                    imported, rejected, elapsedMillis / 1000.0,
+                    isResumed() ? " (resumed at chunk " + resumedFromChunk + ")" : "");
+        }
+    }
+
+    private static class Chunk {
+        final long index;
+        final List<Account> valid = new ArrayList<>();
+        final List<Long> validLines = new ArrayList<>();
+        final List<Reject> rejects = new ArrayList<>();
+
+        Chunk(long index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * The accounts of a chunk that belong to one shard
+     */
+    private static class ShardBatch {
+        final List<Account> candidates = new ArrayList<>();
+        final List<Long> lines = new ArrayList<>();
+        final List<Account> inserted = new ArrayList<>();
+        final List<Reject> rejects = new ArrayList<>();
+    }
+
+    private static class Reject {
+        final long lineNo;
+        final String error;
+        final String row;
+
+        Reject(long lineNo, String error, String row) {
+            this.lineNo = lineNo;
+            this.error = error;
+            this.row = row;
+        }
+    }
+
+    private static class Progress {
+        final int chunkSize;
+        final long lastChunk;
+        final long imported;
+        final long rejected;
+
+        Progress(int chunkSize, long lastChunk, long imported, long rejected) {
+            this.chunkSize = chunkSize;
+            this.lastChunk = lastChunk;
+            this.imported = imported;
+            this.rejected = rejected;
+        }
+    }
+}
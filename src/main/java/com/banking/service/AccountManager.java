@@ -2,13 +2,18 @@ package main.java.com.banking.service;
 
 import main.java.com.banking.model.Account;
 import main.java.com.banking.model.AccountType;
+import main.java.com.banking.model.SubBalanceSlots;
 import main.java.com.banking.exception.*;
+import main.java.com.banking.util.ConfigManager;
 import main.java.com.banking.util.DatabaseConfig;
 import main.java.com.banking.util.ValidationUtil;
 
 import java.sql.*;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,16 +23,33 @@ import java.util.List;
  */
 public class AccountManager {
 
-    // In-memory storage using HashMap
+    // In-memory storage (concurrent so posting engine threads can read it safely)
     private Map<String, Account> accountMap;
 
     // Singleton instance
     private static AccountManager instance;
 
+    // Account writes that lost a version race
+    private final LongAdder versionConflicts = new LongAdder();
+
     // Private constructor
     private AccountManager() {
-        accountMap = new HashMap<>();
+        accountMap = new ConcurrentHashMap<>();
         loadAccountsFromDatabase();
+        initializeHotAccounts();
+
+        // Write-behind: pick up postings whose balances were not flushed, then start flushing
+        BalanceWriteBehind writeBehind = BalanceWriteBehind.getInstance();
+        writeBehind.recover(accountMap);
+        writeBehind.start();
+
+        // Running totals and snapshot histories start from the loaded balances
+        SystemAggregates aggregates = SystemAggregates.getInstance();
+        BalanceSnapshots snapshots = BalanceSnapshots.getInstance();
+        for (Account account : accountMap.values()) {
+            aggregates.track(account);
+            snapshots.track(account);
+        }
     }
 
     // Get singleton instance
@@ -87,8 +109,17 @@ public class AccountManager {
         // Save to database
         saveAccountToDatabase(account);
 
+        // Hot accounts keep their balance in sub-balance slots
+        if (ConfigManager.getHotAccountIds().contains(accountId)) {
+            account.setSubBalances(new SubBalanceSlots(ConfigManager.getHotAccountSlots(), initialBalance));
+            replaceSubBalanceRows(account);
+        }
+
         // Add to in-memory map
+        SystemAggregates.getInstance().track(account);
+        BalanceSnapshots.getInstance().track(account);
         accountMap.put(accountId, account);
+        TransactionEventBus.getInstance().publishAccountOpened(account);
 
         System.out.println("✓ Account created successfully: " + accountId);
         return account;
@@ -98,10 +129,11 @@ public class AccountManager {
      * Get account by ID
      */
     public Account getAccount(String accountId) throws AccountNotFoundException {
-        if (!accountMap.containsKey(accountId)) {
+        Account account = accountId != null ? accountMap.get(accountId) : null;
+        if (account == null) {
             throw new AccountNotFoundException("Account not found: " + accountId);
         }
-        return accountMap.get(accountId);
+        return account;
     }
 
     /**
@@ -123,6 +155,15 @@ public class AccountManager {
         updateAccountInDatabase(account);
     }
 
+    /**
+     * Write the current in-memory balance of an account to the database
+     * Used by pipelined postings, where the balance may have moved on since the posting was applied
+     */
+    public void persistBalance(String accountId) throws AccountNotFoundException, SQLException {
+        Account account = getAccount(accountId);
+        updateAccountInDatabase(account);
+    }
+
     /**
      * Delete account
      */
@@ -135,7 +176,12 @@ public class AccountManager {
         deleteAccountFromDatabase(accountId);
 
         // Remove from map
-        accountMap.remove(accountId);
+        Account removed = accountMap.remove(accountId);
+        if (removed != null) {
+            SystemAggregates.getInstance().untrack(removed);
+            BalanceSnapshots.getInstance().untrack(removed);
+            TransactionEventBus.getInstance().publishAccountClosed(removed);
+        }
 
         System.out.println("✓ Account deleted successfully: " + accountId);
     }
@@ -147,6 +193,39 @@ public class AccountManager {
         return accountMap.containsKey(accountId);
     }
 
+    /**
+     * Add accounts that were already inserted in bulk (see AccountImporter)
+     */
+    public void registerAccounts(List<Account> accounts) throws SQLException {
+        Set<String> hotIds = ConfigManager.getHotAccountIds();
+        SystemAggregates aggregates = SystemAggregates.getInstance();
+        BalanceSnapshots snapshots = BalanceSnapshots.getInstance();
+        TransactionEventBus eventBus = TransactionEventBus.getInstance();
+        for (Account account : accounts) {
+            if (hotIds.contains(account.getAccountId())) {
+                account.setSubBalances(new SubBalanceSlots(ConfigManager.getHotAccountSlots(), account.getBalance()));
+                replaceSubBalanceRows(account);
+            }
+            aggregates.track(account);
+            snapshots.track(account);
+            accountMap.put(account.getAccountId(), account);
+            eventBus.publishAccountOpened(account);
+        }
+    }
+
+    /**
+     * Get number of accounts using sub-balance slots
+     */
+    public int getHotAccountCount() {
+        int count = 0;
+        for (Account account : accountMap.values()) {
+            if (account.isHotAccount()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Get total number of accounts
      */
@@ -163,7 +242,7 @@ public class AccountManager {
         String sql = "INSERT INTO accounts (account_id, holder_name, balance, account_type, email, phone) " +
                 "VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DatabaseConfig.getConnection();
+        try (Connection conn = DatabaseConfig.getShardConnection(account.getAccountId());
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, account.getAccountId());
@@ -178,12 +257,39 @@ public class AccountManager {
     }
 
     /**
-     * Load all accounts from database
+     * Load all accounts from database (every shard in parallel)
      */
     private void loadAccountsFromDatabase() {
+        try {
+            List<List<Account>> shards = DatabaseConfig.onAllShards(this::loadAccountsFromShard);
+
+            int misplaced = 0;
+            for (int shard = 0; shard < shards.size(); shard++) {
+                for (Account account : shards.get(shard)) {
+                    if (DatabaseConfig.shardOf(account.getAccountId()) != shard) {
+                        misplaced++;
+                    }
+                    accountMap.put(account.getAccountId(), account);
+                }
+            }
+
+            System.out.println("✓ Loaded " + accountMap.size() + " accounts from database" +
+                    (shards.size() > 1 ? " (" + shards.size() + " shards)" : ""));
+            if (misplaced > 0) {
+                System.err.println("❌ " + misplaced + " accounts are stored on a different shard than " +
+                        "db.shards routes them to (was the shard count changed?)");
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error loading accounts from database: " + e.getMessage());
+        }
+    }
+
+    private List<Account> loadAccountsFromShard(int shard) throws SQLException {
+        List<Account> accounts = new ArrayList<>();
         String sql = "SELECT * FROM accounts WHERE status = 'ACTIVE'";
 
-        try (Connection conn = DatabaseConfig.getConnection();
+        try (Connection conn = DatabaseConfig.getConnection(shard);
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -196,32 +302,356 @@ public class AccountManager {
                 String phone = rs.getString("phone");
 
                 Account account = new Account(accountId, holderName, balance, type, email, phone);
-                accountMap.put(accountId, account);
+                account.markPersisted(balance, rs.getLong("version"));
+                accounts.add(account);
             }
-
-            System.out.println("✓ Loaded " + accountMap.size() + " accounts from database");
-
-        } catch (SQLException e) {
-            System.err.println("Error loading accounts from database: " + e.getMessage());
         }
+        return accounts;
     }
 
     /**
      * Update account in database
+     * Hot accounts only write the sub-balance slots that changed
      */
     private void updateAccountInDatabase(Account account) throws SQLException {
-        String sql = "UPDATE accounts SET holder_name = ?, balance = ?, email = ?, phone = ? " +
-                "WHERE account_id = ?";
+        if (account.isHotAccount()) {
+            updateSubBalancesInDatabase(account);
+            return;
+        }
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        // One write of the row at a time, so a slower writer cannot overwrite a newer balance
+        // with an older one. Only the read runs under the account lock, not the write.
+        double balance;
+        long version;
+        synchronized (account) {
+            account.awaitWrites();
+            balance = account.getBalance();
+            version = account.getVersion();
+            account.beginWrite();
+        }
+
+        try {
+            try (Connection conn = DatabaseConfig.getShardConnection(account.getAccountId())) {
+                version = writeAccountRow(conn, account, balance, version);
+            }
+            account.markPersisted(balance, version);
+        } finally {
+            account.endWrite();
+        }
+    }
 
+    /**
+     * Compare-and-set write of an account row on the caller's connection
+     * Only succeeds if the row still has the version read earlier; returns the new version.
+     * Callers read balance and version under the account lock and call beginWrite there,
+     * then run this outside it and call markPersisted once their transaction commits.
+     */
+    long writeAccountRow(Connection conn, Account account, double balance, long expectedVersion)
+            throws SQLException {
+        String sql = "UPDATE accounts SET holder_name = ?, balance = ?, email = ?, phone = ?, " +
+                "version = version + 1 WHERE account_id = ? AND version = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, account.getHolderName());
-            stmt.setDouble(2, account.getBalance());
+            stmt.setDouble(2, balance);
             stmt.setString(3, account.getEmail());
             stmt.setString(4, account.getPhone());
             stmt.setString(5, account.getAccountId());
+            stmt.setLong(6, expectedVersion);
+
+            if (stmt.executeUpdate() == 0) {
+                versionConflicts.increment();
+                throw new OptimisticLockException(account.getAccountId(), expectedVersion);
+            }
+        }
+        return expectedVersion + 1;
+    }
+
+    /**
+     * Compare-and-set write of many account rows as one JDBC batch on the caller's connection
+     * (all accounts on that connection's shard)
+     * Returns the accounts whose version no longer matched (empty if every row was written,
+     * each at its version + 1). The caller rolls back on a conflict.
+     */
+    List<Account> writeAccountRows(Connection conn, List<Account> accounts, double[] balances, long[] versions)
+            throws SQLException {
+        List<Account> conflicted = new ArrayList<>();
+        String sql = "UPDATE accounts SET balance = ?, version = version + 1 WHERE account_id = ? AND version = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < accounts.size(); i++) {
+                stmt.setDouble(1, balances[i]);
+                stmt.setString(2, accounts.get(i).getAccountId());
+                stmt.setLong(3, versions[i]);
+                stmt.addBatch();
+            }
 
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    versionConflicts.increment();
+                    conflicted.add(accounts.get(i));
+                }
+            }
+        }
+        return conflicted;
+    }
+
+    /**
+     * Reload an account's balance and version from the database after a version conflict
+     * Local changes that are not persisted yet are kept on top of the database balance.
+     * Returns how far the balance moved.
+     */
+    public double refreshAccount(String accountId) throws AccountNotFoundException, SQLException {
+        Account account = getAccount(accountId);
+        String sql = "SELECT balance, version FROM accounts WHERE account_id = ?";
+
+        try (Connection conn = DatabaseConfig.getShardConnection(accountId);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, accountId);
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                throw new AccountNotFoundException("Account not found: " + accountId);
+            }
+
+            synchronized (account) {
+                // A write of our own may have committed this version; let it be marked first
+                account.awaitWrites();
+                // A newer state may have been synced in since the read (stateless postings)
+                long version = rs.getLong("version");
+                if (version <= account.getVersion()) {
+                    return 0;
+                }
+                return account.rebase(rs.getDouble("balance"), version);
+            }
+        }
+    }
+
+    /**
+     * Bring the cached copy of an account up to a balance and version just committed elsewhere
+     * (stateless postings). Accounts this instance has not loaded are ignored.
+     */
+    public void syncFromDatabase(String accountId, double balance, long version) {
+        Account account = accountId != null ? accountMap.get(accountId) : null;
+        if (account != null) {
+            synchronized (account) {
+                account.awaitWrites();
+                if (version > account.getVersion()) {
+                    account.rebase(balance, version);
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of account writes rejected because another instance changed the row first
+     */
+    public long getVersionConflictCount() {
+        return versionConflicts.sum();
+    }
+
+    // ==================== HOT ACCOUNT SUB-BALANCES ====================
+
+    /**
+     * Set up sub-balance slots for configured hot accounts, and fold the slots
+     * of accounts that are no longer configured back into accounts.balance
+     */
+    private void initializeHotAccounts() {
+        Set<String> hotIds = ConfigManager.getHotAccountIds();
+        int slotCount = ConfigManager.getHotAccountSlots();
+
+        try {
+            Map<String, StoredSlots> storedSlots = loadSubBalanceRows();
+
+            for (Map.Entry<String, StoredSlots> entry : storedSlots.entrySet()) {
+                Account account = accountMap.get(entry.getKey());
+                if (account == null || hotIds.contains(entry.getKey())) {
+                    continue;
+                }
+                // No longer hot: the slot total becomes the plain balance again
+                account.setBalance(new SubBalanceSlots(entry.getValue().balances()).getTotal());
+                updateAccountInDatabase(account);
+                deleteSubBalanceRows(account.getAccountId());
+            }
+
+            for (String accountId : hotIds) {
+                Account account = accountMap.get(accountId);
+                if (account == null) {
+                    continue;
+                }
+                StoredSlots stored = storedSlots.get(accountId);
+                if (stored != null && stored.balances().length == slotCount) {
+                    account.setSubBalances(new SubBalanceSlots(stored.balances(), stored.versions()));
+                } else {
+                    // First use, or the slot count changed: spread the current total again
+                    double total = stored != null
+                            ? new SubBalanceSlots(stored.balances()).getTotal() : account.getBalance();
+                    account.setSubBalances(new SubBalanceSlots(slotCount, total));
+                    replaceSubBalanceRows(account);
+                }
+            }
+
+            if (!hotIds.isEmpty()) {
+                System.out.println("✓ " + getHotAccountCount() + " hot accounts using " +
+                        slotCount + " sub-balance slots");
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading sub-balance slots: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load all sub-balance slot rows, grouped by account
+     */
+    private Map<String, StoredSlots> loadSubBalanceRows() throws SQLException {
+        Map<String, List<double[]>> rows = new HashMap<>();
+        String sql = "SELECT account_id, slot_no, balance, version FROM account_balance_slots " +
+                "ORDER BY account_id, slot_no";
+
+        for (Map<String, List<double[]>> shardRows : DatabaseConfig.onAllShards(shard -> {
+            Map<String, List<double[]>> found = new HashMap<>();
+            try (Connection conn = DatabaseConfig.getConnection(shard);
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+
+                while (rs.next()) {
+                    found.computeIfAbsent(rs.getString("account_id"), id -> new ArrayList<>())
+                            .add(new double[]{rs.getInt("slot_no"), rs.getDouble("balance"), rs.getLong("version")});
+                }
+            }
+            return found;
+        })) {
+            rows.putAll(shardRows);
+        }
+
+        Map<String, StoredSlots> slots = new HashMap<>();
+        for (Map.Entry<String, List<double[]>> entry : rows.entrySet()) {
+            double[] balances = new double[entry.getValue().size()];
+            long[] versions = new long[balances.length];
+            for (int i = 0; i < balances.length; i++) {
+                balances[i] = entry.getValue().get(i)[1];
+                versions[i] = (long) entry.getValue().get(i)[2];
+            }
+            slots.put(entry.getKey(), new StoredSlots(balances, versions));
+        }
+        return slots;
+    }
+
+    /**
+     * Balances and versions of one account's slot rows, by slot number
+     */
+    private record StoredSlots(double[] balances, long[] versions) {
+    }
+
+    /**
+     * Rewrite all slot rows of a hot account
+     */
+    /**
+     * Rewrite all slot rows of a hot account
+     * The new rows get a version above any the old ones had, so an instance still holding
+     * the old rows fails its next write and rebases instead of overwriting them.
+     */
+    private void replaceSubBalanceRows(Account account) throws SQLException {
+        SubBalanceSlots slots = account.getSubBalances();
+        String versionSql = "SELECT COALESCE(MAX(version), 0) + 1 FROM account_balance_slots WHERE account_id = ?";
+        String sql = "INSERT INTO account_balance_slots (account_id, slot_no, balance, version) VALUES (?, ?, ?, ?)";
+
+        long version;
+        try (Connection conn = DatabaseConfig.getShardConnection(account.getAccountId());
+             PreparedStatement versionStmt = conn.prepareStatement(versionSql)) {
+            versionStmt.setString(1, account.getAccountId());
+            ResultSet rs = versionStmt.executeQuery();
+            rs.next();
+            version = rs.getLong(1);
+        }
+        deleteSubBalanceRows(account.getAccountId());
+
+        try (Connection conn = DatabaseConfig.getShardConnection(account.getAccountId());
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < slots.getSlotCount(); i++) {
+                stmt.setString(1, account.getAccountId());
+                stmt.setInt(2, i);
+                stmt.setDouble(3, slots.getSlotBalance(i));
+                stmt.setLong(4, version);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        // Everything was just written
+        slots.flushDirty((slot, balance, expected) -> version);
+    }
+
+    /**
+     * Write the slots of a hot account that changed since their last write
+     * Each slot row is compare-and-set on its version; on a conflict the slots are rebased
+     * onto the rows in the database and written again.
+     */
+    private void updateSubBalancesInDatabase(Account account) throws SQLException {
+        int maxRetries = ConfigManager.getOptimisticMaxRetries();
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                writeSubBalanceRows(account);
+                return;
+            } catch (OptimisticLockException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                refreshSubBalances(account);
+            }
+        }
+    }
+
+    private void writeSubBalanceRows(Account account) throws SQLException {
+        String sql = "UPDATE account_balance_slots SET balance = ?, version = version + 1 " +
+                "WHERE account_id = ? AND slot_no = ? AND version = ?";
+
+        try (Connection conn = DatabaseConfig.getShardConnection(account.getAccountId());
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            account.getSubBalances().flushDirty((slot, balance, version) -> {
+                stmt.setDouble(1, balance);
+                stmt.setString(2, account.getAccountId());
+                stmt.setInt(3, slot);
+                stmt.setLong(4, version);
+                if (stmt.executeUpdate() == 0) {
+                    versionConflicts.increment();
+                    throw new OptimisticLockException(account.getAccountId(), version);
+                }
+                return version + 1;
+            });
+        }
+    }
+
+    /**
+     * Reload a hot account's slot rows after a version conflict, keeping unwritten changes
+     */
+    private void refreshSubBalances(Account account) throws SQLException {
+        String sql = "SELECT slot_no, balance, version FROM account_balance_slots WHERE account_id = ?";
+
+        try (Connection conn = DatabaseConfig.getShardConnection(account.getAccountId());
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, account.getAccountId());
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                int slot = rs.getInt("slot_no");
+                if (slot < account.getSubBalances().getSlotCount()) {
+                    account.rebaseSlot(slot, rs.getDouble("balance"), rs.getLong("version"));
+                }
+            }
+        }
+    }
+
+    private void deleteSubBalanceRows(String accountId) throws SQLException {
+        String sql = "DELETE FROM account_balance_slots WHERE account_id = ?";
+
+        try (Connection conn = DatabaseConfig.getShardConnection(accountId);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, accountId);
             stmt.executeUpdate();
         }
     }
@@ -232,7 +662,7 @@ public class AccountManager {
     private void deleteAccountFromDatabase(String accountId) throws SQLException {
         String sql = "UPDATE accounts SET status = 'CLOSED' WHERE account_id = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
+        try (Connection conn = DatabaseConfig.getShardConnection(accountId);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, accountId);
@@ -1,6 +1,11 @@
 package main.java.com.banking.service;
 
+import main.java.com.banking.exception.AccountNotFoundException;
 import main.java.com.banking.model.Account;
+import main.java.com.banking.model.BankingEvent;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.util.ConfigManager;
+
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -24,6 +29,7 @@ public class BalanceAlertTracker {
 
     private Timer monitoringTimer;
     private boolean isMonitoring = false;
+    private boolean subscribed = false;
 
     private BalanceAlertTracker() {
         this.accountManager = AccountManager.getInstance();
@@ -131,6 +137,47 @@ public class BalanceAlertTracker {
         }
     }
 
+    /**
+     * Check an account right after a posting
+     * Stays silent while the balance is healthy
+     */
+    public void checkBalanceAfterPosting(Account account) {
+        double balance = account.getBalance();
+
+        if (balance < CRITICAL_BALANCE_THRESHOLD) {
+            sendCriticalBalanceAlert(account);
+        } else if (balance < LOW_BALANCE_THRESHOLD) {
+            sendLowBalanceAlert(account);
+        }
+    }
+
+    /**
+     * Check every account touched by a committed posting, fed by the event bus
+     * When postings outrun the alerts the oldest pending checks are dropped; the
+     * account's balance is checked again on its next posting.
+     */
+    public synchronized void subscribeToPostings(TransactionEventBus eventBus) {
+        if (subscribed) {
+            return;
+        }
+        eventBus.subscribe("balance-alerts", ConfigManager.getEventAlertBufferSize(),
+                TransactionEventBus.OverflowPolicy.DROP_OLDEST, this::onEvent);
+        subscribed = true;
+    }
+
+    private void onEvent(BankingEvent event) {
+        if (event.getType() != BankingEvent.Type.POSTING_COMMITTED) {
+            return;
+        }
+        for (Transaction leg : event.getLegs()) {
+            try {
+                checkBalanceAfterPosting(accountManager.getAccount(leg.getAccountId()));
+            } catch (AccountNotFoundException e) {
+                // Account was removed after the posting
+            }
+        }
+    }
+
     /**
      * Send low balance alert
      */
@@ -0,0 +1,397 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.exception.AccountNotFoundException;
+import main.java.com.banking.model.Account;
+import main.java.com.banking.model.TransactionType;
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.DatabaseConfig;
+import main.java.com.banking.util.ReportWriter;
+import main.java.com.banking.util.TransactionIdGenerator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Balance Checkpoints
+ * Answers "what was this account's balance at time X" without reading its whole history.
+ *
+ * A checkpoint run records, for every account posted to since the previous run, its balance
+ * including all of its ledger rows up to a cut-off transaction ID: the account's previous
+ * checkpoint (or its opening balance) plus the rows in between. Transaction IDs are ordered
+ * by time (see TransactionIdGenerator), so the cut-off is a moment in time and each run reads
+ * only its own slice of the primary key. Runs happen every checkpoint.interval.minutes in the
+ * background, trailing the clock by checkpoint.settle.seconds and stopping short of any
+ * posting a node has not committed yet (see PostingHorizon), so no row is missed.
+ *
+ * getBalanceAsOf takes the account's newest checkpoint at or before the requested time and
+ * adds only the account's ledger rows after it, so a lookup reads at most one interval of
+ * the account's activity however long its history is.
+ *
+ * Checkpoints live on their account's shard and every shard is checkpointed in parallel;
+ * the run itself is recorded once, on shard 0.
+ */
+public class BalanceCheckpoints {
+
+    private static BalanceCheckpoints instance;
+
+    private static final int CHUNK_SIZE = 1000;
+
+    // Ledger amount with the sign it had on the balance
+    private static final String SIGNED_AMOUNT = "CASE WHEN transaction_type IN (" +
+            Arrays.stream(TransactionType.values())
+                    .filter(TransactionType::isCredit)
+                    .map(type -> "'" + type.name() + "'")
+                    .collect(Collectors.joining(", ")) +
+            ") THEN amount ELSE -amount END";
+
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final long settleMillis;
+    private ScheduledExecutorService scheduler;
+
+    private BalanceCheckpoints() {
+        this.enabled = ConfigManager.isBalanceCheckpointEnabled();
+        this.intervalMillis = TimeUnit.MINUTES.toMillis(Math.max(1, ConfigManager.getBalanceCheckpointIntervalMinutes()));
+        this.settleMillis = TimeUnit.SECONDS.toMillis(Math.max(0, ConfigManager.getBalanceCheckpointSettleSeconds()));
+    }
+
+    public static synchronized BalanceCheckpoints getInstance() {
+        if (instance == null) {
+            instance = new BalanceCheckpoints();
+        }
+        return instance;
+    }
+
+    // ==================== POINT-IN-TIME BALANCE ====================
+
+    /**
+     * Balance of an account at a moment in the past: every posting made up to then
+     */
+    public double getBalanceAsOf(String accountId, LocalDateTime asOf) throws AccountNotFoundException, SQLException {
+        Account account = AccountManager.getInstance().getAccount(accountId);
+        long lastId = TransactionIdGenerator.lastIdAt(asOf.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+
+        String checkpointSql = "SELECT last_transaction_id, balance FROM balance_checkpoints " +
+                "WHERE account_id = ? AND last_transaction_id <= ? ORDER BY last_transaction_id DESC LIMIT 1";
+
+        try (Connection conn = DatabaseConfig.getShardConnection(accountId);
+             PreparedStatement stmt = conn.prepareStatement(checkpointSql)) {
+
+            stmt.setString(1, accountId);
+            stmt.setLong(2, lastId);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getDouble(2) + ledgerDelta(conn, accountId, rs.getLong(1), lastId);
+            }
+
+            // Before the account's first checkpoint: replay from its opening balance
+            Double opening = loadOpeningBalances(conn, List.of(accountId)).get(accountId);
+            if (opening == null) {
+                return account.getBalance(); // never posted to
+            }
+            return opening + ledgerDelta(conn, accountId, 0, lastId);
+        }
+    }
+
+    /**
+     * Net effect of an account's ledger rows with IDs in (afterId, lastId]
+     */
+    private double ledgerDelta(Connection conn, String accountId, long afterId, long lastId) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) FROM transaction_legs " +
+                "WHERE account_id = ? AND transaction_id > ? AND transaction_id <= ? AND status = 'SUCCESS'";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, accountId);
+            stmt.setLong(2, afterId);
+            stmt.setLong(3, lastId);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getDouble(1);
+        }
+    }
+
+    // ==================== CHECKPOINT RUNS ====================
+
+    /**
+     * Checkpoint every account posted to since the previous run
+     */
+    public synchronized CheckpointRunResult createCheckpoints() throws SQLException {
+        long start = System.nanoTime();
+        long cutoffId = settledCutoff(TransactionIdGenerator.lastIdAt(System.currentTimeMillis() - settleMillis));
+        long previousId = lastRunId();
+
+        CheckpointRunResult result = new CheckpointRunResult(cutoffId);
+        if (cutoffId <= previousId) {
+            result.elapsedNanos = System.nanoTime() - start;
+            return result;
+        }
+
+        for (long accounts : DatabaseConfig.onAllShards(shard -> checkpointShard(shard, previousId, cutoffId))) {
+            result.accounts += accounts;
+        }
+
+        String runSql = "INSERT INTO balance_checkpoint_runs (last_transaction_id, accounts, completed_at) VALUES (?, ?, ?)";
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement run = conn.prepareStatement(runSql)) {
+            run.setLong(1, cutoffId);
+            run.setLong(2, result.accounts);
+            run.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            run.executeUpdate();
+        }
+
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Keep the cutoff below every cross-shard debit still pending, on any shard, and below
+     * every posting any node has not committed yet (see PostingHorizon)
+     * A debit's row only counts once it is SUCCESS, so a later run picks it up then.
+     */
+    private long settledCutoff(long cutoffId) throws SQLException {
+        for (long pendingId : DatabaseConfig.onAllShards(shard -> {
+            try (Connection conn = DatabaseConfig.getConnection(shard)) {
+                return TransactionManager.oldestPendingTransfer(conn);
+            }
+        })) {
+            if (pendingId > 0) {
+                cutoffId = Math.min(cutoffId, pendingId - 1);
+            }
+        }
+        return PostingHorizon.getInstance().settledCutoff(cutoffId);
+    }
+
+    /**
+     * Checkpoint one shard's accounts posted to in (previousId, cutoffId]
+     */
+    private long checkpointShard(int shard, long previousId, long cutoffId) throws SQLException {
+        String deltaSql = "SELECT account_id, SUM(" + SIGNED_AMOUNT + ") FROM transaction_legs " +
+                "WHERE transaction_id > ? AND transaction_id <= ? AND status = 'SUCCESS' GROUP BY account_id";
+
+        long accounts = 0;
+        try (Connection readConn = DatabaseConfig.getConnection(shard);
+             Connection writeConn = DatabaseConfig.getConnection(shard);
+             PreparedStatement stmt = readConn.prepareStatement(deltaSql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            readConn.setReadOnly(true);
+            readConn.setAutoCommit(false);
+            stmt.setFetchSize(ConfigManager.getExportFetchSize());
+            stmt.setLong(1, previousId);
+            stmt.setLong(2, cutoffId);
+
+            List<String> accountIds = new ArrayList<>(CHUNK_SIZE);
+            List<Double> deltas = new ArrayList<>(CHUNK_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    accountIds.add(rs.getString(1));
+                    deltas.add(rs.getDouble(2));
+                    if (accountIds.size() == CHUNK_SIZE) {
+                        accounts += writeCheckpoints(writeConn, accountIds, deltas, previousId, cutoffId);
+                        accountIds.clear();
+                        deltas.clear();
+                    }
+                }
+            }
+            accounts += writeCheckpoints(writeConn, accountIds, deltas, previousId, cutoffId);
+        }
+        return accounts;
+    }
+
+    /**
+     * Write one chunk of checkpoints in a single database transaction
+     * A run that stops half way leaves only correct checkpoints behind; the next run
+     * starts again from the last completed one.
+     */
+    private int writeCheckpoints(Connection conn, List<String> accountIds, List<Double> deltas,
+                                 long previousId, long cutoffId) throws SQLException {
+        if (accountIds.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Double> bases = loadCheckpointBalances(conn, accountIds, previousId);
+        List<String> firstTime = new ArrayList<>();
+        for (String accountId : accountIds) {
+            if (!bases.containsKey(accountId)) {
+                firstTime.add(accountId);
+            }
+        }
+        // Every earlier row was covered by an earlier run, so these start from the opening balance
+        if (!firstTime.isEmpty()) {
+            bases.putAll(loadOpeningBalances(conn, firstTime));
+        }
+
+        String sql = "INSERT INTO balance_checkpoints (account_id, last_transaction_id, balance) VALUES (?, ?, ?)";
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < accountIds.size(); i++) {
+                stmt.setString(1, accountIds.get(i));
+                stmt.setLong(2, cutoffId);
+                stmt.setDouble(3, Math.round((bases.getOrDefault(accountIds.get(i), 0.0) + deltas.get(i)) * 100) / 100.0);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return accountIds.size();
+    }
+
+    /**
+     * Newest checkpoint balance at or before a transaction ID, for each account that has one
+     */
+    private Map<String, Double> loadCheckpointBalances(Connection conn, List<String> accountIds,
+                                                       long lastId) throws SQLException {
+        String placeholders = String.join(",", Collections.nCopies(accountIds.size(), "?"));
+        String sql = "SELECT c.account_id, c.balance FROM balance_checkpoints c " +
+                "JOIN (SELECT account_id, MAX(last_transaction_id) AS last_id FROM balance_checkpoints " +
+                "WHERE account_id IN (" + placeholders + ") AND last_transaction_id <= ? GROUP BY account_id) m " +
+                "ON c.account_id = m.account_id AND c.last_transaction_id = m.last_id";
+
+        Map<String, Double> balances = new HashMap<>(accountIds.size() * 2);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (String accountId : accountIds) {
+                stmt.setString(index++, accountId);
+            }
+            stmt.setLong(index, lastId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                balances.put(rs.getString(1), rs.getDouble(2));
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Balance before each account's first ledger row (accounts without rows are left out)
+     */
+    private Map<String, Double> loadOpeningBalances(Connection conn, List<String> accountIds) throws SQLException {
+        String placeholders = String.join(",", Collections.nCopies(accountIds.size(), "?"));
+        Map<String, LedgerEdges.Edge> firstRows = LedgerEdges.first(conn,
+                "{account} IN (" + placeholders + ") AND status = 'SUCCESS'", accountIds.toArray());
+
+        Map<String, Double> balances = new HashMap<>(firstRows.size() * 2);
+        for (Map.Entry<String, LedgerEdges.Edge> entry : firstRows.entrySet()) {
+            balances.put(entry.getKey(), entry.getValue().balanceBefore());
+        }
+        return balances;
+    }
+
+    private long lastRunId() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(last_transaction_id), 0) FROM balance_checkpoint_runs";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // ==================== SCHEDULING ====================
+
+    /**
+     * Start the periodic checkpoint runs; the first one is due an interval after the last
+     */
+    public synchronized void start() {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+
+        long initialDelay = 0;
+        try {
+            long lastId = lastRunId();
+            if (lastId > 0) {
+                long due = TransactionIdGenerator.timestampOf(lastId) + settleMillis + intervalMillis;
+                initialDelay = Math.max(0, due - System.currentTimeMillis());
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Error reading balance checkpoint runs: " + e.getMessage());
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-checkpoints");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                createCheckpoints();
+            } catch (Exception e) {
+                System.err.println("❌ Balance checkpoint run failed: " + e.getMessage());
+            }
+        }, initialDelay, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic runs; call before the connection pool is closed
+     * A run cut short is safe: the next one redoes it.
+     */
+    public void shutdown() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = scheduler;
+            scheduler = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ==================== RESULTS ====================
+
+    /**
+     * Outcome of a checkpoint run
+     */
+    public static class CheckpointRunResult {
+        private final long lastTransactionId;
+        private long accounts;
+        private long elapsedNanos;
+
+        CheckpointRunResult(long lastTransactionId) {
+            this.lastTransactionId = lastTransactionId;
+        }
+
+        public long getAccounts() {
+            return accounts;
+        }
+
+        public LocalDateTime getAsOf() {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(TransactionIdGenerator.timestampOf(lastTransactionId)),
+                    ZoneId.systemDefault());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Balance checkpoints as of %s: %d accounts in %.2f s",
+                    getAsOf().format(ReportWriter.DISPLAY_DATE_TIME),
+                    accounts, elapsedNanos / 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.model.Account;
+import main.java.com.banking.model.AccountStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Balance Snapshots
+ * Consistent views of every account balance as of one posting sequence number, for
+ * reports and exports that run while postings continue.
+ *
+ * Every in-memory posting takes the next sequence number before it touches a balance
+ * and gives it back once all of its legs are applied. Each balance change is appended
+ * to the account's history as (sequence, delta) - lock-free, so postings never wait
+ * for a report. A snapshot is cut just below the oldest posting still being applied:
+ * every posting up to the cut is complete and nothing after it is visible, so both
+ * legs of a transfer are always seen together. An account's balance in a snapshot is
+ * its history base plus its deltas up to the cut.
+ *
+ * Deltas no open snapshot can need any more are folded into the base, by the next
+ * snapshot and by postings once a history grows past FOLD_THRESHOLD entries.
+ */
+public class BalanceSnapshots implements Account.BalanceListener {
+
+    private static BalanceSnapshots instance;
+
+    private static final int FOLD_THRESHOLD = 64;
+
+    // Sequence numbers: taking one and registering it as in flight happen together
+    private final Object sequenceLock = new Object();
+    private long lastSequence;
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+    private final Set<Snapshot> openSnapshots = ConcurrentHashMap.newKeySet();
+
+    // The posting being applied on this thread (0 = none)
+    private final ThreadLocal<long[]> currentPosting = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final Map<String, History> histories = new ConcurrentHashMap<>();
+
+    private BalanceSnapshots() {
+    }
+
+    public static synchronized BalanceSnapshots getInstance() {
+        if (instance == null) {
+            instance = new BalanceSnapshots();
+        }
+        return instance;
+    }
+
+    // ==================== POSTINGS ====================
+
+    /**
+     * Start a posting on this thread
+     * Returns its sequence number, or 0 if this thread is already inside a posting
+     * (the outer one covers it). Always pair with endPosting in a finally block.
+     */
+    public long beginPosting() {
+        long[] current = currentPosting.get();
+        if (current[0] != 0) {
+            return 0;
+        }
+        current[0] = nextSequence();
+        return current[0];
+    }
+
+    /**
+     * Finish a posting once all of its legs are applied (0 is ignored)
+     */
+    public void endPosting(long sequence) {
+        if (sequence == 0) {
+            return;
+        }
+        long[] current = currentPosting.get();
+        if (current[0] == sequence) {
+            current[0] = 0;
+        }
+        inFlight.remove(sequence);
+    }
+
+    /**
+     * Let go of this thread's posting without finishing it
+     * For postings whose legs are applied on different threads (partitioned transfers);
+     * the next thread picks it up with resumePosting.
+     */
+    public long suspendPosting() {
+        long[] current = currentPosting.get();
+        long sequence = current[0];
+        current[0] = 0;
+        return sequence;
+    }
+
+    /**
+     * Continue a suspended posting on this thread
+     */
+    public void resumePosting(long sequence) {
+        currentPosting.get()[0] = sequence;
+    }
+
+    // ==================== HISTORIES ====================
+
+    /**
+     * Start recording an account (it has just entered the registry)
+     */
+    public void track(Account account) {
+        long sequence = nextSequence();
+        try {
+            account.addBalanceListener(this);
+            histories.put(account.getAccountId(), new History(account, sequence, account.getBalance()));
+        } finally {
+            inFlight.remove(sequence);
+        }
+    }
+
+    /**
+     * Stop recording an account (it has left the registry)
+     * Snapshots cut before this point still see it.
+     */
+    public void untrack(Account account) {
+        account.removeBalanceListener(this);
+        History history = histories.get(account.getAccountId());
+        if (history != null) {
+            long sequence = nextSequence();
+            history.removedAt = sequence;
+            inFlight.remove(sequence);
+        }
+    }
+
+    @Override
+    public void balanceChanged(Account account, double oldBalance, double newBalance) {
+        record(account, newBalance - oldBalance);
+    }
+
+    @Override
+    public void slotBalanceChanged(Account account, double delta) {
+        record(account, delta);
+    }
+
+    @Override
+    public void statusChanged(Account account, AccountStatus oldStatus, AccountStatus newStatus, double balance) {
+        // Balances only
+    }
+
+    // ==================== SNAPSHOTS ====================
+
+    /**
+     * Cut a snapshot of all balances as of the latest completed posting
+     * Close it when done so its history can be folded away.
+     */
+    public Snapshot open() {
+        Snapshot snapshot;
+        synchronized (sequenceLock) {
+            snapshot = new Snapshot(stableSequence());
+            openSnapshots.add(snapshot);
+        }
+        foldAll();
+        return snapshot;
+    }
+
+    public int getOpenSnapshotCount() {
+        return openSnapshots.size();
+    }
+
+    /**
+     * A consistent view of balances as of one posting sequence number
+     */
+    public class Snapshot implements AutoCloseable {
+        private final long sequence;
+
+        private Snapshot(long sequence) {
+            this.sequence = sequence;
+        }
+
+        /**
+         * Every posting up to and including this sequence number is visible, nothing after it
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Accounts that existed at the cut, sorted by account ID
+         */
+        public List<Account> getAccounts() {
+            List<Account> accounts = new ArrayList<>();
+            for (History history : histories.values()) {
+                if (history.existsAt(sequence)) {
+                    accounts.add(history.account);
+                }
+            }
+            accounts.sort(Comparator.comparing(Account::getAccountId));
+            return accounts;
+        }
+
+        /**
+         * Balance of an account at the cut, or NaN if it did not exist then
+         */
+        public double getBalance(String accountId) {
+            History history = histories.get(accountId);
+            return history != null && history.existsAt(sequence) ? history.balanceAt(sequence) : Double.NaN;
+        }
+
+        public double getTotalBalance() {
+            double total = 0;
+            for (History history : histories.values()) {
+                if (history.existsAt(sequence)) {
+                    total += history.balanceAt(sequence);
+                }
+            }
+            return total;
+        }
+
+        @Override
+        public void close() {
+            openSnapshots.remove(this);
+        }
+    }
+
+    // ==================== INTERNALS ====================
+
+    private long nextSequence() {
+        synchronized (sequenceLock) {
+            long sequence = ++lastSequence;
+            inFlight.add(sequence);
+            return sequence;
+        }
+    }
+
+    /**
+     * Highest sequence number with no unfinished posting at or below it
+     * Caller holds sequenceLock.
+     */
+    private long stableSequence() {
+        Long oldest = inFlight.isEmpty() ? null : inFlight.first();
+        return oldest != null ? oldest - 1 : lastSequence;
+    }
+
+    /**
+     * Deltas at or below this sequence number are not needed by any open or future snapshot
+     */
+    private long foldHorizon() {
+        synchronized (sequenceLock) {
+            long horizon = stableSequence();
+            for (Snapshot snapshot : openSnapshots) {
+                horizon = Math.min(horizon, snapshot.sequence);
+            }
+            return horizon;
+        }
+    }
+
+    private void record(Account account, double delta) {
+        History history = histories.get(account.getAccountId());
+        if (history == null) {
+            return;
+        }
+
+        long sequence = currentPosting.get()[0];
+        if (sequence != 0) {
+            history.append(sequence, delta);
+        } else {
+            // A change outside any posting (rebase onto the database, recovery) stands alone
+            sequence = nextSequence();
+            history.append(sequence, delta);
+            inFlight.remove(sequence);
+        }
+
+        if (history.pending.get() > FOLD_THRESHOLD && history.lock.tryLock()) {
+            try {
+                history.fold(foldHorizon());
+            } finally {
+                history.lock.unlock();
+            }
+        }
+    }
+
+    private void foldAll() {
+        long horizon = foldHorizon();
+        for (History history : histories.values()) {
+            if (history.removedAt <= horizon) {
+                histories.remove(history.account.getAccountId(), history);
+                continue;
+            }
+            history.lock.lock();
+            try {
+                history.fold(horizon);
+            } finally {
+                history.lock.unlock();
+            }
+        }
+    }
+
+    private record Delta(long sequence, double amount) {
+    }
+
+    /**
+     * One account's balance changes since its base
+     * Deltas are appended lock-free in the order they were applied, which is not always
+     * sequence order (a transfer's credit may land after a later posting); reads and
+     * folds take the lock and pick deltas by sequence number.
+     */
+    private static class History {
+        final Account account;
+        final long addedAt;
+        volatile long removedAt = Long.MAX_VALUE;
+
+        final ReentrantLock lock = new ReentrantLock();
+        final ConcurrentLinkedQueue<Delta> deltas = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pending = new AtomicInteger();
+        double base; // guarded by lock
+
+        History(Account account, long addedAt, double base) {
+            this.account = account;
+            this.addedAt = addedAt;
+            this.base = base;
+        }
+
+        boolean existsAt(long sequence) {
+            return addedAt <= sequence && sequence < removedAt;
+        }
+
+        void append(long sequence, double amount) {
+            deltas.add(new Delta(sequence, amount));
+            pending.incrementAndGet();
+        }
+
+        double balanceAt(long sequence) {
+            lock.lock();
+            try {
+                double balance = base;
+                for (Delta delta : deltas) {
+                    if (delta.sequence <= sequence) {
+                        balance += delta.amount;
+                    }
+                }
+                return balance;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Caller holds lock
+        void fold(long horizon) {
+            Iterator<Delta> iterator = deltas.iterator();
+            while (iterator.hasNext()) {
+                Delta delta = iterator.next();
+                if (delta.sequence <= horizon) {
+                    base += delta.amount;
+                    iterator.remove();
+                    pending.decrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.model.Account;
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.DatabaseConfig;
+import main.java.com.banking.util.TransactionIdGenerator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-Behind Balance Updates
+ * With balance.writebehind.enabled, postings only insert their ledger rows. The accounts
+ * they touch are marked dirty, and a background flusher writes the latest balance of every
+ * dirty account in one batched UPDATE (balance and version only), every flush interval or
+ * as soon as the dirty set reaches its size limit. A busy account is written once per
+ * flush instead of once per posting.
+ *
+ * Each flush also records, in the same database transaction, the last transaction ID whose
+ * effect is included in the flushed balances. An account whose row could not be written
+ * holds that checkpoint back to just before its oldest unflushed posting. After a crash the
+ * balances are recovered from the ledger: for each account, the balance_after of its newest
+ * row past that checkpoint.
+ *
+ * Write-behind assumes one node per database (the STATELESS engine writes rows itself).
+ * With several shards each shard's accounts are flushed and checkpointed on that shard.
+ */
+public class BalanceWriteBehind {
+
+    private static BalanceWriteBehind instance;
+
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final int maxDirty;
+    private final int nodeId;
+
+    // Dirty accounts, each with the last ID issued before it became dirty
+    // (every posting not yet flushed for it has a higher ID)
+    private final ConcurrentHashMap<Account, Long> dirty = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private ScheduledExecutorService flusher;
+
+    // Statistics
+    private final LongAdder updatesRequested = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    private BalanceWriteBehind() {
+        this.enabled = ConfigManager.isWriteBehindEnabled();
+        this.intervalMillis = ConfigManager.getWriteBehindIntervalMillis();
+        this.maxDirty = ConfigManager.getWriteBehindMaxDirty();
+        this.nodeId = ConfigManager.getNodeId();
+    }
+
+    public static synchronized BalanceWriteBehind getInstance() {
+        if (instance == null) {
+            instance = new BalanceWriteBehind();
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Remember that an account's balance changed
+     * Called right after the in-memory change and before the posting gets its transaction ID
+     */
+    public void markDirty(Account account) {
+        if (!enabled) {
+            return;
+        }
+        updatesRequested.increment();
+        markDirty(account, TransactionIdGenerator.getInstance().lastIssuedId());
+
+        if (dirty.size() >= maxDirty && flushRequested.compareAndSet(false, true)) {
+            getFlusher().execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Write every dirty balance in one batch per shard
+     */
+    public synchronized void flush() {
+        if (!enabled) {
+            return;
+        }
+
+        // Every posting up to this ID has already changed its balance and marked it dirty
+        long watermark = TransactionIdGenerator.getInstance().lastIssuedId();
+
+        List<Map<Account, Long>> batches = new ArrayList<>();
+        for (int shard = 0; shard < DatabaseConfig.getShardCount(); shard++) {
+            batches.add(new LinkedHashMap<>());
+        }
+        for (Iterator<Map.Entry<Account, Long>> it = dirty.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Account, Long> entry = it.next();
+            batches.get(DatabaseConfig.shardOf(entry.getKey().getAccountId())).put(entry.getKey(), entry.getValue());
+            it.remove();
+        }
+
+        try {
+            DatabaseConfig.onAllShards(shard -> {
+                flushShard(shard, batches.get(shard), watermark);
+                return null;
+            });
+        } catch (SQLException e) {
+            // flushShard handles its own failures
+        }
+    }
+
+    /**
+     * Write one shard's dirty balances and its checkpoint in one database transaction
+     * The checkpoint only covers postings whose balances are in this flush (or an earlier one)
+     */
+    private void flushShard(int shard, Map<Account, Long> dirtySince, long watermark) {
+        List<Account> batch = new ArrayList<>(dirtySince.keySet());
+        double[] balances = new double[batch.size()];
+        long[] versions = new long[batch.size()];
+        int[] rowOf = new int[batch.size()];
+        List<Account> conflicted = new ArrayList<>();
+
+        String accountSql = "UPDATE accounts SET balance = ?, version = version + 1 WHERE account_id = ? AND version = ?";
+        // Write-behind runs on a single node: slot rows are written as they are, version unchanged
+        String slotSql = "UPDATE account_balance_slots SET balance = ? WHERE account_id = ? AND slot_no = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection(shard);
+             PreparedStatement accountStmt = conn.prepareStatement(accountSql);
+             PreparedStatement slotStmt = conn.prepareStatement(slotSql)) {
+
+            conn.setAutoCommit(false);
+
+            int rows = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Account account = batch.get(i);
+                rowOf[i] = -1;
+
+                if (account.isHotAccount()) {
+                    account.getSubBalances().flushDirty((slot, balance, version) -> {
+                        slotStmt.setDouble(1, balance);
+                        slotStmt.setString(2, account.getAccountId());
+                        slotStmt.setInt(3, slot);
+                        slotStmt.addBatch();
+                        return version;
+                    });
+                    continue;
+                }
+
+                synchronized (account) {
+                    balances[i] = account.getBalance();
+                    versions[i] = account.getVersion();
+                }
+                accountStmt.setDouble(1, balances[i]);
+                accountStmt.setString(2, account.getAccountId());
+                accountStmt.setLong(3, versions[i]);
+                accountStmt.addBatch();
+                rowOf[i] = rows++;
+            }
+
+            int[] counts = accountStmt.executeBatch();
+            slotStmt.executeBatch();
+
+            // Rows that were not written keep the checkpoint before their oldest unflushed posting
+            long checkpoint = watermark;
+            for (int i = 0; i < batch.size(); i++) {
+                if (rowOf[i] >= 0 && counts[rowOf[i]] == 0) {
+                    conflicted.add(batch.get(i));
+                    checkpoint = Math.min(checkpoint, dirtySince.get(batch.get(i)));
+                }
+            }
+            saveCheckpoint(conn, checkpoint);
+            conn.commit();
+
+            for (int i = 0; i < batch.size(); i++) {
+                if (rowOf[i] >= 0 && counts[rowOf[i]] != 0) {
+                    batch.get(i).markPersisted(balances[i], versions[i] + 1);
+                }
+            }
+
+            flushes.increment();
+            rowsWritten.add(batch.size() - conflicted.size());
+        } catch (SQLException e) {
+            // Nothing was written; try again on the next flush
+            for (Account account : batch) {
+                if (account.isHotAccount()) {
+                    account.getSubBalances().markAllDirty();
+                }
+                markDirty(account, dirtySince.get(account));
+            }
+            System.err.println("Error flushing balances: " + e.getMessage());
+            return;
+        }
+
+        // Rows changed underneath us: take the database state and write again next time
+        for (Account account : conflicted) {
+            try {
+                refresh(account);
+            } catch (SQLException e) {
+                System.err.println("Error refreshing account " + account.getAccountId() + ": " + e.getMessage());
+            }
+            markDirty(account, dirtySince.get(account));
+        }
+    }
+
+    /**
+     * Rebuild balances that were not flushed before the last shutdown from the ledger
+     * Returns the number of accounts recovered
+     */
+    public int recover(Map<String, Account> accounts) {
+        if (!enabled) {
+            return 0;
+        }
+
+        try {
+            int recovered = 0;
+            for (int count : DatabaseConfig.onAllShards(shard -> recoverShard(shard, accounts))) {
+                recovered += count;
+            }
+            if (recovered > 0) {
+                System.out.println("✓ Recovered " + recovered + " balances from the transaction ledger");
+            }
+            return recovered;
+        } catch (SQLException e) {
+            System.err.println("Error recovering balances: " + e.getMessage());
+            return 0;
+        } finally {
+            flush();
+        }
+    }
+
+    private int recoverShard(int shard, Map<String, Account> accounts) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection(shard)) {
+            Long checkpoint = loadCheckpoint(conn);
+            if (checkpoint == null) {
+                // First start with write-behind: accounts.balance is complete
+                // A transfer's credit leg always has a higher ID than its debit leg
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT GREATEST((SELECT COALESCE(MAX(transaction_id), 0) FROM transactions), " +
+                                "(SELECT COALESCE(MAX(credit_transaction_id), 0) FROM transfers))")) {
+                    ResultSet rs = stmt.executeQuery();
+                    rs.next();
+                    saveCheckpoint(conn, rs.getLong(1));
+                }
+                return 0;
+            }
+
+            // Each account's newest row past the checkpoint, skipping cancelled debits. Pending
+            // ones stay in: recoverCrossShardTransfers runs next and expects them in the balance.
+            Map<String, LedgerEdges.Edge> lastRows = LedgerEdges.last(conn,
+                    "{id} > ? AND status IN ('SUCCESS', 'PENDING')", checkpoint);
+
+            int recovered = 0;
+            for (Map.Entry<String, LedgerEdges.Edge> entry : lastRows.entrySet()) {
+                Account account = accounts.get(entry.getKey());
+                if (account != null) {
+                    account.setBalance(entry.getValue().balanceAfter());
+                    markDirty(account, checkpoint);
+                    recovered++;
+                }
+            }
+            return recovered;
+        }
+    }
+
+    /**
+     * Start the periodic flusher
+     */
+    public synchronized void start() {
+        if (enabled) {
+            getFlusher();
+        }
+    }
+
+    /**
+     * Final flush; call before the connection pool is closed
+     */
+    public void shutdown() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = flusher;
+            flusher = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    /**
+     * Balance updates that never needed their own row write
+     */
+    public long getCoalescedCount() {
+        return Math.max(0, updatesRequested.sum() - rowsWritten.sum() - dirty.size());
+    }
+
+    // ==================== INTERNALS ====================
+
+    /**
+     * Add an account to the dirty set, keeping the oldest "dirty since" ID if it is already there
+     */
+    private void markDirty(Account account, long since) {
+        dirty.merge(account, since, Math::min);
+    }
+
+    private synchronized ScheduledExecutorService getFlusher() {
+        if (flusher == null) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "balance-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return flusher;
+    }
+
+    private void refresh(Account account) throws SQLException {
+        String sql = "SELECT balance, version FROM accounts WHERE account_id = ?";
+
+        try (Connection conn = DatabaseConfig.getShardConnection(account.getAccountId());
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, account.getAccountId());
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                synchronized (account) {
+                    account.rebase(rs.getDouble("balance"), rs.getLong("version"));
+                }
+            }
+        }
+    }
+
+    private Long loadCheckpoint(Connection conn) throws SQLException {
+        String sql = "SELECT last_transaction_id FROM balance_flush_checkpoints WHERE node_id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, nodeId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : null;
+        }
+    }
+
+    private void saveCheckpoint(Connection conn, long lastTransactionId) throws SQLException {
+        String sql = "INSERT INTO balance_flush_checkpoints (node_id, last_transaction_id) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE last_transaction_id = GREATEST(last_transaction_id, VALUES(last_transaction_id))";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, nodeId);
+            stmt.setLong(2, lastTransactionId);
+            stmt.executeUpdate();
+        }
+    }
+}
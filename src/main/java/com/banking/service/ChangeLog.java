@@ -0,0 +1,517 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.model.Account;
+import main.java.com.banking.model.BankingEvent;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.model.TransactionStatus;
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.TransactionIdGenerator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change Log (change data capture)
+ * Local append-only log of committed postings and account opens/closes, so downstream
+ * systems read what changed instead of re-querying the transactions table.
+ *
+ * The log is a folder of segment files, each named after the offset of its first byte.
+ * A record is one JSON line; its offset is its byte position in the whole log and is also
+ * written into the record, so offsets only ever grow. The active segment is rolled once it
+ * reaches cdc.segment.bytes, and rolled segments older than cdc.retention.hours are deleted.
+ * Readers tail the log with ChangeLogConsumer.
+ *
+ * Records come from the TransactionEventBus through a DROP_OLDEST subscriber, so the log
+ * never holds up postings. When the event sequence shows a gap, the postings it lost are read
+ * back from the ledger and logged with "recovered":true, as are those this node committed but
+ * had not logged when it stopped (on the next start). Account opens/closes lost in a gap are
+ * not in the ledger and are only reported. Each node logs only its own postings.
+ * Records are forced to disk every cdc.flush.interval.ms by the flush thread, outside the
+ * lock appends take.
+ */
+public class ChangeLog {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static ChangeLog instance;
+
+    private final boolean enabled;
+    private final File folder;
+    private final long segmentBytes;
+    private final long retentionMillis;
+
+    // Guarded by this
+    private FileChannel active;
+    private long activeBase;
+    private long endOffset;
+    private boolean dirty = false;
+    private long lastSequence = 0;
+    private final Set<Long> caughtUp = new HashSet<>(); // IDs logged ahead of their events
+
+    private ScheduledExecutorService flusher;
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    private ChangeLog() {
+        this.enabled = ConfigManager.isChangeLogEnabled();
+        this.folder = new File(ConfigManager.getChangeLogFolder());
+        this.segmentBytes = ConfigManager.getChangeLogSegmentBytes();
+        this.retentionMillis = TimeUnit.HOURS.toMillis(ConfigManager.getChangeLogRetentionHours());
+    }
+
+    public static synchronized ChangeLog getInstance() {
+        if (instance == null) {
+            instance = new ChangeLog();
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Open the log, log what the last run missed, then follow the event bus
+     * Call before postings start, so nothing is logged twice or missed in between.
+     */
+    public synchronized void start() {
+        if (!enabled || active != null) {
+            return;
+        }
+
+        // Rolled segments are forced and closed here too
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-log-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            openActiveSegment();
+            int recovered = recoverUnlogged();
+            deleteExpiredSegments();
+
+            long interval = ConfigManager.getChangeLogFlushIntervalMillis();
+            flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+
+            TransactionEventBus.getInstance().subscribe("change-log", new LogSubscriber(),
+                    ConfigManager.getChangeLogBufferSize(), TransactionEventBus.OverflowPolicy.DROP_OLDEST);
+
+            System.out.println("✓ Change log open at offset " + endOffset + " (" + folder.getPath() + ")" +
+                    (recovered > 0 ? ", " + recovered + " unlogged postings recovered" : ""));
+        } catch (IOException | SQLException e) {
+            System.err.println("❌ Change log could not be opened: " + e.getMessage());
+            flusher.shutdownNow();
+            flusher = null;
+            closeActive();
+        }
+    }
+
+    /**
+     * Offset the next record will get
+     */
+    public synchronized long getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Write out what the event bus still holds for the log and close it
+     * Call after postings have stopped and TransactionEventBus.close().
+     */
+    public void shutdown() {
+        if (flusher == null) {
+            return;
+        }
+        try {
+            if (!completed.await(30, TimeUnit.SECONDS)) {
+                System.err.println("❌ Change log did not catch up with the event bus before shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            closeActive();
+        }
+    }
+
+    // ==================== WRITING ====================
+
+    private synchronized void append(BankingEvent event) throws IOException {
+        if (lastSequence > 0 && event.getSequence() > lastSequence + 1) {
+            catchUp(event.getSequence() - lastSequence - 1);
+        }
+        lastSequence = event.getSequence();
+
+        if (event.getType() == BankingEvent.Type.POSTING_COMMITTED) {
+            boolean logged = false;
+            for (Transaction leg : event.getLegs()) {
+                logged |= caughtUp.remove(leg.getTransactionId());
+            }
+            if (!logged) {
+                appendPosting(event.getLegs(), false);
+            }
+        } else {
+            appendAccount(event);
+        }
+    }
+
+    /**
+     * The bus dropped events for the log: log the postings among them from the ledger
+     */
+    private void catchUp(long missed) {
+        try {
+            int recovered = recoverUnlogged();
+            System.err.println("❌ Change log fell behind by " + missed + " events; " + recovered +
+                    " postings recovered from the ledger (account opens/closes among them are lost)");
+        } catch (IOException | SQLException e) {
+            System.err.println("❌ Change log could not catch up after " + missed + " dropped events: " +
+                    e.getMessage());
+        }
+    }
+
+    private void appendPosting(List<Transaction> legs, boolean recovered) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        line.append(",\"event\":\"POSTING\",\"at\":\"");
+        DATE_FORMAT.formatTo(LocalDateTime.now(), line);
+        line.append('"');
+        if (recovered) {
+            line.append(",\"recovered\":true");
+        }
+        line.append(",\"legs\":[");
+        for (int i = 0; i < legs.size(); i++) {
+            Transaction leg = legs.get(i);
+            line.append(i > 0 ? ",{" : "{");
+            line.append("\"transaction_id\":").append(leg.getTransactionId());
+            line.append(",\"account_id\":");
+            TransactionExporter.appendJsonText(line, leg.getAccountId());
+            line.append(",\"transaction_type\":\"").append(leg.getTransactionType().name()).append('"');
+            line.append(",\"amount\":").append(decimal(leg.getAmount()));
+            line.append(",\"balance_after\":").append(decimal(leg.getBalanceAfter()));
+            line.append(",\"reference_account_id\":");
+            TransactionExporter.appendJsonText(line, leg.getReferenceAccountId());
+            line.append(",\"transfer_id\":").append(leg.getTransferId());
+            line.append(",\"description\":");
+            TransactionExporter.appendJsonText(line, leg.getDescription());
+            line.append(",\"transaction_date\":\"");
+            DATE_FORMAT.formatTo(leg.getTransactionDate(), line);
+            line.append("\",\"status\":\"").append(leg.getStatus().name()).append('"');
+            line.append(",\"idempotency_key\":");
+            TransactionExporter.appendJsonText(line, leg.getIdempotencyKey());
+            line.append('}');
+        }
+        line.append("]}\n");
+        write(line);
+    }
+
+    private void appendAccount(BankingEvent event) throws IOException {
+        Account account = event.getAccount();
+        StringBuilder line = new StringBuilder(192);
+        line.append(",\"event\":\"").append(event.getType().name()).append("\",\"at\":\"");
+        DATE_FORMAT.formatTo(event.getOccurredAt(), line);
+        line.append("\",\"account_id\":");
+        TransactionExporter.appendJsonText(line, account.getAccountId());
+        line.append(",\"holder_name\":");
+        TransactionExporter.appendJsonText(line, account.getHolderName());
+        line.append(",\"account_type\":\"").append(account.getAccountType().name()).append('"');
+        line.append(",\"balance\":").append(decimal(account.getBalance()));
+        line.append(",\"status\":\"").append(account.getStatus()).append("\"}\n");
+        write(line);
+    }
+
+    /**
+     * Prefix the record with its offset and append it, rolling the segment first if it is full
+     */
+    private void write(StringBuilder body) throws IOException {
+        byte[] bytes = ("{\"offset\":" + endOffset + body).getBytes(StandardCharsets.UTF_8);
+        if (endOffset > activeBase && endOffset - activeBase + bytes.length > segmentBytes) {
+            roll();
+            bytes = ("{\"offset\":" + endOffset + body).getBytes(StandardCharsets.UTF_8);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            active.write(buffer);
+        }
+        endOffset += bytes.length;
+        dirty = true;
+    }
+
+    private static String decimal(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_EVEN).toPlainString();
+    }
+
+    /**
+     * Force what has been written to disk; appends carry on meanwhile
+     */
+    private void flush() {
+        FileChannel channel;
+        synchronized (this) {
+            if (!dirty || active == null) {
+                return;
+            }
+            channel = active;
+            dirty = false;
+        }
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // Closed at shutdown, which forces it first
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            System.err.println("❌ Change log flush failed: " + e.getMessage());
+        }
+    }
+
+    // ==================== SEGMENTS ====================
+
+    /**
+     * Start a new segment; the full one is forced and closed on the flush thread
+     */
+    private void roll() throws IOException {
+        FileChannel full = active;
+        flusher.execute(() -> {
+            try {
+                full.force(false);
+                full.close();
+            } catch (IOException e) {
+                System.err.println("❌ Change log segment could not be closed: " + e.getMessage());
+            }
+        });
+        activeBase = endOffset;
+        active = FileChannel.open(segmentFile(folder, activeBase).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        dirty = false;
+        deleteExpiredSegments();
+    }
+
+    /**
+     * Open the newest segment for appending, cutting off a record torn by a crash
+     */
+    private void openActiveSegment() throws IOException {
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Cannot create " + folder.getPath());
+        }
+        List<Long> bases = segmentBases(folder);
+        activeBase = bases.isEmpty() ? 0 : bases.get(bases.size() - 1);
+
+        File file = segmentFile(folder, activeBase);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long complete = ChangeLogConsumer.lastRecordEnd(channel, 0, channel.size());
+            if (complete < channel.size()) {
+                System.err.println("❌ Change log: dropping " + (channel.size() - complete) +
+                        " bytes of an incomplete record at the end of " + file.getName());
+                channel.truncate(complete);
+                channel.force(true);
+            }
+            endOffset = activeBase + complete;
+        }
+        active = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Delete rolled segments whose last write is older than the retention (never the active one)
+     */
+    private void deleteExpiredSegments() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        for (long base : segmentBases(folder)) {
+            File file = segmentFile(folder, base);
+            if (base != activeBase && file.lastModified() < cutoff) {
+                if (file.delete()) {
+                    System.out.println("✓ Change log segment " + file.getName() + " removed (retention)");
+                }
+            }
+        }
+    }
+
+    static List<Long> segmentBases(File folder) {
+        List<Long> bases = new ArrayList<>();
+        String[] names = folder.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        bases.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        // Not a segment
+                    }
+                }
+            }
+        }
+        bases.sort(null);
+        return bases;
+    }
+
+    static File segmentFile(File folder, long base) {
+        return new File(folder, String.format("%020d", base) + SEGMENT_SUFFIX);
+    }
+
+    private void closeActive() {
+        if (active != null) {
+            try {
+                active.force(false);
+                active.close();
+            } catch (IOException e) {
+                System.err.println("Error closing change log: " + e.getMessage());
+            }
+            active = null;
+        }
+    }
+
+    // ==================== RECOVERY ====================
+
+    /**
+     * Log this node's postings that were committed but never reached the log
+     * Candidates are the ledger rows from shortly before the newest logged posting
+     * (cdc.recovery.window.seconds, as IDs are not committed in ID order) on; those
+     * already in the newest segment are skipped. A new log starts from now instead.
+     * Also used when the event bus dropped events for the log; postings it logs here are
+     * remembered, so their events are skipped if they still arrive.
+     */
+    private int recoverUnlogged() throws IOException, SQLException {
+        Set<Long> logged = new HashSet<>();
+        List<Long> bases = segmentBases(folder);
+        long newest = 0;
+        long afterId = 0;
+        long windowMillis = TimeUnit.SECONDS.toMillis(ConfigManager.getChangeLogRecoveryWindowSeconds());
+
+        // Newest segments first, until the IDs read reach back past the window
+        for (int i = bases.size() - 1; i >= 0; i--) {
+            long[] range = readLoggedIds(segmentFile(folder, bases.get(i)), logged);
+            if (range == null) {
+                continue;
+            }
+            if (newest == 0) {
+                newest = range[1];
+                afterId = TransactionIdGenerator.lastIdAt(TransactionIdGenerator.timestampOf(newest) - windowMillis);
+            }
+            if (range[0] <= afterId) {
+                break;
+            }
+        }
+        if (newest == 0) {
+            return 0;
+        }
+        final long windowStart = afterId;
+        caughtUp.removeIf(id -> id <= windowStart);
+
+        // Legs of one posting share their transfer ID; other postings have one leg
+        int nodeId = ConfigManager.getNodeId();
+        Map<Long, List<Transaction>> postings = new TreeMap<>();
+        for (Transaction leg : TransactionManager.getInstance().getLedgerRowsAfter(afterId)) {
+            if (TransactionIdGenerator.nodeOf(leg.getTransactionId()) != nodeId
+                    || leg.getStatus() != TransactionStatus.SUCCESS) {
+                continue;
+            }
+            long key = leg.getTransferId() != 0 ? leg.getTransferId() : leg.getTransactionId();
+            postings.computeIfAbsent(key, k -> new ArrayList<>()).add(leg);
+        }
+
+        int recovered = 0;
+        for (List<Transaction> legs : postings.values()) {
+            if (legs.stream().noneMatch(leg -> logged.contains(leg.getTransactionId()))) {
+                legs.sort(Comparator.comparingLong(Transaction::getTransactionId));
+                appendPosting(legs, true);
+                for (Transaction leg : legs) {
+                    caughtUp.add(leg.getTransactionId());
+                }
+                recovered++;
+            }
+        }
+        return recovered;
+    }
+
+    /**
+     * Collect the transaction IDs of a segment; returns the smallest and largest,
+     * or null if it has none
+     */
+    private static long[] readLoggedIds(File segment, Set<Long> ids) throws IOException {
+        long[] range = null;
+        String key = "\"transaction_id\":";
+        try (BufferedReader reader = Files.newBufferedReader(segment.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int at = line.indexOf(key);
+                while (at >= 0) {
+                    int start = at + key.length();
+                    int end = start;
+                    while (end < line.length() && Character.isDigit(line.charAt(end))) {
+                        end++;
+                    }
+                    long id = Long.parseLong(line.substring(start, end));
+                    ids.add(id);
+                    if (range == null) {
+                        range = new long[]{id, id};
+                    } else {
+                        range[0] = Math.min(range[0], id);
+                        range[1] = Math.max(range[1], id);
+                    }
+                    at = line.indexOf(key, end);
+                }
+            }
+        }
+        return range;
+    }
+
+    // ==================== SUBSCRIBER ====================
+
+    private class LogSubscriber implements Flow.Subscriber<BankingEvent> {
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(BankingEvent event) {
+            try {
+                append(event);
+            } catch (IOException e) {
+                // Keep following; the posting itself is safe in the ledger
+                System.err.println("❌ Change log write failed (" + event + "): " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            System.err.println("❌ Change log stopped following postings: " + error);
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.util.ConfigManager;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Change Log Consumer
+ * Tails the ChangeLog from a stored offset. Whole records (JSON lines) are copied straight
+ * from the segment files to the target channel with FileChannel.transferTo, so a file or
+ * socket target gets them without passing through the heap. The offset is kept in
+ * <log folder>/consumers/<name>.offset once committed; a consumer starts from there on
+ * the next run, or from the oldest retained record the first time.
+ *
+ * Works from another process too: it only reads the folder, and never hands out a record
+ * the writer has not finished.
+ */
+public class ChangeLogConsumer implements Closeable {
+
+    private static final int SCAN_CHUNK = 8192;
+
+    private final File folder;
+    private final File offsetFile;
+
+    private long offset;
+    private long committedOffset;
+    private FileChannel segment;
+    private long segmentBase = -1;
+
+    public ChangeLogConsumer(String name) throws IOException {
+        this(ConfigManager.getChangeLogFolder(), name);
+    }
+
+    public ChangeLogConsumer(String folder, String name) throws IOException {
+        this.folder = new File(folder);
+        this.offsetFile = new File(new File(folder, "consumers"), name + ".offset");
+        if (offsetFile.exists()) {
+            offset = Long.parseLong(Files.readString(offsetFile.toPath()).trim());
+        } else {
+            List<Long> bases = ChangeLog.segmentBases(this.folder);
+            offset = bases.isEmpty() ? 0 : bases.get(0);
+        }
+        committedOffset = offset;
+    }
+
+    /**
+     * Offset of the next record this consumer will read
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public void seek(long offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * Copy whole records from the current offset to the target and move past them
+     * Copies at most maxBytes (but always a whole record, however long) and never
+     * crosses a segment boundary; returns the bytes copied, 0 when there is nothing new.
+     */
+    public long transferTo(WritableByteChannel target, long maxBytes) throws IOException {
+        if (!openSegment()) {
+            return 0;
+        }
+
+        long position = offset - segmentBase;
+        long size = segment.size();
+        if (position >= size) {
+            // This segment is done once a newer one exists
+            Long next = nextBase(segmentBase);
+            if (next == null) {
+                return 0;
+            }
+            offset = next;
+            close();
+            if (!openSegment()) {
+                return 0;
+            }
+            position = 0;
+            size = segment.size();
+        }
+
+        long end = lastRecordEnd(segment, position, Math.min(size, position + maxBytes));
+        if (end == position) {
+            end = firstRecordEnd(segment, position, size);
+            if (end == position) {
+                return 0; // Record still being written
+            }
+        }
+
+        long copied = 0;
+        while (copied < end - position) {
+            copied += segment.transferTo(position + copied, end - position - copied, target);
+        }
+        offset += copied;
+        return copied;
+    }
+
+    /**
+     * Store the current offset; a restarted consumer continues from here
+     */
+    public void commit() throws IOException {
+        if (offset == committedOffset) {
+            return;
+        }
+        File dir = offsetFile.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir.getPath());
+        }
+        File temp = new File(dir, offsetFile.getName() + ".tmp");
+        Files.writeString(temp.toPath(), Long.toString(offset), StandardCharsets.UTF_8);
+        Files.move(temp.toPath(), offsetFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        committedOffset = offset;
+    }
+
+    /**
+     * Bytes of records written after this consumer's offset
+     */
+    public long getLag() throws IOException {
+        List<Long> bases = ChangeLog.segmentBases(folder);
+        if (bases.isEmpty()) {
+            return 0;
+        }
+        long last = bases.get(bases.size() - 1);
+        return Math.max(0, last + ChangeLog.segmentFile(folder, last).length() - offset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+    // ==================== SEGMENTS ====================
+
+    /**
+     * Make the segment holding the offset the open one
+     * An offset older than the oldest retained segment moves up to it.
+     */
+    private boolean openSegment() throws IOException {
+        if (segment != null && offset >= segmentBase && offset <= segmentBase + segment.size()) {
+            return true;
+        }
+
+        List<Long> bases = ChangeLog.segmentBases(folder);
+        if (bases.isEmpty()) {
+            return false;
+        }
+        if (offset < bases.get(0)) {
+            System.err.println("❌ Change log consumer " + offsetFile.getName() + ": records " + offset + " to " +
+                    bases.get(0) + " were removed by retention, continuing at " + bases.get(0));
+            offset = bases.get(0);
+        }
+
+        long base = bases.get(0);
+        for (long candidate : bases) {
+            if (candidate <= offset) {
+                base = candidate;
+            }
+        }
+        if (segment != null && base == segmentBase) {
+            return true;
+        }
+        close();
+        segment = FileChannel.open(ChangeLog.segmentFile(folder, base).toPath(), StandardOpenOption.READ);
+        segmentBase = base;
+        return true;
+    }
+
+    private Long nextBase(long base) {
+        for (long candidate : ChangeLog.segmentBases(folder)) {
+            if (candidate > base) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Position just past the last complete record in [from, limit), or from if there is none
+     */
+    static long lastRecordEnd(FileChannel channel, long from, long limit) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(SCAN_CHUNK);
+        long end = limit;
+        while (end > from) {
+            long start = Math.max(from, end - SCAN_CHUNK);
+            chunk.clear().limit((int) (end - start));
+            while (chunk.hasRemaining() && channel.read(chunk, start + chunk.position()) >= 0) {
+                // Fill the chunk
+            }
+            for (int i = chunk.position() - 1; i >= 0; i--) {
+                if (chunk.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return from;
+    }
+
+    /**
+     * Position just past the first complete record at or after from, or from if there is none
+     */
+    private static long firstRecordEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(SCAN_CHUNK);
+        for (long start = from; start < size; start += SCAN_CHUNK) {
+            chunk.clear().limit((int) Math.min(SCAN_CHUNK, size - start));
+            while (chunk.hasRemaining() && channel.read(chunk, start + chunk.position()) >= 0) {
+                // Fill the chunk
+            }
+            for (int i = 0; i < chunk.position(); i++) {
+                if (chunk.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+        }
+        return from;
+    }
+}
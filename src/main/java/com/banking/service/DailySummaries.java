@@ -0,0 +1,436 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.model.DailySummary;
+import main.java.com.banking.model.TransactionType;
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.DatabaseConfig;
+import main.java.com.banking.util.TransactionIdGenerator;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Daily Summaries
+ * Per-account, per-day totals kept in account_daily_summaries, so date-bucketed reports
+ * read one row per account and day (or one per day) instead of every ledger row.
+ *
+ * A refresh folds the ledger rows after the shard's watermark, up to a cut-off trailing the
+ * clock by summary.settle.seconds and below any posting not committed yet (see
+ * PostingHorizon), into the summaries: rows are totalled in memory and upserted in batches,
+ * adding to the counts and amounts already stored. The upserts and the new watermark commit
+ * in one database transaction holding the watermark row's lock, so a row is never counted
+ * twice, even with several nodes refreshing. Refreshes run every
+ * summary.interval.seconds in the background.
+ *
+ * Reads add the few ledger rows after the watermark on top of the stored summaries, so
+ * reports are up to date without waiting for the next refresh.
+ */
+public class DailySummaries {
+
+    private static DailySummaries instance;
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String TYPE_COLUMNS = Arrays.stream(TransactionType.values())
+            .map(type -> column(type, "count") + ", " + column(type, "amount"))
+            .collect(Collectors.joining(", "));
+
+    // Counts and amounts add up; opening and closing balances come from the earliest and latest
+    // rows (compared before first/last_transaction_id are replaced)
+    private static final String UPSERT_SQL = "INSERT INTO account_daily_summaries (account_id, business_date, " +
+            TYPE_COLUMNS + ", first_transaction_id, opening_balance, last_transaction_id, closing_balance) VALUES (?, ?, " +
+            "?, ".repeat(TransactionType.values().length * 2) + "?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            Arrays.stream(TransactionType.values())
+                    .map(type -> column(type, "count") + " = " + column(type, "count") + " + VALUES(" + column(type, "count") + "), " +
+                            column(type, "amount") + " = " + column(type, "amount") + " + VALUES(" + column(type, "amount") + ")")
+                    .collect(Collectors.joining(", ")) +
+            ", opening_balance = CASE WHEN VALUES(first_transaction_id) < first_transaction_id " +
+            "THEN VALUES(opening_balance) ELSE opening_balance END" +
+            ", closing_balance = CASE WHEN VALUES(last_transaction_id) > last_transaction_id " +
+            "THEN VALUES(closing_balance) ELSE closing_balance END" +
+            ", first_transaction_id = LEAST(first_transaction_id, VALUES(first_transaction_id))" +
+            ", last_transaction_id = GREATEST(last_transaction_id, VALUES(last_transaction_id))";
+
+    private static final String LEDGER_COLUMNS =
+            "transaction_id, account_id, transaction_type, amount, balance_after, transaction_date";
+
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final long settleMillis;
+    private ScheduledExecutorService scheduler;
+
+    private DailySummaries() {
+        this.enabled = ConfigManager.isDailySummaryEnabled();
+        this.intervalMillis = TimeUnit.SECONDS.toMillis(Math.max(1, ConfigManager.getDailySummaryIntervalSeconds()));
+        this.settleMillis = TimeUnit.SECONDS.toMillis(Math.max(0, ConfigManager.getDailySummarySettleSeconds()));
+    }
+
+    public static synchronized DailySummaries getInstance() {
+        if (instance == null) {
+            instance = new DailySummaries();
+        }
+        return instance;
+    }
+
+    // ==================== READING ====================
+
+    /**
+     * Summaries of every account with postings on days in [from, to], by date then account
+     * With an account ID, only that account's days.
+     */
+    public List<DailySummary> getSummaries(LocalDate from, LocalDate to, String accountId) throws SQLException {
+        boolean oneAccount = accountId != null && !accountId.isEmpty();
+        String filter = oneAccount ? " AND account_id = ?" : "";
+        String summarySql = "SELECT * FROM account_daily_summaries WHERE business_date >= ? AND business_date <= ?" + filter;
+
+        ShardRead read = (conn, watermark, summaries) -> {
+            try (PreparedStatement stmt = conn.prepareStatement(summarySql)) {
+                stmt.setDate(1, Date.valueOf(from));
+                stmt.setDate(2, Date.valueOf(to));
+                if (oneAccount) {
+                    stmt.setString(3, accountId);
+                }
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    DailySummary summary = new DailySummary(rs.getString("account_id"), rs.getDate("business_date").toLocalDate());
+                    readTotals(rs, summary);
+                    summary.setBalances(rs.getLong("first_transaction_id"), rs.getDouble("opening_balance"),
+                            rs.getLong("last_transaction_id"), rs.getDouble("closing_balance"));
+                    summaries.put(summary.getAccountId() + "|" + summary.getDate(), summary);
+                }
+            }
+            addLedgerTail(conn, watermark, from, to, oneAccount ? accountId : null, summaries, false);
+        };
+
+        List<DailySummary> result = new ArrayList<>();
+        if (oneAccount) {
+            try (Connection conn = DatabaseConfig.getReadShardConnection(accountId)) {
+                result.addAll(readConsistently(conn, read));
+            }
+        } else {
+            for (List<DailySummary> shardSummaries : DatabaseConfig.onAllShards(shard -> {
+                try (Connection conn = DatabaseConfig.getReadConnection(shard)) {
+                    return readConsistently(conn, read);
+                }
+            })) {
+                result.addAll(shardSummaries);
+            }
+        }
+        result.sort(Comparator.comparing(DailySummary::getDate).thenComparing(DailySummary::getAccountId));
+        return result;
+    }
+
+    /**
+     * Totals of all accounts per day in [from, to] (account ID null, no balances), by date
+     * Reads one row per day and shard.
+     */
+    public List<DailySummary> getDailyTotals(LocalDate from, LocalDate to) throws SQLException {
+        String sums = Arrays.stream(TransactionType.values())
+                .map(type -> "SUM(" + column(type, "count") + ") AS " + column(type, "count") +
+                        ", SUM(" + column(type, "amount") + ") AS " + column(type, "amount"))
+                .collect(Collectors.joining(", "));
+        String totalsSql = "SELECT business_date, " + sums + " FROM account_daily_summaries " +
+                "WHERE business_date >= ? AND business_date <= ? GROUP BY business_date";
+
+        ShardRead read = (conn, watermark, totals) -> {
+            try (PreparedStatement stmt = conn.prepareStatement(totalsSql)) {
+                stmt.setDate(1, Date.valueOf(from));
+                stmt.setDate(2, Date.valueOf(to));
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    DailySummary summary = new DailySummary(null, rs.getDate("business_date").toLocalDate());
+                    readTotals(rs, summary);
+                    totals.put(summary.getDate().toString(), summary);
+                }
+            }
+            addLedgerTail(conn, watermark, from, to, null, totals, true);
+        };
+
+        Map<LocalDate, DailySummary> byDate = new HashMap<>();
+        for (List<DailySummary> shardTotals : DatabaseConfig.onAllShards(shard -> {
+            try (Connection conn = DatabaseConfig.getReadConnection(shard)) {
+                return readConsistently(conn, read);
+            }
+        })) {
+            for (DailySummary summary : shardTotals) {
+                byDate.merge(summary.getDate(), summary, (a, b) -> {
+                    a.merge(b);
+                    return a;
+                });
+            }
+        }
+        List<DailySummary> result = new ArrayList<>(byDate.values());
+        result.sort(Comparator.comparing(DailySummary::getDate));
+        return result;
+    }
+
+    /**
+     * Run a shard read between two looks at the watermark and retry if a refresh committed
+     * in between, so the ledger tail added on top is exactly what the summaries lack
+     */
+    private List<DailySummary> readConsistently(Connection conn, ShardRead read) throws SQLException {
+        while (true) {
+            long watermark = loadWatermark(conn);
+            Map<String, DailySummary> summaries = new HashMap<>();
+            read.run(conn, watermark, summaries);
+            if (loadWatermark(conn) == watermark) {
+                return new ArrayList<>(summaries.values());
+            }
+        }
+    }
+
+    /**
+     * Add the SUCCESS ledger rows after the watermark dated in [from, to]
+     * byDate keys the summaries by date alone (daily totals) instead of account and date.
+     */
+    private void addLedgerTail(Connection conn, long watermark, LocalDate from, LocalDate to, String accountId,
+                               Map<String, DailySummary> summaries, boolean byDate) throws SQLException {
+        String sql = "SELECT " + LEDGER_COLUMNS + " FROM transaction_legs WHERE transaction_id > ? " +
+                "AND status = 'SUCCESS' AND transaction_date >= ? AND transaction_date < ?" +
+                (accountId != null ? " AND account_id = ?" : "");
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, watermark);
+            stmt.setTimestamp(2, Timestamp.valueOf(from.atStartOfDay()));
+            stmt.setTimestamp(3, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+            if (accountId != null) {
+                stmt.setString(4, accountId);
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                LocalDate date = rs.getTimestamp("transaction_date").toLocalDateTime().toLocalDate();
+                String owner = byDate ? null : rs.getString("account_id");
+                DailySummary summary = summaries.computeIfAbsent(byDate ? date.toString() : owner + "|" + date,
+                        key -> new DailySummary(owner, date));
+                summary.add(rs.getLong("transaction_id"), TransactionType.valueOf(rs.getString("transaction_type")),
+                        rs.getDouble("amount"), rs.getDouble("balance_after"));
+            }
+        }
+    }
+
+    // ==================== REFRESH ====================
+
+    /**
+     * Fold the ledger rows since the last refresh into the summaries on every shard
+     * Returns the number of summary rows written
+     */
+    public long refresh() throws SQLException {
+        // Never past a posting some node has not committed yet
+        long cutoffId = PostingHorizon.getInstance().settledCutoff(
+                TransactionIdGenerator.lastIdAt(System.currentTimeMillis() - settleMillis));
+
+        long rows = 0;
+        for (long shardRows : DatabaseConfig.onAllShards(shard -> refreshShard(shard, cutoffId))) {
+            rows += shardRows;
+        }
+        return rows;
+    }
+
+    /**
+     * Fold one shard's ledger rows in (watermark, cutoffId] into its summaries
+     */
+    private long refreshShard(int shard, long settledId) throws SQLException {
+        String sliceSql = "SELECT " + LEDGER_COLUMNS + " FROM transaction_legs " +
+                "WHERE transaction_id > ? AND transaction_id <= ? AND status = 'SUCCESS'";
+
+        try (Connection writeConn = DatabaseConfig.getConnection(shard);
+             Connection readConn = DatabaseConfig.getConnection(shard)) {
+
+            writeConn.setAutoCommit(false);
+            try {
+                long watermark = lockWatermark(writeConn);
+                // Stop short of a cross-shard debit still pending; it is folded in once resolved
+                long pendingId = TransactionManager.oldestPendingTransfer(writeConn);
+                long cutoffId = pendingId > 0 ? Math.min(settledId, pendingId - 1) : settledId;
+                if (cutoffId <= watermark) {
+                    writeConn.commit();
+                    return 0;
+                }
+
+                long rows = 0;
+                Map<String, DailySummary> pending = new HashMap<>(CHUNK_SIZE * 2);
+                readConn.setReadOnly(true);
+                readConn.setAutoCommit(false);
+                try (PreparedStatement stmt = readConn.prepareStatement(sliceSql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    stmt.setFetchSize(ConfigManager.getExportFetchSize());
+                    stmt.setLong(1, watermark);
+                    stmt.setLong(2, cutoffId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            String accountId = rs.getString("account_id");
+                            LocalDate date = rs.getTimestamp("transaction_date").toLocalDateTime().toLocalDate();
+                            pending.computeIfAbsent(accountId + "|" + date, key -> new DailySummary(accountId, date))
+                                    .add(rs.getLong("transaction_id"), TransactionType.valueOf(rs.getString("transaction_type")),
+                                            rs.getDouble("amount"), rs.getDouble("balance_after"));
+                            if (pending.size() == CHUNK_SIZE) {
+                                rows += upsert(writeConn, pending);
+                            }
+                        }
+                    }
+                } finally {
+                    readConn.commit();
+                }
+                rows += upsert(writeConn, pending);
+
+                saveWatermark(writeConn, cutoffId);
+                writeConn.commit();
+                return rows;
+            } catch (SQLException e) {
+                writeConn.rollback();
+                throw e;
+            } finally {
+                writeConn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Upsert a batch of summaries and clear it
+     */
+    private int upsert(Connection conn, Map<String, DailySummary> pending) throws SQLException {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
+            for (DailySummary summary : pending.values()) {
+                int index = 1;
+                stmt.setString(index++, summary.getAccountId());
+                stmt.setDate(index++, Date.valueOf(summary.getDate()));
+                for (TransactionType type : TransactionType.values()) {
+                    stmt.setLong(index++, summary.getCount(type));
+                    stmt.setDouble(index++, round(summary.getAmount(type)));
+                }
+                stmt.setLong(index++, summary.getFirstTransactionId());
+                stmt.setDouble(index++, round(summary.getOpeningBalance()));
+                stmt.setLong(index++, summary.getLastTransactionId());
+                stmt.setDouble(index, round(summary.getClosingBalance()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        int rows = pending.size();
+        pending.clear();
+        return rows;
+    }
+
+    /**
+     * Lock the shard's watermark row for this refresh, creating it on the first one
+     */
+    private long lockWatermark(Connection conn) throws SQLException {
+        String sql = "SELECT last_transaction_id FROM daily_summary_progress WHERE id = 1 FOR UPDATE";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        }
+        saveWatermark(conn, 0);
+        return 0;
+    }
+
+    private long loadWatermark(Connection conn) throws SQLException {
+        String sql = "SELECT last_transaction_id FROM daily_summary_progress WHERE id = 1";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private void saveWatermark(Connection conn, long lastTransactionId) throws SQLException {
+        String sql = "INSERT INTO daily_summary_progress (id, last_transaction_id, updated_at) VALUES (1, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE last_transaction_id = VALUES(last_transaction_id), updated_at = VALUES(updated_at)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, lastTransactionId);
+            stmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.executeUpdate();
+        }
+    }
+
+    // ==================== SCHEDULING ====================
+
+    /**
+     * Start the periodic refreshes
+     */
+    public synchronized void start() {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "daily-summaries");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                System.err.println("❌ Daily summary refresh failed: " + e.getMessage());
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic refreshes; call before the connection pool is closed
+     * A refresh cut short rolls back and is redone by the next one.
+     */
+    public void shutdown() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = scheduler;
+            scheduler = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ==================== INTERNALS ====================
+
+    /**
+     * Read part of a report from one shard, given the shard's summary watermark
+     */
+    private interface ShardRead {
+        void run(Connection conn, long watermark, Map<String, DailySummary> summaries) throws SQLException;
+    }
+
+    private static String column(TransactionType type, String suffix) {
+        return type.name().toLowerCase() + "_" + suffix;
+    }
+
+    private static void readTotals(ResultSet rs, DailySummary summary) throws SQLException {
+        for (TransactionType type : TransactionType.values()) {
+            summary.setTotals(type, rs.getLong(column(type, "count")), rs.getDouble(column(type, "amount")));
+        }
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+}
@@ -0,0 +1,319 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.exception.PostingNotPersistedException;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.util.ConfigManager;
+
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency Store
+ * Remembers the result of every posting made with an idempotency key, so a
+ * retried request gets the original Transaction back instead of posting twice.
+ *
+ * Keys live in a bounded ConcurrentHashMap with TTL-based eviction (lookups are
+ * lock-free). A key that is not in memory is looked up in the ledger before anything is
+ * applied, on the one shard of the account that carries it, so a repeat after a restart
+ * or an eviction never moves a balance. The UNIQUE idempotency_key index still rejects
+ * a repeat that another instance posts at the same moment; that posting is taken back out.
+ */
+public class IdempotencyStore {
+
+    private static IdempotencyStore instance;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Statistics
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder persistentReplays = new LongAdder();
+    private final LongAdder firstPostings = new LongAdder();
+
+    // Database lookups for the async path run here, never on the caller
+    private ExecutorService lookupExecutor;
+
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+
+    private IdempotencyStore() {
+        this.maxEntries = ConfigManager.getIdempotencyMaxEntries();
+        this.ttlMillis = ConfigManager.getIdempotencyTtlMinutes() * 60_000L;
+    }
+
+    public static synchronized IdempotencyStore getInstance() {
+        if (instance == null) {
+            instance = new IdempotencyStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Run a posting at most once per key
+     * A duplicate waits for and returns the original result
+     */
+    public Transaction execute(String key, String accountId, Callable<Transaction> posting) throws Exception {
+        Entry mine = new Entry(key, System.currentTimeMillis());
+        Entry claimed = claim(mine);
+
+        if (claimed != mine) {
+            replays.increment();
+            return await(claimed.result);
+        }
+
+        try {
+            Transaction original = findPosted(key, accountId);
+            if (original != null) {
+                mine.result.complete(original);
+                return original;
+            }
+            Transaction transaction = posting.call();
+            firstPostings.increment();
+            mine.result.complete(transaction);
+            return transaction;
+        } catch (Exception e) {
+            Transaction original = isDuplicateKey(e) ? findOriginal(key, accountId) : null;
+            if (original != null) {
+                mine.result.complete(original);
+                return original;
+            }
+            releaseUnlessApplied(mine, e);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Async variant of execute()
+     */
+    public CompletableFuture<Transaction> executeAsync(String key, String accountId,
+                                                       Supplier<CompletableFuture<Transaction>> posting) {
+        Entry mine = new Entry(key, System.currentTimeMillis());
+        Entry claimed = claim(mine);
+
+        if (claimed != mine) {
+            replays.increment();
+            return claimed.result.copy();
+        }
+
+        // The ledger lookup runs on the lookup executor; the posting is only started once it found nothing
+        CompletableFuture<Transaction> posted = CompletableFuture
+                .supplyAsync(() -> {
+                    try {
+                        return findPosted(key, accountId);
+                    } catch (SQLException e) {
+                        throw new CompletionException(e);
+                    }
+                }, getLookupExecutor())
+                .thenCompose(original -> original != null
+                        ? CompletableFuture.completedFuture(original)
+                        : posting.get().thenApply(transaction -> {
+                            firstPostings.increment();
+                            return transaction;
+                        }));
+
+        posted.handle((transaction, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(transaction);
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (!isDuplicateKey(cause)) {
+                        return CompletableFuture.<Transaction>failedFuture(cause);
+                    }
+                    // The ledger lookup runs on the lookup executor, never on the thread that completed the posting
+                    return CompletableFuture.supplyAsync(() -> {
+                        Transaction original = findOriginal(key, accountId);
+                        if (original == null) {
+                            throw new CompletionException(cause);
+                        }
+                        return original;
+                    }, getLookupExecutor());
+                })
+                .thenCompose(result -> result)
+                .whenComplete((transaction, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        releaseUnlessApplied(mine, cause);
+                        mine.result.completeExceptionally(cause);
+                    } else {
+                        mine.result.complete(transaction);
+                    }
+                });
+
+        return mine.result.copy();
+    }
+
+    public long getReplayCount() {
+        return replays.sum() + persistentReplays.sum();
+    }
+
+    public long getPersistentReplayCount() {
+        return persistentReplays.sum();
+    }
+
+    public long getFirstPostingCount() {
+        return firstPostings.sum();
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    // ==================== INTERNALS ====================
+
+    /**
+     * Register our entry for the key, or return the live entry that already owns it
+     */
+    private Entry claim(Entry mine) {
+        while (true) {
+            Entry existing = entries.putIfAbsent(mine.key, mine);
+            if (existing == null) {
+                size.incrementAndGet();
+                break;
+            }
+            if (!existing.isExpired(mine.createdAt, ttlMillis) || !existing.result.isDone()) {
+                return existing;
+            }
+            if (entries.replace(mine.key, existing, mine)) {
+                break;
+            }
+        }
+
+        insertionOrder.offer(mine);
+        evict(mine.createdAt);
+        return mine;
+    }
+
+    /**
+     * The posting already in the ledger under this key, or null (checked before posting)
+     */
+    private Transaction findPosted(String key, String accountId) throws SQLException {
+        Transaction original = TransactionManager.getInstance().findByIdempotencyKey(key, accountId);
+        if (original != null) {
+            persistentReplays.increment();
+        }
+        return original;
+    }
+
+    /**
+     * Whether a posting failed on a duplicate key (MySQL error 1062), which for a posting
+     * with an idempotency key means the key is already in the ledger
+     * Batched statements report it as the next exception of a BatchUpdateException.
+     * Other constraint violations (foreign keys, NOT NULL) are not duplicates.
+     */
+    public static boolean isDuplicateKey(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                for (SQLException e = (SQLException) t; e != null; e = e.getNextException()) {
+                    if (e.getErrorCode() == MYSQL_DUPLICATE_ENTRY && "23000".equals(e.getSQLState())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The posting already made with this key, or null if the ledger has none
+     * (the constraint that failed was some other one)
+     */
+    private Transaction findOriginal(String key, String accountId) {
+        try {
+            return findPosted(key, accountId);
+        } catch (SQLException e) {
+            System.err.println("Error looking up idempotency key " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Failed postings don't hold on to the key, so the client can retry. A posting that
+     * stayed applied in memory without being saved keeps it until it expires: retries
+     * get the same failure instead of applying it a second time.
+     */
+    private void releaseUnlessApplied(Entry entry, Throwable error) {
+        if (!(error instanceof PostingNotPersistedException)) {
+            release(entry);
+        }
+    }
+
+    private void release(Entry entry) {
+        if (entries.remove(entry.key, entry)) {
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * Drop the oldest entries while over capacity or past their TTL
+     * Entries whose posting has not finished yet are kept (the queue waits behind them)
+     */
+    private void evict(long now) {
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null
+                && (size.get() > maxEntries || oldest.isExpired(now, ttlMillis))) {
+            if (!oldest.result.isDone()) {
+                // Still posting: dropping it would let a retry apply the posting a second time
+                break;
+            }
+            Entry polled = insertionOrder.poll();
+            if (polled != null) {
+                release(polled);
+            }
+        }
+    }
+
+    private synchronized ExecutorService getLookupExecutor() {
+        if (lookupExecutor == null) {
+            // Every keyed async posting starts with a lookup, so size it like the posting threads
+            int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+            lookupExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "idempotency-lookup");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return lookupExecutor;
+    }
+
+    private static Transaction await(CompletableFuture<Transaction> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Entry {
+        final String key;
+        final long createdAt;
+        final CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+        Entry(String key, long createdAt) {
+            this.key = key;
+            this.createdAt = createdAt;
+        }
+
+        boolean isExpired(long now, long ttlMillis) {
+            return now - createdAt > ttlMillis;
+        }
+    }
+}
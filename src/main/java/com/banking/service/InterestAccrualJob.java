@@ -0,0 +1,551 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.engine.PostingEngine;
+import main.java.com.banking.model.Account;
+import main.java.com.banking.model.AccountStatus;
+import main.java.com.banking.model.AccountType;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.model.TransactionType;
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.DatabaseConfig;
+import main.java.com.banking.util.ReportWriter;
+import main.java.com.banking.util.TransactionIdGenerator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-of-Day Interest Accrual
+ * Credits one day of interest to every active account whose type has a rate table
+ * (interest.rates.<TYPE> in config.properties, savings and fixed deposits by default).
+ *
+ * Balances are the ledger's as of the end of the business date: each account's last row
+ * up to the day's last transaction ID. The cut follows from the date alone, so a rerun
+ * accrues on exactly the balances the first run saw, and a date is only accrued once it
+ * is over, has settled, and no posting or cross-shard transfer from it is still open.
+ *
+ * Accounts are split into chunks processed by a bounded worker pool; each chunk posts all
+ * of its credits through the posting engine as one batched database transaction, and its
+ * timing goes into the run report under reports/interest/. With several shards a chunk
+ * holds accounts of one shard only, in account ID order.
+ *
+ * Every credit carries the idempotency key INT-<business date>-<account>, so a chunk
+ * skips accounts already credited for that date and the database rejects duplicates.
+ * After a crash or a failed chunk, running the same date again only credits the rest.
+ * A date is marked complete in interest_accrual_runs once every chunk succeeded.
+ */
+public class InterestAccrualJob {
+
+    private static final String REPORTS_FOLDER = "reports/interest/";
+    private static final String KEY_PREFIX = "INT-";
+
+    private final PostingEngine engine;
+    private final Map<AccountType, RateTable> rateTables = new EnumMap<>(AccountType.class);
+    private final int dayCount;
+    private final int chunkSize;
+    private final int threads;
+
+    public InterestAccrualJob(PostingEngine engine) {
+        this.engine = engine;
+        for (AccountType type : AccountType.values()) {
+            RateTable table = RateTable.parse(ConfigManager.getInterestRates(type.name()));
+            if (!table.isEmpty()) {
+                rateTables.put(type, table);
+            }
+        }
+        this.dayCount = ConfigManager.getInterestDayCount();
+        this.chunkSize = Math.max(1, ConfigManager.getInterestChunkSize());
+        this.threads = Math.max(1, ConfigManager.getInterestThreads());
+    }
+
+    /**
+     * Accrue (or finish accruing) interest for one business date
+     * The date must be over, and settled: no posting up to its end may still be in flight.
+     */
+    public AccrualRunResult run(LocalDate businessDate) throws Exception {
+        LocalDateTime endOfDay = businessDate.plusDays(1).atStartOfDay();
+        long settleMillis = TimeUnit.SECONDS.toMillis(Math.max(0, ConfigManager.getBalanceCheckpointSettleSeconds()));
+        if (endOfDay.plus(settleMillis, ChronoUnit.MILLIS).isAfter(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Business date " + businessDate + " is not over yet");
+        }
+
+        AccrualRunResult result = new AccrualRunResult(businessDate);
+        if (isComplete(businessDate)) {
+            result.alreadyComplete = true;
+            return result;
+        }
+
+        // Every run for the date reads balances at the same cut: the last ID of the day
+        long endMillis = endOfDay.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long cutoffId = TransactionIdGenerator.lastIdAt(endMillis - 1);
+        result.cutoffId = cutoffId;
+        requireSettled(businessDate, cutoffId);
+
+        // Accounts open at the end of the day, grouped by shard in account ID order
+        Map<Integer, List<Account>> eligibleByShard = new TreeMap<>();
+        for (Account account : AccountManager.getInstance().getAllAccounts()) {
+            if (account.getStatus() == AccountStatus.ACTIVE && rateTables.containsKey(account.getAccountType()) &&
+                    (account.getCreatedDate() == null || account.getCreatedDate().isBefore(endOfDay))) {
+                eligibleByShard.computeIfAbsent(DatabaseConfig.shardOf(account.getAccountId()),
+                        shard -> new ArrayList<>()).add(account);
+            }
+        }
+
+        List<Account> eligible = new ArrayList<>();
+        List<Integer> chunkStarts = new ArrayList<>();
+        for (List<Account> shardAccounts : eligibleByShard.values()) {
+            shardAccounts.sort(Comparator.comparing(Account::getAccountId));
+            for (int i = 0; i < shardAccounts.size(); i++) {
+                if (i % chunkSize == 0) {
+                    chunkStarts.add(eligible.size());
+                }
+                eligible.add(shardAccounts.get(i));
+            }
+        }
+        chunkStarts.add(eligible.size());
+        result.accounts = eligible.size();
+
+        int chunkCount = chunkStarts.size() - 1;
+        System.out.println("Accruing interest for " + businessDate + ": " + eligible.size() +
+                " accounts in " + chunkCount + " chunks (" + threads + " threads)");
+
+        long start = System.nanoTime();
+        List<ChunkResult> chunks = new ArrayList<>(chunkCount);
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "interest-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            CompletionService<ChunkResult> completion = new ExecutorCompletionService<>(workers);
+            for (int c = 0; c < chunkCount; c++) {
+                int from = chunkStarts.get(c);
+                int to = chunkStarts.get(c + 1);
+                int number = c + 1;
+                completion.submit(() -> accrueChunk(number, businessDate, cutoffId, eligible.subList(from, to)));
+            }
+
+            long processed = 0;
+            int lastPercent = -1;
+            for (int c = 0; c < chunkCount; c++) {
+                ChunkResult chunk = completion.take().get();
+                chunks.add(chunk);
+                result.add(chunk);
+                if (chunk.error != null) {
+                    System.err.println("❌ Interest chunk " + chunk.number + " failed: " + chunk.error);
+                }
+
+                processed += chunk.accounts;
+                int percent = (int) (processed * 100 / eligible.size());
+                if (percent / 10 != lastPercent / 10) {
+                    System.out.println("  … " + processed + "/" + eligible.size() + " accounts (" + percent + "%)");
+                    lastPercent = percent;
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+
+        if (result.failedChunks == 0) {
+            markComplete(businessDate);
+        }
+        result.reportFile = writeReport(result, chunks);
+        return result;
+    }
+
+    // ==================== CHUNK ====================
+
+    /**
+     * Credit one chunk of accounts in a single database transaction
+     * Never throws: failures are recorded on the result so the other chunks carry on.
+     */
+    private ChunkResult accrueChunk(int number, LocalDate businessDate, long cutoffId, List<Account> accounts) {
+        long start = System.nanoTime();
+        ChunkResult chunk = new ChunkResult(number, accounts.size());
+
+        try {
+            List<String> keys = new ArrayList<>(accounts.size());
+            for (Account account : accounts) {
+                keys.add(idempotencyKey(businessDate, account.getAccountId()));
+            }
+            Set<String> credited = findCredited(accounts.get(0).getAccountId(), keys);
+            Map<String, Double> balances = closingBalances(accounts, cutoffId);
+
+            String description = "Interest for " + businessDate.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"));
+            List<Transaction> credits = new ArrayList<>(accounts.size());
+            double total = 0;
+            for (int i = 0; i < accounts.size(); i++) {
+                if (credited.contains(keys.get(i))) {
+                    chunk.alreadyCredited++;
+                    continue;
+                }
+
+                Account account = accounts.get(i);
+                double balance = balances.get(account.getAccountId());
+                double rate = rateTables.get(account.getAccountType()).rateFor(balance);
+                double interest = dailyInterest(balance, rate);
+                if (interest <= 0) {
+                    chunk.nothingDue++;
+                    continue;
+                }
+
+                Transaction credit = new Transaction(account.getAccountId(), TransactionType.INTEREST, interest, 0,
+                        description + " @ " + String.format("%.2f", rate) + "% p.a.");
+                credit.setIdempotencyKey(keys.get(i));
+                credits.add(credit);
+                total += interest;
+            }
+
+            if (!credits.isEmpty()) {
+                PostingEngine.await(engine.postCredits(credits));
+            }
+            chunk.credited = credits.size();
+            chunk.interest = total;
+        } catch (Exception e) {
+            chunk.error = e.getMessage();
+        }
+
+        chunk.elapsedNanos = System.nanoTime() - start;
+        return chunk;
+    }
+
+    /**
+     * One day's interest on a balance at an annual rate, rounded to the paisa
+     */
+    private double dailyInterest(double balance, double annualRatePercent) {
+        if (balance <= 0 || annualRatePercent <= 0) {
+            return 0;
+        }
+        return Math.round(balance * annualRatePercent / dayCount) / 100.0;
+    }
+
+    private static String idempotencyKey(LocalDate businessDate, String accountId) {
+        return KEY_PREFIX + businessDate + "-" + accountId;
+    }
+
+    /**
+     * Which of these keys were already posted (by an earlier run for the same date)
+     * The keys belong to the accounts of one chunk, so one shard holds them all.
+     */
+    private Set<String> findCredited(String shardAccountId, List<String> keys) throws SQLException {
+        Set<String> credited = new HashSet<>();
+        if (keys.isEmpty()) {
+            return credited;
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(keys.size(), "?"));
+        String sql = "SELECT idempotency_key FROM transactions WHERE idempotency_key IN (" + placeholders + ")";
+
+        try (Connection conn = DatabaseConfig.getShardConnection(shardAccountId);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < keys.size(); i++) {
+                stmt.setString(i + 1, keys.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                credited.add(rs.getString(1));
+            }
+        }
+        return credited;
+    }
+
+    /**
+     * Balances at the end of the day: balance_after of each account's last row up to the cut
+     * The chunk's accounts are one shard's, in ID order. An account with no row by then held
+     * what it had before its first later posting, or its current balance if there is none.
+     */
+    private Map<String, Double> closingBalances(List<Account> accounts, long cutoffId) throws SQLException {
+        String firstId = accounts.get(0).getAccountId();
+        String lastId = accounts.get(accounts.size() - 1).getAccountId();
+        Map<String, Double> balances = new HashMap<>(accounts.size() * 2);
+
+        try (Connection conn = DatabaseConfig.getShardConnection(firstId)) {
+            Map<String, LedgerEdges.Edge> lastRows = LedgerEdges.last(conn,
+                    "{account} >= ? AND {account} <= ? AND {id} <= ? AND status = 'SUCCESS'",
+                    firstId, lastId, cutoffId);
+            Map<String, LedgerEdges.Edge> laterRows = Collections.emptyMap();
+            if (lastRows.size() < accounts.size()) {
+                laterRows = LedgerEdges.first(conn,
+                        "{account} >= ? AND {account} <= ? AND {id} > ? AND status = 'SUCCESS'",
+                        firstId, lastId, cutoffId);
+            }
+
+            for (Account account : accounts) {
+                LedgerEdges.Edge last = lastRows.get(account.getAccountId());
+                LedgerEdges.Edge later = laterRows.get(account.getAccountId());
+                balances.put(account.getAccountId(), last != null ? last.balanceAfter()
+                        : later != null ? later.balanceBefore() : account.getBalance());
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Refuse to accrue while a cross-shard transfer from before the cut is still pending,
+     * or a posting from before it is not committed yet: its rows would change the day's
+     * closing balances after this run read them
+     */
+    private void requireSettled(LocalDate businessDate, long cutoffId) throws SQLException {
+        List<Long> oldestPending = DatabaseConfig.onAllShards(shard -> {
+            try (Connection conn = DatabaseConfig.getConnection(shard)) {
+                return TransactionManager.oldestPendingTransfer(conn);
+            }
+        });
+        for (long transferId : oldestPending) {
+            if (transferId > 0 && transferId <= cutoffId) {
+                throw new IllegalStateException("Transfer " + transferId + " from " + businessDate +
+                        " is still pending; run the accrual again once it settles");
+            }
+        }
+        if (PostingHorizon.getInstance().settledCutoff(cutoffId) < cutoffId) {
+            throw new IllegalStateException("Postings from " + businessDate +
+                    " are still being written; run the accrual again once they are");
+        }
+    }
+
+    // ==================== RUN RECORD ====================
+
+    private boolean isComplete(LocalDate businessDate) throws SQLException {
+        String sql = "SELECT 1 FROM interest_accrual_runs WHERE business_date = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, Date.valueOf(businessDate));
+            return stmt.executeQuery().next();
+        }
+    }
+
+    /**
+     * Record the date as done, with its totals across all runs (and shards) that worked on it
+     */
+    private void markComplete(LocalDate businessDate) throws SQLException {
+        String totalsSql = "SELECT COUNT(*), COALESCE(SUM(amount), 0) FROM transactions " +
+                "WHERE transaction_type = 'INTEREST' AND idempotency_key LIKE ?";
+        String insertSql = "INSERT INTO interest_accrual_runs (business_date, accounts_credited, total_interest, " +
+                "completed_at) VALUES (?, ?, ?, ?)";
+
+        long credited = 0;
+        BigDecimal interest = BigDecimal.ZERO;
+        // Per shard: {accounts credited, total interest}
+        List<BigDecimal[]> shardTotals = DatabaseConfig.onAllShards(shard -> {
+            try (Connection conn = DatabaseConfig.getConnection(shard);
+                 PreparedStatement totals = conn.prepareStatement(totalsSql)) {
+                totals.setString(1, KEY_PREFIX + businessDate + "-%");
+                ResultSet rs = totals.executeQuery();
+                rs.next();
+                return new BigDecimal[]{BigDecimal.valueOf(rs.getLong(1)), rs.getBigDecimal(2)};
+            }
+        });
+        for (BigDecimal[] totals : shardTotals) {
+            credited += totals[0].longValue();
+            interest = interest.add(totals[1]);
+        }
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement insert = conn.prepareStatement(insertSql)) {
+            insert.setDate(1, Date.valueOf(businessDate));
+            insert.setLong(2, credited);
+            insert.setBigDecimal(3, interest);
+            insert.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            insert.executeUpdate();
+        }
+    }
+
+    // ==================== REPORT ====================
+
+    private String writeReport(AccrualRunResult result, List<ChunkResult> chunks) throws IOException {
+        Path folder = Paths.get(REPORTS_FOLDER);
+        Files.createDirectories(folder);
+        Path file = folder.resolve("interest_" + result.businessDate + "_" +
+                LocalDateTime.now().format(ReportWriter.FILE_TIMESTAMP) + ".txt");
+
+        chunks.sort((a, b) -> Integer.compare(a.number, b.number));
+        long[] millis = chunks.stream().mapToLong(c -> c.elapsedNanos / 1_000_000).sorted().toArray();
+
+        try (ReportWriter writer = new ReportWriter(file)) {
+            writer.line("========================================");
+            writer.line("     END-OF-DAY INTEREST ACCRUAL");
+            writer.line("========================================");
+            writer.text("Business Date   : ").line(result.businessDate.toString());
+            writer.text("Completed       : ").line(LocalDateTime.now().format(ReportWriter.DISPLAY_DATE_TIME));
+            writer.text("Balances As Of  : end of day (transaction #").number(result.cutoffId).line(")");
+            writer.text("Accounts        : ").number(result.accounts).newline();
+            writer.text("Credited        : ").number(result.credited).newline();
+            writer.text("Already Credited: ").number(result.alreadyCredited).newline();
+            writer.text("Nothing Due     : ").number(result.nothingDue).newline();
+            writer.text("Total Interest  : ₹").amount(result.interest).newline();
+            writer.text("Failed Chunks   : ").number(result.failedChunks).newline();
+            writer.text("Elapsed         : ").number(result.elapsedNanos / 1_000_000).line(" ms");
+            if (millis.length > 0) {
+                writer.text("Chunk Time      : min ").number(millis[0])
+                        .text(" / median ").number(millis[millis.length / 2])
+                        .text(" / max ").number(millis[millis.length - 1]).line(" ms");
+            }
+            writer.line("========================================");
+            writer.newline();
+
+            writer.column("CHUNK", 8).column("ACCOUNTS", 10).column("CREDITED", 10).column("SKIPPED", 10)
+                    .column("INTEREST", 16).column("MS", 8).line("STATUS");
+            writer.repeat('=', 72).newline();
+            for (ChunkResult chunk : chunks) {
+                writer.column(chunk.number, 8).column(chunk.accounts, 10).column(chunk.credited, 10)
+                        .column(chunk.alreadyCredited + chunk.nothingDue, 10)
+                        .amountColumn(chunk.interest, 16).column(chunk.elapsedNanos / 1_000_000, 8)
+                        .line(chunk.error == null ? "OK" : "FAILED: " + chunk.error);
+            }
+        }
+        return file.toString();
+    }
+
+    // ==================== RATE TABLE ====================
+
+    /**
+     * Annual rates by balance tier: the highest floor at or below the balance applies
+     * to the whole balance. Parsed from "floor:rate,floor:rate", e.g. "0:3.00,100000:3.50".
+     */
+    static final class RateTable {
+        private final TreeMap<Double, Double> tiers = new TreeMap<>();
+
+        static RateTable parse(String spec) {
+            RateTable table = new RateTable();
+            if (spec == null || spec.isBlank()) {
+                return table;
+            }
+            for (String tier : spec.split(",")) {
+                String[] parts = tier.trim().split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid interest rate tier '" + tier.trim() +
+                            "' (expected floor:rate)");
+                }
+                table.tiers.put(Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()));
+            }
+            return table;
+        }
+
+        boolean isEmpty() {
+            return tiers.isEmpty();
+        }
+
+        double rateFor(double balance) {
+            Map.Entry<Double, Double> tier = tiers.floorEntry(balance);
+            return tier != null ? tier.getValue() : 0;
+        }
+    }
+
+    // ==================== RESULTS ====================
+
+    private static final class ChunkResult {
+        final int number;
+        final int accounts;
+        int credited;
+        int alreadyCredited;
+        int nothingDue;
+        double interest;
+        long elapsedNanos;
+        String error;
+
+        ChunkResult(int number, int accounts) {
+            this.number = number;
+            this.accounts = accounts;
+        }
+    }
+
+    /**
+     * Outcome of an interest run
+     */
+    public static class AccrualRunResult {
+        private final LocalDate businessDate;
+        private boolean alreadyComplete;
+        private long cutoffId;
+        private long accounts;
+        private long credited;
+        private long alreadyCredited;
+        private long nothingDue;
+        private double interest;
+        private int failedChunks;
+        private long slowestChunkNanos;
+        private long elapsedNanos;
+        private String reportFile;
+
+        AccrualRunResult(LocalDate businessDate) {
+            this.businessDate = businessDate;
+        }
+
+        private void add(ChunkResult chunk) {
+            credited += chunk.credited;
+            alreadyCredited += chunk.alreadyCredited;
+            nothingDue += chunk.nothingDue;
+            interest += chunk.interest;
+            slowestChunkNanos = Math.max(slowestChunkNanos, chunk.elapsedNanos);
+            if (chunk.error != null) {
+                failedChunks++;
+            }
+        }
+
+        public boolean isAlreadyComplete() {
+            return alreadyComplete;
+        }
+
+        public long getCredited() {
+            return credited;
+        }
+
+        public double getInterest() {
+            return interest;
+        }
+
+        public int getFailedChunks() {
+            return failedChunks;
+        }
+
+        public String getReportFile() {
+            return reportFile;
+        }
+
+        @Override
+        public String toString() {
+            if (alreadyComplete) {
+                return "Interest for " + businessDate + " was already accrued";
+            }
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return String.format("Interest for %s: ₹%.2f to %d accounts in %.2f s, %.0f accounts/s, " +
+                            "slowest chunk %d ms%s%s -> %s",
+                    businessDate, interest, credited, seconds, seconds > 0 ? accounts / seconds : 0,
+                    slowestChunkNanos / 1_000_000,
+                    alreadyCredited > 0 ? ", " + alreadyCredited + " already credited" : "",
+                    failedChunks > 0 ? ", " + failedChunks + " chunks FAILED (run again to retry)" : "",
+                    reportFile);
+        }
+    }
+}
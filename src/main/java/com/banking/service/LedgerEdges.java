@@ -0,0 +1,99 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.model.TransactionType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ledger Edges
+ * The first or last ledger row of many accounts in one query, read from the transactions
+ * and transfers tables directly. Joining the transaction_legs view makes MySQL materialize
+ * the whole UNION ALL first, so each side of the ledger gets its own branch here with the
+ * account and row filters inside it, on idx_transactions_account, idx_transfers_from and
+ * idx_transfers_to. Per account, the branch winners are compared in Java.
+ *
+ * Filters are written once with {account} and {id} standing for the side's account and
+ * transaction ID columns; transaction_date and status are named the same on every side.
+ * Their parameters are bound once per branch.
+ */
+final class LedgerEdges {
+
+    // table, account column, transaction ID column, balance_after column, transaction type
+    private static final String[][] SIDES = {
+            {"transactions", "account_id", "transaction_id", "balance_after", "transaction_type"},
+            {"transfers", "from_account_id", "transfer_id", "from_balance_after", "'TRANSFER_OUT'"},
+            {"transfers", "to_account_id", "credit_transaction_id", "to_balance_after", "'TRANSFER_IN'"}
+    };
+
+    private LedgerEdges() {}
+
+    /**
+     * Each matching account's oldest row that passes the filter
+     */
+    static Map<String, Edge> first(Connection conn, String filter, Object... params) throws SQLException {
+        return find(conn, "MIN", filter, params);
+    }
+
+    /**
+     * Each matching account's newest row that passes the filter
+     */
+    static Map<String, Edge> last(Connection conn, String filter, Object... params) throws SQLException {
+        return find(conn, "MAX", filter, params);
+    }
+
+    private static Map<String, Edge> find(Connection conn, String edge, String filter, Object... params)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder();
+        for (String[] side : SIDES) {
+            if (sql.length() > 0) {
+                sql.append(" UNION ALL ");
+            }
+            String where = filter.replace("{account}", side[1]).replace("{id}", side[2]);
+            sql.append("SELECT t.").append(side[1]).append(", t.").append(side[2]).append(", ")
+                    .append(side[4].startsWith("'") ? side[4] : "t." + side[4])
+                    .append(", t.amount, t.").append(side[3])
+                    .append(" FROM ").append(side[0]).append(" t JOIN (SELECT ").append(side[1])
+                    .append(" AS edge_account, ").append(edge).append("(").append(side[2]).append(") AS edge_id FROM ")
+                    .append(side[0]).append(" WHERE ").append(where).append(" GROUP BY ").append(side[1])
+                    .append(") e ON t.").append(side[1]).append(" = e.edge_account AND t.").append(side[2])
+                    .append(" = e.edge_id");
+        }
+
+        boolean newest = edge.equals("MAX");
+        Map<String, Edge> edges = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (int i = 0; i < SIDES.length; i++) {
+                for (Object param : params) {
+                    stmt.setObject(index++, param);
+                }
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                Edge found = new Edge(rs.getLong(2), TransactionType.valueOf(rs.getString(3)),
+                        rs.getDouble(4), rs.getDouble(5));
+                edges.merge(rs.getString(1), found, (a, b) ->
+                        (b.transactionId() > a.transactionId()) == newest ? b : a);
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * One ledger row at the edge of an account's ledger
+     */
+    record Edge(long transactionId, TransactionType type, double amount, double balanceAfter) {
+
+        /**
+         * The account's balance just before this row
+         */
+        double balanceBefore() {
+            return balanceAfter - (type.isCredit() ? amount : -amount);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.DatabaseConfig;
+import main.java.com.banking.util.TransactionIdGenerator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posting Horizon
+ * The oldest transaction ID this node has handed out but not yet committed (or given up on).
+ *
+ * Transaction IDs are ordered by time, but a posting's rows commit some time after its ID
+ * was taken: the pipelined engines stamp legs when they are applied and persist them from
+ * a queue, and the stateless engine takes IDs inside its database transaction. Jobs that
+ * read the ledger up to an ID cut-off (balance checkpoints, daily summaries, interest
+ * accrual) keep the cut-off below every open posting, so a row can never commit below a
+ * cut-off that was already read past.
+ *
+ * Every posting.horizon.heartbeat.ms each node writes its oldest open ID (0 when none)
+ * into its row of posting_horizons on shard 0; settledCutoff takes this node's own value
+ * and every other node's row. A row not written for posting.horizon.stale.seconds (a
+ * stopped node) and a posting open that long are taken as lost and no longer hold the
+ * cut-off back.
+ */
+public class PostingHorizon {
+
+    private static PostingHorizon instance;
+
+    private static final String BEAT_SQL = "INSERT INTO posting_horizons (node_id, oldest_open_id, beat_millis) " +
+            "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE oldest_open_id = VALUES(oldest_open_id), " +
+            "beat_millis = VALUES(beat_millis)";
+    private static final String OTHERS_SQL = "SELECT node_id, oldest_open_id FROM posting_horizons " +
+            "WHERE node_id <> ? AND oldest_open_id > 0 AND beat_millis >= ?";
+
+    // Open IDs, each with the number of postings holding it (reservations can share one)
+    private final ConcurrentSkipListMap<Long, Integer> open = new ConcurrentSkipListMap<>();
+    private final int nodeId = ConfigManager.getNodeId();
+    private final long heartbeatMillis;
+    private final long staleMillis;
+    private ScheduledExecutorService heartbeat;
+    private boolean beatFailing = false;
+
+    private PostingHorizon() {
+        this.heartbeatMillis = Math.max(100, ConfigManager.getPostingHorizonHeartbeatMillis());
+        this.staleMillis = TimeUnit.SECONDS.toMillis(Math.max(1, ConfigManager.getPostingHorizonStaleSeconds()));
+    }
+
+    public static synchronized PostingHorizon getInstance() {
+        if (instance == null) {
+            instance = new PostingHorizon();
+        }
+        return instance;
+    }
+
+    // ==================== OPEN POSTINGS ====================
+
+    /**
+     * Legs that just got their IDs and are not in the ledger yet
+     */
+    public void open(Transaction... legs) {
+        for (Transaction leg : legs) {
+            open.merge(leg.getTransactionId(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Legs that were committed, or will never be
+     */
+    public void close(Transaction... legs) {
+        for (Transaction leg : legs) {
+            release(leg.getTransactionId());
+        }
+    }
+
+    /**
+     * Hold the horizon for a database transaction that takes its IDs as it goes
+     * Every ID handed out from now on is at or after the returned one; pass it to release.
+     */
+    public long reserve() {
+        long first = TransactionIdGenerator.lastIdAt(System.currentTimeMillis() - 1) + 1;
+        open.merge(first, 1, Integer::sum);
+        return first;
+    }
+
+    public void release(long id) {
+        open.computeIfPresent(id, (key, holders) -> holders > 1 ? holders - 1 : null);
+    }
+
+    /**
+     * This node's oldest open ID that is not yet taken as lost, or 0
+     */
+    public long oldestOpenId() {
+        long lostBefore = TransactionIdGenerator.lastIdAt(System.currentTimeMillis() - staleMillis);
+        for (Map.Entry<Long, Integer> entry : open.entrySet()) {
+            if (entry.getKey() > lostBefore) {
+                return entry.getKey();
+            }
+            System.err.println("❌ Posting " + entry.getKey() + " open for over " + staleMillis / 1000 +
+                    "s; taken as lost");
+            open.remove(entry.getKey());
+        }
+        return 0;
+    }
+
+    /**
+     * Lower a ledger cut-off to just below the oldest open posting of any node
+     */
+    public long settledCutoff(long cutoffId) throws SQLException {
+        long oldest = oldestOpenId();
+        if (oldest > 0) {
+            cutoffId = Math.min(cutoffId, oldest - 1);
+        }
+
+        long now = System.currentTimeMillis();
+        long lostBefore = TransactionIdGenerator.lastIdAt(now - staleMillis);
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(OTHERS_SQL)) {
+            stmt.setInt(1, nodeId);
+            stmt.setLong(2, now - staleMillis);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                long nodeOldest = rs.getLong(2);
+                if (nodeOldest > lostBefore) {
+                    cutoffId = Math.min(cutoffId, nodeOldest - 1);
+                }
+            }
+        }
+        return cutoffId;
+    }
+
+    // ==================== HEARTBEAT ====================
+
+    /**
+     * Start publishing this node's horizon
+     */
+    public synchronized void start() {
+        if (heartbeat != null) {
+            return;
+        }
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "posting-horizon");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::beat, 0, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop publishing; call after the posting engines have stopped, before the connection
+     * pool is closed. The last beat leaves the row showing what is still open.
+     */
+    public void shutdown() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = heartbeat;
+            heartbeat = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            beat();
+        }
+    }
+
+    private void beat() {
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(BEAT_SQL)) {
+            stmt.setInt(1, nodeId);
+            stmt.setLong(2, oldestOpenId());
+            stmt.setLong(3, System.currentTimeMillis());
+            stmt.executeUpdate();
+            beatFailing = false;
+        } catch (SQLException e) {
+            if (!beatFailing) {
+                System.err.println("❌ Posting horizon heartbeat failed: " + e.getMessage());
+            }
+            beatFailing = true;
+        }
+    }
+}
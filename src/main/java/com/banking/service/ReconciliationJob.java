@@ -0,0 +1,560 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.model.Account;
+import main.java.com.banking.model.TransactionType;
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.DatabaseConfig;
+import main.java.com.banking.util.ReportWriter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Ledger Reconciliation
+ * Checks that the transactions ledger, accounts.balance and the in-memory accounts agree,
+ * and lists every account where they do not in a discrepancy report under
+ * reports/reconciliation/. For each account:
+ *   - the balance chain: each ledger row's balance_after is the previous one plus or minus its amount
+ *   - the ledger balance (the newest balance_after, which is the opening balance plus the
+ *     ledger sum while the chain holds) against accounts.balance
+ *   - the ledger balance against the in-memory Account
+ *
+ * Accounts are split into ranges of contiguous account IDs, processed by a bounded worker
+ * pool. Each range is one scan of its accounts rows and one of its ledger rows, both
+ * streamed in account order and merged with the in-memory accounts as they go by, so a
+ * worker only holds the running totals of the account it is on, however long the ledger.
+ * With several shards every shard is split into its own ranges.
+ *
+ * Postings continue while the job runs, so an account that was just posted to can look
+ * out of step for a moment (the in-memory balance moves before its ledger row commits,
+ * write-behind balances reach the table later). Each mismatch is checked again from fresh
+ * reads before it is reported.
+ *
+ * Hot accounts are posted to through several slots at once, so their balance_after values
+ * do not form a chain; for them only the slot totals in the database and in memory are compared.
+ */
+public class ReconciliationJob {
+
+    private static final String REPORTS_FOLDER = "reports/reconciliation/";
+    private static final int RECHECK_ATTEMPTS = 5;
+    private static final long RECHECK_DELAY_MILLIS = 200; // doubled after each attempt
+
+    // Hot accounts: the slot total (NULL for every other account)
+    private static final String ACCOUNTS_SQL = "SELECT a.account_id, a.balance, " +
+            "(SELECT SUM(s.balance) FROM account_balance_slots s WHERE s.account_id = a.account_id) " +
+            "FROM accounts a WHERE %s ORDER BY a.account_id";
+
+    private static final String LEDGER_SQL = "SELECT account_id, transaction_id, transaction_type, amount, " +
+            "balance_after FROM transaction_legs WHERE %s AND status = 'SUCCESS' ORDER BY account_id, transaction_id";
+
+    private final AccountManager accountManager;
+    private final BalanceWriteBehind writeBehind;
+    private final int threads;
+    private final int partitionSize;
+    private final int fetchSize;
+    private final int maxReported;
+
+    public ReconciliationJob() {
+        this.accountManager = AccountManager.getInstance();
+        this.writeBehind = BalanceWriteBehind.getInstance();
+        this.threads = Math.max(1, ConfigManager.getReconciliationThreads());
+        this.partitionSize = Math.max(1, ConfigManager.getReconciliationPartitionSize());
+        this.fetchSize = ConfigManager.getExportFetchSize();
+        this.maxReported = Math.max(0, ConfigManager.getReconciliationMaxReported());
+    }
+
+    /**
+     * Reconcile every account and write the discrepancy report
+     */
+    public ReconciliationResult run() throws Exception {
+        // Balances still waiting for the write-behind flusher would all look wrong
+        writeBehind.flush();
+
+        List<Account> accounts = new ArrayList<>(accountManager.getAllAccounts());
+        accounts.sort(Comparator.comparing(Account::getAccountId));
+
+        List<List<Account>> byShard = new ArrayList<>();
+        for (int shard = 0; shard < DatabaseConfig.getShardCount(); shard++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (Account account : accounts) {
+            byShard.get(DatabaseConfig.shardOf(account.getAccountId())).add(account);
+        }
+
+        // The first and last ranges of a shard are open-ended, so accounts that exist only
+        // in the database are covered too
+        List<Range> ranges = new ArrayList<>();
+        for (int shard = 0; shard < byShard.size(); shard++) {
+            List<Account> shardAccounts = byShard.get(shard);
+            int i = 0;
+            do {
+                int end = Math.min(i + partitionSize, shardAccounts.size());
+                String from = i == 0 ? null : shardAccounts.get(i).getAccountId();
+                String to = end < shardAccounts.size() ? shardAccounts.get(end).getAccountId() : null;
+                ranges.add(new Range(shard, from, to, shardAccounts.subList(i, end)));
+                i = end;
+            } while (i < shardAccounts.size());
+        }
+
+        System.out.println("Reconciling " + accounts.size() + " accounts in " + ranges.size() +
+                " ranges (" + threads + " threads" +
+                (byShard.size() > 1 ? ", " + byShard.size() + " shards)" : ")"));
+
+        ReconciliationResult result = new ReconciliationResult();
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "reconciliation-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            CompletionService<RangeResult> completion = new ExecutorCompletionService<>(workers);
+            for (Range range : ranges) {
+                completion.submit(() -> reconcileRange(range));
+            }
+
+            int lastPercent = -1;
+            for (int r = 1; r <= ranges.size(); r++) {
+                result.add(completion.take().get(), maxReported);
+
+                int percent = r * 100 / ranges.size();
+                if (percent / 10 != lastPercent / 10) {
+                    System.out.println("  … " + result.accounts + " accounts, " + result.ledgerRows +
+                            " ledger rows (" + percent + "%)");
+                    lastPercent = percent;
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+
+        result.reportFile = writeReport(result);
+        return result;
+    }
+
+    // ==================== RANGE ====================
+
+    private RangeResult reconcileRange(Range range) throws SQLException, InterruptedException {
+        RangeResult result = new RangeResult();
+        List<String> suspects = new ArrayList<>();
+
+        // One connection per worker with both cursors open on it (useCursorFetch=true on MySQL)
+        try (Connection conn = DatabaseConfig.getConnection(range.shard);
+             PreparedStatement accountsStmt = openScan(conn, ACCOUNTS_SQL, "a.account_id", range);
+             PreparedStatement ledgerStmt = openScan(conn, LEDGER_SQL, "account_id", range);
+             ResultSet accountRows = accountsStmt.executeQuery();
+             ResultSet ledgerRows = ledgerStmt.executeQuery()) {
+
+            List<Account> memory = range.accounts;
+            int memoryIndex = 0;
+            String databaseId = accountRows.next() ? accountRows.getString(1) : null;
+            String ledgerId = ledgerRows.next() ? ledgerRows.getString(1) : null;
+
+            // Merge the three account-ordered sources, one account at a time
+            while (true) {
+                String memoryId = memoryIndex < memory.size() ? memory.get(memoryIndex).getAccountId() : null;
+                String accountId = first(first(databaseId, ledgerId), memoryId);
+                if (accountId == null) {
+                    break;
+                }
+
+                AccountState state = new AccountState(accountId);
+                if (accountId.equals(databaseId)) {
+                    state.readDatabase(accountRows);
+                    databaseId = accountRows.next() ? accountRows.getString(1) : null;
+                }
+                if (accountId.equals(memoryId)) {
+                    state.account = memory.get(memoryIndex++);
+                }
+                while (accountId.equals(ledgerId)) {
+                    state.addLedgerRow(ledgerRows);
+                    ledgerId = ledgerRows.next() ? ledgerRows.getString(1) : null;
+                }
+
+                result.accounts++;
+                result.ledgerRows += state.rows;
+                if (state.check() != null) {
+                    suspects.add(accountId);
+                }
+            }
+        }
+
+        recheck(range.shard, suspects, result);
+        return result;
+    }
+
+    private PreparedStatement openScan(Connection conn, String sql, String column, Range range) throws SQLException {
+        if (conn.getAutoCommit()) {
+            conn.setReadOnly(true);
+            conn.setAutoCommit(false);
+        }
+
+        String where = (range.from != null ? column + " >= ?" : "1 = 1") +
+                (range.to != null ? " AND " + column + " < ?" : "");
+        PreparedStatement stmt = conn.prepareStatement(String.format(sql, where),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(fetchSize);
+
+        int index = 1;
+        if (range.from != null) {
+            stmt.setString(index++, range.from);
+        }
+        if (range.to != null) {
+            stmt.setString(index, range.to);
+        }
+        return stmt;
+    }
+
+    private static String first(String a, String b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * Check suspect accounts again from fresh reads, further apart each time
+     * Accounts that agree on any attempt were only caught mid-posting (pipelined engines
+     * can hold many applied but unpersisted postings).
+     */
+    private void recheck(int shard, List<String> suspects, RangeResult result)
+            throws SQLException, InterruptedException {
+        long delay = RECHECK_DELAY_MILLIS;
+        for (int attempt = 1; attempt <= RECHECK_ATTEMPTS && !suspects.isEmpty(); attempt++) {
+            Thread.sleep(delay);
+            delay *= 2;
+            writeBehind.flush();
+
+            try (Connection conn = DatabaseConfig.getConnection(shard);
+                 PreparedStatement accountStmt = conn.prepareStatement(String.format(ACCOUNTS_SQL, "a.account_id = ?"));
+                 PreparedStatement ledgerStmt = conn.prepareStatement(String.format(LEDGER_SQL, "account_id = ?"))) {
+
+                for (Iterator<String> it = suspects.iterator(); it.hasNext(); ) {
+                    AccountState state = readAccount(it.next(), accountStmt, ledgerStmt);
+                    Discrepancy discrepancy = state.check();
+                    if (discrepancy == null) {
+                        result.settled++;
+                        it.remove();
+                    } else if (attempt == RECHECK_ATTEMPTS) {
+                        result.discrepancies.add(discrepancy);
+                    }
+                }
+            }
+        }
+    }
+
+    private AccountState readAccount(String accountId, PreparedStatement accountStmt,
+                                     PreparedStatement ledgerStmt) throws SQLException {
+        AccountState state = new AccountState(accountId);
+
+        // Memory first: a posting changes it before its ledger row and balance commit
+        if (accountManager.accountExists(accountId)) {
+            try {
+                state.account = accountManager.getAccount(accountId);
+            } catch (Exception e) {
+                // Deleted meanwhile
+            }
+        }
+
+        ledgerStmt.setString(1, accountId);
+        try (ResultSet rs = ledgerStmt.executeQuery()) {
+            while (rs.next()) {
+                state.addLedgerRow(rs);
+            }
+        }
+
+        accountStmt.setString(1, accountId);
+        try (ResultSet rs = accountStmt.executeQuery()) {
+            if (rs.next()) {
+                state.readDatabase(rs);
+            }
+        }
+        return state;
+    }
+
+    // ==================== ONE ACCOUNT ====================
+
+    /**
+     * What the database, the ledger and memory say about one account
+     * Ledger amounts are summed in paise, so long ledgers add up exactly.
+     */
+    private static final class AccountState {
+        final String accountId;
+
+        boolean inDatabase;
+        boolean hot;
+        double databaseBalance = Double.NaN;
+        Account account;
+
+        long rows;
+        long openingPaise;
+        long netPaise;
+        long lastBalancePaise;
+        long chainBreaks;
+        long firstBreakId;
+        long breakExpectedPaise;
+        long breakFoundPaise;
+
+        AccountState(String accountId) {
+            this.accountId = accountId;
+        }
+
+        void readDatabase(ResultSet rs) throws SQLException {
+            BigDecimal slotTotal = rs.getBigDecimal(3);
+            inDatabase = true;
+            hot = slotTotal != null;
+            databaseBalance = hot ? slotTotal.doubleValue() : rs.getDouble(2);
+        }
+
+        void addLedgerRow(ResultSet rs) throws SQLException {
+            long amount = toPaise(rs.getDouble(4));
+            long signed = TransactionType.valueOf(rs.getString(3)).isCredit() ? amount : -amount;
+            long balanceAfter = toPaise(rs.getDouble(5));
+
+            if (rows == 0) {
+                openingPaise = balanceAfter - signed;
+            } else if (balanceAfter != lastBalancePaise + signed) {
+                if (chainBreaks == 0) {
+                    firstBreakId = rs.getLong(2);
+                    breakExpectedPaise = lastBalancePaise + signed;
+                    breakFoundPaise = balanceAfter;
+                }
+                chainBreaks++;
+            }
+            rows++;
+            netPaise += signed;
+            lastBalancePaise = balanceAfter;
+        }
+
+        boolean isHot() {
+            return hot || (account != null && account.isHotAccount());
+        }
+
+        /**
+         * The discrepancy, or null if everything agrees
+         */
+        Discrepancy check() {
+            Set<Issue> issues = EnumSet.noneOf(Issue.class);
+            double memoryBalance = account != null ? account.getBalance() : Double.NaN;
+            boolean chained = rows > 0 && !isHot();
+            double ledgerBalance = chained ? lastBalancePaise / 100.0 : Double.NaN;
+
+            if (!inDatabase) {
+                issues.add(Issue.MISSING_IN_DATABASE);
+            }
+            if (account == null) {
+                issues.add(Issue.MISSING_IN_MEMORY);
+            }
+            if (chained && chainBreaks > 0) {
+                issues.add(Issue.BROKEN_CHAIN);
+            }
+            if (chained) {
+                if (inDatabase && differs(ledgerBalance, databaseBalance)) {
+                    issues.add(Issue.LEDGER_VS_DATABASE);
+                }
+                if (account != null && differs(ledgerBalance, memoryBalance)) {
+                    issues.add(Issue.LEDGER_VS_MEMORY);
+                }
+            } else if (inDatabase && account != null && differs(databaseBalance, memoryBalance)) {
+                issues.add(Issue.DATABASE_VS_MEMORY);
+            }
+
+            if (issues.isEmpty()) {
+                return null;
+            }
+            String detail = chained && chainBreaks > 0
+                    ? String.format("%d breaks, first at transaction %d (expected %.2f, found %.2f)",
+                    chainBreaks, firstBreakId, breakExpectedPaise / 100.0, breakFoundPaise / 100.0)
+                    : "";
+            if (account != null && !account.isHotAccount() && differs(memoryBalance, account.getPersistedBalance())) {
+                detail += (detail.isEmpty() ? "" : "; ") + "postings still being persisted";
+            }
+            return new Discrepancy(accountId, issues, rows,
+                    chained ? (openingPaise + netPaise) / 100.0 : Double.NaN,
+                    ledgerBalance, databaseBalance, memoryBalance, detail);
+        }
+
+        private static boolean differs(double a, double b) {
+            return toPaise(a) != toPaise(b);
+        }
+
+        private static long toPaise(double amount) {
+            return Math.round(amount * 100);
+        }
+    }
+
+    // ==================== REPORT ====================
+
+    private String writeReport(ReconciliationResult result) throws IOException {
+        Path folder = Paths.get(REPORTS_FOLDER);
+        Files.createDirectories(folder);
+        Path file = folder.resolve("reconciliation_" + LocalDateTime.now().format(ReportWriter.FILE_TIMESTAMP) + ".txt");
+
+        result.discrepancies.sort(Comparator.comparing(d -> d.accountId));
+        double seconds = result.elapsedNanos / 1_000_000_000.0;
+
+        try (ReportWriter writer = new ReportWriter(file)) {
+            writer.line("========================================");
+            writer.line("       LEDGER RECONCILIATION");
+            writer.line("========================================");
+            writer.text("Completed       : ").line(LocalDateTime.now().format(ReportWriter.DISPLAY_DATE_TIME));
+            writer.text("Accounts        : ").number(result.accounts).newline();
+            writer.text("Ledger Rows     : ").number(result.ledgerRows).newline();
+            writer.text("Elapsed         : ").number(result.elapsedNanos / 1_000_000).text(" ms (")
+                    .number(seconds > 0 ? (long) (result.ledgerRows / seconds) : 0).line(" rows/s)");
+            writer.text("Settled On Retry: ").number(result.settled).newline();
+            writer.text("Discrepancies   : ").number(result.discrepancyCount).newline();
+            for (Map.Entry<Issue, Long> entry : result.issueCounts.entrySet()) {
+                writer.text("  ").column(entry.getKey().label, 26).number(entry.getValue()).newline();
+            }
+            writer.line("========================================");
+            writer.newline();
+
+            if (result.discrepancies.isEmpty()) {
+                writer.line("The ledger, accounts.balance and memory agree for every account.");
+                return file.toString();
+            }
+
+            writer.column("ACCOUNT", 12).column("ROWS", 10).column("LEDGER SUM", 16).column("BALANCE AFTER", 16)
+                    .column("DATABASE", 16).column("MEMORY", 16).line("ISSUES");
+            writer.repeat('=', 120).newline();
+            for (Discrepancy d : result.discrepancies) {
+                writer.column(d.accountId, 12).column(d.ledgerRows, 10);
+                amountColumn(writer, d.ledgerSum);
+                amountColumn(writer, d.ledgerBalance);
+                amountColumn(writer, d.databaseBalance);
+                amountColumn(writer, d.memoryBalance);
+                writer.text(d.issues.stream().map(issue -> issue.label).collect(Collectors.joining(", ")));
+                if (!d.detail.isEmpty()) {
+                    writer.text(": ").text(d.detail);
+                }
+                writer.newline();
+            }
+            if (result.discrepancyCount > result.discrepancies.size()) {
+                writer.newline();
+                writer.text("… and ").number(result.discrepancyCount - result.discrepancies.size())
+                        .line(" more (see reconciliation.max.reported)");
+            }
+        }
+        return file.toString();
+    }
+
+    private static void amountColumn(ReportWriter writer, double value) {
+        if (Double.isNaN(value)) {
+            writer.column("-", 16);
+        } else {
+            writer.amountColumn(value, 16);
+        }
+    }
+
+    // ==================== RESULTS ====================
+
+    /**
+     * A shard's accounts with IDs in [from, to); null bounds are open
+     */
+    private record Range(int shard, String from, String to, List<Account> accounts) {
+    }
+
+    private enum Issue {
+        BROKEN_CHAIN("Broken balance chain"),
+        LEDGER_VS_DATABASE("Ledger/database mismatch"),
+        LEDGER_VS_MEMORY("Ledger/memory mismatch"),
+        DATABASE_VS_MEMORY("Database/memory mismatch"),
+        MISSING_IN_DATABASE("No accounts row"),
+        MISSING_IN_MEMORY("Not loaded in memory");
+
+        final String label;
+
+        Issue(String label) {
+            this.label = label;
+        }
+    }
+
+    private record Discrepancy(String accountId, Set<Issue> issues, long ledgerRows, double ledgerSum,
+                               double ledgerBalance, double databaseBalance, double memoryBalance,
+                               String detail) {
+    }
+
+    private static final class RangeResult {
+        long accounts;
+        long ledgerRows;
+        long settled;
+        final List<Discrepancy> discrepancies = new ArrayList<>();
+    }
+
+    /**
+     * Outcome of a reconciliation run
+     */
+    public static class ReconciliationResult {
+        private long accounts;
+        private long ledgerRows;
+        private long settled;
+        private long discrepancyCount;
+        private final Map<Issue, Long> issueCounts = new EnumMap<>(Issue.class);
+        private final List<Discrepancy> discrepancies = new ArrayList<>();
+        private long elapsedNanos;
+        private String reportFile;
+
+        private void add(RangeResult range, int maxReported) {
+            accounts += range.accounts;
+            ledgerRows += range.ledgerRows;
+            settled += range.settled;
+            discrepancyCount += range.discrepancies.size();
+            for (Discrepancy discrepancy : range.discrepancies) {
+                for (Issue issue : discrepancy.issues) {
+                    issueCounts.merge(issue, 1L, Long::sum);
+                }
+                if (discrepancies.size() < maxReported) {
+                    discrepancies.add(discrepancy);
+                }
+            }
+        }
+
+        public long getAccounts() {
+            return accounts;
+        }
+
+        public long getLedgerRows() {
+            return ledgerRows;
+        }
+
+        public long getDiscrepancyCount() {
+            return discrepancyCount;
+        }
+
+        public String getReportFile() {
+            return reportFile;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return String.format("Reconciled %d accounts and %d ledger rows in %.2f s, %.0f rows/s: %d discrepancies%s -> %s",
+                    accounts, ledgerRows, seconds, seconds > 0 ? ledgerRows / seconds : 0, discrepancyCount,
+                    settled > 0 ? " (" + settled + " more settled on recheck)" : "", reportFile);
+        }
+    }
+}
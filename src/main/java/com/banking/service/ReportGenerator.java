@@ -1,14 +1,17 @@
 package main.java.com.banking.service;
 
 import main.java.com.banking.model.*;
+import main.java.com.banking.util.ReportWriter;
+
 import java.io.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
 import java.util.List;
 
 /**
  * Report Generator
- * Generates and exports reports to text files
+ * Generates and exports reports to text files (rendered through ReportWriter)
  */
 public class ReportGenerator {
 
@@ -29,48 +32,73 @@ public class ReportGenerator {
 
     /**
      * Generate Account Summary Report
+     * Balances and totals come from one snapshot, so they add up while postings continue
      */
     public void generateAccountSummaryReport() throws Exception {
         String filename = REPORTS_FOLDER + "account_summary_" + getTimestamp() + ".txt";
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            writer.write("========================================\n");
-            writer.write("       ACCOUNT SUMMARY REPORT\n");
-            writer.write("========================================\n");
-            writer.write("Generated: " + LocalDateTime.now().format(
-                    DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")) + "\n");
-            writer.write("========================================\n\n");
-
-            List<Account> accounts = accountManager.getAllAccounts();
+        try (BalanceSnapshots.Snapshot snapshot = BalanceSnapshots.getInstance().open();
+             ReportWriter writer = new ReportWriter(filename)) {
+            writer.text("========================================\n");
+            writer.text("       ACCOUNT SUMMARY REPORT\n");
+            writer.text("========================================\n");
+            writer.text("Generated: " + LocalDateTime.now().format(ReportWriter.DISPLAY_DATE_TIME) + "\n");
+            writer.text("As of posting #").number(snapshot.getSequence()).newline();
+            writer.text("========================================\n\n");
 
-            writer.write("Total Accounts: " + accounts.size() + "\n\n");
+            List<Account> accounts = snapshot.getAccounts();
+            SystemAggregates aggregates = SystemAggregates.getInstance();
+            double lowThreshold = aggregates.getLowThreshold();
+            double criticalThreshold = aggregates.getCriticalThreshold();
 
             double totalBalance = 0;
+            long lowCount = 0;
+            long criticalCount = 0;
+            long[] countByType = new long[AccountType.values().length];
+            double[] balanceByType = new double[AccountType.values().length];
+
+            writer.text("Total Accounts: " + accounts.size() + "\n\n");
 
             for (Account account : accounts) {
-                writer.write("----------------------------------------\n");
-                writer.write("Account ID      : " + account.getAccountId() + "\n");
-                writer.write("Holder Name     : " + account.getHolderName() + "\n");
-                writer.write("Account Type    : " + account.getAccountType().getDisplayName() + "\n");
-                writer.write("Balance         : ₹" + String.format("%.2f", account.getBalance()) + "\n");
-                writer.write("Email           : " + account.getEmail() + "\n");
-                writer.write("Phone           : " + account.getPhone() + "\n");
-                writer.write("Status          : " + account.getStatus() + "\n");
-                writer.write("Created Date    : " + account.getCreatedDate().format(
-                        DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")) + "\n");
-                writer.write("----------------------------------------\n\n");
-
-                totalBalance += account.getBalance();
+                double balance = snapshot.getBalance(account.getAccountId());
+                totalBalance += balance;
+                if (balance < lowThreshold) {
+                    lowCount++;
+                }
+                if (balance < criticalThreshold) {
+                    criticalCount++;
+                }
+                countByType[account.getAccountType().ordinal()]++;
+                balanceByType[account.getAccountType().ordinal()] += balance;
+
+                writer.text("----------------------------------------\n");
+                writer.text("Account ID      : " + account.getAccountId() + "\n");
+                writer.text("Holder Name     : " + account.getHolderName() + "\n");
+                writer.text("Account Type    : " + account.getAccountType().getDisplayName() + "\n");
+                writer.text("Balance         : ₹").amount(balance).newline();
+                writer.text("Email           : " + account.getEmail() + "\n");
+                writer.text("Phone           : " + account.getPhone() + "\n");
+                writer.text("Status          : " + account.getStatus() + "\n");
+                writer.text("Created Date    : " + account.getCreatedDate().format(ReportWriter.DISPLAY_DATE_TIME) + "\n");
+                writer.text("----------------------------------------\n\n");
             }
 
-            writer.write("\n========================================\n");
-            writer.write("SUMMARY\n");
-            writer.write("========================================\n");
-            writer.write("Total Accounts  : " + accounts.size() + "\n");
-            writer.write("Total Balance   : ₹" + String.format("%.2f", totalBalance) + "\n");
-            writer.write("Average Balance : ₹" + String.format("%.2f",
-                    accounts.isEmpty() ? 0 : totalBalance / accounts.size()) + "\n");
-            writer.write("========================================\n");
+            writer.text("\n========================================\n");
+            writer.text("SUMMARY\n");
+            writer.text("========================================\n");
+            writer.text("Total Accounts  : ").number(accounts.size()).newline();
+            writer.text("Total Balance   : ₹").amount(totalBalance).newline();
+            writer.text("Average Balance : ₹").amount(accounts.isEmpty() ? 0 : totalBalance / accounts.size()).newline();
+            writer.text("Low Balance     : ").number(lowCount)
+                    .text(" (below ₹").amount(lowThreshold).line(")");
+            writer.text("Critical Balance: ").number(criticalCount)
+                    .text(" (below ₹").amount(criticalThreshold).line(")");
+            writer.text("----------------------------------------\n");
+            for (AccountType type : AccountType.values()) {
+                writer.column(type.getDisplayName(), 16).text(": ").number(countByType[type.ordinal()])
+                        .text(" accounts, ₹").amount(balanceByType[type.ordinal()]).newline();
+            }
+            writer.text("========================================\n");
         }
 
         System.out.println("✓ Account summary report generated: " + filename);
@@ -85,45 +113,37 @@ public class ReportGenerator {
         Account account = accountManager.getAccount(accountId);
         List<Transaction> transactions = transactionManager.getTransactionHistory(accountId);
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            writer.write("========================================\n");
-            writer.write("     TRANSACTION HISTORY REPORT\n");
-            writer.write("========================================\n");
-            writer.write("Generated: " + LocalDateTime.now().format(
-                    DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")) + "\n");
-            writer.write("========================================\n\n");
-
-            writer.write("Account Details:\n");
-            writer.write("----------------------------------------\n");
-            writer.write("Account ID      : " + account.getAccountId() + "\n");
-            writer.write("Holder Name     : " + account.getHolderName() + "\n");
-            writer.write("Current Balance : ₹" + String.format("%.2f", account.getBalance()) + "\n");
-            writer.write("Account Type    : " + account.getAccountType().getDisplayName() + "\n");
-            writer.write("----------------------------------------\n\n");
-
-            writer.write("Transaction History:\n");
-            writer.write("Total Transactions: " + transactions.size() + "\n\n");
+        try (ReportWriter writer = new ReportWriter(filename)) {
+            writer.text("========================================\n");
+            writer.text("     TRANSACTION HISTORY REPORT\n");
+            writer.text("========================================\n");
+            writer.text("Generated: " + LocalDateTime.now().format(ReportWriter.DISPLAY_DATE_TIME) + "\n");
+            writer.text("========================================\n\n");
+
+            writer.text("Account Details:\n");
+            writer.text("----------------------------------------\n");
+            writer.text("Account ID      : " + account.getAccountId() + "\n");
+            writer.text("Holder Name     : " + account.getHolderName() + "\n");
+            writer.text("Current Balance : ₹").amount(account.getBalance()).newline();
+            writer.text("Account Type    : " + account.getAccountType().getDisplayName() + "\n");
+            writer.text("----------------------------------------\n\n");
+
+            writer.text("Transaction History:\n");
+            writer.text("Total Transactions: " + transactions.size() + "\n\n");
 
             if (transactions.isEmpty()) {
-                writer.write("No transactions found.\n");
+                writer.text("No transactions found.\n");
             } else {
-                writer.write(String.format("%-8s %-15s %-12s %-15s %-20s %s\n",
+                writer.text(String.format("%-20s %-15s %-12s %-15s %-20s %s\n",
                         "TXN ID", "TYPE", "AMOUNT", "BALANCE", "DATE", "DESCRIPTION"));
-                writer.write("=".repeat(100) + "\n");
+                writer.text("=".repeat(112) + "\n");
 
                 for (Transaction t : transactions) {
-                    writer.write(String.format("%-8d %-15s ₹%-11.2f ₹%-14.2f %-20s %s\n",
-                            t.getTransactionId(),
-                            t.getTransactionType().getDisplayName(),
-                            t.getAmount(),
-                            t.getBalanceAfter(),
-                            t.getTransactionDate().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")),
-                            t.getDescription()
-                    ));
+                    writeTransactionRow(writer, t, false);
                 }
             }
 
-            writer.write("\n========================================\n");
+            writer.text("\n========================================\n");
         }
 
         System.out.println("✓ Transaction report generated: " + filename);
@@ -137,36 +157,27 @@ public class ReportGenerator {
 
         List<Transaction> transactions = transactionManager.getAllTransactions();
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            writer.write("========================================\n");
-            writer.write("    ALL TRANSACTIONS REPORT\n");
-            writer.write("========================================\n");
-            writer.write("Generated: " + LocalDateTime.now().format(
-                    DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")) + "\n");
-            writer.write("Total Transactions: " + transactions.size() + "\n");
-            writer.write("========================================\n\n");
+        try (ReportWriter writer = new ReportWriter(filename)) {
+            writer.text("========================================\n");
+            writer.text("    ALL TRANSACTIONS REPORT\n");
+            writer.text("========================================\n");
+            writer.text("Generated: " + LocalDateTime.now().format(ReportWriter.DISPLAY_DATE_TIME) + "\n");
+            writer.text("Total Transactions: " + transactions.size() + "\n");
+            writer.text("========================================\n\n");
 
             if (transactions.isEmpty()) {
-                writer.write("No transactions found.\n");
+                writer.text("No transactions found.\n");
             } else {
-                writer.write(String.format("%-8s %-12s %-15s %-12s %-15s %-20s %s\n",
+                writer.text(String.format("%-20s %-12s %-15s %-12s %-15s %-20s %s\n",
                         "TXN ID", "ACCOUNT", "TYPE", "AMOUNT", "BALANCE", "DATE", "DESCRIPTION"));
-                writer.write("=".repeat(120) + "\n");
+                writer.text("=".repeat(132) + "\n");
 
                 for (Transaction t : transactions) {
-                    writer.write(String.format("%-8d %-12s %-15s ₹%-11.2f ₹%-14.2f %-20s %s\n",
-                            t.getTransactionId(),
-                            t.getAccountId(),
-                            t.getTransactionType().getDisplayName(),
-                            t.getAmount(),
-                            t.getBalanceAfter(),
-                            t.getTransactionDate().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")),
-                            t.getDescription()
-                    ));
+                    writeTransactionRow(writer, t, true);
                 }
             }
 
-            writer.write("\n========================================\n");
+            writer.text("\n========================================\n");
         }
 
         System.out.println("✓ All transactions report generated: " + filename);
@@ -178,77 +189,228 @@ public class ReportGenerator {
     public void generateLowBalanceReport(double threshold) throws Exception {
         String filename = REPORTS_FOLDER + "low_balance_alert_" + getTimestamp() + ".txt";
 
-        List<Account> allAccounts = accountManager.getAllAccounts();
-        List<Account> lowBalanceAccounts = allAccounts.stream()
-                .filter(acc -> acc.getBalance() < threshold)
-                .toList();
+        try (BalanceSnapshots.Snapshot snapshot = BalanceSnapshots.getInstance().open();
+             ReportWriter writer = new ReportWriter(filename)) {
+            List<Account> lowBalanceAccounts = snapshot.getAccounts().stream()
+                    .filter(acc -> snapshot.getBalance(acc.getAccountId()) < threshold)
+                    .toList();
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            writer.write("========================================\n");
-            writer.write("     LOW BALANCE ALERT REPORT\n");
-            writer.write("========================================\n");
-            writer.write("Generated: " + LocalDateTime.now().format(
-                    DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")) + "\n");
-            writer.write("Threshold: ₹" + String.format("%.2f", threshold) + "\n");
-            writer.write("========================================\n\n");
+            writer.text("========================================\n");
+            writer.text("     LOW BALANCE ALERT REPORT\n");
+            writer.text("========================================\n");
+            writer.text("Generated: " + LocalDateTime.now().format(ReportWriter.DISPLAY_DATE_TIME) + "\n");
+            writer.text("Threshold: ₹" + String.format("%.2f", threshold) + "\n");
+            writer.text("As of posting #").number(snapshot.getSequence()).newline();
+            writer.text("========================================\n\n");
 
-            writer.write("Accounts Below Threshold: " + lowBalanceAccounts.size() + "\n\n");
+            writer.text("Accounts Below Threshold: " + lowBalanceAccounts.size() + "\n\n");
 
             if (lowBalanceAccounts.isEmpty()) {
-                writer.write("No accounts found with balance below threshold.\n");
+                writer.text("No accounts found with balance below threshold.\n");
             } else {
                 for (Account account : lowBalanceAccounts) {
-                    writer.write("----------------------------------------\n");
-                    writer.write("Account ID      : " + account.getAccountId() + "\n");
-                    writer.write("Holder Name     : " + account.getHolderName() + "\n");
-                    writer.write("Current Balance : ₹" + String.format("%.2f", account.getBalance()) + "\n");
-                    writer.write("Email           : " + account.getEmail() + "\n");
-                    writer.write("Phone           : " + account.getPhone() + "\n");
-                    writer.write("⚠️ WARNING: Balance below minimum threshold!\n");
-                    writer.write("----------------------------------------\n\n");
+                    writer.text("----------------------------------------\n");
+                    writer.text("Account ID      : " + account.getAccountId() + "\n");
+                    writer.text("Holder Name     : " + account.getHolderName() + "\n");
+                    writer.text("Current Balance : ₹").amount(snapshot.getBalance(account.getAccountId())).newline();
+                    writer.text("Email           : " + account.getEmail() + "\n");
+                    writer.text("Phone           : " + account.getPhone() + "\n");
+                    writer.text("⚠️ WARNING: Balance below minimum threshold!\n");
+                    writer.text("----------------------------------------\n\n");
                 }
             }
 
-            writer.write("\n========================================\n");
+            writer.text("\n========================================\n");
         }
 
         System.out.println("✓ Low balance report generated: " + filename);
     }
 
     /**
-     * Export Account Data to CSV
+     * Generate Daily Summary Report: every account with postings on one day
+     * Served from the daily summaries, not the ledger
+     */
+    public void generateDailySummaryReport(LocalDate date) throws Exception {
+        String filename = REPORTS_FOLDER + "daily_summary_" + date + "_" + getTimestamp() + ".txt";
+
+        List<DailySummary> summaries = DailySummaries.getInstance().getSummaries(date, date, null);
+        DailySummary total = new DailySummary(null, date);
+        for (DailySummary summary : summaries) {
+            total.merge(summary);
+        }
+
+        try (ReportWriter writer = new ReportWriter(filename)) {
+            writer.text("========================================\n");
+            writer.text("        DAILY SUMMARY REPORT\n");
+            writer.text("========================================\n");
+            writer.text("Generated: " + LocalDateTime.now().format(ReportWriter.DISPLAY_DATE_TIME) + "\n");
+            writer.text("Date     : " + date.format(ReportWriter.DISPLAY_DATE) + "\n");
+            writer.text("Accounts with postings: " + summaries.size() + "\n");
+            writer.text("========================================\n\n");
+
+            if (summaries.isEmpty()) {
+                writer.text("No postings on this day.\n");
+            } else {
+                writeSummaryHeader(writer, "ACCOUNT", true);
+                for (DailySummary summary : summaries) {
+                    writer.column(summary.getAccountId(), 12).text(" ");
+                    writeSummaryRow(writer, summary, true);
+                }
+            }
+
+            writeSummaryTotals(writer, total);
+        }
+
+        System.out.println("✓ Daily summary report generated: " + filename);
+    }
+
+    /**
+     * Generate Monthly Summary Report: one line per day of the month
+     * For one account with its opening and closing balances, or (account ID blank) the
+     * totals of all accounts. Served from the daily summaries, not the ledger.
+     */
+    public void generateMonthlySummaryReport(YearMonth month, String accountId) throws Exception {
+        boolean oneAccount = accountId != null && !accountId.isEmpty();
+        String filename = REPORTS_FOLDER + "monthly_summary_" + month + (oneAccount ? "_" + accountId : "") +
+                "_" + getTimestamp() + ".txt";
+
+        Account account = oneAccount ? accountManager.getAccount(accountId) : null;
+        List<DailySummary> days = oneAccount
+                ? DailySummaries.getInstance().getSummaries(month.atDay(1), month.atEndOfMonth(), accountId)
+                : DailySummaries.getInstance().getDailyTotals(month.atDay(1), month.atEndOfMonth());
+        DailySummary total = new DailySummary(accountId, month.atDay(1));
+        for (DailySummary day : days) {
+            total.merge(day);
+        }
+
+        try (ReportWriter writer = new ReportWriter(filename)) {
+            writer.text("========================================\n");
+            writer.text("       MONTHLY SUMMARY REPORT\n");
+            writer.text("========================================\n");
+            writer.text("Generated: " + LocalDateTime.now().format(ReportWriter.DISPLAY_DATE_TIME) + "\n");
+            writer.text("Month    : " + month.getMonth() + " " + month.getYear() + "\n");
+            if (oneAccount) {
+                writer.text("Account  : " + account.getAccountId() + " (" + account.getHolderName() + ")\n");
+            } else {
+                writer.text("Accounts : all\n");
+            }
+            writer.text("========================================\n\n");
+
+            if (days.isEmpty()) {
+                writer.text("No postings in this month.\n");
+            } else {
+                writeSummaryHeader(writer, "DATE", oneAccount);
+                for (DailySummary day : days) {
+                    writer.column(day.getDate().format(ReportWriter.DISPLAY_DATE), 12).text(" ");
+                    writeSummaryRow(writer, day, oneAccount);
+                }
+            }
+
+            writeSummaryTotals(writer, total);
+            if (oneAccount && !days.isEmpty()) {
+                writer.text("Opening Balance : ₹").amount(total.getOpeningBalance()).newline();
+                writer.text("Closing Balance : ₹").amount(total.getClosingBalance()).newline();
+                writer.text("========================================\n");
+            }
+        }
+
+        System.out.println("✓ Monthly summary report generated: " + filename);
+    }
+
+    private static void writeSummaryHeader(ReportWriter writer, String first, boolean withBalances) throws IOException {
+        writer.column(first, 12).text(" ").column("POSTINGS", 9).text(" ");
+        if (withBalances) {
+            writer.column("OPENING", 15).text(" ");
+        }
+        for (TransactionType type : TransactionType.values()) {
+            writer.column(type.getDisplayName().toUpperCase(), 15).text(" ");
+        }
+        if (withBalances) {
+            writer.column("CLOSING", 15);
+        }
+        writer.newline();
+        writer.repeat('=', withBalances ? 134 : 102).newline();
+    }
+
+    /**
+     * Rest of a summary line after its first column
+     */
+    private static void writeSummaryRow(ReportWriter writer, DailySummary summary, boolean withBalances)
+            throws IOException {
+        writer.column(summary.getTotalCount(), 9).text(" ");
+        if (withBalances) {
+            writer.text("₹").amountColumn(summary.getOpeningBalance(), 14).text(" ");
+        }
+        for (TransactionType type : TransactionType.values()) {
+            writer.text("₹").amountColumn(summary.getAmount(type), 14).text(" ");
+        }
+        if (withBalances) {
+            writer.text("₹").amountColumn(summary.getClosingBalance(), 14);
+        }
+        writer.newline();
+    }
+
+    private static void writeSummaryTotals(ReportWriter writer, DailySummary total) throws IOException {
+        writer.text("\n========================================\n");
+        writer.text("TOTALS\n");
+        writer.text("========================================\n");
+        for (TransactionType type : TransactionType.values()) {
+            writer.column(type.getDisplayName(), 16).text(": ").number(total.getCount(type))
+                    .text(" postings, ₹").amount(total.getAmount(type)).newline();
+        }
+        writer.text("Net Change      : ₹").amount(total.getNetChange()).newline();
+        writer.text("========================================\n");
+    }
+
+    /**
+     * Export Account Data to CSV (balances as of one snapshot)
      */
     public void exportAccountsToCSV() throws Exception {
         String filename = REPORTS_FOLDER + "accounts_export_" + getTimestamp() + ".csv";
 
-        List<Account> accounts = accountManager.getAllAccounts();
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+        try (BalanceSnapshots.Snapshot snapshot = BalanceSnapshots.getInstance().open();
+             ReportWriter writer = new ReportWriter(filename)) {
             // Write CSV header
-            writer.write("Account_ID,Holder_Name,Balance,Account_Type,Email,Phone,Status,Created_Date\n");
+            writer.text("Account_ID,Holder_Name,Balance,Account_Type,Email,Phone,Status,Created_Date\n");
 
             // Write data
-            for (Account account : accounts) {
-                writer.write(String.format("%s,%s,%.2f,%s,%s,%s,%s,%s\n",
-                        account.getAccountId(),
-                        account.getHolderName(),
-                        account.getBalance(),
-                        account.getAccountType().name(),
-                        account.getEmail(),
-                        account.getPhone(),
-                        account.getStatus(),
-                        account.getCreatedDate().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"))
-                ));
+            for (Account account : snapshot.getAccounts()) {
+                writer.text(account.getAccountId()).text(",")
+                        .text(account.getHolderName()).text(",")
+                        .amount(snapshot.getBalance(account.getAccountId())).text(",")
+                        .text(account.getAccountType().name()).text(",")
+                        .text(account.getEmail()).text(",")
+                        .text(account.getPhone()).text(",")
+                        .text(account.getStatus().toString()).text(",")
+                        .dateTime(account.getCreatedDate()).newline();
             }
         }
 
         System.out.println("✓ Accounts exported to CSV: " + filename);
     }
 
+    /**
+     * One line of a transaction table
+     * Same layout as "%-20d [%-12s] %-15s ₹%-11.2f ₹%-14.2f %-20s %s", without String.format
+     */
+    public static void writeTransactionRow(ReportWriter writer, Transaction t, boolean withAccount)
+            throws IOException {
+        writer.column(t.getTransactionId(), 20).text(" ");
+        if (withAccount) {
+            writer.column(t.getAccountId(), 12).text(" ");
+        }
+        writer.column(t.getTransactionType().getDisplayName(), 15).text(" ₹")
+                .amountColumn(t.getAmount(), 11).text(" ₹")
+                .amountColumn(t.getBalanceAfter(), 14).text(" ")
+                .dateTimeColumn(t.getTransactionDate(), 20).text(" ")
+                .text(String.valueOf(t.getDescription()))
+                .newline();
+    }
+
     /**
      * Get timestamp for filename
      */
     private String getTimestamp() {
-        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        return LocalDateTime.now().format(ReportWriter.FILE_TIMESTAMP);
     }
 }
\ No newline at end of file
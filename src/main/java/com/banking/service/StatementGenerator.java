@@ -0,0 +1,425 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.model.Account;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.DatabaseConfig;
+import main.java.com.banking.util.ReportWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Monthly Statement Run
+ * Writes one statement file per account for a calendar month into
+ * reports/statements/<yyyy-MM>/<account_id>.txt.
+ *
+ * Accounts are split into partitions of contiguous account IDs, processed by a bounded
+ * worker pool. Each partition reads its month of transactions with one range query,
+ * streamed in account order, and writes each statement as its rows go by, so only one
+ * account's statement is open per worker at a time. With several shards a partition
+ * holds accounts of one shard only.
+ *
+ * Each statement is written to a .tmp file and renamed when complete, so a finished
+ * statement file is also the record that the account is done: after a crash, running
+ * the same month again only generates the missing statements. summary.txt is written
+ * when the run completes.
+ */
+public class StatementGenerator {
+
+    private static final String STATEMENTS_FOLDER = "reports/statements/";
+    private static final DateTimeFormatter PERIOD_DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private static final String MONTH_SQL = "SELECT * FROM transaction_legs " +
+            "WHERE account_id >= ? AND account_id <= ? AND transaction_date >= ? AND transaction_date < ? " +
+            "AND status = 'SUCCESS' ORDER BY account_id, transaction_id";
+
+    // Accounts with no rows up to the end of the month: when they were opened
+    private static final String CREATED_SQL = "SELECT created_date FROM accounts WHERE account_id = ?";
+
+    private final AccountManager accountManager;
+    private final TransactionManager transactionManager;
+    private final int threads;
+    private final int partitionSize;
+    private final int fetchSize;
+
+    public StatementGenerator() {
+        this.accountManager = AccountManager.getInstance();
+        this.transactionManager = TransactionManager.getInstance();
+        this.threads = Math.max(1, ConfigManager.getStatementThreads());
+        this.partitionSize = Math.max(1, ConfigManager.getStatementPartitionSize());
+        this.fetchSize = ConfigManager.getExportFetchSize();
+    }
+
+    /**
+     * Generate (or finish generating) the statements of one month
+     */
+    public StatementRunResult generateMonthlyStatements(YearMonth month) throws Exception {
+        Path folder = Paths.get(STATEMENTS_FOLDER, month.toString());
+        Files.createDirectories(folder);
+
+        // Accounts whose statement is already complete are skipped
+        List<Account> accounts = new ArrayList<>(accountManager.getAllAccounts());
+        accounts.sort(Comparator.comparing(Account::getAccountId));
+
+        StatementRunResult result = new StatementRunResult(month, folder.toString());
+        List<Account> pending = new ArrayList<>(accounts.size());
+        List<List<Account>> pendingByShard = new ArrayList<>();
+        for (int shard = 0; shard < DatabaseConfig.getShardCount(); shard++) {
+            pendingByShard.add(new ArrayList<>());
+        }
+        for (Account account : accounts) {
+            if (Files.exists(statementFile(folder, account.getAccountId()))) {
+                result.skipped++;
+            } else {
+                pending.add(account);
+                pendingByShard.get(DatabaseConfig.shardOf(account.getAccountId())).add(account);
+            }
+        }
+
+        System.out.println("Generating statements for " + month + ": " + pending.size() + " accounts" +
+                (result.skipped > 0 ? " (" + result.skipped + " already done)" : ""));
+
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "statement-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            CompletionService<PartitionResult> completion = new ExecutorCompletionService<>(workers);
+            int partitions = 0;
+            for (int shard = 0; shard < pendingByShard.size(); shard++) {
+                List<Account> shardPending = pendingByShard.get(shard);
+                int partitionShard = shard;
+                for (int i = 0; i < shardPending.size(); i += partitionSize) {
+                    List<Account> partition = shardPending.subList(i, Math.min(i + partitionSize, shardPending.size()));
+                    completion.submit(() -> generatePartition(month, folder, partitionShard, partition));
+                    partitions++;
+                }
+            }
+
+            int lastPercent = -1;
+            for (int i = 0; i < partitions; i++) {
+                PartitionResult partition = completion.take().get();
+                result.generated += partition.statements;
+                result.transactions += partition.transactions;
+
+                int percent = (int) (result.generated * 100 / pending.size());
+                if (percent / 10 != lastPercent / 10) {
+                    System.out.println("  … " + result.generated + "/" + pending.size() + " statements (" + percent + "%)");
+                    lastPercent = percent;
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        result.elapsedNanos = System.nanoTime() - start;
+        writeSummary(folder, result);
+        return result;
+    }
+
+    // ==================== PARTITION ====================
+
+    private PartitionResult generatePartition(YearMonth month, Path folder, int shard, List<Account> accounts)
+            throws SQLException, IOException {
+        String firstId = accounts.get(0).getAccountId();
+        String lastId = accounts.get(accounts.size() - 1).getAccountId();
+        Timestamp monthStart = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp monthEnd = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+
+        Map<String, Account> wanted = new HashMap<>(accounts.size() * 2);
+        for (Account account : accounts) {
+            wanted.put(account.getAccountId(), account);
+        }
+        Set<String> written = new HashSet<>(accounts.size() * 2);
+        PartitionResult result = new PartitionResult();
+
+        Map<String, Double> openingBalances;
+        try (Connection conn = DatabaseConfig.getConnection(shard)) {
+            openingBalances = loadOpeningBalances(conn, firstId, lastId, monthStart);
+
+            conn.setReadOnly(true);
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(MONTH_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(fetchSize);
+                stmt.setString(1, firstId);
+                stmt.setString(2, lastId);
+                stmt.setTimestamp(3, monthStart);
+                stmt.setTimestamp(4, monthEnd);
+
+                AccountStatement current = null;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Transaction t = transactionManager.mapTransaction(rs);
+                        Account account = wanted.get(t.getAccountId());
+                        if (account == null) {
+                            continue; // done in an earlier run, or not an active account
+                        }
+
+                        if (current == null || !current.account.getAccountId().equals(t.getAccountId())) {
+                            if (current != null) {
+                                current.finish();
+                                written.add(current.account.getAccountId());
+                                result.statements++;
+                            }
+                            Double opening = openingBalances.get(t.getAccountId());
+                            current = new AccountStatement(folder, month, account,
+                                    opening != null ? opening : t.getBalanceAfter() - signedAmount(t));
+                        }
+                        current.add(t);
+                        result.transactions++;
+                    }
+                } catch (SQLException | IOException | RuntimeException e) {
+                    if (current != null) {
+                        current.abandon();
+                    }
+                    throw e;
+                }
+                if (current != null) {
+                    current.finish();
+                    written.add(current.account.getAccountId());
+                    result.statements++;
+                }
+            }
+
+            // Accounts without activity this month still get a statement
+            for (Account account : accounts) {
+                if (!written.contains(account.getAccountId())) {
+                    Double opening = openingBalances.get(account.getAccountId());
+                    AccountStatement statement = new AccountStatement(folder, month, account,
+                            opening != null ? opening : quietOpening(conn, account, monthEnd));
+                    statement.finish();
+                    result.statements++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Balance through a month of an account with no ledger rows up to the end of that month
+     * Zero if the account was opened after the month; otherwise what it held before its first
+     * later posting, or its current balance if it has never been posted to at all
+     */
+    private double quietOpening(Connection conn, Account account, Timestamp monthEnd) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(CREATED_SQL)) {
+            stmt.setString(1, account.getAccountId());
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next() && rs.getTimestamp(1) != null && !rs.getTimestamp(1).before(monthEnd)) {
+                return 0;
+            }
+        }
+
+        LedgerEdges.Edge first = LedgerEdges.first(conn,
+                "{account} = ? AND transaction_date >= ? AND status = 'SUCCESS'",
+                account.getAccountId(), monthEnd).get(account.getAccountId());
+        if (first != null) {
+            return first.balanceBefore();
+        }
+        return account.getBalance();
+    }
+
+    /**
+     * Balance at the start of the month: balance_after of each account's last earlier row
+     */
+    private Map<String, Double> loadOpeningBalances(Connection conn, String firstId, String lastId,
+                                                    Timestamp monthStart) throws SQLException {
+        Map<String, LedgerEdges.Edge> lastRows = LedgerEdges.last(conn,
+                "{account} >= ? AND {account} <= ? AND transaction_date < ? AND status = 'SUCCESS'",
+                firstId, lastId, monthStart);
+
+        Map<String, Double> balances = new HashMap<>(lastRows.size() * 2);
+        for (Map.Entry<String, LedgerEdges.Edge> entry : lastRows.entrySet()) {
+            balances.put(entry.getKey(), entry.getValue().balanceAfter());
+        }
+        return balances;
+    }
+
+    private static double signedAmount(Transaction t) {
+        return t.getTransactionType().isCredit() ? t.getAmount() : -t.getAmount();
+    }
+
+    private static Path statementFile(Path folder, String accountId) {
+        return folder.resolve(accountId + ".txt");
+    }
+
+    private void writeSummary(Path folder, StatementRunResult result) throws IOException {
+        try (ReportWriter writer = new ReportWriter(folder.resolve("summary.txt"))) {
+            writer.line("========================================");
+            writer.line("     MONTHLY STATEMENT RUN SUMMARY");
+            writer.line("========================================");
+            writer.text("Period          : ").line(result.month.toString());
+            writer.text("Completed       : ").line(LocalDateTime.now().format(ReportWriter.DISPLAY_DATE_TIME));
+            writer.text("Generated       : ").number(result.generated).newline();
+            writer.text("Already done    : ").number(result.skipped).newline();
+            writer.text("Transactions    : ").number(result.transactions).newline();
+            writer.text("Elapsed         : ").number(result.elapsedNanos / 1_000_000).line(" ms");
+            writer.line("========================================");
+        }
+    }
+
+    // ==================== ONE STATEMENT ====================
+
+    /**
+     * A statement being written; becomes visible under its final name in finish()
+     */
+    private static final class AccountStatement {
+        final Account account;
+        final Path file;
+        final Path tmp;
+        final ReportWriter writer;
+        final double opening;
+
+        double closing;
+        double credits;
+        double debits;
+        int creditCount;
+        int debitCount;
+        boolean hasRows;
+
+        AccountStatement(Path folder, YearMonth month, Account account, double opening) throws IOException {
+            this.account = account;
+            this.file = statementFile(folder, account.getAccountId());
+            this.tmp = folder.resolve(account.getAccountId() + ".txt.tmp");
+            this.writer = new ReportWriter(tmp);
+            this.opening = opening;
+            this.closing = opening;
+
+            LocalDate first = month.atDay(1);
+            LocalDate last = month.atEndOfMonth();
+
+            writer.line("========================================");
+            writer.line("       MONTHLY ACCOUNT STATEMENT");
+            writer.line("========================================");
+            writer.text("Period          : ").text(first.format(PERIOD_DATE)).text(" to ").line(last.format(PERIOD_DATE));
+            writer.text("Generated       : ").line(LocalDateTime.now().format(ReportWriter.DISPLAY_DATE_TIME));
+            writer.line("========================================");
+            writer.text("Account ID      : ").line(account.getAccountId());
+            writer.text("Holder Name     : ").line(account.getHolderName());
+            writer.text("Account Type    : ").line(account.getAccountType().getDisplayName());
+            writer.line("----------------------------------------");
+            writer.text("Opening Balance : ₹").amount(opening).newline();
+            writer.line("----------------------------------------");
+            writer.newline();
+        }
+
+        void add(Transaction t) throws IOException {
+            if (!hasRows) {
+                writer.text(String.format("%-20s %-15s %-12s %-15s %-20s %s\n",
+                        "TXN ID", "TYPE", "AMOUNT", "BALANCE", "DATE", "DESCRIPTION"));
+                writer.repeat('=', 112).newline();
+                hasRows = true;
+            }
+            ReportGenerator.writeTransactionRow(writer, t, false);
+
+            if (t.getTransactionType().isCredit()) {
+                credits += t.getAmount();
+                creditCount++;
+            } else {
+                debits += t.getAmount();
+                debitCount++;
+            }
+            closing = t.getBalanceAfter();
+        }
+
+        void finish() throws IOException {
+            if (!hasRows) {
+                writer.line("No transactions in this period.");
+            }
+            writer.newline();
+            writer.line("========================================");
+            writer.text("Credits         : ₹").amount(credits).text(" (").number(creditCount).line(")");
+            writer.text("Debits          : ₹").amount(debits).text(" (").number(debitCount).line(")");
+            writer.text("Closing Balance : ₹").amount(closing).newline();
+            writer.line("========================================");
+            writer.close();
+
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        void abandon() {
+            try {
+                writer.close();
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                // Left for the next run to overwrite
+            }
+        }
+    }
+
+    // ==================== RESULTS ====================
+
+    private static final class PartitionResult {
+        int statements;
+        long transactions;
+    }
+
+    /**
+     * Outcome of a statement run
+     */
+    public static class StatementRunResult {
+        private final YearMonth month;
+        private final String folder;
+        private long generated;
+        private long skipped;
+        private long transactions;
+        private long elapsedNanos;
+
+        StatementRunResult(YearMonth month, String folder) {
+            this.month = month;
+            this.folder = folder;
+        }
+
+        public long getGenerated() {
+            return generated;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getTransactions() {
+            return transactions;
+        }
+
+        public String getFolder() {
+            return folder;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return String.format("%d statements for %s (%d transactions) in %.2f s, %.0f statements/s%s -> %s",
+                    generated, month, transactions, seconds, seconds > 0 ? generated / seconds : 0,
+                    skipped > 0 ? ", " + skipped + " already done" : "", folder + File.separator);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.model.Account;
+import main.java.com.banking.model.AccountStatus;
+import main.java.com.banking.model.AccountType;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.model.TransactionStatus;
+import main.java.com.banking.model.TransactionType;
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * System Aggregates
+ * Running totals for statistics and report summaries, kept up to date as accounts are
+ * created, deleted and posted to, so reading them never walks the account list:
+ *   - account count and total balance per AccountType and per AccountStatus
+ *   - accounts below the low and critical balance thresholds
+ *   - transaction count and amount per TransactionType
+ *
+ * Every registered account reports its balance changes through Account.BalanceListener
+ * (under the account's balance lock, so old/new pairs arrive in order). Amounts are
+ * summed in paise on LongAdders, which spread concurrent updates over striped cells.
+ * Hot accounts change through their slots without a single lock; the few configured
+ * ones are read live instead.
+ */
+public class SystemAggregates implements Account.BalanceListener {
+
+    private static SystemAggregates instance;
+
+    private final double lowThreshold;
+    private final double criticalThreshold;
+
+    private final LongAdder[] accountsByType = adders(AccountType.values().length);
+    private final LongAdder[] paiseByType = adders(AccountType.values().length);
+    private final LongAdder[] accountsByStatus = adders(AccountStatus.values().length);
+    private final LongAdder[] paiseByStatus = adders(AccountStatus.values().length);
+    private final LongAdder belowLow = new LongAdder();
+    private final LongAdder belowCritical = new LongAdder();
+
+    private final LongAdder[] transactionsByType = adders(TransactionType.values().length);
+    private final LongAdder[] transactionPaiseByType = adders(TransactionType.values().length);
+
+    private final Set<Account> hotAccounts = ConcurrentHashMap.newKeySet();
+
+    private SystemAggregates() {
+        this.lowThreshold = ConfigManager.getLowBalanceThreshold();
+        this.criticalThreshold = ConfigManager.getCriticalBalanceThreshold();
+        loadTransactionTotals();
+    }
+
+    public static synchronized SystemAggregates getInstance() {
+        if (instance == null) {
+            instance = new SystemAggregates();
+        }
+        return instance;
+    }
+
+    // ==================== UPDATES ====================
+
+    /**
+     * Start counting an account (it has just entered the registry)
+     */
+    public void track(Account account) {
+        double balance = account.addBalanceListener(this);
+        accountsByType[account.getAccountType().ordinal()].increment();
+        accountsByStatus[account.getStatus().ordinal()].increment();
+
+        if (account.isHotAccount()) {
+            hotAccounts.add(account);
+        } else {
+            addBalance(account, account.getStatus(), balance, 1);
+        }
+    }
+
+    /**
+     * Stop counting an account (it has left the registry)
+     */
+    public void untrack(Account account) {
+        double balance = account.removeBalanceListener(this);
+        accountsByType[account.getAccountType().ordinal()].decrement();
+        accountsByStatus[account.getStatus().ordinal()].decrement();
+
+        if (!hotAccounts.remove(account)) {
+            addBalance(account, account.getStatus(), balance, -1);
+        }
+    }
+
+    /**
+     * Count the legs of a posting that was just committed
+     */
+    public void recordTransactions(Transaction... legs) {
+        for (Transaction leg : legs) {
+            if (leg.getStatus() == TransactionStatus.SUCCESS) {
+                int type = leg.getTransactionType().ordinal();
+                transactionsByType[type].increment();
+                transactionPaiseByType[type].add(toPaise(leg.getAmount()));
+            }
+        }
+    }
+
+    @Override
+    public void balanceChanged(Account account, double oldBalance, double newBalance) {
+        long delta = toPaise(newBalance) - toPaise(oldBalance);
+        paiseByType[account.getAccountType().ordinal()].add(delta);
+        paiseByStatus[account.getStatus().ordinal()].add(delta);
+
+        adjustThreshold(belowLow, oldBalance < lowThreshold, newBalance < lowThreshold);
+        adjustThreshold(belowCritical, oldBalance < criticalThreshold, newBalance < criticalThreshold);
+    }
+
+    @Override
+    public void statusChanged(Account account, AccountStatus oldStatus, AccountStatus newStatus, double balance) {
+        accountsByStatus[oldStatus.ordinal()].decrement();
+        accountsByStatus[newStatus.ordinal()].increment();
+        if (!account.isHotAccount()) {
+            long paise = toPaise(balance);
+            paiseByStatus[oldStatus.ordinal()].add(-paise);
+            paiseByStatus[newStatus.ordinal()].add(paise);
+        }
+    }
+
+    // ==================== READS ====================
+
+    public long getAccountCount() {
+        return sum(accountsByType);
+    }
+
+    public long getAccountCount(AccountType type) {
+        return accountsByType[type.ordinal()].sum();
+    }
+
+    public long getAccountCount(AccountStatus status) {
+        return accountsByStatus[status.ordinal()].sum();
+    }
+
+    public double getTotalBalance() {
+        double hot = 0;
+        for (Account account : hotAccounts) {
+            hot += account.getBalance();
+        }
+        return sum(paiseByType) / 100.0 + hot;
+    }
+
+    public double getAverageBalance() {
+        long count = getAccountCount();
+        return count > 0 ? getTotalBalance() / count : 0;
+    }
+
+    public double getTotalBalance(AccountType type) {
+        double hot = 0;
+        for (Account account : hotAccounts) {
+            if (account.getAccountType() == type) {
+                hot += account.getBalance();
+            }
+        }
+        return paiseByType[type.ordinal()].sum() / 100.0 + hot;
+    }
+
+    public double getTotalBalance(AccountStatus status) {
+        double hot = 0;
+        for (Account account : hotAccounts) {
+            if (account.getStatus() == status) {
+                hot += account.getBalance();
+            }
+        }
+        return paiseByStatus[status.ordinal()].sum() / 100.0 + hot;
+    }
+
+    /**
+     * Accounts below system.low.balance.threshold
+     */
+    public long getLowBalanceCount() {
+        return belowLow.sum() + countHotBelow(lowThreshold);
+    }
+
+    /**
+     * Accounts below system.critical.balance.threshold
+     */
+    public long getCriticalBalanceCount() {
+        return belowCritical.sum() + countHotBelow(criticalThreshold);
+    }
+
+    public long getTransactionCount() {
+        return sum(transactionsByType);
+    }
+
+    public long getTransactionCount(TransactionType type) {
+        return transactionsByType[type.ordinal()].sum();
+    }
+
+    public double getTransactionAmount(TransactionType type) {
+        return transactionPaiseByType[type.ordinal()].sum() / 100.0;
+    }
+
+    public double getLowThreshold() {
+        return lowThreshold;
+    }
+
+    public double getCriticalThreshold() {
+        return criticalThreshold;
+    }
+
+    // ==================== INTERNALS ====================
+
+    private void addBalance(Account account, AccountStatus status, double balance, int sign) {
+        long paise = toPaise(balance) * sign;
+        paiseByType[account.getAccountType().ordinal()].add(paise);
+        paiseByStatus[status.ordinal()].add(paise);
+        if (balance < lowThreshold) {
+            belowLow.add(sign);
+        }
+        if (balance < criticalThreshold) {
+            belowCritical.add(sign);
+        }
+    }
+
+    private static void adjustThreshold(LongAdder counter, boolean wasBelow, boolean isBelow) {
+        if (wasBelow != isBelow) {
+            counter.add(isBelow ? 1 : -1);
+        }
+    }
+
+    private long countHotBelow(double threshold) {
+        long count = 0;
+        for (Account account : hotAccounts) {
+            if (account.getBalance() < threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Starting point for the transaction counters: everything already in the ledger
+     * (summed over all shards)
+     */
+    private void loadTransactionTotals() {
+        String sql = "SELECT transaction_type, COUNT(*), SUM(amount) FROM transaction_legs " +
+                "WHERE status = 'SUCCESS' GROUP BY transaction_type";
+
+        try {
+            DatabaseConfig.onAllShards(shard -> {
+                try (Connection conn = DatabaseConfig.getConnection(shard);
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                    ResultSet rs = stmt.executeQuery();
+                    while (rs.next()) {
+                        int type = TransactionType.valueOf(rs.getString(1)).ordinal();
+                        transactionsByType[type].add(rs.getLong(2));
+                        transactionPaiseByType[type].add(rs.getBigDecimal(3).movePointRight(2).longValue());
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error loading transaction totals: " + e.getMessage());
+        }
+    }
+
+    private static long toPaise(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static long sum(LongAdder[] adders) {
+        long total = 0;
+        for (LongAdder adder : adders) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,607 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.model.BankingEvent;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.model.TransactionStatus;
+import main.java.com.banking.model.TransactionType;
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.DatabaseConfig;
+import main.java.com.banking.util.TransactionIdGenerator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Transaction Analytics
+ * Optional in-memory column store of recent SUCCESS ledger rows for ad-hoc analytics:
+ * volume by type, hour-of-day histograms, top movers. Each row is four primitive columns
+ * (account index, type ordinal, amount in paise, epoch-millis timestamp), about 21 bytes,
+ * so tens of millions of rows fit in memory and a query scans plain arrays with a parallel
+ * stream of blocks, each block aggregating into its own small array.
+ *
+ * Filled with the last analytics.load.days of the ledger on start, then kept current from
+ * the postings published on the TransactionEventBus (this node's postings only). When the
+ * store reaches analytics.capacity rows the oldest half is dropped.
+ *
+ * The bus subscription is DROP_OLDEST, so a busy store never holds up postings. When the
+ * event sequence shows that events were dropped, the store is emptied and reloaded from
+ * the ledger in the background, the same way as on start; queries see it refill meanwhile.
+ *
+ * Rows are appended under a lock and published by bumping the row count; a query reads
+ * the count once and scans that many rows, so it never waits for postings or sees a row
+ * half written. Dropping old rows copies the rest into new arrays, which queries already
+ * running keep using.
+ */
+public class TransactionAnalytics {
+
+    private static TransactionAnalytics instance;
+
+    private static final int BLOCK_ROWS = 1 << 16;
+    private static final int LOAD_CHUNK = 4096;
+    private static final long RECENT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int loadDays;
+
+    // Account ID dictionary; ids is replaced (never changed in place) when it grows
+    private final Map<String, Integer> accountIndex = new HashMap<>();
+    private volatile String[] accountIds = new String[1024];
+
+    private volatile Columns columns;
+
+    // Start-up load: rows posted right before it may also arrive on the bus (see start)
+    private volatile long loadCutoffId = Long.MAX_VALUE;
+    private boolean loading;
+    private final List<Transaction> late = new ArrayList<>();
+    private final Set<Long> loadedRecentIds = new HashSet<>();
+    private boolean reloadAgain = false; // events were dropped during a load
+    private long resyncs = 0;
+
+    private long lastSequence = 0; // Only used on the event delivery thread
+
+    private TransactionAnalytics() {
+        this.enabled = ConfigManager.isAnalyticsEnabled();
+        this.capacity = Math.max(2 * LOAD_CHUNK, ConfigManager.getAnalyticsCapacity());
+        this.loadDays = ConfigManager.getAnalyticsLoadDays();
+    }
+
+    public static synchronized TransactionAnalytics getInstance() {
+        if (instance == null) {
+            instance = new TransactionAnalytics();
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Subscribe to postings, then load the recent ledger from every shard
+     */
+    public void start() {
+        if (!enabled || columns != null) {
+            return;
+        }
+
+        synchronized (this) {
+            beginLoad();
+        }
+        TransactionEventBus.getInstance().subscribe("analytics", ConfigManager.getEventBufferSize(),
+                TransactionEventBus.OverflowPolicy.DROP_OLDEST, this::onEvent);
+        load();
+    }
+
+    /**
+     * Empty the store and cut off a load at now; postings up to the cut-off wait in late
+     */
+    private void beginLoad() {
+        columns = new Columns(Math.min(capacity, 1 << 20));
+        loadCutoffId = TransactionIdGenerator.lastIdAt(System.currentTimeMillis());
+        loadedRecentIds.clear();
+        loading = true;
+    }
+
+    /**
+     * Load the recent ledger up to the cut-off, then add the postings that waited
+     * Loads again if events were dropped meanwhile.
+     */
+    private void load() {
+        boolean again;
+        int rows;
+        do {
+            long start = System.nanoTime();
+            long cutoffId = loadCutoffId;
+            long fromId = loadDays > 0
+                    ? TransactionIdGenerator.lastIdAt(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(loadDays)) : 0;
+            long recentFloorId = TransactionIdGenerator.lastIdAt(
+                    TransactionIdGenerator.timestampOf(cutoffId) - RECENT_MILLIS);
+            try {
+                DatabaseConfig.onAllShards(shard -> {
+                    loadShard(shard, fromId, cutoffId, recentFloorId);
+                    return null;
+                });
+            } catch (SQLException e) {
+                System.err.println("❌ Error loading transactions for analytics: " + e.getMessage());
+            }
+
+            synchronized (this) {
+                loading = false;
+                for (Transaction leg : late) {
+                    appendLate(leg);
+                }
+                late.clear();
+
+                rows = getRowCount();
+                again = reloadAgain;
+                if (again) {
+                    reloadAgain = false;
+                    beginLoad();
+                }
+            }
+
+            System.out.println("✓ Transaction analytics loaded " + rows + " rows in " +
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms" +
+                    (again ? "; events were dropped meanwhile, loading again" : ""));
+        } while (again);
+    }
+
+    /**
+     * The bus dropped events for the store: reload it from the ledger on a thread of its own
+     * Postings keep arriving meanwhile, as they do during the start-up load.
+     */
+    private void resync(long missed) {
+        synchronized (this) {
+            resyncs++;
+            if (loading) {
+                reloadAgain = true;
+                return;
+            }
+            beginLoad();
+        }
+        System.err.println("❌ Transaction analytics missed " + missed + " events; reloading from the ledger");
+        Thread thread = new Thread(this::load, "analytics-resync");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Times the store was reloaded after the bus dropped events for it
+     */
+    public synchronized long getResyncCount() {
+        return resyncs;
+    }
+
+    /**
+     * Stream one shard's SUCCESS rows in (fromId, toId] into the store in chunks
+     */
+    private void loadShard(int shard, long fromId, long toId, long recentFloorId) throws SQLException {
+        String sql = "SELECT transaction_id, account_id, transaction_type, amount, transaction_date " +
+                "FROM transaction_legs WHERE transaction_id > ? AND transaction_id <= ? AND status = 'SUCCESS' " +
+                "ORDER BY transaction_id";
+
+        // The primary: a lagging replica could miss rows that were posted before the cut-off
+        try (Connection conn = DatabaseConfig.getConnection(shard);
+             PreparedStatement stmt = conn.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            conn.setReadOnly(true);
+            conn.setAutoCommit(false);
+            stmt.setFetchSize(ConfigManager.getExportFetchSize());
+            stmt.setLong(1, fromId);
+            stmt.setLong(2, toId);
+
+            String[] accounts = new String[LOAD_CHUNK];
+            byte[] types = new byte[LOAD_CHUNK];
+            long[] amounts = new long[LOAD_CHUNK];
+            long[] times = new long[LOAD_CHUNK];
+            List<Long> recentIds = new ArrayList<>();
+            int n = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    if (id > recentFloorId) {
+                        recentIds.add(id);
+                    }
+                    accounts[n] = rs.getString(2);
+                    types[n] = (byte) TransactionType.valueOf(rs.getString(3)).ordinal();
+                    amounts[n] = Math.round(rs.getDouble(4) * 100);
+                    times[n] = rs.getTimestamp(5).getTime();
+                    if (++n == LOAD_CHUNK) {
+                        append(accounts, types, amounts, times, n);
+                        n = 0;
+                    }
+                }
+            } finally {
+                conn.commit();
+            }
+            append(accounts, types, amounts, times, n);
+
+            synchronized (this) {
+                loadedRecentIds.addAll(recentIds);
+            }
+        }
+    }
+
+    // ==================== APPENDING ====================
+
+    private void onEvent(BankingEvent event) {
+        if (lastSequence > 0 && event.getSequence() > lastSequence + 1) {
+            resync(event.getSequence() - lastSequence - 1);
+        }
+        lastSequence = event.getSequence();
+
+        if (event.getType() != BankingEvent.Type.POSTING_COMMITTED) {
+            return;
+        }
+        for (Transaction leg : event.getLegs()) {
+            if (leg.getStatus() != TransactionStatus.SUCCESS) {
+                continue;
+            }
+            if (leg.getTransactionId() > loadCutoffId) {
+                append(leg);
+            } else {
+                synchronized (this) {
+                    if (loading) {
+                        late.add(leg);
+                    } else {
+                        appendLate(leg);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A posting from before the load's cut-off: add it unless the load already read it
+     */
+    private synchronized void appendLate(Transaction leg) {
+        if (!loadedRecentIds.contains(leg.getTransactionId())) {
+            append(leg);
+        }
+    }
+
+    private synchronized void append(Transaction leg) {
+        Columns current = room(1);
+        int row = current.size;
+        current.account[row] = indexOf(leg.getAccountId());
+        current.type[row] = (byte) leg.getTransactionType().ordinal();
+        current.amount[row] = Math.round(leg.getAmount() * 100);
+        current.time[row] = leg.getTransactionDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        current.size = row + 1;
+    }
+
+    private synchronized void append(String[] accounts, byte[] types, long[] amounts, long[] times, int n) {
+        if (n == 0) {
+            return;
+        }
+        Columns current = room(n);
+        int row = current.size;
+        for (int i = 0; i < n; i++) {
+            current.account[row + i] = indexOf(accounts[i]);
+        }
+        System.arraycopy(types, 0, current.type, row, n);
+        System.arraycopy(amounts, 0, current.amount, row, n);
+        System.arraycopy(times, 0, current.time, row, n);
+        current.size = row + n;
+    }
+
+    /**
+     * Columns with room for n more rows: grown up to capacity, then the oldest half dropped
+     */
+    private Columns room(int n) {
+        Columns current = columns;
+        if (current.size + n <= current.account.length) {
+            return current;
+        }
+        Columns next;
+        if (current.size + n <= capacity) {
+            next = new Columns((int) Math.min(capacity, Math.max((long) current.size + n, current.account.length * 2L)));
+            next.copyFrom(current, 0, current.size);
+        } else {
+            int keep = Math.min(current.size, capacity / 2);
+            next = new Columns(capacity);
+            next.copyFrom(current, current.size - keep, keep);
+        }
+        columns = next;
+        return next;
+    }
+
+    private int indexOf(String accountId) {
+        Integer index = accountIndex.get(accountId);
+        if (index == null) {
+            index = accountIndex.size();
+            String[] ids = accountIds;
+            if (index == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[index] = accountId;
+            accountIds = ids;
+            accountIndex.put(accountId, index);
+        }
+        return index;
+    }
+
+    // ==================== QUERIES ====================
+
+    public int getRowCount() {
+        Columns current = columns;
+        return current == null ? 0 : current.size;
+    }
+
+    /**
+     * Number of rows matching a filter
+     */
+    public long count(Filter filter) {
+        Scan scan = scan(filter);
+        return IntStream.range(0, scan.blocks()).parallel()
+                .mapToLong(block -> {
+                    long count = 0;
+                    for (int i = scan.blockStart(block), end = scan.blockEnd(block); i < end; i++) {
+                        if (scan.matches(i)) {
+                            count++;
+                        }
+                    }
+                    return count;
+                })
+                .sum();
+    }
+
+    /**
+     * Count of matching rows per transaction type (indexed by ordinal)
+     */
+    public long[] countByType(Filter filter) {
+        Scan scan = scan(filter);
+        byte[] type = scan.columns.type;
+        return scan.aggregate(TransactionType.values().length, (totals, i) -> totals[type[i]]++);
+    }
+
+    /**
+     * Sum of matching amounts per transaction type in paise (indexed by ordinal)
+     */
+    public long[] sumByType(Filter filter) {
+        Scan scan = scan(filter);
+        byte[] type = scan.columns.type;
+        long[] amount = scan.columns.amount;
+        return scan.aggregate(TransactionType.values().length, (totals, i) -> totals[type[i]] += amount[i]);
+    }
+
+    /**
+     * Matching rows per hour of the day (0-23, at the current offset of the system time zone)
+     */
+    public long[] hourOfDayCounts(Filter filter) {
+        Scan scan = scan(filter);
+        long[] time = scan.columns.time;
+        long offset = ZoneId.systemDefault().getRules().getOffset(Instant.now()).getTotalSeconds() * 1000L;
+        return scan.aggregate(24, (totals, i) -> totals[(int) (Math.floorMod(time[i] + offset, 86_400_000L) / 3_600_000L)]++);
+    }
+
+    /**
+     * Accounts with the largest net movement (credits minus debits) among matching rows
+     */
+    public List<Mover> topMovers(Filter filter, int limit) {
+        Scan scan = scan(filter);
+        int[] account = scan.columns.account;
+        byte[] type = scan.columns.type;
+        long[] amount = scan.columns.amount;
+        boolean[] credit = new boolean[TransactionType.values().length];
+        for (TransactionType t : TransactionType.values()) {
+            credit[t.ordinal()] = t.isCredit();
+        }
+
+        long[] net = scan.aggregate(scan.accountIds.length,
+                (totals, i) -> totals[account[i]] += credit[type[i]] ? amount[i] : -amount[i]);
+
+        return IntStream.range(0, net.length)
+                .filter(i -> net[i] != 0)
+                .boxed()
+                .sorted((a, b) -> Long.compare(Math.abs(net[b]), Math.abs(net[a])))
+                .limit(limit)
+                .map(i -> new Mover(scan.accountIds[i], net[i]))
+                .toList();
+    }
+
+    private Scan scan(Filter filter) {
+        Columns current = columns;
+        if (current == null) {
+            current = new Columns(0);
+        }
+        int rows = current.size;
+        String[] ids = accountIds; // read after the row count, so it names every account in those rows
+        int accountIdx = -1;
+        if (filter.accountId != null) {
+            synchronized (this) {
+                Integer index = accountIndex.get(filter.accountId);
+                accountIdx = index == null ? -2 : index;
+            }
+        }
+        return new Scan(current, rows, ids, filter, accountIdx);
+    }
+
+    // ==================== COLUMNS ====================
+
+    /**
+     * One set of column arrays; size rows are filled and visible to queries
+     */
+    private static final class Columns {
+        final int[] account;
+        final byte[] type;
+        final long[] amount;
+        final long[] time;
+        volatile int size;
+
+        Columns(int length) {
+            account = new int[length];
+            type = new byte[length];
+            amount = new long[length];
+            time = new long[length];
+        }
+
+        void copyFrom(Columns from, int start, int n) {
+            System.arraycopy(from.account, start, account, 0, n);
+            System.arraycopy(from.type, start, type, 0, n);
+            System.arraycopy(from.amount, start, amount, 0, n);
+            System.arraycopy(from.time, start, time, 0, n);
+            size = n;
+        }
+    }
+
+    /**
+     * Adds row i to a block's totals
+     */
+    private interface RowAggregator {
+        void add(long[] totals, int i);
+    }
+
+    /**
+     * A query over the first rows of one set of columns
+     */
+    private static final class Scan {
+        final Columns columns;
+        final int rows;
+        final String[] accountIds;
+        final long fromMillis;
+        final long toMillis;
+        final int typeMask;
+        final int accountIdx;
+
+        Scan(Columns columns, int rows, String[] accountIds, Filter filter, int accountIdx) {
+            this.columns = columns;
+            this.rows = rows;
+            this.accountIds = accountIds;
+            this.fromMillis = filter.fromMillis;
+            this.toMillis = filter.toMillis;
+            this.typeMask = filter.typeMask;
+            this.accountIdx = accountIdx;
+        }
+
+        int blocks() {
+            return (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        }
+
+        int blockStart(int block) {
+            return block * BLOCK_ROWS;
+        }
+
+        int blockEnd(int block) {
+            return Math.min(rows, (block + 1) * BLOCK_ROWS);
+        }
+
+        boolean matches(int i) {
+            long t = columns.time[i];
+            return t >= fromMillis && t < toMillis
+                    && (typeMask & (1 << columns.type[i])) != 0
+                    && (accountIdx == -1 || columns.account[i] == accountIdx);
+        }
+
+        /**
+         * Parallel group-by: every worker totals a range of rows into its own array, then
+         * the arrays are added up (one range per thread when there are many groups, such as
+         * accounts, to keep the arrays few)
+         */
+        long[] aggregate(int groups, RowAggregator aggregator) {
+            int workers = groups > 1024 ? ForkJoinPool.getCommonPoolParallelism() + 1 : blocks();
+            int workerRows = Math.max(1, (rows + workers - 1) / Math.max(1, workers));
+            return IntStream.range(0, Math.max(1, workers)).parallel()
+                    .mapToObj(worker -> {
+                        long[] totals = new long[groups];
+                        int end = (int) Math.min(rows, (long) (worker + 1) * workerRows);
+                        for (int i = worker * workerRows; i < end; i++) {
+                            if (matches(i)) {
+                                aggregator.add(totals, i);
+                            }
+                        }
+                        return totals;
+                    })
+                    .reduce((a, b) -> {
+                        for (int g = 0; g < groups; g++) {
+                            a[g] += b[g];
+                        }
+                        return a;
+                    })
+                    .orElseGet(() -> new long[groups]);
+        }
+    }
+
+    // ==================== RESULTS ====================
+
+    /**
+     * Which rows a query looks at: a time range, transaction types and one account
+     * (each optional)
+     */
+    public static class Filter {
+        private long fromMillis = Long.MIN_VALUE;
+        private long toMillis = Long.MAX_VALUE;
+        private int typeMask = (1 << TransactionType.values().length) - 1;
+        private String accountId;
+
+        public static Filter all() {
+            return new Filter();
+        }
+
+        public Filter from(LocalDateTime from) {
+            fromMillis = from.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return this;
+        }
+
+        public Filter to(LocalDateTime to) {
+            toMillis = to.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return this;
+        }
+
+        public Filter types(TransactionType... types) {
+            typeMask = 0;
+            for (TransactionType type : types) {
+                typeMask |= 1 << type.ordinal();
+            }
+            return this;
+        }
+
+        public Filter account(String accountId) {
+            this.accountId = accountId;
+            return this;
+        }
+    }
+
+    /**
+     * An account's net movement in paise
+     */
+    public static class Mover {
+        private final String accountId;
+        private final long netMinor;
+
+        Mover(String accountId, long netMinor) {
+            this.accountId = accountId;
+            this.netMinor = netMinor;
+        }
+
+        public String getAccountId() {
+            return accountId;
+        }
+
+        public double getNetAmount() {
+            return netMinor / 100.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-12s ₹%.2f", accountId, getNetAmount());
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.model.Account;
+import main.java.com.banking.model.BankingEvent;
+import main.java.com.banking.model.Transaction;
+import main.java.com.banking.util.ConfigManager;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Transaction Event Bus
+ * In-process Flow publisher of committed postings and account lifecycle events.
+ *
+ * Every subscriber has its own bounded buffer and overflow policy. Publishing only
+ * appends to those buffers; each subscriber is fed from its buffer on a delivery thread
+ * of its own, honouring the demand it requested, so a slow consumer fills (and then
+ * overflows) its own buffer instead of holding up the posting thread or other consumers.
+ * Publishers never wait: postings are published by threads that may still hold account or
+ * TransactionManager locks. A consumer that must see everything watches the event sequence
+ * numbers and catches up from the ledger when it finds a gap.
+ */
+public class TransactionEventBus implements Flow.Publisher<BankingEvent> {
+
+    /**
+     * What happens to a new event when a subscriber's buffer is full
+     */
+    public enum OverflowPolicy {
+        DROP_OLDEST,  // make room by discarding the oldest buffered event
+        DROP_NEWEST   // discard the new event
+    }
+
+    private static TransactionEventBus instance;
+
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService deliveryExecutor;
+
+    private TransactionEventBus() {
+        AtomicInteger counter = new AtomicInteger();
+        deliveryExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "event-bus-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized TransactionEventBus getInstance() {
+        if (instance == null) {
+            instance = new TransactionEventBus();
+        }
+        return instance;
+    }
+
+    // ==================== PUBLISHING ====================
+
+    /**
+     * A posting was committed to the database
+     */
+    public void publishPosting(Transaction... legs) {
+        if (!channels.isEmpty()) {
+            publish(BankingEvent.Type.POSTING_COMMITTED, List.of(legs), null);
+        }
+    }
+
+    public void publishAccountOpened(Account account) {
+        if (!channels.isEmpty()) {
+            publish(BankingEvent.Type.ACCOUNT_OPENED, null, account);
+        }
+    }
+
+    public void publishAccountClosed(Account account) {
+        if (!channels.isEmpty()) {
+            publish(BankingEvent.Type.ACCOUNT_CLOSED, null, account);
+        }
+    }
+
+    /**
+     * Numbered and buffered under one lock, so every subscriber sees events in sequence order
+     */
+    private synchronized void publish(BankingEvent.Type type, List<Transaction> legs, Account account) {
+        BankingEvent event = new BankingEvent(sequence.incrementAndGet(), type, legs, account);
+        for (Channel channel : channels) {
+            channel.offer(event);
+        }
+    }
+
+    // ==================== SUBSCRIBING ====================
+
+    /**
+     * Subscribe with the default buffer (events.buffer.size) and DROP_OLDEST
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super BankingEvent> subscriber) {
+        subscribe(subscriber.getClass().getSimpleName(), subscriber,
+                ConfigManager.getEventBufferSize(), OverflowPolicy.DROP_OLDEST);
+    }
+
+    public void subscribe(String name, Flow.Subscriber<? super BankingEvent> subscriber,
+                          int bufferSize, OverflowPolicy policy) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Event buffer size must be at least 1");
+        }
+        Channel channel = new Channel(name, subscriber, bufferSize, policy);
+        channels.add(channel);
+        subscriber.onSubscribe(channel);
+    }
+
+    /**
+     * Subscribe a plain handler that takes every event it is given, one at a time
+     * A handler that throws is unsubscribed.
+     */
+    public void subscribe(String name, int bufferSize, OverflowPolicy policy, Consumer<BankingEvent> handler) {
+        subscribe(name, new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(BankingEvent event) {
+                handler.accept(event);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                System.err.println("❌ Event subscriber '" + name + "' stopped: " + error);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        }, bufferSize, policy);
+    }
+
+    /**
+     * Deliver what is still buffered, then complete every subscriber
+     */
+    public void close() {
+        for (Channel channel : channels) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Display per-subscriber buffer use, deliveries and drops
+     */
+    public void displayStatistics() {
+        System.out.println("\nEvent Subscribers: " + channels.size() + " (" + sequence.get() + " events published)");
+        for (Channel channel : channels) {
+            System.out.println(String.format("  %-20s buffered %d/%d (%s), delivered %d, dropped %d",
+                    channel.name, channel.buffered(), channel.capacity, channel.policy,
+                    channel.delivered.sum(), channel.dropped.sum()));
+        }
+    }
+
+    // ==================== SUBSCRIPTION ====================
+
+    /**
+     * One subscriber: its buffer, outstanding demand and delivery state
+     * At most one drain task runs per channel, so onNext calls never overlap.
+     */
+    private final class Channel implements Flow.Subscription, Runnable {
+        private final String name;
+        private final Flow.Subscriber<? super BankingEvent> subscriber;
+        private final int capacity;
+        private final OverflowPolicy policy;
+        private final ArrayDeque<BankingEvent> buffer = new ArrayDeque<>();
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+
+        // Guarded by this
+        private long demand = 0;
+        private boolean draining = false;
+        private boolean cancelled = false;
+        private boolean closing = false;
+        private boolean completed = false;
+
+        Channel(String name, Flow.Subscriber<? super BankingEvent> subscriber, int capacity, OverflowPolicy policy) {
+            this.name = name;
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.policy = policy;
+        }
+
+        /**
+         * Buffer an event without waiting, applying the overflow policy when full
+         */
+        void offer(BankingEvent event) {
+            synchronized (this) {
+                if (cancelled || closing) {
+                    return;
+                }
+                if (buffer.size() >= capacity) {
+                    dropped.increment();
+                    if (policy == OverflowPolicy.DROP_NEWEST) {
+                        return;
+                    }
+                    buffer.pollFirst();
+                }
+                buffer.addLast(event);
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Requested " + n + " events (must be positive)"));
+                return;
+            }
+            synchronized (this) {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+            }
+            channels.remove(this);
+        }
+
+        void close() {
+            synchronized (this) {
+                closing = true;
+            }
+            scheduleDrain();
+        }
+
+        synchronized int buffered() {
+            return buffer.size();
+        }
+
+        private void scheduleDrain() {
+            synchronized (this) {
+                if (draining || cancelled || completed) {
+                    return;
+                }
+                boolean canDeliver = demand > 0 && !buffer.isEmpty();
+                boolean canComplete = closing && buffer.isEmpty();
+                if (!canDeliver && !canComplete) {
+                    return;
+                }
+                draining = true;
+            }
+            deliveryExecutor.execute(this);
+        }
+
+        /**
+         * Drain task: hand buffered events to the subscriber while it has demand
+         */
+        @Override
+        public void run() {
+            while (true) {
+                BankingEvent next;
+                synchronized (this) {
+                    if (cancelled) {
+                        draining = false;
+                        return;
+                    }
+                    if (buffer.isEmpty() && closing) {
+                        completed = true;
+                        draining = false;
+                        channels.remove(this);
+                        break;
+                    }
+                    if (buffer.isEmpty() || demand == 0) {
+                        draining = false;
+                        return;
+                    }
+                    next = buffer.pollFirst();
+                    if (demand != Long.MAX_VALUE) {
+                        demand--;
+                    }
+                }
+
+                try {
+                    subscriber.onNext(next);
+                    delivered.increment();
+                } catch (Throwable error) {
+                    cancel();
+                    synchronized (this) {
+                        draining = false;
+                    }
+                    subscriber.onError(error);
+                    return;
+                }
+            }
+            subscriber.onComplete();
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package main.java.com.banking.service;
+
+import main.java.com.banking.util.ConfigManager;
+import main.java.com.banking.util.DatabaseConfig;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Transaction Ledger Export
+ * Streams the ledger (transaction_legs) to CSV or JSON Lines, optionally GZIP compressed,
+ * filtered by date range and account. Rows are read through a forward-only cursor with
+ * a fixed fetch size and written straight out, so memory use does not grow with the
+ * number of rows.
+ *
+ * With parts > 1 the transaction ID range is split into disjoint slices that are
+ * exported in parallel, one file per slice (transactions_<ts>.part-001.csv, ...).
+ * With several shards each shard is exported to its own files in parallel
+ * (transactions_<ts>.shard-00.csv, ...); an account filter reads only its shard.
+ *
+ * MySQL only honours the fetch size with useCursorFetch=true on the JDBC URL;
+ * without it the driver buffers the whole result set.
+ */
+public class TransactionExporter {
+
+    private static final String EXPORT_FOLDER = "reports/";
+    private static final String COLUMNS = "transaction_id, account_id, transaction_type, amount, " +
+            "balance_after, description, transaction_date, status, idempotency_key";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    public enum Format {
+        CSV("csv"),
+        JSONL("jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private final int fetchSize;
+
+    public TransactionExporter() {
+        this.fetchSize = ConfigManager.getExportFetchSize();
+
+        File folder = new File(EXPORT_FOLDER);
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+    }
+
+    /**
+     * Export transactions
+     *
+     * @param from      first day to include (null for no lower bound)
+     * @param to        last day to include (null for no upper bound)
+     * @param accountId only this account (null for all)
+     * @param parts     number of files written in parallel
+     */
+    public ExportResult export(LocalDate from, LocalDate to, String accountId,
+                               Format format, boolean gzip, int parts) throws Exception {
+        Filter filter = new Filter(from, to, accountId);
+        String baseName = EXPORT_FOLDER + "transactions_" +
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String suffix = "." + format.extension + (gzip ? ".gz" : "");
+
+        long start = System.nanoTime();
+        ExportResult result = new ExportResult();
+
+        List<Integer> shards = new ArrayList<>();
+        if (accountId != null) {
+            shards.add(DatabaseConfig.shardOf(accountId));
+        } else {
+            for (int shard = 0; shard < DatabaseConfig.getShardCount(); shard++) {
+                shards.add(shard);
+            }
+        }
+
+        List<Slice> slices = new ArrayList<>();
+        for (int shard : shards) {
+            String shardName = shards.size() > 1 ? String.format("%s.shard-%02d", baseName, shard) : baseName;
+            long[] bounds = parts > 1 ? findIdBounds(shard, filter) : null;
+            if (bounds == null || bounds[1] - bounds[0] < parts) {
+                // One file, no ID slicing
+                slices.add(new Slice(shard, null, null, shardName + suffix));
+                continue;
+            }
+            long step = (bounds[1] - bounds[0]) / parts + 1;
+            for (int i = 0; i < parts; i++) {
+                long lower = bounds[0] + i * step;
+                long upper = i == parts - 1 ? bounds[1] + 1 : lower + step;
+                slices.add(new Slice(shard, lower, upper, String.format("%s.part-%03d%s", shardName, i + 1, suffix)));
+            }
+        }
+
+        if (slices.size() == 1) {
+            Slice slice = slices.get(0);
+            result.add(slice.file, exportRange(slice, filter, format, gzip));
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(slices.size(), runnable -> {
+                Thread thread = new Thread(runnable, "transaction-export");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<Long>> futures = new ArrayList<>(slices.size());
+                for (Slice slice : slices) {
+                    futures.add(executor.submit(() -> exportRange(slice, filter, format, gzip)));
+                }
+                for (int i = 0; i < slices.size(); i++) {
+                    result.add(slices.get(i).file, futures.get(i).get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // ==================== INTERNALS ====================
+
+    /**
+     * Stream one ID slice [lower, upper) of a shard into a file; returns the row count
+     */
+    private long exportRange(Slice slice, Filter filter, Format format, boolean gzip)
+            throws SQLException, IOException {
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM transaction_legs WHERE 1 = 1");
+        List<Object> params = filter.appendTo(sql);
+        if (slice.lower != null) {
+            sql.append(" AND transaction_id >= ? AND transaction_id < ?");
+            params.add(slice.lower);
+            params.add(slice.upper);
+        }
+        sql.append(" ORDER BY transaction_id");
+
+        long rows = 0;
+        try (Connection conn = DatabaseConfig.getConnection(slice.shard);
+             Writer writer = openWriter(slice.file, gzip)) {
+
+            // Some drivers only stream inside a transaction (the pool resets both on release)
+            conn.setReadOnly(true);
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(fetchSize);
+                for (int i = 0; i < params.size(); i++) {
+                    stmt.setObject(i + 1, params.get(i));
+                }
+
+                StringBuilder line = new StringBuilder(256);
+                if (format == Format.CSV) {
+                    writer.write("transaction_id,account_id,transaction_type,amount,balance_after," +
+                            "description,transaction_date,status,idempotency_key\n");
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        line.setLength(0);
+                        if (format == Format.CSV) {
+                            appendCsv(line, rs);
+                        } else {
+                            appendJson(line, rs);
+                        }
+                        writer.append(line);
+                        rows++;
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private Writer openWriter(String file, boolean gzip) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        if (gzip) {
+            out = new GZIPOutputStream(out, WRITE_BUFFER);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER);
+    }
+
+    /**
+     * Smallest and largest transaction ID on a shard matching the filter, or null if none
+     */
+    private long[] findIdBounds(int shard, Filter filter) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT MIN(transaction_id), MAX(transaction_id) FROM transaction_legs WHERE 1 = 1");
+        List<Object> params = filter.appendTo(sql);
+
+        try (Connection conn = DatabaseConfig.getConnection(shard);
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            long min = rs.getLong(1);
+            if (rs.wasNull()) {
+                return null;
+            }
+            return new long[]{min, rs.getLong(2)};
+        }
+    }
+
+    private static void appendCsv(StringBuilder line, ResultSet rs) throws SQLException {
+        line.append(rs.getLong(1)).append(',');
+        line.append(rs.getString(2)).append(',');
+        line.append(rs.getString(3)).append(',');
+        appendDecimal(line, rs.getBigDecimal(4), "").append(',');
+        appendDecimal(line, rs.getBigDecimal(5), "").append(',');
+        appendCsvText(line, rs.getString(6)).append(',');
+        appendDate(line, rs.getTimestamp(7)).append(',');
+        appendCsvText(line, rs.getString(8)).append(',');
+        appendCsvText(line, rs.getString(9)).append('\n');
+    }
+
+    private static void appendJson(StringBuilder line, ResultSet rs) throws SQLException {
+        line.append("{\"transaction_id\":").append(rs.getLong(1));
+        line.append(",\"account_id\":");
+        appendJsonText(line, rs.getString(2));
+        line.append(",\"transaction_type\":");
+        appendJsonText(line, rs.getString(3));
+        line.append(",\"amount\":");
+        appendDecimal(line, rs.getBigDecimal(4), "null");
+        line.append(",\"balance_after\":");
+        appendDecimal(line, rs.getBigDecimal(5), "null");
+        line.append(",\"description\":");
+        appendJsonText(line, rs.getString(6));
+        line.append(",\"transaction_date\":");
+        Timestamp date = rs.getTimestamp(7);
+        if (date == null) {
+            line.append("null");
+        } else {
+            appendDate(line.append('"'), date).append('"');
+        }
+        line.append(",\"status\":");
+        appendJsonText(line, rs.getString(8));
+        line.append(",\"idempotency_key\":");
+        appendJsonText(line, rs.getString(9));
+        line.append("}\n");
+    }
+
+    private static StringBuilder appendDecimal(StringBuilder line, BigDecimal value, String ifNull) {
+        return line.append(value != null ? value.toPlainString() : ifNull);
+    }
+
+    private static StringBuilder appendDate(StringBuilder line, Timestamp value) {
+        if (value != null) {
+            DATE_FORMAT.formatTo(value.toLocalDateTime(), line);
+        }
+        return line;
+    }
+
+    private static StringBuilder appendCsvText(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+
+    static void appendJsonText(StringBuilder line, String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': line.append("\\\""); break;
+                case '\\': line.append("\\\\"); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': line.append("\\r"); break;
+                case '\t': line.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * One output file: a shard's rows with IDs in [lower, upper) (null for all)
+     */
+    private record Slice(int shard, Long lower, Long upper, String file) {
+    }
+
+    /**
+     * WHERE conditions shared by the bounds query and every slice
+     */
+    private static final class Filter {
+        final LocalDate from;
+        final LocalDate to;
+        final String accountId;
+
+        Filter(LocalDate from, LocalDate to, String accountId) {
+            this.from = from;
+            this.to = to;
+            this.accountId = accountId == null || accountId.isBlank() ? null : accountId.trim().toUpperCase();
+        }
+
+        List<Object> appendTo(StringBuilder sql) {
+            List<Object> params = new ArrayList<>(5);
+            if (from != null) {
+                sql.append(" AND transaction_date >= ?");
+                params.add(Timestamp.valueOf(from.atStartOfDay()));
+            }
+            if (to != null) {
+                sql.append(" AND transaction_date < ?");
+                params.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+            }
+            if (accountId != null) {
+                sql.append(" AND account_id = ?");
+                params.add(accountId);
+            }
+            return params;
+        }
+    }
+
+    /**
+     * Files written and throughput of an export
+     */
+    public static class ExportResult {
+        private final List<String> files = new ArrayList<>();
+        private long rows;
+        private long bytes;
+        private long elapsedNanos;
+
+        void add(String file, long fileRows) {
+            files.add(file);
+            rows += fileRows;
+            bytes += new File(file).length();
+        }
+
+        public List<String> getFiles() {
+            return files;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos > 0 ? rows / (elapsedNanos / 1_000_000_000.0) : 0;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return String.format("Exported %d transactions to %d file(s), %.1f MB in %.2f s (%.0f rows/s, %.1f MB/s)",
+                    rows, files.size(), bytes / 1_048_576.0, seconds, getRowsPerSecond(),
+                    seconds > 0 ? bytes / 1_048_576.0 / seconds : 0);
+        }
+    }
+}
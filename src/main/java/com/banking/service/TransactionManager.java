@@ -2,21 +2,53 @@ package main.java.com.banking.service;
 
 import main.java.com.banking.model.*;
 import main.java.com.banking.exception.*;
+import main.java.com.banking.util.ConfigManager;
 import main.java.com.banking.util.DatabaseConfig;
+import main.java.com.banking.util.TransactionIdGenerator;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 /**
  * Transaction Processing System
  * Handles deposits, withdrawals, and transfers
+ * Each operation is also available as an async variant returning a CompletableFuture
  */
 public class TransactionManager {
 
     private AccountManager accountManager;
     private static TransactionManager instance;
+    private final TransactionIdGenerator idGenerator = TransactionIdGenerator.getInstance();
+    private final BalanceWriteBehind writeBehind = BalanceWriteBehind.getInstance();
+    private final SystemAggregates aggregates = SystemAggregates.getInstance();
+    private final BalanceSnapshots snapshots = BalanceSnapshots.getInstance();
+    private final TransactionEventBus eventBus = TransactionEventBus.getInstance();
+    private final PostingHorizon horizon = PostingHorizon.getInstance();
+
+    // Executors for the async pipeline (created on first use)
+    private Executor persistenceExecutor;
+    private Executor notificationExecutor;
+    private ExecutorService defaultPersistenceExecutor;  // the ones created here, which we shut down
+    private ExecutorService defaultNotificationExecutor;
+
+    // Postings retried after a version conflict
+    private final LongAdder postingRetries = new LongAdder();
 
     // Minimum balance required for accounts
     private static final double MINIMUM_BALANCE = 500.00;
@@ -24,6 +56,10 @@ public class TransactionManager {
     // Private constructor
     private TransactionManager() {
         this.accountManager = AccountManager.getInstance();
+        BalanceAlertTracker.getInstance().subscribeToPostings(eventBus);
+        if (DatabaseConfig.getShardCount() > 1) {
+            recoverCrossShardTransfers();
+        }
     }
 
     // Get singleton instance
@@ -37,8 +73,335 @@ public class TransactionManager {
     /**
      * Process Deposit
      */
-    public synchronized Transaction deposit(String accountId, double amount, String description)
+    public Transaction deposit(String accountId, double amount, String description)
+            throws Exception {
+        return deposit(accountId, amount, description, null);
+    }
+
+    /**
+     * Process Deposit with an optional idempotency key
+     * A retry with the same key returns the original transaction without posting again
+     */
+    public Transaction deposit(String accountId, double amount, String description, String idempotencyKey)
+            throws Exception {
+
+        return postOnce(idempotencyKey, accountId, () -> {
+            synchronized (this) {
+                // Apply and save to database, retrying on a version conflict
+                Transaction transaction = postWithRetry(idempotencyKey,
+                        () -> new Transaction[]{applyDeposit(accountId, amount, description)})[0];
+
+                System.out.println("✓ Deposit successful: ₹" + String.format("%.2f", amount));
+                return transaction;
+            }
+        });
+    }
+
+    /**
+     * Process Withdrawal
+     */
+    public Transaction withdraw(String accountId, double amount, String description)
+            throws Exception {
+        return withdraw(accountId, amount, description, null);
+    }
+
+    /**
+     * Process Withdrawal with an optional idempotency key
+     */
+    public Transaction withdraw(String accountId, double amount, String description, String idempotencyKey)
+            throws Exception {
+
+        return postOnce(idempotencyKey, accountId, () -> {
+            synchronized (this) {
+                // Apply and save to database, retrying on a version conflict
+                Transaction transaction = postWithRetry(idempotencyKey,
+                        () -> new Transaction[]{applyWithdrawal(accountId, amount, description)})[0];
+
+                System.out.println("✓ Withdrawal successful: ₹" + String.format("%.2f", amount));
+                return transaction;
+            }
+        });
+    }
+
+    /**
+     * Process Transfer between accounts
+     * Returns the debit (TRANSFER_OUT) leg
+     */
+    public Transaction transfer(String fromAccountId, String toAccountId,
+                                double amount, String description) throws Exception {
+        return transfer(fromAccountId, toAccountId, amount, description, null);
+    }
+
+    /**
+     * Process Transfer with an optional idempotency key
+     * The key is stored on the debit leg
+     */
+    public Transaction transfer(String fromAccountId, String toAccountId, double amount,
+                                String description, String idempotencyKey) throws Exception {
+
+        return postOnce(idempotencyKey, fromAccountId, () -> {
+            synchronized (this) {
+                // Apply and save both legs and both balances, retrying on a version conflict
+                Transaction[] legs = postWithRetry(idempotencyKey,
+                        () -> applyTransfer(fromAccountId, toAccountId, amount, description));
+
+                System.out.println("✓ Transfer successful: ₹" + String.format("%.2f", amount) +
+                        " from " + fromAccountId + " to " + toAccountId);
+                return legs[0];
+            }
+        });
+    }
+
+    /**
+     * Run a posting, or replay the original result if the key was seen before
+     */
+    private Transaction postOnce(String idempotencyKey, String accountId, Callable<Transaction> posting)
             throws Exception {
+        if (idempotencyKey == null) {
+            return posting.call();
+        }
+        return IdempotencyStore.getInstance().execute(idempotencyKey, accountId, posting);
+    }
+
+    /**
+     * Apply a posting and persist it in one go
+     * On a version conflict the posting is undone, the accounts are refreshed from
+     * the database and the posting is applied again (so funds are re-checked).
+     * Any other failure undoes the posting too, so it can safely be retried.
+     * Callers hold the TransactionManager lock.
+     */
+    public Transaction[] postWithRetry(String idempotencyKey, PostingStep step) throws Exception {
+        int maxRetries = ConfigManager.getOptimisticMaxRetries();
+
+        for (int attempt = 0; ; attempt++) {
+            Transaction[] legs = step.apply();
+            legs[0].setIdempotencyKey(idempotencyKey);
+            try {
+                writePosting(legs);
+                return legs;
+            } catch (OptimisticLockException e) {
+                undoPosting(legs);
+                accountManager.refreshAccount(e.getAccountId());
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                postingRetries.increment();
+            } catch (SQLException | AccountNotFoundException | RuntimeException e) {
+                // A cancelled cross-shard transfer has already been taken back out
+                if (legs[0].getStatus() != TransactionStatus.CANCELLED) {
+                    undoPosting(legs);
+                }
+                throw e;
+            } finally {
+                horizon.close(legs);
+            }
+        }
+    }
+
+    /**
+     * Number of postings retried after a version conflict
+     */
+    public long getPostingRetryCount() {
+        return postingRetries.sum();
+    }
+
+    /**
+     * One attempt at applying a posting to the in-memory accounts
+     */
+    @FunctionalInterface
+    public interface PostingStep {
+        Transaction[] apply() throws Exception;
+    }
+
+    // ==================== ASYNC OPERATIONS ====================
+
+    /**
+     * Process Deposit without waiting for the database
+     * Validation and the balance change happen on the caller; the returned
+     * future completes once the posting has been persisted
+     */
+    public CompletableFuture<Transaction> depositAsync(String accountId, double amount, String description) {
+        return depositAsync(accountId, amount, description, null);
+    }
+
+    public CompletableFuture<Transaction> depositAsync(String accountId, double amount, String description,
+                                                       String idempotencyKey) {
+        return postOnceAsync(idempotencyKey, accountId, () -> {
+            Transaction transaction;
+            try {
+                synchronized (this) {
+                    transaction = applyDeposit(accountId, amount, description);
+                }
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            transaction.setIdempotencyKey(idempotencyKey);
+            return persistAsync(transaction, transaction);
+        });
+    }
+
+    /**
+     * Process Withdrawal without waiting for the database
+     */
+    public CompletableFuture<Transaction> withdrawAsync(String accountId, double amount, String description) {
+        return withdrawAsync(accountId, amount, description, null);
+    }
+
+    public CompletableFuture<Transaction> withdrawAsync(String accountId, double amount, String description,
+                                                        String idempotencyKey) {
+        return postOnceAsync(idempotencyKey, accountId, () -> {
+            Transaction transaction;
+            try {
+                synchronized (this) {
+                    transaction = applyWithdrawal(accountId, amount, description);
+                }
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            transaction.setIdempotencyKey(idempotencyKey);
+            return persistAsync(transaction, transaction);
+        });
+    }
+
+    /**
+     * Process Transfer without waiting for the database
+     * The future carries the debit (TRANSFER_OUT) leg
+     */
+    public CompletableFuture<Transaction> transferAsync(String fromAccountId, String toAccountId,
+                                                       double amount, String description) {
+        return transferAsync(fromAccountId, toAccountId, amount, description, null);
+    }
+
+    public CompletableFuture<Transaction> transferAsync(String fromAccountId, String toAccountId, double amount,
+                                                       String description, String idempotencyKey) {
+        return postOnceAsync(idempotencyKey, fromAccountId, () -> {
+            Transaction[] legs;
+            try {
+                synchronized (this) {
+                    legs = applyTransfer(fromAccountId, toAccountId, amount, description);
+                }
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            legs[0].setIdempotencyKey(idempotencyKey);
+            return persistAsync(legs[0], legs);
+        });
+    }
+
+    private CompletableFuture<Transaction> postOnceAsync(String idempotencyKey, String accountId,
+                                                         Supplier<CompletableFuture<Transaction>> posting) {
+        if (idempotencyKey == null) {
+            return posting.get();
+        }
+        return IdempotencyStore.getInstance().executeAsync(idempotencyKey, accountId, posting);
+    }
+
+    /**
+     * Replace the executors used by the async pipeline
+     * Default executors created here are shut down; the caller keeps ownership of the new ones
+     */
+    public synchronized void setAsyncExecutors(Executor persistenceExecutor, Executor notificationExecutor) {
+        shutdownAsync();
+        this.persistenceExecutor = persistenceExecutor;
+        this.notificationExecutor = notificationExecutor;
+    }
+
+    /**
+     * Stop the default async executors, letting queued stages finish
+     * Executors handed in through setAsyncExecutors are left running
+     */
+    public synchronized void shutdownAsync() {
+        if (persistenceExecutor == defaultPersistenceExecutor && defaultPersistenceExecutor != null) {
+            defaultPersistenceExecutor.shutdown();
+        }
+        if (notificationExecutor == defaultNotificationExecutor && defaultNotificationExecutor != null) {
+            defaultNotificationExecutor.shutdown();
+        }
+        defaultPersistenceExecutor = null;
+        defaultNotificationExecutor = null;
+        persistenceExecutor = null;
+        notificationExecutor = null;
+    }
+
+    /**
+     * Persistence stage followed by the notification stage
+     */
+    private CompletableFuture<Transaction> persistAsync(Transaction result, Transaction... legs) {
+        CompletableFuture<Transaction> persisted;
+        try {
+            persisted = CompletableFuture.supplyAsync(() -> {
+                try {
+                    persistPosting(legs);
+                    return result;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, getPersistenceExecutor());
+        } catch (RejectedExecutionException e) {
+            horizon.close(legs);
+            throw e;
+        }
+
+        persisted.thenRunAsync(() -> notifyPosting(legs), getNotificationExecutor());
+        return persisted;
+    }
+
+    /**
+     * Optional email notification for each posted leg
+     * (balance alerts follow every committed posting on the TransactionEventBus)
+     */
+    private void notifyPosting(Transaction... legs) {
+        if (!ConfigManager.isAsyncNotificationEnabled()) {
+            return;
+        }
+
+        for (Transaction leg : legs) {
+            try {
+                Account account = accountManager.getAccount(leg.getAccountId());
+                EmailService.getInstance().sendTransactionAlert(account,
+                        leg.getTransactionType().getDisplayName(), leg.getAmount(), leg.getBalanceAfter());
+            } catch (AccountNotFoundException e) {
+                // Account was removed after the posting; nothing to notify
+            }
+        }
+    }
+
+    private synchronized Executor getPersistenceExecutor() {
+        if (persistenceExecutor == null) {
+            defaultPersistenceExecutor = Executors.newFixedThreadPool(
+                    ConfigManager.getAsyncPersistenceThreads(), daemonThreads("txn-persist"));
+            persistenceExecutor = defaultPersistenceExecutor;
+        }
+        return persistenceExecutor;
+    }
+
+    private synchronized Executor getNotificationExecutor() {
+        if (notificationExecutor == null) {
+            defaultNotificationExecutor = Executors.newFixedThreadPool(
+                    ConfigManager.getAsyncNotificationThreads(), daemonThreads("txn-notify"));
+            notificationExecutor = defaultNotificationExecutor;
+        }
+        return notificationExecutor;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // ==================== IN-MEMORY POSTING ====================
+    // These only touch in-memory state. Callers must make sure nothing else
+    // is changing the same accounts (the synchronized methods above do that).
+
+    /**
+     * Validate and apply a deposit to the in-memory account
+     */
+    public Transaction applyDeposit(String accountId, double amount, String description)
+            throws InvalidAmountException, AccountNotFoundException {
 
         // Validate amount
         if (amount <= 0) {
@@ -49,31 +412,29 @@ public class TransactionManager {
         Account account = accountManager.getAccount(accountId);
 
         // Update balance
-        double newBalance = account.getBalance() + amount;
-        account.setBalance(newBalance);
+        long posting = snapshots.beginPosting();
+        try {
+            account.deposit(amount);
+        } finally {
+            snapshots.endPosting(posting);
+        }
+        double newBalance = account.getBalance();
 
         // Create transaction record
-        Transaction transaction = new Transaction(
+        return stamp(account, new Transaction(
                 accountId,
                 TransactionType.DEPOSIT,
                 amount,
                 newBalance,
                 description != null ? description : "Deposit"
-        );
-
-        // Save to database
-        saveTransactionToDatabase(transaction);
-        accountManager.updateBalance(accountId, newBalance);
-
-        System.out.println("✓ Deposit successful: ₹" + String.format("%.2f", amount));
-        return transaction;
+        ));
     }
 
     /**
-     * Process Withdrawal
+     * Validate and apply a withdrawal to the in-memory account
      */
-    public synchronized Transaction withdraw(String accountId, double amount, String description)
-            throws Exception {
+    public Transaction applyWithdrawal(String accountId, double amount, String description)
+            throws InvalidAmountException, AccountNotFoundException, InsufficientFundsException {
 
         // Validate amount
         if (amount <= 0) {
@@ -99,30 +460,53 @@ public class TransactionManager {
         }
 
         // Update balance
-        account.setBalance(newBalance);
+        long posting = snapshots.beginPosting();
+        try {
+            account.withdraw(amount);
+        } finally {
+            snapshots.endPosting(posting);
+        }
+        newBalance = account.getBalance();
 
         // Create transaction record
-        Transaction transaction = new Transaction(
+        return stamp(account, new Transaction(
                 accountId,
                 TransactionType.WITHDRAWAL,
                 amount,
                 newBalance,
                 description != null ? description : "Withdrawal"
-        );
+        ));
+    }
 
-        // Save to database
-        saveTransactionToDatabase(transaction);
-        accountManager.updateBalance(accountId, newBalance);
+    /**
+     * Validate and apply a transfer to both in-memory accounts
+     * Returns the debit leg followed by the credit leg
+     */
+    public Transaction[] applyTransfer(String fromAccountId, String toAccountId,
+                                       double amount, String description)
+            throws InvalidAmountException, AccountNotFoundException, InsufficientFundsException {
 
-        System.out.println("✓ Withdrawal successful: ₹" + String.format("%.2f", amount));
-        return transaction;
+        // Make sure the destination exists before touching the source
+        accountManager.getAccount(toAccountId);
+
+        // Both legs under one posting sequence number, so snapshots see them together
+        long posting = snapshots.beginPosting();
+        try {
+            Transaction debitTransaction = applyTransferDebit(fromAccountId, toAccountId, amount, description);
+            Transaction creditTransaction = applyTransferCredit(toAccountId, fromAccountId, amount, description);
+
+            return new Transaction[]{debitTransaction, creditTransaction};
+        } finally {
+            snapshots.endPosting(posting);
+        }
     }
 
     /**
-     * Process Transfer between accounts
+     * Validate and apply the debit side of a transfer
      */
-    public synchronized void transfer(String fromAccountId, String toAccountId,
-                                      double amount, String description) throws Exception {
+    public Transaction applyTransferDebit(String fromAccountId, String toAccountId,
+                                          double amount, String description)
+            throws InvalidAmountException, AccountNotFoundException, InsufficientFundsException {
 
         // Validate amount
         if (amount <= 0) {
@@ -134,9 +518,7 @@ public class TransactionManager {
             throw new InvalidAmountException("Cannot transfer to the same account");
         }
 
-        // Get both accounts
         Account fromAccount = accountManager.getAccount(fromAccountId);
-        Account toAccount = accountManager.getAccount(toAccountId);
 
         // Check sufficient balance in source account
         if (fromAccount.getBalance() < amount) {
@@ -154,70 +536,742 @@ public class TransactionManager {
             );
         }
 
-        // Perform transfer
-        double newToBalance = toAccount.getBalance() + amount;
-
-        fromAccount.setBalance(newFromBalance);
-        toAccount.setBalance(newToBalance);
+        long posting = snapshots.beginPosting();
+        try {
+            fromAccount.withdraw(amount);
+        } finally {
+            snapshots.endPosting(posting);
+        }
+        newFromBalance = fromAccount.getBalance();
 
-        // Create transaction records for both accounts
         String desc = description != null ? description : "Transfer";
-
-        Transaction debitTransaction = new Transaction(
+        return stamp(fromAccount, new Transaction(
                 fromAccountId,
                 TransactionType.TRANSFER_OUT,
                 amount,
                 newFromBalance,
                 desc + " to " + toAccountId,
                 toAccountId
-        );
+        ));
+    }
+
+    /**
+     * Apply the credit side of a transfer
+     */
+    public Transaction applyTransferCredit(String toAccountId, String fromAccountId,
+                                           double amount, String description)
+            throws AccountNotFoundException {
+
+        Account toAccount = accountManager.getAccount(toAccountId);
 
-        Transaction creditTransaction = new Transaction(
+        long posting = snapshots.beginPosting();
+        try {
+            toAccount.deposit(amount);
+        } finally {
+            snapshots.endPosting(posting);
+        }
+        double newToBalance = toAccount.getBalance();
+
+        String desc = description != null ? description : "Transfer";
+        return stamp(toAccount, new Transaction(
                 toAccountId,
                 TransactionType.TRANSFER_IN,
                 amount,
                 newToBalance,
                 desc + " from " + fromAccountId,
                 fromAccountId
-        );
+        ));
+    }
+
+    /**
+     * Give a freshly applied leg its transaction ID
+     * The ID is taken after the balance change and after the account is marked dirty
+     * for write-behind, so a flush that records an ID checkpoint has seen every posting
+     * up to it. IDs also follow the order postings were applied to each account.
+     */
+    private Transaction stamp(Account account, Transaction leg) {
+        writeBehind.markDirty(account);
+        leg.setTransactionId(idGenerator.nextId());
+        horizon.open(leg);
+        return leg;
+    }
+
+    /**
+     * Undo the debit side of a transfer whose credit could not be applied
+     * Marks the debit leg CANCELLED
+     */
+    public void reverseTransferDebit(Transaction debitTransaction) throws AccountNotFoundException {
+        Account fromAccount = accountManager.getAccount(debitTransaction.getAccountId());
+        long posting = snapshots.beginPosting();
+        try {
+            fromAccount.deposit(debitTransaction.getAmount());
+        } finally {
+            snapshots.endPosting(posting);
+        }
+        writeBehind.markDirty(fromAccount);
+        debitTransaction.setStatus(TransactionStatus.CANCELLED);
+        horizon.close(debitTransaction);
+    }
+
+    /**
+     * Persist a posting that was applied earlier (pipelined engines)
+     * Other postings may already have been applied on top of it, so it cannot be
+     * re-applied. On a version conflict the account is rebased onto the database
+     * balance, the legs' balance_after values are shifted by the same amount and
+     * the write is retried.
+     * If it cannot be written it stays applied and PostingNotPersistedException is thrown
+     * (a cancelled cross-shard transfer, or a posting whose idempotency key is already in the
+     * ledger, is taken back out and fails with its own SQLException).
+     */
+    public void persistPosting(Transaction... legs) throws SQLException, PostingNotPersistedException {
+        int maxRetries = ConfigManager.getOptimisticMaxRetries();
+
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    writePosting(legs);
+                    return;
+                } catch (OptimisticLockException e) {
+                    if (attempt >= maxRetries) {
+                        throw e;
+                    }
+                    double shift = accountManager.refreshAccount(e.getAccountId());
+                    for (Transaction leg : legs) {
+                        if (leg.getAccountId().equals(e.getAccountId())) {
+                            leg.setBalanceAfter(leg.getBalanceAfter() + shift);
+                        }
+                    }
+                    postingRetries.increment();
+                }
+            }
+        } catch (SQLException e) {
+            if (legs[0].getStatus() == TransactionStatus.CANCELLED) {
+                throw e;
+            }
+            if (legs[0].getIdempotencyKey() != null && IdempotencyStore.isDuplicateKey(e)) {
+                // Already in the ledger under this key: take it back out, the caller gets the original
+                try {
+                    synchronized (this) {
+                        undoPosting(legs);
+                    }
+                } catch (AccountNotFoundException notFound) {
+                    throw new PostingNotPersistedException("Posting applied but not saved: " + e.getMessage(), e);
+                }
+                throw e;
+            }
+            throw new PostingNotPersistedException("Posting applied but not saved: " + e.getMessage(), e);
+        } catch (AccountNotFoundException | RuntimeException e) {
+            throw new PostingNotPersistedException("Posting applied but not saved: " + e.getMessage(), e);
+        } finally {
+            horizon.close(legs);
+        }
+    }
+
+    // ==================== BATCH POSTING ====================
+
+    /**
+     * Apply and persist a batch of credits (end-of-day jobs) in one database transaction
+     * Each leg brings its account, type, amount, description and idempotency key;
+     * balance_after and the transaction ID are filled in here. The legs are applied
+     * under the TransactionManager lock, as one posting for balance snapshots, and
+     * written outside it, so batches from several workers reach the database in
+     * parallel. A credit never invalidates another posting's funds check, so batches
+     * can run while any engine is posting. If the write fails the credits are taken
+     * back out of the in-memory balances. With several shards each shard's credits are
+     * a batch of their own.
+     */
+    public void postCreditBatch(List<Transaction> credits) throws SQLException, AccountNotFoundException {
+        if (DatabaseConfig.getShardCount() == 1) {
+            postShardCreditBatch(credits);
+            return;
+        }
+
+        // One database transaction per shard
+        Map<Integer, List<Transaction>> byShard = new TreeMap<>();
+        for (Transaction credit : credits) {
+            byShard.computeIfAbsent(DatabaseConfig.shardOf(credit.getAccountId()), shard -> new ArrayList<>())
+                    .add(credit);
+        }
+        for (List<Transaction> shardCredits : byShard.values()) {
+            postShardCreditBatch(shardCredits);
+        }
+    }
+
+    private void postShardCreditBatch(List<Transaction> credits) throws SQLException, AccountNotFoundException {
+        Transaction[] legs = credits.toArray(new Transaction[0]);
+        Account[] accounts = new Account[legs.length];
+        for (int i = 0; i < legs.length; i++) {
+            if (!legs[i].getTransactionType().isCredit()) {
+                throw new IllegalArgumentException("Not a credit: " + legs[i].getTransactionType());
+            }
+            accounts[i] = accountManager.getAccount(legs[i].getAccountId());
+        }
+
+        synchronized (this) {
+            long posting = snapshots.beginPosting();
+            try {
+                for (int i = 0; i < legs.length; i++) {
+                    accounts[i].deposit(legs[i].getAmount());
+                    legs[i].setBalanceAfter(accounts[i].getBalance());
+                    stamp(accounts[i], legs[i]);
+                }
+            } finally {
+                snapshots.endPosting(posting);
+            }
+        }
+
+        // On a version conflict every conflicting account is refreshed before the next attempt
+        int maxRetries = ConfigManager.getOptimisticMaxRetries();
+        try {
+            for (int attempt = 0; ; attempt++) {
+                List<Account> conflicted = writeBatch(legs);
+                if (conflicted.isEmpty()) {
+                    return;
+                }
+                if (attempt >= maxRetries) {
+                    Account first = conflicted.get(0);
+                    throw new OptimisticLockException(first.getAccountId(), first.getVersion());
+                }
+                for (Account account : conflicted) {
+                    double shift = accountManager.refreshAccount(account.getAccountId());
+                    for (Transaction leg : legs) {
+                        if (leg.getAccountId().equals(account.getAccountId())) {
+                            leg.setBalanceAfter(leg.getBalanceAfter() + shift);
+                        }
+                    }
+                }
+                postingRetries.increment();
+            }
+        } catch (SQLException | AccountNotFoundException | RuntimeException e) {
+            synchronized (this) {
+                undoPosting(legs);
+            }
+            throw e;
+        } finally {
+            horizon.close(legs);
+        }
+    }
+
+    /**
+     * Write a batch posting: ledger rows and account rows in one database transaction
+     * The account rows go out as one batched compare-and-set on their versions. If any
+     * row changed underneath, nothing is written and the conflicting accounts are returned.
+     */
+    private List<Account> writeBatch(Transaction... legs) throws SQLException, AccountNotFoundException {
+        if (writeBehind.isEnabled()) {
+            writePosting(legs);
+            return List.of();
+        }
+
+        TreeMap<String, Account> plain = new TreeMap<>();
+        List<String> hotAccountIds = new ArrayList<>();
+        for (Transaction leg : legs) {
+            Account account = accountManager.getAccount(leg.getAccountId());
+            if (account.isHotAccount()) {
+                hotAccountIds.add(account.getAccountId());
+            } else {
+                plain.put(account.getAccountId(), account);
+            }
+        }
+
+        List<Account> conflicted = writeBatchRows(new ArrayList<>(plain.values()), legs);
+        if (conflicted.isEmpty()) {
+            persistHotBalances(hotAccountIds);
+        }
+        return conflicted;
+    }
+
+    /**
+     * Write the batch's plain account rows (in account ID order) and its ledger rows
+     * Balances and versions are read under each account lock, the write runs outside them.
+     */
+    private List<Account> writeBatchRows(List<Account> accounts, Transaction[] legs) throws SQLException {
+        double[] written = new double[accounts.size()];
+        long[] versions = new long[accounts.size()];
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            synchronized (account) {
+                written[i] = account.getBalance();
+                versions[i] = account.getVersion();
+                account.beginWrite();
+            }
+        }
+
+        try {
+            try (Connection conn = DatabaseConfig.getShardConnection(legs[0].getAccountId())) {
+                conn.setAutoCommit(false);
+
+                List<Account> conflicted = accountManager.writeAccountRows(conn, accounts, written, versions);
+                if (!conflicted.isEmpty()) {
+                    conn.rollback();
+                    return conflicted;
+                }
+                saveTransactionsToDatabase(conn, legs);
+
+                conn.commit();
+            }
+
+            for (int i = 0; i < accounts.size(); i++) {
+                accounts.get(i).markPersisted(written[i], versions[i] + 1);
+            }
+        } finally {
+            for (Account account : accounts) {
+                account.endWrite();
+            }
+        }
+        recordPosting(legs);
+        return List.of();
+    }
+
+    /**
+     * Write the ledger rows and account balances of a posting in one database transaction
+     * Account rows are compare-and-set on their version, so a row changed by another
+     * instance fails the whole posting with OptimisticLockException.
+     * Hot accounts write their sub-balance slots after the commit instead.
+     * With write-behind only the ledger rows are written; balances follow in the next flush.
+     * A transfer between two shards is written as a saga (see writeCrossShardTransfer).
+     */
+    private void writePosting(Transaction... legs) throws SQLException, AccountNotFoundException {
+        Transaction[] committed = legs;
+        if (legs.length == 2 && DatabaseConfig.shardOf(legs[0].getAccountId())
+                != DatabaseConfig.shardOf(legs[1].getAccountId())) {
+            if (!writeCrossShardTransfer(legs[0], legs[1])) {
+                // The debit leg is still PENDING in the ledger; it is recorded once it is resolved
+                committed = new Transaction[]{legs[1]};
+            }
+        } else {
+            writeShardPosting(null, legs);
+        }
+        recordPosting(committed);
+    }
+
+    /**
+     * Count and publish ledger rows that have just become SUCCESS
+     */
+    public void recordPosting(Transaction... legs) {
+        aggregates.recordTransactions(legs);
+        eventBus.publishPosting(legs);
+    }
+
+    /**
+     * Write a posting whose accounts are all on one shard
+     * remoteCredit is set when legs is the debit of a cross-shard transfer (saga step 1)
+     */
+    private void writeShardPosting(Transaction remoteCredit, Transaction... legs)
+            throws SQLException, AccountNotFoundException {
+        if (writeBehind.isEnabled()) {
+            try (Connection conn = DatabaseConfig.getShardConnection(legs[0].getAccountId())) {
+                conn.setAutoCommit(false);
+                saveShardRows(conn, remoteCredit, legs);
+                conn.commit();
+            }
+            return;
+        }
+
+        // Rows are written in account ID order, so two postings on the same accounts
+        // take their database row locks in the same order
+        TreeMap<String, Account> plain = new TreeMap<>();
+        List<String> hotAccountIds = new ArrayList<>();
+        for (Transaction leg : legs) {
+            Account account = accountManager.getAccount(leg.getAccountId());
+            if (account.isHotAccount()) {
+                hotAccountIds.add(account.getAccountId());
+            } else {
+                plain.put(account.getAccountId(), account);
+            }
+        }
+        List<Account> accounts = new ArrayList<>(plain.values());
+
+        // Balance and version are read under the account lock, the write runs outside it.
+        // Another write of the same row in between fails the compare-and-set and is retried.
+        double[] written = new double[accounts.size()];
+        long[] versions = new long[accounts.size()];
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            synchronized (account) {
+                written[i] = account.getBalance();
+                versions[i] = account.getVersion();
+                account.beginWrite();
+            }
+        }
+
+        try {
+            try (Connection conn = DatabaseConfig.getShardConnection(legs[0].getAccountId())) {
+                conn.setAutoCommit(false);
+
+                for (int i = 0; i < accounts.size(); i++) {
+                    versions[i] = accountManager.writeAccountRow(conn, accounts.get(i), written[i], versions[i]);
+                }
+                saveShardRows(conn, remoteCredit, legs);
+
+                conn.commit();
+            }
+
+            for (int i = 0; i < accounts.size(); i++) {
+                accounts.get(i).markPersisted(written[i], versions[i]);
+            }
+        } finally {
+            for (Account account : accounts) {
+                account.endWrite();
+            }
+        }
+
+        persistHotBalances(hotAccountIds);
+    }
 
-        // Save both transactions to database
-        saveTransactionToDatabase(debitTransaction);
-        saveTransactionToDatabase(creditTransaction);
+    /**
+     * Write the slots of hot accounts after their posting has committed
+     * The posting stands either way; slots that could not be written stay dirty
+     * and go out with the account's next posting.
+     */
+    private void persistHotBalances(List<String> hotAccountIds) throws AccountNotFoundException {
+        for (String accountId : hotAccountIds) {
+            try {
+                accountManager.persistBalance(accountId);
+            } catch (SQLException e) {
+                System.err.println("❌ Sub-balances of " + accountId + " not saved yet: " + e.getMessage());
+            }
+        }
+    }
+
+    private void saveShardRows(Connection conn, Transaction remoteCredit, Transaction... legs) throws SQLException {
+        if (remoteCredit != null) {
+            saveCrossShardDebit(conn, legs[0], remoteCredit);
+        } else {
+            saveTransactionsToDatabase(conn, legs);
+        }
+    }
+
+    // ==================== CROSS-SHARD TRANSFERS ====================
+
+    /**
+     * Write a transfer between accounts on two shards as a saga
+     *   1. debit shard: debit balance, the debit leg as PENDING and a pending_transfers row
+     *   2. credit shard: credit balance and the credit leg
+     *   3. debit shard: the debit leg becomes SUCCESS and the pending row goes
+     * A failure in step 1 leaves nothing behind and is thrown like any other posting's.
+     * If step 2 fails for good the transfer is taken back out of the in-memory balances
+     * and the debit leg becomes CANCELLED (step 3 writes the debit balance back instead).
+     * Returns false if step 3 could not be written, leaving the debit leg PENDING in the ledger.
+     */
+    private boolean writeCrossShardTransfer(Transaction debit, Transaction credit)
+            throws SQLException, AccountNotFoundException {
+        try {
+            writeShardPosting(credit, debit);
+        } catch (SQLException | AccountNotFoundException | RuntimeException e) {
+            debit.setStatus(TransactionStatus.SUCCESS);
+            throw e;
+        }
 
-        // Update both account balances
-        accountManager.updateBalance(fromAccountId, newFromBalance);
-        accountManager.updateBalance(toAccountId, newToBalance);
+        try {
+            writeCreditLeg(credit);
+        } catch (SQLException | AccountNotFoundException | RuntimeException e) {
+            synchronized (this) {
+                undoPosting(debit, credit);
+            }
+            debit.setStatus(TransactionStatus.CANCELLED);
+            finishCrossShardTransfer(debit);
+            // Not an OptimisticLockException: the posting is already undone, it must not be retried
+            throw new SQLException("Transfer cancelled, credit to " + credit.getAccountId() +
+                    " failed: " + e.getMessage(), e);
+        }
+
+        debit.setStatus(TransactionStatus.SUCCESS);
+        return finishCrossShardTransfer(debit);
+    }
+
+    /**
+     * Step 2 of a cross-shard transfer; a credit never fails a funds check, so version
+     * conflicts are rebased and retried like a pipelined posting
+     */
+    private void writeCreditLeg(Transaction credit) throws SQLException, AccountNotFoundException {
+        int maxRetries = ConfigManager.getOptimisticMaxRetries();
 
-        System.out.println("✓ Transfer successful: ₹" + String.format("%.2f", amount) +
-                " from " + fromAccountId + " to " + toAccountId);
+        for (int attempt = 0; ; attempt++) {
+            try {
+                writeShardPosting(null, credit);
+                return;
+            } catch (OptimisticLockException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                credit.setBalanceAfter(credit.getBalanceAfter() + accountManager.refreshAccount(e.getAccountId()));
+                postingRetries.increment();
+            }
+        }
+    }
+
+    /**
+     * Insert the PENDING debit leg of a cross-shard transfer and its pending_transfers row
+     * on the caller's connection (debit shard). Used by the stateless engine, which writes
+     * the account rows itself.
+     */
+    public void saveCrossShardDebit(Connection conn, Transaction debit, Transaction credit) throws SQLException {
+        if (debit.getTransactionId() == 0) {
+            debit.setTransactionId(idGenerator.nextId());
+        }
+        debit.setTransferId(debit.getTransactionId());
+        credit.setTransferId(debit.getTransactionId());
+        debit.setStatus(TransactionStatus.PENDING);
+        saveTransactionsToDatabase(conn, debit);
+
+        String sql = "INSERT INTO pending_transfers (transfer_id, from_account_id, to_account_id, amount) " +
+                "VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, debit.getTransactionId());
+            stmt.setString(2, debit.getAccountId());
+            stmt.setString(3, credit.getAccountId());
+            stmt.setDouble(4, debit.getAmount());
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Give the debit leg of a cross-shard transfer its final status (SUCCESS or CANCELLED)
+     * and remove its pending_transfers row, on the caller's connection (debit shard)
+     */
+    public void resolveCrossShardDebit(Connection conn, Transaction debit) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE transactions SET status = ? WHERE transaction_id = ? AND status = 'PENDING'")) {
+            stmt.setString(1, debit.getStatus().name());
+            stmt.setLong(2, debit.getTransactionId());
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM pending_transfers WHERE transfer_id = ?")) {
+            stmt.setLong(1, debit.getTransactionId());
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Step 3: resolve the debit leg; a cancelled debit also writes the restored balance
+     * If this fails the pending row stays and is resolved on the next start (returns false).
+     */
+    private boolean finishCrossShardTransfer(Transaction debit) {
+        int maxRetries = ConfigManager.getOptimisticMaxRetries();
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                Account account = accountManager.getAccount(debit.getAccountId());
+                boolean writeBalance = debit.getStatus() == TransactionStatus.CANCELLED
+                        && !writeBehind.isEnabled() && !account.isHotAccount();
+
+                double balance = 0;
+                long version = 0;
+                if (writeBalance) {
+                    synchronized (account) {
+                        balance = account.getBalance();
+                        version = account.getVersion();
+                        account.beginWrite();
+                    }
+                }
+                try {
+                    try (Connection conn = DatabaseConfig.getShardConnection(debit.getAccountId())) {
+                        conn.setAutoCommit(false);
+                        if (writeBalance) {
+                            version = accountManager.writeAccountRow(conn, account, balance, version);
+                        }
+                        resolveCrossShardDebit(conn, debit);
+                        conn.commit();
+                    }
+                    if (writeBalance) {
+                        account.markPersisted(balance, version);
+                    }
+                } finally {
+                    if (writeBalance) {
+                        account.endWrite();
+                    }
+                }
+                if (debit.getStatus() == TransactionStatus.CANCELLED && account.isHotAccount()) {
+                    accountManager.persistBalance(debit.getAccountId());
+                }
+                return true;
+            } catch (OptimisticLockException e) {
+                if (attempt < maxRetries && refreshQuietly(e.getAccountId())) {
+                    continue;
+                }
+                System.err.println("❌ Transfer " + debit.getTransactionId() + " left pending: " + e.getMessage());
+                return false;
+            } catch (SQLException | AccountNotFoundException e) {
+                System.err.println("❌ Transfer " + debit.getTransactionId() + " left pending: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    private boolean refreshQuietly(String accountId) {
+        try {
+            accountManager.refreshAccount(accountId);
+            return true;
+        } catch (SQLException | AccountNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Resolve the cross-shard transfers this node left pending (it stopped between the steps)
+     * A transfer whose credit leg was committed is completed, any other one is cancelled
+     * and its debit taken back out of the (already loaded) account balance.
+     */
+    private void recoverCrossShardTransfers() {
+        int nodeId = ConfigManager.getNodeId();
+        String pendingSql = "SELECT transfer_id, from_account_id, to_account_id, amount FROM pending_transfers";
+
+        try {
+            List<PendingTransfer> pending = new ArrayList<>();
+            for (List<PendingTransfer> shardPending : DatabaseConfig.onAllShards(shard -> {
+                List<PendingTransfer> found = new ArrayList<>();
+                try (Connection conn = DatabaseConfig.getConnection(shard);
+                     Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery(pendingSql)) {
+                    while (rs.next()) {
+                        if (TransactionIdGenerator.nodeOf(rs.getLong("transfer_id")) == nodeId) {
+                            found.add(new PendingTransfer(rs.getLong("transfer_id"), rs.getString("from_account_id"),
+                                    rs.getString("to_account_id"), rs.getDouble("amount")));
+                        }
+                    }
+                }
+                return found;
+            })) {
+                pending.addAll(shardPending);
+            }
+
+            int cancelled = 0;
+            for (PendingTransfer transfer : pending) {
+                Transaction debit = new Transaction(transfer.fromAccountId, TransactionType.TRANSFER_OUT,
+                        transfer.amount, 0, null, transfer.toAccountId);
+                debit.setTransactionId(transfer.transferId);
+                debit.setTransferId(transfer.transferId);
+
+                if (!creditLegExists(transfer.toAccountId, transfer.transferId)) {
+                    Account account = accountManager.getAccount(transfer.fromAccountId);
+                    long posting = snapshots.beginPosting();
+                    try {
+                        account.deposit(transfer.amount);
+                    } finally {
+                        snapshots.endPosting(posting);
+                    }
+                    writeBehind.markDirty(account);
+                    debit.setStatus(TransactionStatus.CANCELLED);
+                    cancelled++;
+                }
+                if (finishCrossShardTransfer(debit) && debit.getStatus() == TransactionStatus.SUCCESS) {
+                    // Not counted or published while it was pending
+                    Transaction completed = findLedgerRow(transfer.fromAccountId, transfer.transferId);
+                    if (completed != null) {
+                        recordPosting(completed);
+                    }
+                }
+            }
+
+            if (!pending.isEmpty()) {
+                System.out.println("✓ Resolved " + pending.size() + " pending cross-shard transfers (" +
+                        (pending.size() - cancelled) + " completed, " + cancelled + " cancelled)");
+            }
+        } catch (SQLException | AccountNotFoundException e) {
+            System.err.println("Error resolving pending cross-shard transfers: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A row of the transactions table, as a Transaction
+     */
+    private Transaction findLedgerRow(String accountId, long transactionId) throws SQLException {
+        try (Connection conn = DatabaseConfig.getShardConnection(accountId);
+             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM transactions WHERE transaction_id = ?")) {
+            stmt.setLong(1, transactionId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? mapTransaction(rs) : null;
+        }
+    }
+
+    /**
+     * Lowest transaction ID of a cross-shard debit still pending on a shard, or 0 if none is
+     * Jobs that fold the ledger in by ID stop short of it, so its final status is what they read.
+     */
+    public static long oldestPendingTransfer(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MIN(transfer_id), 0) FROM pending_transfers")) {
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * The credit leg is in the receiving account's ledger after the debit leg's ID
+     */
+    private boolean creditLegExists(String accountId, long transferId) throws SQLException {
+        try (Connection conn = DatabaseConfig.getShardConnection(accountId);
+             PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM transactions " +
+                     "WHERE account_id = ? AND transaction_id > ? AND transfer_id = ?")) {
+            stmt.setString(1, accountId);
+            stmt.setLong(2, transferId);
+            stmt.setLong(3, transferId);
+            return stmt.executeQuery().next();
+        }
+    }
+
+    /**
+     * A pending_transfers row
+     */
+    private static final class PendingTransfer {
+        final long transferId;
+        final String fromAccountId;
+        final String toAccountId;
+        final double amount;
+
+        PendingTransfer(long transferId, String fromAccountId, String toAccountId, double amount) {
+            this.transferId = transferId;
+            this.fromAccountId = fromAccountId;
+            this.toAccountId = toAccountId;
+            this.amount = amount;
+        }
+    }
+
+    /**
+     * Insert the ledger rows of a posting on the caller's connection (and transaction)
+     * Used by the stateless engine, which writes the account rows itself
+     */
+    public void saveTransactions(Connection conn, Transaction... legs) throws SQLException {
+        saveTransactionsToDatabase(conn, legs);
+    }
+
+    /**
+     * Take the legs of a posting back out of the in-memory balances
+     */
+    private void undoPosting(Transaction... legs) throws AccountNotFoundException {
+        long posting = snapshots.beginPosting();
+        try {
+            for (Transaction leg : legs) {
+                Account account = accountManager.getAccount(leg.getAccountId());
+                if (leg.getTransactionType().isCredit()) {
+                    account.withdraw(leg.getAmount());
+                } else {
+                    account.deposit(leg.getAmount());
+                }
+                writeBehind.markDirty(account);
+            }
+        } finally {
+            snapshots.endPosting(posting);
+        }
     }
 
     /**
      * Get transaction history for an account
+     * History, counts and transfer lookups are display reads and may come from a read replica
      */
     public List<Transaction> getTransactionHistory(String accountId) throws SQLException {
         List<Transaction> transactions = new ArrayList<>();
-        String sql = "SELECT * FROM transactions WHERE account_id = ? ORDER BY transaction_date DESC";
+        String sql = "SELECT * FROM transaction_legs WHERE account_id = ? ORDER BY transaction_date DESC";
 
-        try (Connection conn = DatabaseConfig.getConnection();
+        try (Connection conn = DatabaseConfig.getReadShardConnection(accountId);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, accountId);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                Transaction transaction = new Transaction(
-                        rs.getInt("transaction_id"),
-                        rs.getString("account_id"),
-                        TransactionType.valueOf(rs.getString("transaction_type")),
-                        rs.getDouble("amount"),
-                        rs.getDouble("balance_after"),
-                        rs.getString("description"),
-                        rs.getTimestamp("transaction_date").toLocalDateTime(),
-                        TransactionStatus.valueOf(rs.getString("status"))
-                );
-                transactions.add(transaction);
+                transactions.add(mapTransaction(rs));
             }
         }
 
@@ -225,31 +1279,34 @@ public class TransactionManager {
     }
 
     /**
-     * Get all transactions
+     * Get all transactions (the latest 100; with several shards, the latest 100 of each
+     * shard are fetched in parallel and merged)
      */
     public List<Transaction> getAllTransactions() throws SQLException {
-        List<Transaction> transactions = new ArrayList<>();
-        String sql = "SELECT * FROM transactions ORDER BY transaction_date DESC LIMIT 100";
+        String sql = "SELECT * FROM transaction_legs ORDER BY transaction_date DESC LIMIT 100";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (List<Transaction> shardTransactions : DatabaseConfig.onAllShards(shard -> {
+            List<Transaction> found = new ArrayList<>();
+            try (Connection conn = DatabaseConfig.getReadConnection(shard);
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
 
-            while (rs.next()) {
-                Transaction transaction = new Transaction(
-                        rs.getInt("transaction_id"),
-                        rs.getString("account_id"),
-                        TransactionType.valueOf(rs.getString("transaction_type")),
-                        rs.getDouble("amount"),
-                        rs.getDouble("balance_after"),
-                        rs.getString("description"),
-                        rs.getTimestamp("transaction_date").toLocalDateTime(),
-                        TransactionStatus.valueOf(rs.getString("status"))
-                );
-                transactions.add(transaction);
+                while (rs.next()) {
+                    found.add(mapTransaction(rs));
+                }
             }
+            return found;
+        })) {
+            transactions.addAll(shardTransactions);
         }
 
+        if (DatabaseConfig.getShardCount() > 1) {
+            transactions.sort(Comparator.comparing(Transaction::getTransactionDate).reversed());
+            if (transactions.size() > 100) {
+                transactions = new ArrayList<>(transactions.subList(0, 100));
+            }
+        }
         return transactions;
     }
 
@@ -257,9 +1314,9 @@ public class TransactionManager {
      * Get transaction count for an account
      */
     public int getTransactionCount(String accountId) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM transactions WHERE account_id = ?";
+        String sql = "SELECT COUNT(*) FROM transaction_legs WHERE account_id = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
+        try (Connection conn = DatabaseConfig.getReadShardConnection(accountId);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, accountId);
@@ -273,33 +1330,252 @@ public class TransactionManager {
         return 0;
     }
 
+    /**
+     * Find the posting made with an idempotency key on the shard of the account that carries
+     * it: the posting's account, or the sending account of a transfer (whose debit leg it is)
+     */
+    public Transaction findByIdempotencyKey(String idempotencyKey, String accountId) throws SQLException {
+        String sql = "SELECT * FROM transaction_legs WHERE idempotency_key = ?";
+
+        try (Connection conn = DatabaseConfig.getShardConnection(accountId);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, idempotencyKey);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? mapTransaction(rs) : null;
+        }
+    }
+
+    /**
+     * Find the posting made with an idempotency key (the debit leg for transfers)
+     * The key does not say which shard the posting went to, so every shard is asked
+     */
+    public Transaction findByIdempotencyKey(String idempotencyKey) throws SQLException {
+        String sql = "SELECT * FROM transaction_legs WHERE idempotency_key = ?";
+
+        for (Transaction found : DatabaseConfig.onAllShards(shard -> {
+            try (Connection conn = DatabaseConfig.getConnection(shard);
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                stmt.setString(1, idempotencyKey);
+                ResultSet rs = stmt.executeQuery();
+
+                return rs.next() ? mapTransaction(rs) : null;
+            }
+        })) {
+            if (found != null) {
+                return found;
+            }
+        }
+
+        return null;
+    }
+
     // ==================== DATABASE OPERATIONS ====================
 
     /**
-     * Save transaction to database
+     * Build a Transaction from the current row of a transaction_legs query
      */
-    private void saveTransactionToDatabase(Transaction transaction) throws SQLException {
-        String sql = "INSERT INTO transactions (account_id, transaction_type, amount, " +
-                "balance_after, description, status) VALUES (?, ?, ?, ?, ?, ?)";
+    Transaction mapTransaction(ResultSet rs) throws SQLException {
+        Transaction transaction = new Transaction(
+                rs.getLong("transaction_id"),
+                rs.getString("account_id"),
+                TransactionType.valueOf(rs.getString("transaction_type")),
+                rs.getDouble("amount"),
+                rs.getDouble("balance_after"),
+                rs.getString("description"),
+                rs.getTimestamp("transaction_date").toLocalDateTime(),
+                TransactionStatus.valueOf(rs.getString("status"))
+        );
+        transaction.setIdempotencyKey(rs.getString("idempotency_key"));
+        transaction.setReferenceAccountId(rs.getString("reference_account_id"));
+        transaction.setTransferId(rs.getLong("transfer_id"));
+        return transaction;
+    }
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+    /**
+     * Save the legs of a posting to database as one batch
+     * IDs are assigned here, before the insert, so no generated keys have to be read back.
+     * A transfer (its debit leg followed by its credit leg) becomes one transfers row.
+     */
+    private void saveTransactionsToDatabase(Connection conn, Transaction... legs) throws SQLException {
+        List<Transaction> rows = new ArrayList<>(legs.length);
+        List<Transaction> transfers = new ArrayList<>();
 
-            stmt.setString(1, transaction.getAccountId());
-            stmt.setString(2, transaction.getTransactionType().name());
-            stmt.setDouble(3, transaction.getAmount());
-            stmt.setDouble(4, transaction.getBalanceAfter());
-            stmt.setString(5, transaction.getDescription());
-            stmt.setString(6, transaction.getStatus().name());
+        for (int i = 0; i < legs.length; i++) {
+            Transaction transaction = legs[i];
+            if (transaction.getTransactionId() == 0) {
+                transaction.setTransactionId(idGenerator.nextId());
+            }
+            if (i + 1 < legs.length && isTransferPair(transaction, legs[i + 1])) {
+                Transaction credit = legs[++i];
+                if (credit.getTransactionId() == 0) {
+                    credit.setTransactionId(idGenerator.nextId());
+                }
+                transaction.setTransferId(transaction.getTransactionId());
+                credit.setTransferId(transaction.getTransactionId());
+                transfers.add(transaction);
+                transfers.add(credit);
+            } else {
+                rows.add(transaction);
+            }
+        }
 
-            stmt.executeUpdate();
+        if (!rows.isEmpty()) {
+            insertTransactions(conn, rows);
+        }
+        if (!transfers.isEmpty()) {
+            insertTransfers(conn, transfers);
+        }
+    }
 
-            // Get generated transaction ID
-            ResultSet rs = stmt.getGeneratedKeys();
-            if (rs.next()) {
-                transaction.setTransactionId(rs.getInt(1));
+    private void insertTransactions(Connection conn, List<Transaction> rows) throws SQLException {
+        String sql = "INSERT INTO transactions (transaction_id, account_id, transaction_type, amount, " +
+                "balance_after, description, status, idempotency_key, reference_account_id, transfer_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Transaction transaction : rows) {
+                // Only cross-shard transfer legs keep their counterparty here
+                boolean transferLeg = transaction.getTransferId() != 0;
+                stmt.setLong(1, transaction.getTransactionId());
+                stmt.setString(2, transaction.getAccountId());
+                stmt.setString(3, transaction.getTransactionType().name());
+                stmt.setDouble(4, transaction.getAmount());
+                stmt.setDouble(5, transaction.getBalanceAfter());
+                stmt.setString(6, transaction.getDescription());
+                stmt.setString(7, transaction.getStatus().name());
+                stmt.setString(8, transaction.getIdempotencyKey());
+                stmt.setString(9, transferLeg ? transaction.getReferenceAccountId() : null);
+                if (transferLeg) {
+                    stmt.setLong(10, transaction.getTransferId());
+                } else {
+                    stmt.setNull(10, Types.BIGINT);
+                }
+                stmt.addBatch();
             }
+
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Insert transfers, given as debit/credit leg pairs
+     */
+    private void insertTransfers(Connection conn, List<Transaction> legs) throws SQLException {
+        String sql = "INSERT INTO transfers (transfer_id, credit_transaction_id, from_account_id, " +
+                "to_account_id, amount, from_balance_after, to_balance_after, description, status, " +
+                "idempotency_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < legs.size(); i += 2) {
+                Transaction debit = legs.get(i);
+                Transaction credit = legs.get(i + 1);
+
+                stmt.setLong(1, debit.getTransactionId());
+                stmt.setLong(2, credit.getTransactionId());
+                stmt.setString(3, debit.getAccountId());
+                stmt.setString(4, credit.getAccountId());
+                stmt.setDouble(5, debit.getAmount());
+                stmt.setDouble(6, debit.getBalanceAfter());
+                stmt.setDouble(7, credit.getBalanceAfter());
+                stmt.setString(8, transferDescription(debit));
+                stmt.setString(9, debit.getStatus().name());
+                stmt.setString(10, debit.getIdempotencyKey());
+                stmt.addBatch();
+            }
+
+            stmt.executeBatch();
+        }
+    }
+
+    private static boolean isTransferPair(Transaction debit, Transaction credit) {
+        return debit.getTransactionType() == TransactionType.TRANSFER_OUT
+                && credit.getTransactionType() == TransactionType.TRANSFER_IN
+                && debit.getAccountId().equals(credit.getReferenceAccountId())
+                && credit.getAccountId().equals(debit.getReferenceAccountId())
+                && debit.getAmount() == credit.getAmount();
+    }
+
+    /**
+     * The description both legs share: the debit's "<description> to <account>" without
+     * the account, which transaction_legs adds back for each side
+     */
+    private static String transferDescription(Transaction debit) {
+        String description = debit.getDescription();
+        String suffix = " to " + debit.getReferenceAccountId();
+        if (description != null && description.endsWith(suffix)) {
+            return description.substring(0, description.length() - suffix.length());
         }
+        return description;
+    }
+
+    /**
+     * Transfers between two accounts in either direction, oldest first, as their debit legs
+     * Both directions are lookups on idx_transfers_pair. Transfers between accounts on two
+     * shards are debit legs in the transactions table of the sending account's shard.
+     */
+    public List<Transaction> getTransfersBetween(String accountId, String otherAccountId) throws SQLException {
+        List<Transaction> transfers = findTransfers(accountId, otherAccountId);
+        transfers.addAll(findTransfers(otherAccountId, accountId));
+        transfers.sort(Comparator.comparingLong(Transaction::getTransactionId));
+        return transfers;
+    }
+
+    private List<Transaction> findTransfers(String fromAccountId, String toAccountId) throws SQLException {
+        List<Transaction> transfers = new ArrayList<>();
+        String sql;
+        if (DatabaseConfig.shardOf(fromAccountId) == DatabaseConfig.shardOf(toAccountId)) {
+            sql = "SELECT transfer_id AS transaction_id, from_account_id AS account_id, " +
+                    "'TRANSFER_OUT' AS transaction_type, amount, from_balance_after AS balance_after, " +
+                    "CONCAT(description, ' to ', to_account_id) AS description, transaction_date, status, " +
+                    "idempotency_key, to_account_id AS reference_account_id, transfer_id " +
+                    "FROM transfers WHERE from_account_id = ? AND to_account_id = ?";
+        } else {
+            sql = "SELECT * FROM transactions WHERE account_id = ? AND reference_account_id = ? " +
+                    "AND transaction_type = 'TRANSFER_OUT'";
+        }
+
+        try (Connection conn = DatabaseConfig.getReadShardConnection(fromAccountId);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, fromAccountId);
+            stmt.setString(2, toAccountId);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                transfers.add(mapTransaction(rs));
+            }
+        }
+
+        return transfers;
+    }
+
+    /**
+     * Every ledger row with an ID above afterId on every shard, in ID order
+     * (the change log reads back postings it missed with this)
+     */
+    public List<Transaction> getLedgerRowsAfter(long afterId) throws SQLException {
+        String sql = "SELECT * FROM transaction_legs WHERE transaction_id > ? ORDER BY transaction_id";
+
+        List<Transaction> rows = new ArrayList<>();
+        for (List<Transaction> shardRows : DatabaseConfig.onAllShards(shard -> {
+            List<Transaction> found = new ArrayList<>();
+            try (Connection conn = DatabaseConfig.getConnection(shard);
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                stmt.setLong(1, afterId);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    found.add(mapTransaction(rs));
+                }
+            }
+            return found;
+        })) {
+            rows.addAll(shardRows);
+        }
+        rows.sort(Comparator.comparingLong(Transaction::getTransactionId));
+        return rows;
     }
 
     /**
@@ -330,6 +1606,35 @@ public class TransactionManager {
         System.out.println("=========================================\n");
     }
 
+    /**
+     * Display transfers between two accounts
+     */
+    public void displayTransfersBetween(String accountId, String otherAccountId) throws Exception {
+        List<Transaction> transfers = getTransfersBetween(accountId, otherAccountId);
+
+        System.out.println("\n========== TRANSFERS ==========");
+        System.out.println("Between: " + accountId + " and " + otherAccountId);
+        System.out.println("Total Transfers: " + transfers.size());
+        System.out.println("===============================");
+
+        if (transfers.isEmpty()) {
+            System.out.println("No transfers found.");
+        } else {
+            for (Transaction t : transfers) {
+                System.out.printf("ID: %d | %s -> %s | ₹%.2f | %s | %s | %s\n",
+                        t.getTransferId(),
+                        t.getAccountId(),
+                        t.getReferenceAccountId(),
+                        t.getAmount(),
+                        t.getTransactionDate().toString(),
+                        t.getStatus(),
+                        t.getDescription()
+                );
+            }
+        }
+        System.out.println("===============================\n");
+    }
+
     public static double getMinimumBalance() {
         return MINIMUM_BALANCE;
     }
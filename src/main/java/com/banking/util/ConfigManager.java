@@ -3,7 +3,9 @@ package main.java.com.banking.util;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Configuration Manager - Simple Version
@@ -121,6 +123,76 @@ public class ConfigManager {
         return getProperty("db.driver", "com.mysql.cj.jdbc.Driver");
     }
 
+    public static int getDatabasePoolSize() {
+        return Integer.parseInt(getProperty("db.pool.size", "10"));
+    }
+
+    public static long getDatabasePoolTimeout() {
+        return Long.parseLong(getProperty("db.pool.timeout.ms", "30000"));
+    }
+
+    /**
+     * Number of database shards; accounts are spread across them by a hash of the account ID
+     */
+    public static int getDatabaseShards() {
+        return Math.max(1, Integer.parseInt(getProperty("db.shards", "1")));
+    }
+
+    /**
+     * Shard 0 is db.url; every further shard has its own db.shard.N.* settings
+     * (username and password default to db.username and db.password)
+     */
+    public static String getDatabaseUrl(int shard) {
+        return shard == 0 ? getDatabaseUrl() : getProperty("db.shard." + shard + ".url", null);
+    }
+
+    public static String getDatabaseUsername(int shard) {
+        return shard == 0 ? getDatabaseUsername() : getProperty("db.shard." + shard + ".username", getDatabaseUsername());
+    }
+
+    public static String getDatabasePassword(int shard) {
+        return shard == 0 ? getDatabasePassword() : getProperty("db.shard." + shard + ".password", getDatabasePassword());
+    }
+
+    /**
+     * Read replicas of a shard, numbered from 1: db.replica.N.* for shard 0 and
+     * db.shard.S.replica.N.* for the others (username and password default to the shard's)
+     */
+    public static int getDatabaseReplicas(int shard) {
+        int replicas = 0;
+        while (getReplicaUrl(shard, replicas + 1) != null) {
+            replicas++;
+        }
+        return replicas;
+    }
+
+    public static String getReplicaUrl(int shard, int replica) {
+        return getProperty(replicaPrefix(shard, replica) + ".url", null);
+    }
+
+    public static String getReplicaUsername(int shard, int replica) {
+        return getProperty(replicaPrefix(shard, replica) + ".username", getDatabaseUsername(shard));
+    }
+
+    public static String getReplicaPassword(int shard, int replica) {
+        return getProperty(replicaPrefix(shard, replica) + ".password", getDatabasePassword(shard));
+    }
+
+    private static String replicaPrefix(int shard, int replica) {
+        return (shard == 0 ? "db" : "db.shard." + shard) + ".replica." + replica;
+    }
+
+    /**
+     * Staleness bound: reads only go to a replica known to be at most this far behind its primary
+     */
+    public static long getReplicaMaxLagMillis() {
+        return Long.parseLong(getProperty("db.replica.max.lag.ms", "5000"));
+    }
+
+    public static long getReplicaHeartbeatMillis() {
+        return Long.parseLong(getProperty("db.replica.heartbeat.ms", "1000"));
+    }
+
     // ==================== EMAIL CONFIGURATION ====================
 
     public static String getEmailHost() {
@@ -161,6 +233,304 @@ public class ConfigManager {
         return Long.parseLong(getProperty("system.monitoring.interval", "3600000"));
     }
 
+    // ==================== ASYNC PROCESSING CONFIGURATION ====================
+
+    public static int getAsyncPersistenceThreads() {
+        return Integer.parseInt(getProperty("async.persistence.threads", "4"));
+    }
+
+    public static int getAsyncNotificationThreads() {
+        return Integer.parseInt(getProperty("async.notification.threads", "2"));
+    }
+
+    public static boolean isAsyncNotificationEnabled() {
+        return Boolean.parseBoolean(getProperty("async.notifications.enabled", "false"));
+    }
+
+    // ==================== POSTING ENGINE CONFIGURATION ====================
+
+    public static String getEngineMode() {
+        return getProperty("engine.mode", "SYNCHRONIZED");
+    }
+
+    public static int getEngineRingSize() {
+        return Integer.parseInt(getProperty("engine.ring.size", "65536"));
+    }
+
+    public static int getEnginePersistenceThreads() {
+        return Integer.parseInt(getProperty("engine.persistence.threads", "4"));
+    }
+
+    public static int getEnginePartitions() {
+        return Integer.parseInt(getProperty("engine.partitions",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+
+    public static int getEngineStatelessThreads() {
+        return Integer.parseInt(getProperty("engine.stateless.threads",
+                String.valueOf(getDatabasePoolSize())));
+    }
+
+    public static boolean isEngineJournalEnabled() {
+        return Boolean.parseBoolean(getProperty("engine.journal.enabled", "true"));
+    }
+
+    public static String getEngineJournalFolder() {
+        return getProperty("engine.journal.folder", "journal/");
+    }
+
+    // ==================== HOT ACCOUNT CONFIGURATION ====================
+
+    /**
+     * Accounts whose balance is split into sub-balance slots (comma separated)
+     */
+    public static Set<String> getHotAccountIds() {
+        Set<String> ids = new HashSet<>();
+        for (String id : getProperty("hotaccounts.ids", "").split(",")) {
+            if (!id.trim().isEmpty()) {
+                ids.add(id.trim().toUpperCase());
+            }
+        }
+        return ids;
+    }
+
+    public static int getHotAccountSlots() {
+        return Integer.parseInt(getProperty("hotaccounts.slots", "8"));
+    }
+
+    // ==================== IDEMPOTENCY CONFIGURATION ====================
+
+    public static int getIdempotencyMaxEntries() {
+        return Integer.parseInt(getProperty("idempotency.max.entries", "100000"));
+    }
+
+    public static long getIdempotencyTtlMinutes() {
+        return Long.parseLong(getProperty("idempotency.ttl.minutes", "1440"));
+    }
+
+    // ==================== WRITE-BEHIND CONFIGURATION ====================
+
+    public static boolean isWriteBehindEnabled() {
+        return Boolean.parseBoolean(getProperty("balance.writebehind.enabled", "false"));
+    }
+
+    public static long getWriteBehindIntervalMillis() {
+        return Long.parseLong(getProperty("balance.writebehind.interval.ms", "200"));
+    }
+
+    public static int getWriteBehindMaxDirty() {
+        return Integer.parseInt(getProperty("balance.writebehind.max.dirty", "500"));
+    }
+
+    // ==================== CONCURRENCY CONFIGURATION ====================
+
+    /**
+     * Node id of this instance, part of every transaction ID (0-1023, unique per node)
+     */
+    public static int getNodeId() {
+        return Integer.parseInt(getProperty("node.id", "0"));
+    }
+
+    public static int getOptimisticMaxRetries() {
+        return Integer.parseInt(getProperty("concurrency.max.retries", "3"));
+    }
+
+    /**
+     * How often this node publishes its oldest uncommitted transaction ID (see PostingHorizon)
+     */
+    public static long getPostingHorizonHeartbeatMillis() {
+        return Long.parseLong(getProperty("posting.horizon.heartbeat.ms", "1000"));
+    }
+
+    /**
+     * After how long an uncommitted posting, or a node that stopped publishing, is taken as lost
+     */
+    public static long getPostingHorizonStaleSeconds() {
+        return Long.parseLong(getProperty("posting.horizon.stale.seconds", "600"));
+    }
+
+    // ==================== IMPORT / EXPORT CONFIGURATION ====================
+
+    public static int getImportChunkSize() {
+        return Integer.parseInt(getProperty("import.chunk.size", "1000"));
+    }
+
+    public static int getImportThreads() {
+        return Integer.parseInt(getProperty("import.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+
+    public static int getExportFetchSize() {
+        return Integer.parseInt(getProperty("export.fetch.size", "1000"));
+    }
+
+    public static int getStatementThreads() {
+        return Integer.parseInt(getProperty("statement.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+
+    public static int getStatementPartitionSize() {
+        return Integer.parseInt(getProperty("statement.partition.size", "500"));
+    }
+
+    // ==================== INTEREST ACCRUAL CONFIGURATION ====================
+
+    /**
+     * Annual interest rate table of an account type, as balance-floor:rate% pairs
+     * (empty if the type earns no interest)
+     */
+    public static String getInterestRates(String accountType) {
+        String defaults = switch (accountType) {
+            case "SAVINGS" -> "0:3.50";
+            case "FIXED_DEPOSIT" -> "0:6.50";
+            default -> "";
+        };
+        return getProperty("interest.rates." + accountType, defaults);
+    }
+
+    public static int getInterestDayCount() {
+        return Integer.parseInt(getProperty("interest.day.count", "365"));
+    }
+
+    public static int getInterestChunkSize() {
+        return Integer.parseInt(getProperty("interest.chunk.size", "1000"));
+    }
+
+    public static int getInterestThreads() {
+        return Integer.parseInt(getProperty("interest.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+
+    // ==================== BALANCE CHECKPOINT CONFIGURATION ====================
+
+    public static boolean isBalanceCheckpointEnabled() {
+        return Boolean.parseBoolean(getProperty("checkpoint.enabled", "true"));
+    }
+
+    public static long getBalanceCheckpointIntervalMinutes() {
+        return Long.parseLong(getProperty("checkpoint.interval.minutes", "1440"));
+    }
+
+    /**
+     * How far a checkpoint trails the clock, so postings still being persisted are not missed
+     */
+    public static long getBalanceCheckpointSettleSeconds() {
+        return Long.parseLong(getProperty("checkpoint.settle.seconds", "300"));
+    }
+
+    // ==================== DAILY SUMMARY CONFIGURATION ====================
+
+    public static boolean isDailySummaryEnabled() {
+        return Boolean.parseBoolean(getProperty("summary.enabled", "true"));
+    }
+
+    public static long getDailySummaryIntervalSeconds() {
+        return Long.parseLong(getProperty("summary.interval.seconds", "60"));
+    }
+
+    /**
+     * How far a summary refresh trails the clock, so postings still being persisted are not missed
+     */
+    public static long getDailySummarySettleSeconds() {
+        return Long.parseLong(getProperty("summary.settle.seconds", "30"));
+    }
+
+    // ==================== RECONCILIATION CONFIGURATION ====================
+
+    /**
+     * Accounts per reconciliation range (one ledger range scan each)
+     */
+    public static int getReconciliationPartitionSize() {
+        return Integer.parseInt(getProperty("reconciliation.partition.size", "10000"));
+    }
+
+    public static int getReconciliationThreads() {
+        return Integer.parseInt(getProperty("reconciliation.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * Discrepancies listed in the report; beyond this they are only counted
+     */
+    public static int getReconciliationMaxReported() {
+        return Integer.parseInt(getProperty("reconciliation.max.reported", "10000"));
+    }
+
+    // ==================== CHANGE LOG CONFIGURATION ====================
+
+    public static boolean isChangeLogEnabled() {
+        return Boolean.parseBoolean(getProperty("cdc.enabled", "false"));
+    }
+
+    public static String getChangeLogFolder() {
+        return getProperty("cdc.folder", "cdc/");
+    }
+
+    /**
+     * Size at which the active change log segment is rolled
+     */
+    public static long getChangeLogSegmentBytes() {
+        return Long.parseLong(getProperty("cdc.segment.bytes", String.valueOf(64L * 1024 * 1024)));
+    }
+
+    public static long getChangeLogRetentionHours() {
+        return Long.parseLong(getProperty("cdc.retention.hours", "168"));
+    }
+
+    public static long getChangeLogFlushIntervalMillis() {
+        return Long.parseLong(getProperty("cdc.flush.interval.ms", "1000"));
+    }
+
+    /**
+     * Events waiting for the log writer; postings wait when it is full
+     */
+    public static int getChangeLogBufferSize() {
+        return Integer.parseInt(getProperty("cdc.buffer.size", "65536"));
+    }
+
+    /**
+     * How far before the newest logged posting a restart looks for postings that were never logged
+     */
+    public static long getChangeLogRecoveryWindowSeconds() {
+        return Long.parseLong(getProperty("cdc.recovery.window.seconds", "60"));
+    }
+
+    // ==================== ANALYTICS CONFIGURATION ====================
+
+    public static boolean isAnalyticsEnabled() {
+        return Boolean.parseBoolean(getProperty("analytics.enabled", "false"));
+    }
+
+    /**
+     * Rows kept in memory (about 21 bytes each); the oldest half is dropped when full
+     */
+    public static int getAnalyticsCapacity() {
+        return Integer.parseInt(getProperty("analytics.capacity", "10000000"));
+    }
+
+    /**
+     * Days of ledger loaded on start (0 for all of it)
+     */
+    public static int getAnalyticsLoadDays() {
+        return Integer.parseInt(getProperty("analytics.load.days", "30"));
+    }
+
+    // ==================== EVENT BUS CONFIGURATION ====================
+
+    /**
+     * Default buffer per event bus subscriber (events waiting for a slow consumer)
+     */
+    public static int getEventBufferSize() {
+        return Integer.parseInt(getProperty("events.buffer.size", "8192"));
+    }
+
+    /**
+     * Buffer of the balance alert subscriber; when full the oldest pending alert checks are dropped
+     */
+    public static int getEventAlertBufferSize() {
+        return Integer.parseInt(getProperty("events.alerts.buffer.size", String.valueOf(getEventBufferSize())));
+    }
+
     /**
      * Reload configuration (useful for testing)
      */
@@ -175,6 +545,15 @@ public class ConfigManager {
     public static void displayConfiguration() {
         System.out.println("\n========== CURRENT CONFIGURATION ==========");
         System.out.println("Database URL: " + getDatabaseUrl());
+        for (int shard = 1; shard < getDatabaseShards(); shard++) {
+            System.out.println("Database Shard " + shard + " URL: " + getDatabaseUrl(shard));
+        }
+        for (int shard = 0; shard < getDatabaseShards(); shard++) {
+            for (int replica = 1; replica <= getDatabaseReplicas(shard); replica++) {
+                System.out.println("Read Replica " + (shard > 0 ? "Shard " + shard + " " : "") + replica +
+                        " URL: " + getReplicaUrl(shard, replica));
+            }
+        }
         System.out.println("Database User: " + getDatabaseUsername());
         System.out.println("Database Password: " + maskPassword(getDatabasePassword()));
         System.out.println("Email Enabled: " + isEmailEnabled());
@@ -184,6 +563,7 @@ public class ConfigManager {
         }
         System.out.println("Minimum Balance: ₹" + getMinimumBalance());
         System.out.println("Low Balance Threshold: ₹" + getLowBalanceThreshold());
+        System.out.println("Posting Engine: " + getEngineMode());
         System.out.println("===========================================\n");
     }
 
@@ -0,0 +1,187 @@
+package main.java.com.banking.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simple JDBC Connection Pool
+ * Hands out connections that return to the pool when closed,
+ * so callers can keep using try-with-resources from several threads
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final long waitTimeoutMs;
+
+    private final BlockingQueue<Connection> idle;
+    private final AtomicInteger opened = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    public ConnectionPool(String url, String username, String password, int maxSize, long waitTimeoutMs) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.idle = new ArrayBlockingQueue<>(this.maxSize);
+    }
+
+    /**
+     * Borrow a connection (closing it returns it to the pool)
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        Connection physical = idle.poll();
+        while (physical != null && !isUsable(physical)) {
+            discard(physical);
+            physical = idle.poll();
+        }
+
+        if (physical == null) {
+            physical = openOrWait();
+        }
+
+        return wrap(physical);
+    }
+
+    /**
+     * Close all idle connections and refuse new borrows
+     */
+    public void shutdown() {
+        closed = true;
+        Connection conn;
+        while ((conn = idle.poll()) != null) {
+            discard(conn);
+        }
+    }
+
+    public int getOpenedConnections() {
+        return opened.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    // ==================== INTERNALS ====================
+
+    private Connection openOrWait() throws SQLException {
+        while (true) {
+            int current = opened.get();
+            if (current < maxSize) {
+                if (opened.compareAndSet(current, current + 1)) {
+                    try {
+                        return DriverManager.getConnection(url, username, password);
+                    } catch (SQLException e) {
+                        opened.decrementAndGet();
+                        throw e;
+                    }
+                }
+                continue;
+            }
+
+            try {
+                Connection conn = idle.poll(waitTimeoutMs, TimeUnit.MILLISECONDS);
+                if (conn == null) {
+                    throw new SQLException("Timed out waiting for a database connection (pool size " + maxSize + ")");
+                }
+                if (isUsable(conn)) {
+                    return conn;
+                }
+                discard(conn);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+        }
+    }
+
+    private void release(Connection physical) {
+        try {
+            if (closed || physical.isClosed()) {
+                discard(physical);
+                return;
+            }
+            // Never hand out a connection with a half-finished transaction
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (physical.isReadOnly()) {
+                physical.setReadOnly(false);
+            }
+            if (!idle.offer(physical)) {
+                discard(physical);
+            }
+        } catch (SQLException e) {
+            discard(physical);
+        }
+    }
+
+    private void discard(Connection physical) {
+        opened.decrementAndGet();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            // Already broken, nothing else to do
+        }
+    }
+
+    private boolean isUsable(Connection conn) {
+        try {
+            return !conn.isClosed() && conn.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean returned = false;
+
+            @Override
+            public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("close")) {
+                    if (!returned) {
+                        returned = true;
+                        release(physical);
+                    }
+                    return null;
+                }
+                if (name.equals("isClosed")) {
+                    return returned || physical.isClosed();
+                }
+                if (returned) {
+                    throw new SQLException("Connection already returned to the pool");
+                }
+                try {
+                    return method.invoke(physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+}
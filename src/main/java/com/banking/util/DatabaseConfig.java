@@ -1,41 +1,52 @@
 package main.java.com.banking.util;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 
 /**
  * Database Configuration and Connection Management
  * Now uses external config.properties file for credentials
+ * Connections come from a small pool so several threads can use the database at once
+ *
+ * With db.shards > 1 every shard is a separate database with its own pool. Accounts,
+ * their ledger rows and balance checkpoints live on the shard their account ID hashes
+ * to; job progress tables stay on shard 0, which getConnection() returns.
+ *
+ * Each shard may also have read replicas (see ReadReplicas). getReadConnection() hands out a
+ * replica known to be within db.replica.max.lag.ms of its primary, otherwise the primary.
  */
 public class DatabaseConfig {
 
-    private static Connection connection = null;
+    private static ConnectionPool[] pools = null;
+    private static volatile ReadReplicas replicas = null;
+    private static volatile int shardCount = 0;
+    private static ExecutorService shardExecutor = null;
 
     /**
      * Get database connection using external configuration
+     * Closing the returned connection hands it back to the pool
      */
     public static Connection getConnection() throws SQLException {
-        try {
-            if (connection == null || connection.isClosed()) {
-                // Load credentials from external config
-                String url = ConfigManager.getDatabaseUrl();
-                String username = ConfigManager.getDatabaseUsername();
-                String password = ConfigManager.getDatabasePassword();
-                String driver = ConfigManager.getDatabaseDriver();
-
-                // Load MySQL JDBC Driver
-                Class.forName(driver);
+        return getConnection(0);
+    }
 
-                // Establish connection
-                connection = DriverManager.getConnection(url, username, password);
-                System.out.println("✓ Database connection established successfully!");
-            }
-            return connection;
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("MySQL JDBC Driver not found! Check Maven dependencies.", e);
+    /**
+     * Get a connection to one shard
+     */
+    public static Connection getConnection(int shard) throws SQLException {
+        try {
+            return getPools()[shard].borrow();
         } catch (SQLException e) {
-            System.err.println("\n❌ Database Connection Failed!");
+            System.err.println("\n❌ Database Connection Failed!" + (getShardCount() > 1 ? " (shard " + shard + ")" : ""));
             System.err.println("Error: " + e.getMessage());
             System.err.println("\nPlease check:");
             System.err.println("1. MySQL server is running");
@@ -46,17 +57,189 @@ public class DatabaseConfig {
         }
     }
 
+    /**
+     * Get a connection to the shard that owns an account
+     */
+    public static Connection getShardConnection(String accountId) throws SQLException {
+        return getConnection(shardOf(accountId));
+    }
+
+    /**
+     * Get a connection for read-only queries that may be slightly stale (history, reports):
+     * a replica of the shard within the lag bound, or the primary when there is none.
+     * Anything that writes, locks or must see its own latest postings uses getConnection().
+     */
+    public static Connection getReadConnection(int shard) throws SQLException {
+        getPools();
+        ReadReplicas current = replicas;
+        if (current != null) {
+            Connection conn = current.borrow(shard);
+            if (conn != null) {
+                return conn;
+            }
+        }
+        return getConnection(shard);
+    }
+
+    public static Connection getReadShardConnection(String accountId) throws SQLException {
+        return getReadConnection(shardOf(accountId));
+    }
+
+    /**
+     * Reads served by a replica and reads that fell back to the primary for want of one
+     */
+    public static long getReplicaReadCount() {
+        return replicas == null ? 0 : replicas.getReplicaReads();
+    }
+
+    public static long getReplicaFallbackCount() {
+        return replicas == null ? 0 : replicas.getPrimaryReads();
+    }
+
+    public static int getShardCount() {
+        if (shardCount == 0) {
+            shardCount = ConfigManager.getDatabaseShards();
+        }
+        return shardCount;
+    }
+
+    /**
+     * Shard of an account: CRC32 of the account ID, so every node and every run agrees
+     */
+    public static int shardOf(String accountId) {
+        int shards = getShardCount();
+        if (shards == 1) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(accountId.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shards);
+    }
+
+    /**
+     * Run a task against every shard in parallel and gather the results in shard order
+     * The first failure is rethrown once every shard has finished.
+     */
+    public static <T> List<T> onAllShards(ShardTask<T> task) throws SQLException {
+        int shards = getShardCount();
+        if (shards == 1) {
+            List<T> results = new ArrayList<>(1);
+            results.add(task.run(0));
+            return results;
+        }
+
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            int current = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.run(current);
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, getShardExecutor()));
+        }
+
+        List<T> results = new ArrayList<>(shards);
+        SQLException failure = null;
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof SQLException
+                            ? (SQLException) e.getCause() : new SQLException(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Work done on one shard
+     */
+    @FunctionalInterface
+    public interface ShardTask<T> {
+        T run(int shard) throws SQLException;
+    }
+
+    /**
+     * Lazily create one connection pool per shard
+     */
+    private static synchronized ConnectionPool[] getPools() throws SQLException {
+        if (pools == null) {
+            // Load credentials from external config
+            String driver = ConfigManager.getDatabaseDriver();
+
+            try {
+                // Load MySQL JDBC Driver
+                Class.forName(driver);
+            } catch (ClassNotFoundException e) {
+                throw new SQLException("MySQL JDBC Driver not found! Check Maven dependencies.", e);
+            }
+
+            int shards = getShardCount();
+            ConnectionPool[] created = new ConnectionPool[shards];
+            for (int shard = 0; shard < shards; shard++) {
+                String url = ConfigManager.getDatabaseUrl(shard);
+                if (url == null) {
+                    throw new SQLException("db.shard." + shard + ".url is not configured (db.shards=" + shards + ")");
+                }
+                created[shard] = new ConnectionPool(url, ConfigManager.getDatabaseUsername(shard),
+                        ConfigManager.getDatabasePassword(shard),
+                        ConfigManager.getDatabasePoolSize(), ConfigManager.getDatabasePoolTimeout());
+            }
+            pools = created;
+            System.out.println("✓ Database connection pool created (max " +
+                    ConfigManager.getDatabasePoolSize() + " connections" +
+                    (shards > 1 ? " on each of " + shards + " shards)" : ")"));
+
+            int replicaCount = 0;
+            for (int shard = 0; shard < shards; shard++) {
+                replicaCount += ConfigManager.getDatabaseReplicas(shard);
+            }
+            if (replicaCount > 0) {
+                replicas = new ReadReplicas(created);
+                System.out.println("✓ " + replicaCount + " read replica pool(s) created (max lag " +
+                        ConfigManager.getReplicaMaxLagMillis() + " ms)");
+            }
+        }
+        return pools;
+    }
+
+    private static synchronized ExecutorService getShardExecutor() {
+        if (shardExecutor == null) {
+            AtomicInteger counter = new AtomicInteger();
+            shardExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "db-shard-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return shardExecutor;
+    }
+
     /**
      * Close database connection
      */
-    public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("✓ Database connection closed successfully!");
+    public static synchronized void closeConnection() {
+        if (replicas != null) {
+            replicas.shutdown();
+            replicas = null;
+        }
+        if (pools != null) {
+            for (ConnectionPool pool : pools) {
+                pool.shutdown();
             }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
+            pools = null;
+            System.out.println("✓ Database connection closed successfully!");
+        }
+        if (shardExecutor != null) {
+            shardExecutor.shutdown();
+            shardExecutor = null;
         }
     }
 
@@ -65,15 +248,19 @@ public class DatabaseConfig {
      */
     public static boolean testConnection() {
         try {
-            Connection conn = getConnection();
-            boolean isValid = conn != null && !conn.isClosed();
-            if (isValid) {
-                System.out.println("✓ Database connection test: SUCCESS");
-            }
-            return isValid;
+            onAllShards(shard -> {
+                try (Connection conn = getConnection(shard)) {
+                    if (conn == null || conn.isClosed()) {
+                        throw new SQLException("Connection is closed");
+                    }
+                }
+                return null;
+            });
+            System.out.println("✓ Database connection test: SUCCESS");
+            return true;
         } catch (SQLException e) {
             System.err.println("❌ Database connection test: FAILED");
             return false;
         }
     }
-}
\ No newline at end of file
+}
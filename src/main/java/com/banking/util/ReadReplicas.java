@@ -0,0 +1,176 @@
+package main.java.com.banking.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read Replicas
+ * One connection pool per configured replica of each shard, plus a heartbeat that tells
+ * how far behind each replica is.
+ *
+ * Every db.replica.heartbeat.ms this node writes the current time into its row of
+ * replication_heartbeats on each primary and reads the row back from each replica. A
+ * replica showing a beat written at T has everything the primary committed before T, so
+ * (now - T) bounds how stale its data is. A replica is only used while that bound is within
+ * db.replica.max.lag.ms; a lagging or unreachable replica is skipped until it catches up,
+ * and with no usable replica the read goes to the primary.
+ */
+class ReadReplicas {
+
+    private static final String BEAT_SQL = "INSERT INTO replication_heartbeats (node_id, beat_millis) " +
+            "VALUES (?, ?) ON DUPLICATE KEY UPDATE beat_millis = VALUES(beat_millis)";
+    private static final String SEEN_SQL = "SELECT beat_millis FROM replication_heartbeats WHERE node_id = ?";
+
+    private final ConnectionPool[] primaries;
+    private final Replica[][] replicas;
+    private final int nodeId = ConfigManager.getNodeId();
+    private final long maxLagMillis = ConfigManager.getReplicaMaxLagMillis();
+    private final ScheduledExecutorService heartbeat;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private boolean beatFailing = false;
+
+    ReadReplicas(ConnectionPool[] primaries) {
+        this.primaries = primaries;
+        this.replicas = new Replica[primaries.length][];
+        for (int shard = 0; shard < primaries.length; shard++) {
+            replicas[shard] = new Replica[ConfigManager.getDatabaseReplicas(shard)];
+            for (int r = 0; r < replicas[shard].length; r++) {
+                String name = "replica " + (r + 1) + (primaries.length > 1 ? " of shard " + shard : "");
+                replicas[shard][r] = new Replica(name, new ConnectionPool(ConfigManager.getReplicaUrl(shard, r + 1),
+                        ConfigManager.getReplicaUsername(shard, r + 1), ConfigManager.getReplicaPassword(shard, r + 1),
+                        ConfigManager.getDatabasePoolSize(), ConfigManager.getDatabasePoolTimeout()));
+            }
+        }
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::beat, 0, ConfigManager.getReplicaHeartbeatMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A connection to a replica of the shard that is within the lag bound (round robin),
+     * or null when there is none and the caller has to read from the primary
+     */
+    Connection borrow(int shard) {
+        Replica[] candidates = replicas[shard];
+        if (candidates.length > 0) {
+            long now = System.currentTimeMillis();
+            int start = Math.floorMod(nextReplica.getAndIncrement(), candidates.length);
+            for (int i = 0; i < candidates.length; i++) {
+                Replica replica = candidates[(start + i) % candidates.length];
+                if (!replica.isFresh(now, maxLagMillis)) {
+                    continue;
+                }
+                try {
+                    Connection conn = replica.pool.borrow();
+                    replicaReads.increment();
+                    return conn;
+                } catch (SQLException e) {
+                    replica.reachable = false;
+                }
+            }
+        }
+        primaryReads.increment();
+        return null;
+    }
+
+    long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    long getPrimaryReads() {
+        return primaryReads.sum();
+    }
+
+    void shutdown() {
+        heartbeat.shutdownNow();
+        for (Replica[] shardReplicas : replicas) {
+            for (Replica replica : shardReplicas) {
+                replica.pool.shutdown();
+            }
+        }
+    }
+
+    // ==================== HEARTBEAT ====================
+
+    private void beat() {
+        boolean failed = false;
+        for (int shard = 0; shard < replicas.length; shard++) {
+            if (replicas[shard].length == 0) {
+                continue;
+            }
+
+            try (Connection conn = primaries[shard].borrow();
+                 PreparedStatement stmt = conn.prepareStatement(BEAT_SQL)) {
+                stmt.setInt(1, nodeId);
+                stmt.setLong(2, System.currentTimeMillis());
+                stmt.executeUpdate();
+            } catch (SQLException e) {
+                if (!beatFailing) {
+                    System.err.println("❌ Replication heartbeat failed on shard " + shard + ": " + e.getMessage());
+                }
+                failed = true;
+            }
+
+            for (Replica replica : replicas[shard]) {
+                check(replica);
+            }
+        }
+        beatFailing = failed;
+    }
+
+    private void check(Replica replica) {
+        try (Connection conn = replica.pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement(SEEN_SQL)) {
+            stmt.setInt(1, nodeId);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                replica.seenBeatMillis = Math.max(replica.seenBeatMillis, rs.getLong(1));
+            }
+            replica.reachable = true;
+        } catch (SQLException e) {
+            replica.reachable = false;
+        }
+
+        long now = System.currentTimeMillis();
+        boolean fresh = replica.isFresh(now, maxLagMillis);
+        if (fresh && !replica.serving) {
+            System.out.println("✓ Read " + replica.name + " is in sync, serving reads");
+        } else if (!fresh && replica.serving) {
+            System.err.println("❌ Read " + replica.name + (replica.reachable
+                    ? " is " + (now - replica.seenBeatMillis) + " ms behind" : " is unreachable") +
+                    ", reading from the primary");
+        }
+        replica.serving = fresh;
+    }
+
+    private static final class Replica {
+        final String name;
+        final ConnectionPool pool;
+        volatile long seenBeatMillis = 0;
+        volatile boolean reachable = true;
+        boolean serving = false;
+
+        Replica(String name, ConnectionPool pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+
+        boolean isFresh(long now, long maxLagMillis) {
+            return reachable && now - seenBeatMillis <= maxLagMillis;
+        }
+    }
+}
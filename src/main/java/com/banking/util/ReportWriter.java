@@ -0,0 +1,211 @@
+package main.java.com.banking.util;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Report Writer
+ * Fast text output for reports. Text is appended to one reused StringBuilder with
+ * hand-rolled number, amount and date appenders (no String.format, no formatter
+ * lookups per row) and fixed-width columns. Whenever enough text has built up it is
+ * encoded as UTF-8 into a large direct buffer and written to a FileChannel.
+ *
+ * Amounts are rounded half-up to two decimals, like String.format("%.2f").
+ * Not thread-safe: one writer per report.
+ */
+public class ReportWriter implements AutoCloseable {
+
+    // Shared formatters (DateTimeFormatter is immutable and thread-safe)
+    public static final DateTimeFormatter DISPLAY_DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    public static final DateTimeFormatter DISPLAY_DATE_TIME = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+    public static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private static final int FLUSH_CHARS = 1 << 15;
+    private static final int BUFFER_BYTES = 1 << 18;
+
+    private final FileChannel channel;
+    private final ByteBuffer bytes;
+    private final CharsetEncoder encoder;
+    private final StringBuilder text = new StringBuilder(FLUSH_CHARS + 1024);
+
+    public ReportWriter(String filename) throws IOException {
+        this(Paths.get(filename));
+    }
+
+    public ReportWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.bytes = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        this.encoder = StandardCharsets.UTF_8.newEncoder();
+    }
+
+    // ==================== PLAIN TEXT ====================
+
+    public ReportWriter text(String value) throws IOException {
+        text.append(value);
+        return checkFlush();
+    }
+
+    public ReportWriter line(String value) throws IOException {
+        text.append(value).append('\n');
+        return checkFlush();
+    }
+
+    public ReportWriter newline() throws IOException {
+        text.append('\n');
+        return checkFlush();
+    }
+
+    public ReportWriter repeat(char c, int count) {
+        for (int i = 0; i < count; i++) {
+            text.append(c);
+        }
+        return this;
+    }
+
+    public ReportWriter number(long value) {
+        text.append(value);
+        return this;
+    }
+
+    /**
+     * Amount with exactly two decimals, e.g. 1234.50
+     * Rounds the shortest decimal form of the value half-up, as String.format("%.2f") does
+     * (1.005 gives 1.01). Values clear of a half-cent take the plain arithmetic path.
+     */
+    public ReportWriter amount(double value) {
+        double scaled = Math.abs(value) * 100;
+        long cents;
+        if (scaled < 1e9 && Math.abs(scaled - Math.floor(scaled) - 0.5) > 1e-6) {
+            cents = Math.round(scaled);
+        } else {
+            cents = BigDecimal.valueOf(Math.abs(value)).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        }
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            text.append('-');
+        }
+        text.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            text.append('0');
+        }
+        text.append(fraction);
+        return this;
+    }
+
+    /**
+     * Date and time as dd-MM-yyyy HH:mm:ss
+     */
+    public ReportWriter dateTime(LocalDateTime value) {
+        if (value == null) {
+            text.append("null");
+            return this;
+        }
+        twoDigits(value.getDayOfMonth()).append('-');
+        twoDigits(value.getMonthValue()).append('-');
+        text.append(value.getYear()).append(' ');
+        twoDigits(value.getHour()).append(':');
+        twoDigits(value.getMinute()).append(':');
+        twoDigits(value.getSecond());
+        return this;
+    }
+
+    // ==================== FIXED-WIDTH COLUMNS ====================
+    // Left-aligned and space-padded like %-Ns, never truncated
+
+    public ReportWriter column(String value, int width) {
+        int start = text.length();
+        text.append(value);
+        return pad(start, width);
+    }
+
+    public ReportWriter column(long value, int width) {
+        int start = text.length();
+        text.append(value);
+        return pad(start, width);
+    }
+
+    public ReportWriter amountColumn(double value, int width) {
+        int start = text.length();
+        amount(value);
+        return pad(start, width);
+    }
+
+    public ReportWriter dateTimeColumn(LocalDateTime value, int width) {
+        int start = text.length();
+        dateTime(value);
+        return pad(start, width);
+    }
+
+    // ==================== OUTPUT ====================
+
+    /**
+     * Write everything appended so far to the file
+     */
+    public void flush() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, true);
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        encoder.reset();
+        text.setLength(0);
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private ReportWriter checkFlush() throws IOException {
+        if (text.length() >= FLUSH_CHARS) {
+            flush();
+        }
+        return this;
+    }
+
+    private ReportWriter pad(int start, int width) {
+        for (int i = text.length() - start; i < width; i++) {
+            text.append(' ');
+        }
+        return this;
+    }
+
+    private StringBuilder twoDigits(int value) {
+        if (value < 10) {
+            text.append('0');
+        }
+        return text.append(value);
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}